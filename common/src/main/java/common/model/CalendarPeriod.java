@@ -0,0 +1,15 @@
+package common.model;
+
+/**
+ * Calendar periods used to group instants, aligned as in DateUtils: days start at midnight, weeks on Monday,
+ * trimesters in January, April, July and October, and semesters in January and July.
+ */
+public enum CalendarPeriod {
+
+    DAY,
+    WEEK,
+    MONTH,
+    TRIMESTER,
+    SEMESTER,
+    YEAR
+}
@@ -0,0 +1,165 @@
+package common.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable interval tree over possibly overlapping periods, answering which of them contain an instant in
+ * O(log n + k) for k matches. Periods are half-open, as in {@link PeriodSet}. The tree is implicit: the periods are
+ * sorted by start in primitive arrays, every subarray's middle element is its root, and each root also records the
+ * latest end in its subtree so that subtrees ending before the instant are skipped.
+ */
+public final class PeriodIndex {
+
+    private final long[] starts;
+    private final long[] ends;
+    private final long[] maximumEnds;
+    private final int[] periodIndexes;
+
+    public PeriodIndex(List<Period> periods) {
+
+        int size = periods.size();
+        Integer[] order = new Integer[size];
+        for (int index = 0; index < size; index++) {
+            order[index] = index;
+        }
+        Arrays.sort(order, (first, second) -> periods.get(first).getStartingInstant()
+                .compareTo(periods.get(second).getStartingInstant()));
+
+        this.starts = new long[size];
+        this.ends = new long[size];
+        this.maximumEnds = new long[size];
+        this.periodIndexes = new int[size];
+        for (int index = 0; index < size; index++) {
+            Period period = periods.get(order[index]);
+            starts[index] = period.getStartingInstant().toEpochMilli();
+            ends[index] = period.getEndingInstant().toEpochMilli();
+            periodIndexes[index] = order[index];
+        }
+        computeMaximumEnds(0, size - 1);
+    }
+
+    public int size() {
+        return starts.length;
+    }
+
+    /**
+     * Returns the indexes, in the list the index was built from, of the periods containing the received instant.
+     *
+     * @param epochMillis the instant, as epoch millis.
+     *
+     * @return the ascending indexes of the containing periods.
+     */
+    public int[] getContainingPeriodIndexes(long epochMillis) {
+
+        IndexCollector indexCollector = new IndexCollector();
+        collect(epochMillis, 0, starts.length - 1, indexCollector);
+        int[] containingPeriodIndexes = Arrays.copyOf(indexCollector.indexes, indexCollector.size);
+        Arrays.sort(containingPeriodIndexes);
+        return containingPeriodIndexes;
+    }
+
+    /**
+     * Returns how many periods contain the received instant, without collecting them.
+     *
+     * @param epochMillis the instant, as epoch millis.
+     *
+     * @return the number of containing periods.
+     */
+    public int countContainingPeriods(long epochMillis) {
+        return count(epochMillis, 0, starts.length - 1);
+    }
+
+    public boolean isContained(long epochMillis) {
+        return count(epochMillis, 0, starts.length - 1) > 0;
+    }
+
+    /**
+     * Returns, for every received instant, how many periods contain it.
+     *
+     * @param epochMillis the instants, as epoch millis.
+     *
+     * @return the number of containing periods of every instant, in the same order.
+     */
+    public int[] countContainingPeriods(long[] epochMillis) {
+
+        int[] counts = new int[epochMillis.length];
+        for (int index = 0; index < epochMillis.length; index++) {
+            counts[index] = count(epochMillis[index], 0, starts.length - 1);
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the instants covered by at least one of the indexed periods.
+     *
+     * @return the union of the indexed periods.
+     */
+    public PeriodSet toPeriodSet() {
+        return PeriodSet.ofEpochMillis(starts, ends);
+    }
+
+    private long computeMaximumEnds(int low, int high) {
+
+        if (low > high) {
+            return Long.MIN_VALUE;
+        }
+        int middle = (low + high) >>> 1;
+        maximumEnds[middle] = Math.max(
+                ends[middle],
+                Math.max(computeMaximumEnds(low, middle - 1), computeMaximumEnds(middle + 1, high)));
+        return maximumEnds[middle];
+    }
+
+    private void collect(long epochMillis, int low, int high, IndexCollector indexCollector) {
+
+        if (low > high) {
+            return;
+        }
+        int middle = (low + high) >>> 1;
+        if (maximumEnds[middle] <= epochMillis) {
+            return;
+        }
+        collect(epochMillis, low, middle - 1, indexCollector);
+        // Everything on the right starts at or after the middle period, so it is only worth visiting if that does.
+        if (starts[middle] <= epochMillis) {
+            if (epochMillis < ends[middle]) {
+                indexCollector.add(periodIndexes[middle]);
+            }
+            collect(epochMillis, middle + 1, high, indexCollector);
+        }
+    }
+
+    private int count(long epochMillis, int low, int high) {
+
+        if (low > high) {
+            return 0;
+        }
+        int middle = (low + high) >>> 1;
+        if (maximumEnds[middle] <= epochMillis) {
+            return 0;
+        }
+        int count = count(epochMillis, low, middle - 1);
+        if (starts[middle] <= epochMillis) {
+            if (epochMillis < ends[middle]) {
+                count++;
+            }
+            count += count(epochMillis, middle + 1, high);
+        }
+        return count;
+    }
+
+    private static final class IndexCollector {
+
+        private int[] indexes = new int[8];
+        private int size;
+
+        private void add(int index) {
+
+            if (size == indexes.length) {
+                indexes = Arrays.copyOf(indexes, size * 2);
+            }
+            indexes[size++] = index;
+        }
+    }
+}
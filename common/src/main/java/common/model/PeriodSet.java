@@ -0,0 +1,311 @@
+package common.model;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * An immutable set of instants made of disjoint periods, such as exclusion windows. Every period is half-open: it
+ * contains its starting instant but not its ending one, so adjacent periods tile without overlapping. The periods are
+ * kept merged and sorted in two primitive arrays of epoch millis, so membership is a binary search and set algebra is
+ * a linear merge.
+ */
+public final class PeriodSet {
+
+    public static final PeriodSet EMPTY = new PeriodSet(new long[0], new long[0]);
+
+    private final long[] starts;
+    private final long[] ends;
+
+    private PeriodSet(long[] starts, long[] ends) {
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    /**
+     * Returns the set of instants covered by any of the received periods, merging overlapping and adjacent ones.
+     *
+     * @param periods the periods to cover.
+     *
+     * @return the period set.
+     */
+    public static PeriodSet of(Collection<Period> periods) {
+
+        long[] periodStarts = new long[periods.size()];
+        long[] periodEnds = new long[periods.size()];
+        int index = 0;
+        for (Period period : periods) {
+            periodStarts[index] = period.getStartingInstant().toEpochMilli();
+            periodEnds[index] = period.getEndingInstant().toEpochMilli();
+            index++;
+        }
+        return ofEpochMillis(periodStarts, periodEnds);
+    }
+
+    public static PeriodSet of(Period... periods) {
+        return of(Arrays.asList(periods));
+    }
+
+    /**
+     * Returns the set of instants covered by any of the received periods, given as parallel arrays of epoch millis
+     * in any order.
+     *
+     * @param periodStarts the inclusive start of every period.
+     * @param periodEnds the exclusive end of every period.
+     *
+     * @return the period set.
+     */
+    public static PeriodSet ofEpochMillis(long[] periodStarts, long[] periodEnds) {
+
+        if (periodStarts.length != periodEnds.length) {
+            throw new IllegalArgumentException("Every period needs a start and an end.");
+        }
+
+        Integer[] order = new Integer[periodStarts.length];
+        for (int index = 0; index < order.length; index++) {
+            order[index] = index;
+        }
+        Arrays.sort(order, (first, second) -> Long.compare(periodStarts[first], periodStarts[second]));
+
+        Builder builder = new Builder(order.length);
+        for (int index : order) {
+            builder.add(periodStarts[index], periodEnds[index]);
+        }
+        return builder.build();
+    }
+
+    public int size() {
+        return starts.length;
+    }
+
+    public boolean isEmpty() {
+        return starts.length == 0;
+    }
+
+    public Period getPeriod(int periodIndex) {
+        return new Period(Instant.ofEpochMilli(starts[periodIndex]), Instant.ofEpochMilli(ends[periodIndex]));
+    }
+
+    public List<Period> getPeriods() {
+
+        List<Period> periods = new ArrayList<>(starts.length);
+        for (int periodIndex = 0; periodIndex < starts.length; periodIndex++) {
+            periods.add(getPeriod(periodIndex));
+        }
+        return periods;
+    }
+
+    public long getTotalDurationMillis() {
+
+        long totalDurationMillis = 0L;
+        for (int periodIndex = 0; periodIndex < starts.length; periodIndex++) {
+            totalDurationMillis += ends[periodIndex] - starts[periodIndex];
+        }
+        return totalDurationMillis;
+    }
+
+    /**
+     * Returns the index of the period containing the received instant, in O(log n).
+     *
+     * @param epochMillis the instant, as epoch millis.
+     *
+     * @return the index of the containing period, or -1 if no period contains the instant.
+     */
+    public int indexOf(long epochMillis) {
+
+        int index = Arrays.binarySearch(starts, epochMillis);
+        if (index >= 0) {
+            return index;
+        }
+        index = -index - 2;
+        return ((index >= 0) && (epochMillis < ends[index])) ? index : -1;
+    }
+
+    public boolean contains(long epochMillis) {
+        return indexOf(epochMillis) >= 0;
+    }
+
+    public boolean contains(Instant instant) {
+        return contains(instant.toEpochMilli());
+    }
+
+    /**
+     * Returns, for every received instant, the index of the period containing it, or -1 if none does.
+     *
+     * @param epochMillis the instants, as epoch millis.
+     *
+     * @return the containing period indexes, in the same order.
+     */
+    public int[] classify(long[] epochMillis) {
+
+        int[] periodIndexes = new int[epochMillis.length];
+        for (int index = 0; index < epochMillis.length; index++) {
+            periodIndexes[index] = indexOf(epochMillis[index]);
+        }
+        return periodIndexes;
+    }
+
+    /**
+     * Returns how many of the received instants are contained in the set.
+     *
+     * @param epochMillis the instants, as epoch millis.
+     *
+     * @return the number of contained instants.
+     */
+    public int countContained(long[] epochMillis) {
+
+        int count = 0;
+        for (long instantMillis : epochMillis) {
+            if (indexOf(instantMillis) >= 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public PeriodSet union(PeriodSet periodSet) {
+
+        Builder builder = new Builder(starts.length + periodSet.starts.length);
+        int index = 0;
+        int otherIndex = 0;
+        while ((index < starts.length) || (otherIndex < periodSet.starts.length)) {
+            if ((otherIndex == periodSet.starts.length)
+                    || ((index < starts.length) && (starts[index] <= periodSet.starts[otherIndex]))) {
+                builder.add(starts[index], ends[index]);
+                index++;
+            } else {
+                builder.add(periodSet.starts[otherIndex], periodSet.ends[otherIndex]);
+                otherIndex++;
+            }
+        }
+        return builder.build();
+    }
+
+    public PeriodSet intersection(PeriodSet periodSet) {
+
+        Builder builder = new Builder(Math.min(starts.length, periodSet.starts.length) * 2);
+        int index = 0;
+        int otherIndex = 0;
+        while ((index < starts.length) && (otherIndex < periodSet.starts.length)) {
+            builder.add(
+                    Math.max(starts[index], periodSet.starts[otherIndex]),
+                    Math.min(ends[index], periodSet.ends[otherIndex]));
+            if (ends[index] < periodSet.ends[otherIndex]) {
+                index++;
+            } else {
+                otherIndex++;
+            }
+        }
+        return builder.build();
+    }
+
+    public PeriodSet difference(PeriodSet periodSet) {
+
+        Builder builder = new Builder(starts.length + periodSet.starts.length);
+        int otherIndex = 0;
+        for (int index = 0; index < starts.length; index++) {
+            long start = starts[index];
+            long end = ends[index];
+
+            while ((otherIndex < periodSet.starts.length) && (periodSet.ends[otherIndex] <= start)) {
+                otherIndex++;
+            }
+            // Later periods of this set may still overlap the current period of the other one, so it is not consumed.
+            int removedIndex = otherIndex;
+            while ((removedIndex < periodSet.starts.length) && (periodSet.starts[removedIndex] < end)) {
+                builder.add(start, periodSet.starts[removedIndex]);
+                start = Math.max(start, periodSet.ends[removedIndex]);
+                removedIndex++;
+            }
+            builder.add(start, end);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the complement of this set within the received bounds.
+     *
+     * @param startingInstant the inclusive start of the bounds.
+     * @param endingInstant the exclusive end of the bounds.
+     *
+     * @return the instants between the bounds not contained in this set.
+     */
+    public PeriodSet complement(Instant startingInstant, Instant endingInstant) {
+        return of(new Period(startingInstant, endingInstant)).difference(this);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof PeriodSet)) {
+            return false;
+        }
+        PeriodSet that = (PeriodSet) other;
+        return Arrays.equals(starts, that.starts) && Arrays.equals(ends, that.ends);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(starts) + Arrays.hashCode(ends);
+    }
+
+    @Override
+    public String toString() {
+
+        StringBuilder stringBuilder = new StringBuilder("[");
+        for (int periodIndex = 0; periodIndex < starts.length; periodIndex++) {
+            if (periodIndex > 0) {
+                stringBuilder.append(", ");
+            }
+            stringBuilder.append('[')
+                    .append(Instant.ofEpochMilli(starts[periodIndex]))
+                    .append(", ")
+                    .append(Instant.ofEpochMilli(ends[periodIndex]))
+                    .append(')');
+        }
+        return stringBuilder.append(']').toString();
+    }
+
+    /**
+     * Collects periods added by ascending start, merging each one into the last when they overlap or touch and
+     * dropping empty ones.
+     */
+    private static final class Builder {
+
+        private long[] starts;
+        private long[] ends;
+        private int size;
+
+        private Builder(int capacity) {
+            this.starts = new long[Math.max(capacity, 1)];
+            this.ends = new long[Math.max(capacity, 1)];
+        }
+
+        private void add(long start, long end) {
+
+            if (start >= end) {
+                return;
+            }
+            if ((size > 0) && (start <= ends[size - 1])) {
+                ends[size - 1] = Math.max(ends[size - 1], end);
+                return;
+            }
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            size++;
+        }
+
+        private PeriodSet build() {
+            return (size == 0) ? EMPTY : new PeriodSet(Arrays.copyOf(starts, size), Arrays.copyOf(ends, size));
+        }
+    }
+}
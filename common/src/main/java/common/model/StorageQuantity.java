@@ -0,0 +1,281 @@
+package common.model;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * An exact amount of storage, held as a number of bytes in a long, which covers up to 8 EiB. Arithmetic fails with
+ * an ArithmeticException instead of overflowing, and conversions to binary units are shifts.
+ */
+public final class StorageQuantity implements Comparable<StorageQuantity> {
+
+    public static final StorageQuantity ZERO = new StorageQuantity(0L);
+
+    private static final long[] POWERS_OF_TEN = {
+            1L,
+            10L,
+            100L,
+            1_000L,
+            10_000L,
+            100_000L,
+            1_000_000L,
+            10_000_000L,
+            100_000_000L,
+            1_000_000_000L,
+            10_000_000_000L,
+            100_000_000_000L,
+            1_000_000_000_000L,
+            10_000_000_000_000L,
+            100_000_000_000_000L,
+            1_000_000_000_000_000L,
+            10_000_000_000_000_000L,
+            100_000_000_000_000_000L,
+            1_000_000_000_000_000_000L};
+
+    private static final StorageUnit[] BINARY_UNITS = {
+            StorageUnit.EXBIBYTE,
+            StorageUnit.PEBIBYTE,
+            StorageUnit.TEBIBYTE,
+            StorageUnit.GIBIBYTE,
+            StorageUnit.MEBIBYTE,
+            StorageUnit.KIBIBYTE,
+            StorageUnit.BYTE};
+
+    private static final StorageUnit[] DECIMAL_UNITS = {
+            StorageUnit.DECIMAL_EXABYTE,
+            StorageUnit.DECIMAL_PETABYTE,
+            StorageUnit.DECIMAL_TERABYTE,
+            StorageUnit.DECIMAL_GIGABYTE,
+            StorageUnit.DECIMAL_MEGABYTE,
+            StorageUnit.DECIMAL_KILOBYTE,
+            StorageUnit.BYTE};
+
+    private final long bytes;
+
+    private StorageQuantity(long bytes) {
+        this.bytes = bytes;
+    }
+
+    public static StorageQuantity ofBytes(long bytes) {
+        return new StorageQuantity(bytes);
+    }
+
+    public static StorageQuantity of(long value, StorageUnit storageUnit) {
+        return new StorageQuantity(Math.multiplyExact(value, storageUnit.getBytes()));
+    }
+
+    /**
+     * Parses a storage quantity made of a number, with an optional fraction, and an optional unit symbol, such as
+     * "12.5 GiB", "3MB" or "1024". Symbols are matched ignoring case and the result is rounded to the nearest byte.
+     * The text is scanned once without regular expressions or intermediate strings.
+     *
+     * @param text the text to parse.
+     *
+     * @return the parsed quantity.
+     *
+     * @throws NumberFormatException if the text is not a valid storage quantity.
+     */
+    public static StorageQuantity parse(CharSequence text) {
+
+        int end = text.length();
+        while ((end > 0) && (text.charAt(end - 1) == ' ')) {
+            end--;
+        }
+        int index = 0;
+        while ((index < end) && (text.charAt(index) == ' ')) {
+            index++;
+        }
+
+        long integerPart = 0L;
+        int integerDigits = 0;
+        for (char character; (index < end) && isDigit(character = text.charAt(index)); index++, integerDigits++) {
+            if (integerPart > (Long.MAX_VALUE - 9) / 10) {
+                throw new NumberFormatException("Storage quantity out of range: " + text);
+            }
+            integerPart = integerPart * 10 + (character - '0');
+        }
+
+        long fractionPart = 0L;
+        int fractionDigits = 0;
+        if ((index < end) && (text.charAt(index) == '.')) {
+            index++;
+            for (char character; (index < end) && isDigit(character = text.charAt(index)); index++) {
+                // Digits beyond the eighteenth cannot change the result by a byte for units up to exa.
+                if (fractionDigits < POWERS_OF_TEN.length - 1) {
+                    fractionPart = fractionPart * 10 + (character - '0');
+                    fractionDigits++;
+                }
+            }
+        }
+        if ((integerDigits == 0) && (fractionDigits == 0)) {
+            throw new NumberFormatException("Invalid storage quantity: " + text);
+        }
+
+        while ((index < end) && (text.charAt(index) == ' ')) {
+            index++;
+        }
+        StorageUnit storageUnit = StorageUnit.getStorageUnitBySymbol(text, index, end);
+        if (storageUnit == null) {
+            throw new NumberFormatException("Unknown storage unit: " + text);
+        }
+
+        try {
+            return new StorageQuantity(Math.addExact(
+                    Math.multiplyExact(integerPart, storageUnit.getBytes()),
+                    scaleFraction(fractionPart, fractionDigits, storageUnit.getBytes())));
+        } catch (ArithmeticException exc) {
+            throw new NumberFormatException("Storage quantity out of range: " + text);
+        }
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public StorageQuantity plus(StorageQuantity storageQuantity) {
+        return new StorageQuantity(Math.addExact(bytes, storageQuantity.bytes));
+    }
+
+    public StorageQuantity minus(StorageQuantity storageQuantity) {
+        return new StorageQuantity(Math.subtractExact(bytes, storageQuantity.bytes));
+    }
+
+    /**
+     * Returns the number of whole units in this quantity, rounded down.
+     *
+     * @param storageUnit the unit to convert to.
+     *
+     * @return the number of whole units.
+     */
+    public long toWholeUnits(StorageUnit storageUnit) {
+        return storageUnit.isBinary()
+                ? (bytes >> storageUnit.getShift())
+                : Math.floorDiv(bytes, storageUnit.getBytes());
+    }
+
+    public double toUnits(StorageUnit storageUnit) {
+
+        long wholeUnits = toWholeUnits(storageUnit);
+        long remainder = bytes - wholeUnits * storageUnit.getBytes();
+        return wholeUnits + ((double) remainder / storageUnit.getBytes());
+    }
+
+    public BigDecimal toExactUnits(StorageUnit storageUnit) {
+        return BigDecimal.valueOf(bytes).divide(BigDecimal.valueOf(storageUnit.getBytes()));
+    }
+
+    /**
+     * Appends this quantity to the received builder in the received unit, with at most two decimals.
+     * Example: 13421772800 bytes in GIBIBYTE are appended as "12.5 GiB".
+     *
+     * @param stringBuilder the builder to append to.
+     * @param storageUnit the unit to format in.
+     *
+     * @return the received builder.
+     */
+    public StringBuilder formatTo(StringBuilder stringBuilder, StorageUnit storageUnit) {
+
+        long magnitude = getUnsignedMagnitude();
+        if (bytes < 0) {
+            stringBuilder.append('-');
+        }
+
+        long wholeUnits = storageUnit.isBinary()
+                ? (magnitude >>> storageUnit.getShift())
+                : Long.divideUnsigned(magnitude, storageUnit.getBytes());
+        long numerator = magnitude - wholeUnits * storageUnit.getBytes();
+        long denominator = storageUnit.getBytes();
+        while (numerator > Long.MAX_VALUE / 200) {
+            numerator >>= 1;
+            denominator >>= 1;
+        }
+        long hundredths = ((numerator * 200 / denominator) + 1) / 2;
+        if (hundredths == 100) {
+            wholeUnits++;
+            hundredths = 0;
+        }
+
+        stringBuilder.append(Long.toUnsignedString(wholeUnits));
+        if (hundredths > 0) {
+            stringBuilder.append('.').append((char) ('0' + hundredths / 10));
+            if (hundredths % 10 != 0) {
+                stringBuilder.append((char) ('0' + hundredths % 10));
+            }
+        }
+        return stringBuilder.append(' ').append(storageUnit.getSymbol());
+    }
+
+    /**
+     * Appends this quantity to the received builder in the largest unit holding at least one whole unit.
+     *
+     * @param stringBuilder the builder to append to.
+     * @param decimalUnits whether decimal SI units are used instead of binary ones.
+     *
+     * @return the received builder.
+     */
+    public StringBuilder formatTo(StringBuilder stringBuilder, boolean decimalUnits) {
+        return formatTo(stringBuilder, getLargestUnit(decimalUnits ? DECIMAL_UNITS : BINARY_UNITS));
+    }
+
+    public String format(StorageUnit storageUnit) {
+        return formatTo(new StringBuilder(24), storageUnit).toString();
+    }
+
+    @Override
+    public int compareTo(StorageQuantity storageQuantity) {
+        return Long.compare(bytes, storageQuantity.bytes);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return (other instanceof StorageQuantity) && (bytes == ((StorageQuantity) other).bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(bytes);
+    }
+
+    @Override
+    public String toString() {
+        return formatTo(new StringBuilder(24), false).toString();
+    }
+
+    /**
+     * Returns the absolute number of bytes as an unsigned long, which unlike {@link Math#abs(long)} is also right for
+     * Long.MIN_VALUE, whose magnitude does not fit a signed long.
+     */
+    private long getUnsignedMagnitude() {
+        return (bytes < 0) ? -bytes : bytes;
+    }
+
+    private StorageUnit getLargestUnit(StorageUnit[] storageUnits) {
+
+        long magnitude = getUnsignedMagnitude();
+        for (StorageUnit storageUnit : storageUnits) {
+            if (Long.compareUnsigned(magnitude, storageUnit.getBytes()) >= 0) {
+                return storageUnit;
+            }
+        }
+        return StorageUnit.BYTE;
+    }
+
+    private static long scaleFraction(long fractionPart, int fractionDigits, long unitBytes) {
+
+        long divisor = POWERS_OF_TEN[fractionDigits];
+        try {
+            return Math.addExact(Math.multiplyExact(fractionPart, unitBytes), divisor / 2) / divisor;
+        } catch (ArithmeticException exc) {
+            // The product needs more than 64 bits, which only happens with long fractions of the largest units.
+            return BigInteger.valueOf(fractionPart)
+                    .multiply(BigInteger.valueOf(unitBytes))
+                    .add(BigInteger.valueOf(divisor / 2))
+                    .divide(BigInteger.valueOf(divisor))
+                    .longValueExact();
+        }
+    }
+
+    private static boolean isDigit(char character) {
+        return (character >= '0') && (character <= '9');
+    }
+}
@@ -0,0 +1,94 @@
+package common.model;
+
+/**
+ * Storage units with their exact size in bytes: binary units (powers of 1024, IEC symbols) and decimal SI units
+ * (powers of 1000). Binary units also expose their size as a shift, so conversions from bytes are a single shift.
+ * Units larger than exa do not fit in a long and are not represented. Decimal units carry a DECIMAL_ prefix, since
+ * {@link Storage} uses the plain KILOBYTE, MEGABYTE and so on for powers of 1024.
+ */
+public enum StorageUnit {
+
+    BYTE("B", 1L, 0),
+    KIBIBYTE("KiB", 1L << 10, 10),
+    MEBIBYTE("MiB", 1L << 20, 20),
+    GIBIBYTE("GiB", 1L << 30, 30),
+    TEBIBYTE("TiB", 1L << 40, 40),
+    PEBIBYTE("PiB", 1L << 50, 50),
+    EXBIBYTE("EiB", 1L << 60, 60),
+    DECIMAL_KILOBYTE("kB", 1_000L, -1),
+    DECIMAL_MEGABYTE("MB", 1_000_000L, -1),
+    DECIMAL_GIGABYTE("GB", 1_000_000_000L, -1),
+    DECIMAL_TERABYTE("TB", 1_000_000_000_000L, -1),
+    DECIMAL_PETABYTE("PB", 1_000_000_000_000_000L, -1),
+    DECIMAL_EXABYTE("EB", 1_000_000_000_000_000_000L, -1);
+
+    private static final StorageUnit[] UNITS = values();
+
+    private final String symbol;
+    private final long bytes;
+    private final int shift;
+
+    StorageUnit(String symbol, long bytes, int shift) {
+        this.symbol = symbol;
+        this.bytes = bytes;
+        this.shift = shift;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns the base 2 logarithm of the unit size for binary units, or -1 for decimal ones.
+     *
+     * @return the unit shift.
+     */
+    public int getShift() {
+        return shift;
+    }
+
+    public boolean isBinary() {
+        return shift >= 0;
+    }
+
+    @Override
+    public String toString() {
+        return symbol;
+    }
+
+    /**
+     * Returns the unit whose symbol matches, ignoring case, the received characters. An empty symbol stands for bytes.
+     * The characters are compared in place, so no string is allocated.
+     * Example: for "12.5 GiB" with start 5 and end 8 the returned unit is GIBIBYTE.
+     *
+     * @param text the text holding the symbol.
+     * @param start the index of the first symbol character.
+     * @param end the index after the last symbol character.
+     *
+     * @return the matching unit, or null if no unit matches.
+     */
+    public static StorageUnit getStorageUnitBySymbol(CharSequence text, int start, int end) {
+
+        if (start == end) {
+            return BYTE;
+        }
+        for (StorageUnit storageUnit : UNITS) {
+            if (storageUnit.symbol.length() != end - start) {
+                continue;
+            }
+            boolean matches = true;
+            for (int index = 0; matches && (index < storageUnit.symbol.length()); index++) {
+                matches = Character.toLowerCase(text.charAt(start + index))
+                        == Character.toLowerCase(storageUnit.symbol.charAt(index));
+            }
+            if (matches) {
+                return storageUnit;
+            }
+        }
+        return null;
+    }
+}
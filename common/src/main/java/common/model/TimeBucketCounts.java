@@ -0,0 +1,54 @@
+package common.model;
+
+import java.time.Instant;
+
+public class TimeBucketCounts {
+
+    private final CalendarPeriod calendarPeriod;
+    private final long[] boundaries;
+    private final long[] counts;
+
+    /**
+     * Creates an instance of TimeBucketCounts.
+     *
+     * @param calendarPeriod the calendar period of every bucket.
+     * @param boundaries the epoch millis where every bucket starts, followed by the end of the last one.
+     * @param counts the number of instants of every bucket.
+     */
+    public TimeBucketCounts(CalendarPeriod calendarPeriod, long[] boundaries, long[] counts) {
+        this.calendarPeriod = calendarPeriod;
+        this.boundaries = boundaries;
+        this.counts = counts;
+    }
+
+    public CalendarPeriod getCalendarPeriod() {
+        return calendarPeriod;
+    }
+
+    public int size() {
+        return counts.length;
+    }
+
+    public long getBucketStartMillis(int bucketIndex) {
+        return boundaries[bucketIndex];
+    }
+
+    public Period getPeriod(int bucketIndex) {
+        return new Period(
+                Instant.ofEpochMilli(boundaries[bucketIndex]),
+                Instant.ofEpochMilli(boundaries[bucketIndex + 1]));
+    }
+
+    public long getCount(int bucketIndex) {
+        return counts[bucketIndex];
+    }
+
+    public long getTotalCount() {
+
+        long totalCount = 0L;
+        for (long count : counts) {
+            totalCount += count;
+        }
+        return totalCount;
+    }
+}
@@ -1425,9 +1425,9 @@ public final class DateUtils {
      */
     public static Period getNextTrimesterPeriod(DateTime dateToCompare) {
 
-        int differential = dateToCompare.getMonthOfYear() % 3;
+        int differential = (dateToCompare.getMonthOfYear() - 1) % 3;
 
-        DateTime startOfNextTrimester = new DateTime(dateToCompare.plusMonths(differential + 1)
+        DateTime startOfNextTrimester = new DateTime(dateToCompare.plusMonths(3 - differential)
                 .withDayOfMonth(1)
                 .withTimeAtStartOfDay());
 
@@ -1460,9 +1460,9 @@ public final class DateUtils {
      */
     public static Period getNextSemesterPeriod(DateTime dateToCompare) {
 
-        int differential = dateToCompare.getMonthOfYear() % 6;
+        int differential = (dateToCompare.getMonthOfYear() - 1) % 6;
 
-        DateTime startOfNextSemester = new DateTime(dateToCompare.plusMonths(differential + 1)
+        DateTime startOfNextSemester = new DateTime(dateToCompare.plusMonths(6 - differential)
                 .withDayOfMonth(1)
                 .withTimeAtStartOfDay());
 
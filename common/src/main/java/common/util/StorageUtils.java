@@ -3,9 +3,29 @@ package common.util;
 import common.exceptions.SameStorageUnitException;
 import common.exceptions.UnexpectedStorageConversionException;
 import common.model.Storage;
+import common.model.StorageQuantity;
+import common.model.StorageUnit;
 
 public final class StorageUtils {
 
+    // BINARY_FACTORS[n] is 1024 to the power of n, one entry per step between Storage units.
+    private static final double[] BINARY_FACTORS = new double[Storage.values().length];
+
+    // UNIT_FACTORS[from][to] is the number of "to" units in one "from" unit.
+    private static final double[][] UNIT_FACTORS = new double[StorageUnit.values().length][StorageUnit.values().length];
+
+    static {
+        for (int power = 0; power < BINARY_FACTORS.length; power++) {
+            BINARY_FACTORS[power] = Math.pow(1024, power);
+        }
+        for (StorageUnit fromStorageUnit : StorageUnit.values()) {
+            for (StorageUnit toStorageUnit : StorageUnit.values()) {
+                UNIT_FACTORS[fromStorageUnit.ordinal()][toStorageUnit.ordinal()] =
+                        (double) fromStorageUnit.getBytes() / toStorageUnit.getBytes();
+            }
+        }
+    }
+
     /**
      * Creates an instance of StorageUtils with no arguments.
      */
@@ -13,6 +33,7 @@ public final class StorageUtils {
 
     /**
      * Converts the value received on the old storage unit to the new one.
+     * Every step between units is a factor of 1024, so one gigabyte is 1048576 kilobytes.
      *
      * @param oldStorageUnit the old storage unit.
      * @param storageValue the old storage value.
@@ -25,22 +46,96 @@ public final class StorageUtils {
             double storageValue,
             Storage newStorageUnit) {
 
-        if ((oldStorageUnit == newStorageUnit) ||
-            (oldStorageUnit.toString().equalsIgnoreCase(newStorageUnit.toString()))) {
+        if (oldStorageUnit == newStorageUnit) {
             throw new SameStorageUnitException();
         }
 
         int differential = oldStorageUnit.ordinal() - newStorageUnit.ordinal();
 
         if (differential > 0) {
-            return storageValue * (1024 * differential);
+            return storageValue * BINARY_FACTORS[differential];
         } else if (differential < 0) {
-            return storageValue / (1024 * Math.abs(differential));
+            return storageValue / BINARY_FACTORS[-differential];
         } else {
             throw new UnexpectedStorageConversionException();
         }
     }
 
+    /**
+     * Converts every received value from the old storage unit to the new one, writing them into the received results
+     * array. The conversion factor is looked up once, so the loop is a plain multiplication.
+     *
+     * @param oldStorageUnit the old storage unit.
+     * @param storageValues the old storage values.
+     * @param newStorageUnit the new storage unit.
+     * @param results the array receiving the values on the new storage unit, at least as long as the values.
+     */
+    public static void convertStorageUnit(
+            StorageUnit oldStorageUnit,
+            double[] storageValues,
+            StorageUnit newStorageUnit,
+            double[] results) {
+
+        double factor = UNIT_FACTORS[oldStorageUnit.ordinal()][newStorageUnit.ordinal()];
+        for (int index = 0; index < storageValues.length; index++) {
+            results[index] = storageValues[index] * factor;
+        }
+    }
+
+    /**
+     * Converts every received byte count to whole units of the new storage unit, rounded down, writing them
+     * into the received results array. Binary units are converted with a shift.
+     *
+     * @param bytesValues the values in bytes.
+     * @param newStorageUnit the new storage unit.
+     * @param results the array receiving the whole values on the new storage unit, at least as long as the values.
+     */
+    public static void convertBytesToWholeUnits(long[] bytesValues, StorageUnit newStorageUnit, long[] results) {
+
+        if (newStorageUnit.isBinary()) {
+            int shift = newStorageUnit.getShift();
+            for (int index = 0; index < bytesValues.length; index++) {
+                results[index] = bytesValues[index] >> shift;
+            }
+        } else {
+            long unitBytes = newStorageUnit.getBytes();
+            for (int index = 0; index < bytesValues.length; index++) {
+                results[index] = Math.floorDiv(bytesValues[index], unitBytes);
+            }
+        }
+    }
+
+    /**
+     * Converts every received byte count to the new storage unit, writing them into the received results array.
+     *
+     * @param bytesValues the values in bytes.
+     * @param newStorageUnit the new storage unit.
+     * @param results the array receiving the values on the new storage unit, at least as long as the values.
+     */
+    public static void convertBytesToUnits(long[] bytesValues, StorageUnit newStorageUnit, double[] results) {
+
+        double factor = UNIT_FACTORS[StorageUnit.BYTE.ordinal()][newStorageUnit.ordinal()];
+        for (int index = 0; index < bytesValues.length; index++) {
+            results[index] = bytesValues[index] * factor;
+        }
+    }
+
+    /**
+     * Returns the exact sum of the received byte counts.
+     *
+     * @param bytesValues the values in bytes.
+     *
+     * @return the total quantity.
+     */
+    public static StorageQuantity sumBytes(long[] bytesValues) {
+
+        long totalBytes = 0L;
+        for (long bytesValue : bytesValues) {
+            totalBytes = Math.addExact(totalBytes, bytesValue);
+        }
+        return StorageQuantity.ofBytes(totalBytes);
+    }
+
     /**
      * Converts the received value from bytes to kilobytes.
      *
@@ -0,0 +1,403 @@
+package common.util;
+
+import common.model.CalendarPeriod;
+import common.model.TimeBucketCounts;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+public final class TimeBucketUtils {
+
+    // Below this size the parallel path costs more than it saves.
+    private static final int PARALLEL_CHUNK_SIZE = 1 << 16;
+
+    // About eleven years of days, so one outlier cannot make a table, cached or not, arbitrarily large.
+    private static final int MAX_CACHED_BOUNDARIES = 4096;
+
+    private static final Map<BoundaryTableKey, long[]> BOUNDARY_TABLES = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an instance of TimeBucketUtils with no arguments.
+     */
+    private TimeBucketUtils() {}
+
+    /**
+     * Returns, for every received instant, the start of the calendar period containing it in the received time zone.
+     * Periods are aligned as in DateUtils and honour daylight saving transitions, so a day may last 23 or 25 hours.
+     * Period boundaries are computed once per time zone and cached, and every instant is placed by binary search.
+     * When the instants span too many periods to be tabled, the ones outside the cached table are aligned one by one.
+     * Example: if an instant corresponds to '18-04-1996 09:00:00' and the calendar period is WEEK, the returned
+     * value for it corresponds to '15-04-1996 00:00:00'.
+     *
+     * @param epochMillis the instants to group, as epoch milliseconds.
+     * @param calendarPeriod the calendar period of the buckets.
+     * @param zoneId the time zone the periods are aligned in.
+     * @param parallel whether large arrays are processed in parallel.
+     *
+     * @return the epoch milliseconds where the period of every instant starts, in the same order.
+     */
+    public static long[] getBucketStarts(
+            long[] epochMillis,
+            CalendarPeriod calendarPeriod,
+            ZoneId zoneId,
+            boolean parallel) {
+
+        long[] bucketStarts = new long[epochMillis.length];
+        if (epochMillis.length == 0) {
+            return bucketStarts;
+        }
+
+        long[] boundaries = getBoundaries(
+                min(epochMillis, parallel),
+                max(epochMillis, parallel),
+                calendarPeriod,
+                zoneId);
+        if (boundaries == null) {
+            return getBucketStartsOutsideTable(epochMillis, calendarPeriod, zoneId, parallel);
+        }
+        if (parallel && (epochMillis.length > PARALLEL_CHUNK_SIZE)) {
+            Arrays.parallelSetAll(
+                    bucketStarts,
+                    index -> boundaries[findBoundaryIndex(boundaries, epochMillis[index])]);
+            return bucketStarts;
+        }
+
+        int boundaryIndex = 0;
+        for (int index = 0; index < epochMillis.length; index++) {
+            boundaryIndex = findBoundaryIndex(boundaries, epochMillis[index], boundaryIndex);
+            bucketStarts[index] = boundaries[boundaryIndex];
+        }
+        return bucketStarts;
+    }
+
+    /**
+     * Returns, for every received instant, the start of the calendar period containing it in the received time zone.
+     *
+     * @param epochMillis the instants to group, as epoch milliseconds.
+     * @param calendarPeriod the calendar period of the buckets.
+     * @param zoneId the time zone the periods are aligned in.
+     *
+     * @return the epoch milliseconds where the period of every instant starts, in the same order.
+     */
+    public static long[] getBucketStarts(long[] epochMillis, CalendarPeriod calendarPeriod, ZoneId zoneId) {
+        return getBucketStarts(epochMillis, calendarPeriod, zoneId, false);
+    }
+
+    /**
+     * Returns how many of the received instants fall in every calendar period, from the period of the earliest
+     * instant to the period of the latest one, including the empty periods in between.
+     * Example: if the instants correspond to '18-04-1996 09:00:00', '18-04-1996 22:00:00' and '20-04-1996 10:00:00'
+     * and the calendar period is DAY, the returned counts are 2, 0 and 1, for the 18th, 19th and 20th April 1996.
+     *
+     * @param epochMillis the instants to group, as epoch milliseconds.
+     * @param calendarPeriod the calendar period of the buckets.
+     * @param zoneId the time zone the periods are aligned in.
+     * @param parallel whether large arrays are processed in parallel.
+     *
+     * @return the number of instants per calendar period.
+     */
+    public static TimeBucketCounts countByBucket(
+            long[] epochMillis,
+            CalendarPeriod calendarPeriod,
+            ZoneId zoneId,
+            boolean parallel) {
+
+        if (epochMillis.length == 0) {
+            return new TimeBucketCounts(calendarPeriod, new long[0], new long[0]);
+        }
+
+        long minimumMillis = min(epochMillis, parallel);
+        long maximumMillis = max(epochMillis, parallel);
+        long[] tabledBoundaries = getBoundaries(minimumMillis, maximumMillis, calendarPeriod, zoneId);
+        // The counts hold one entry per period anyway, so an untabled range costs no more as a full table.
+        long[] boundaries = (tabledBoundaries != null)
+                ? tabledBoundaries
+                : buildBoundaries(minimumMillis, maximumMillis, calendarPeriod, zoneId, Integer.MAX_VALUE);
+        int firstBoundaryIndex = findBoundaryIndex(boundaries, minimumMillis);
+        int lastBoundaryIndex = findBoundaryIndex(boundaries, maximumMillis);
+        int bucketCount = lastBoundaryIndex - firstBoundaryIndex + 1;
+
+        long[] counts;
+        if (parallel && (epochMillis.length > PARALLEL_CHUNK_SIZE)) {
+            int chunkCount = (epochMillis.length + PARALLEL_CHUNK_SIZE - 1) / PARALLEL_CHUNK_SIZE;
+            counts = IntStream.range(0, chunkCount)
+                    .parallel()
+                    .mapToObj(chunkIndex -> countChunk(
+                            epochMillis,
+                            chunkIndex * PARALLEL_CHUNK_SIZE,
+                            Math.min((chunkIndex + 1) * PARALLEL_CHUNK_SIZE, epochMillis.length),
+                            boundaries,
+                            firstBoundaryIndex,
+                            bucketCount))
+                    .reduce(TimeBucketUtils::addCounts)
+                    .orElseGet(() -> new long[bucketCount]);
+        } else {
+            counts = countChunk(epochMillis, 0, epochMillis.length, boundaries, firstBoundaryIndex, bucketCount);
+        }
+
+        return new TimeBucketCounts(
+                calendarPeriod,
+                Arrays.copyOfRange(boundaries, firstBoundaryIndex, lastBoundaryIndex + 2),
+                counts);
+    }
+
+    /**
+     * Returns how many of the received instants fall in every calendar period, from the period of the earliest
+     * instant to the period of the latest one, including the empty periods in between.
+     *
+     * @param epochMillis the instants to group, as epoch milliseconds.
+     * @param calendarPeriod the calendar period of the buckets.
+     * @param zoneId the time zone the periods are aligned in.
+     *
+     * @return the number of instants per calendar period.
+     */
+    public static TimeBucketCounts countByBucket(long[] epochMillis, CalendarPeriod calendarPeriod, ZoneId zoneId) {
+        return countByBucket(epochMillis, calendarPeriod, zoneId, false);
+    }
+
+    /**
+     * Returns the start of the calendar period containing the received date.
+     * Example: if the received date corresponds to '18-04-1996' and the calendar period is TRIMESTER, the returned
+     * date corresponds to '01-04-1996'.
+     *
+     * @param date the date to align.
+     * @param calendarPeriod the calendar period.
+     *
+     * @return the first date of the calendar period.
+     */
+    public static LocalDate getPeriodStart(LocalDate date, CalendarPeriod calendarPeriod) {
+
+        switch (calendarPeriod) {
+
+            case DAY:
+                return date;
+            case WEEK:
+                return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH:
+                return date.withDayOfMonth(1);
+            case TRIMESTER:
+                return date.withDayOfMonth(1).withMonth(date.getMonthValue() - ((date.getMonthValue() - 1) % 3));
+            case SEMESTER:
+                return date.withDayOfMonth(1).withMonth(date.getMonthValue() - ((date.getMonthValue() - 1) % 6));
+            case YEAR:
+                return date.withDayOfYear(1);
+            default:
+                throw new IllegalArgumentException("Unsupported calendar period: " + calendarPeriod);
+        }
+    }
+
+    private static LocalDate getNextPeriodStart(LocalDate periodStart, CalendarPeriod calendarPeriod) {
+
+        switch (calendarPeriod) {
+
+            case DAY:
+                return periodStart.plusDays(1);
+            case WEEK:
+                return periodStart.plusWeeks(1);
+            case MONTH:
+                return periodStart.plusMonths(1);
+            case TRIMESTER:
+                return periodStart.plusMonths(3);
+            case SEMESTER:
+                return periodStart.plusMonths(6);
+            case YEAR:
+                return periodStart.plusYears(1);
+            default:
+                throw new IllegalArgumentException("Unsupported calendar period: " + calendarPeriod);
+        }
+    }
+
+    /**
+     * Returns an ascending table of period starts whose first entry is at or before the earliest instant and whose
+     * last entry is after the latest one. A cached table that does not cover the instants is rebuilt over the union
+     * of both ranges, as long as the union stays within {@link #MAX_CACHED_BOUNDARIES}; otherwise a table of the
+     * instants' range alone is built and not cached. Returns null when even that range is too wide.
+     */
+    private static long[] getBoundaries(
+            long minimumMillis,
+            long maximumMillis,
+            CalendarPeriod calendarPeriod,
+            ZoneId zoneId) {
+
+        BoundaryTableKey boundaryTableKey = new BoundaryTableKey(calendarPeriod, zoneId);
+        long[] boundaries = BOUNDARY_TABLES.get(boundaryTableKey);
+        if ((boundaries != null) && covers(boundaries, minimumMillis, maximumMillis)) {
+            return boundaries;
+        }
+
+        long[] cachedBoundaries = BOUNDARY_TABLES.compute(boundaryTableKey, (key, previousBoundaries) -> {
+            if (previousBoundaries == null) {
+                return buildBoundaries(minimumMillis, maximumMillis, calendarPeriod, zoneId, MAX_CACHED_BOUNDARIES);
+            }
+            if (covers(previousBoundaries, minimumMillis, maximumMillis)) {
+                return previousBoundaries;
+            }
+            long[] unionBoundaries = buildBoundaries(
+                    Math.min(minimumMillis, previousBoundaries[0]),
+                    Math.max(maximumMillis, previousBoundaries[previousBoundaries.length - 2]),
+                    calendarPeriod,
+                    zoneId,
+                    MAX_CACHED_BOUNDARIES);
+            return (unionBoundaries != null) ? unionBoundaries : previousBoundaries;
+        });
+
+        if ((cachedBoundaries != null) && covers(cachedBoundaries, minimumMillis, maximumMillis)) {
+            return cachedBoundaries;
+        }
+        return buildBoundaries(minimumMillis, maximumMillis, calendarPeriod, zoneId, MAX_CACHED_BOUNDARIES);
+    }
+
+    private static boolean covers(long[] boundaries, long minimumMillis, long maximumMillis) {
+        return (boundaries[0] <= minimumMillis) && (maximumMillis < boundaries[boundaries.length - 1]);
+    }
+
+    /**
+     * Builds the table of period starts from the period of the earliest instant to the first one after the latest,
+     * or returns null if it would hold more than the maximum number of boundaries.
+     */
+    private static long[] buildBoundaries(
+            long minimumMillis,
+            long maximumMillis,
+            CalendarPeriod calendarPeriod,
+            ZoneId zoneId,
+            int maximumBoundaries) {
+
+        LocalDate periodStart = getPeriodStart(
+                Instant.ofEpochMilli(minimumMillis).atZone(zoneId).toLocalDate(),
+                calendarPeriod);
+
+        long[] boundaries = new long[64];
+        int size = 0;
+        long boundary;
+        do {
+            if (size == maximumBoundaries) {
+                return null;
+            }
+            boundary = periodStart.atStartOfDay(zoneId).toInstant().toEpochMilli();
+            if (size == boundaries.length) {
+                boundaries = Arrays.copyOf(boundaries, (int) Math.min((long) size * 2, maximumBoundaries));
+            }
+            boundaries[size++] = boundary;
+            periodStart = getNextPeriodStart(periodStart, calendarPeriod);
+        } while (boundary <= maximumMillis);
+
+        return Arrays.copyOf(boundaries, size);
+    }
+
+    /**
+     * Places instants spanning too many periods for a table: the ones covered by the cached table, if any, are looked
+     * up in it and the others are aligned one by one.
+     */
+    private static long[] getBucketStartsOutsideTable(
+            long[] epochMillis,
+            CalendarPeriod calendarPeriod,
+            ZoneId zoneId,
+            boolean parallel) {
+
+        long[] cachedBoundaries = BOUNDARY_TABLES.get(new BoundaryTableKey(calendarPeriod, zoneId));
+        long[] bucketStarts = new long[epochMillis.length];
+        IntStream indexes = IntStream.range(0, epochMillis.length);
+        if (parallel && (epochMillis.length > PARALLEL_CHUNK_SIZE)) {
+            indexes = indexes.parallel();
+        }
+        indexes.forEach(index -> {
+            long instantMillis = epochMillis[index];
+            bucketStarts[index] = ((cachedBoundaries != null) && covers(cachedBoundaries, instantMillis, instantMillis))
+                    ? cachedBoundaries[findBoundaryIndex(cachedBoundaries, instantMillis)]
+                    : getPeriodStart(Instant.ofEpochMilli(instantMillis).atZone(zoneId).toLocalDate(), calendarPeriod)
+                            .atStartOfDay(zoneId)
+                            .toInstant()
+                            .toEpochMilli();
+        });
+        return bucketStarts;
+    }
+
+    private static long[] countChunk(
+            long[] epochMillis,
+            int fromIndex,
+            int toIndex,
+            long[] boundaries,
+            int firstBoundaryIndex,
+            int bucketCount) {
+
+        long[] counts = new long[bucketCount];
+        int boundaryIndex = firstBoundaryIndex;
+        for (int index = fromIndex; index < toIndex; index++) {
+            boundaryIndex = findBoundaryIndex(boundaries, epochMillis[index], boundaryIndex);
+            counts[boundaryIndex - firstBoundaryIndex]++;
+        }
+        return counts;
+    }
+
+    private static long[] addCounts(long[] counts, long[] otherCounts) {
+
+        for (int index = 0; index < counts.length; index++) {
+            counts[index] += otherCounts[index];
+        }
+        return counts;
+    }
+
+    private static int findBoundaryIndex(long[] boundaries, long epochMillis, int lastBoundaryIndex) {
+
+        // Timestamps are often clustered or sorted, so the bucket of the previous one is checked before searching.
+        if ((boundaries[lastBoundaryIndex] <= epochMillis) && (epochMillis < boundaries[lastBoundaryIndex + 1])) {
+            return lastBoundaryIndex;
+        }
+        return findBoundaryIndex(boundaries, epochMillis);
+    }
+
+    private static int findBoundaryIndex(long[] boundaries, long epochMillis) {
+
+        int index = Arrays.binarySearch(boundaries, epochMillis);
+        return (index >= 0) ? index : -index - 2;
+    }
+
+    private static long min(long[] epochMillis, boolean parallel) {
+        return (parallel && (epochMillis.length > PARALLEL_CHUNK_SIZE))
+                ? Arrays.stream(epochMillis).parallel().min().getAsLong()
+                : Arrays.stream(epochMillis).min().getAsLong();
+    }
+
+    private static long max(long[] epochMillis, boolean parallel) {
+        return (parallel && (epochMillis.length > PARALLEL_CHUNK_SIZE))
+                ? Arrays.stream(epochMillis).parallel().max().getAsLong()
+                : Arrays.stream(epochMillis).max().getAsLong();
+    }
+
+    private static final class BoundaryTableKey {
+
+        private final CalendarPeriod calendarPeriod;
+        private final ZoneId zoneId;
+
+        private BoundaryTableKey(CalendarPeriod calendarPeriod, ZoneId zoneId) {
+            this.calendarPeriod = calendarPeriod;
+            this.zoneId = zoneId;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof BoundaryTableKey)) {
+                return false;
+            }
+            BoundaryTableKey that = (BoundaryTableKey) other;
+            return (calendarPeriod == that.calendarPeriod) && zoneId.equals(that.zoneId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(calendarPeriod, zoneId);
+        }
+    }
+}
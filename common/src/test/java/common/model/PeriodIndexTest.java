@@ -0,0 +1,75 @@
+package common.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class PeriodIndexTest {
+
+    @Test
+    public void getContainingPeriodIndexesTest() {
+
+        PeriodIndex periodIndex = new PeriodIndex(Arrays.asList(
+                period(0, 100),
+                period(10, 20),
+                period(15, 30),
+                period(50, 60),
+                period(20, 21)));
+
+        Assert.assertArrayEquals(new int[] {0, 1, 2}, periodIndex.getContainingPeriodIndexes(15L));
+        Assert.assertArrayEquals(new int[] {0, 2, 4}, periodIndex.getContainingPeriodIndexes(20L));
+        Assert.assertArrayEquals(new int[] {0}, periodIndex.getContainingPeriodIndexes(99L));
+        Assert.assertArrayEquals(new int[0], periodIndex.getContainingPeriodIndexes(100L));
+        Assert.assertEquals(2, periodIndex.countContainingPeriods(55L));
+        Assert.assertFalse(periodIndex.isContained(-1L));
+        Assert.assertArrayEquals(new int[] {0, 3, 1}, periodIndex.countContainingPeriods(new long[] {-1L, 15L, 99L}));
+        Assert.assertEquals(PeriodSet.of(period(0, 100)), periodIndex.toPeriodSet());
+    }
+
+    @Test
+    public void matchesLinearScanTest() {
+
+        Random random = new Random(18041996L);
+        List<Period> periods = new ArrayList<>();
+        for (int index = 0; index < 500; index++) {
+            long start = random.nextInt(10000);
+            periods.add(period(start, start + random.nextInt(500)));
+        }
+        PeriodIndex periodIndex = new PeriodIndex(periods);
+
+        for (int query = 0; query < 2000; query++) {
+            long epochMillis = random.nextInt(11000) - 500;
+            List<Integer> expectedIndexes = new ArrayList<>();
+            for (int index = 0; index < periods.size(); index++) {
+                Period period = periods.get(index);
+                if ((period.getStartingInstant().toEpochMilli() <= epochMillis)
+                        && (epochMillis < period.getEndingInstant().toEpochMilli())) {
+                    expectedIndexes.add(index);
+                }
+            }
+            Assert.assertArrayEquals(
+                    expectedIndexes.stream().mapToInt(Integer::intValue).toArray(),
+                    periodIndex.getContainingPeriodIndexes(epochMillis));
+            Assert.assertEquals(expectedIndexes.size(), periodIndex.countContainingPeriods(epochMillis));
+        }
+    }
+
+    @Test
+    public void emptyIndexTest() {
+
+        PeriodIndex periodIndex = new PeriodIndex(new ArrayList<>());
+
+        Assert.assertEquals(0, periodIndex.size());
+        Assert.assertArrayEquals(new int[0], periodIndex.getContainingPeriodIndexes(0L));
+        Assert.assertTrue(periodIndex.toPeriodSet().isEmpty());
+    }
+
+    private static Period period(long startingMillis, long endingMillis) {
+        return new Period(Instant.ofEpochMilli(startingMillis), Instant.ofEpochMilli(endingMillis));
+    }
+}
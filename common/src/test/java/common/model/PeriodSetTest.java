@@ -0,0 +1,112 @@
+package common.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.Random;
+
+public class PeriodSetTest {
+
+    @Test
+    public void ofTest() {
+
+        PeriodSet result = PeriodSet.of(period(30, 40), period(0, 10), period(5, 15), period(15, 20), period(50, 50));
+
+        Assert.assertEquals(2, result.size());
+        Assert.assertEquals(0L, result.getPeriod(0).getStartingInstant().toEpochMilli());
+        Assert.assertEquals(20L, result.getPeriod(0).getEndingInstant().toEpochMilli());
+        Assert.assertEquals(30L, result.getPeriod(1).getStartingInstant().toEpochMilli());
+        Assert.assertEquals(30L, result.getTotalDurationMillis());
+        Assert.assertTrue(PeriodSet.of().isEmpty());
+    }
+
+    @Test
+    public void containsTest() {
+
+        PeriodSet periodSet = PeriodSet.of(period(0, 10), period(20, 30));
+
+        Assert.assertTrue(periodSet.contains(0L));
+        Assert.assertTrue(periodSet.contains(9L));
+        Assert.assertFalse(periodSet.contains(10L));
+        Assert.assertFalse(periodSet.contains(-1L));
+        Assert.assertTrue(periodSet.contains(Instant.ofEpochMilli(25L)));
+        Assert.assertFalse(periodSet.contains(30L));
+
+        Assert.assertArrayEquals(new int[] {-1, 0, -1, 1, -1}, periodSet.classify(new long[] {-5, 5, 15, 20, 35}));
+        Assert.assertEquals(2, periodSet.countContained(new long[] {-5, 5, 15, 20, 35}));
+    }
+
+    @Test
+    public void unionTest() {
+
+        PeriodSet result = PeriodSet.of(period(0, 10), period(40, 50))
+                .union(PeriodSet.of(period(5, 20), period(30, 40)));
+
+        Assert.assertEquals(PeriodSet.of(period(0, 20), period(30, 50)), result);
+        Assert.assertEquals(result, result.union(PeriodSet.EMPTY));
+    }
+
+    @Test
+    public void intersectionTest() {
+
+        PeriodSet result = PeriodSet.of(period(0, 10), period(20, 30), period(40, 50))
+                .intersection(PeriodSet.of(period(5, 25), period(28, 45)));
+
+        Assert.assertEquals(PeriodSet.of(period(5, 10), period(20, 25), period(28, 30), period(40, 45)), result);
+        Assert.assertTrue(result.intersection(PeriodSet.EMPTY).isEmpty());
+    }
+
+    @Test
+    public void differenceTest() {
+
+        PeriodSet result = PeriodSet.of(period(0, 100))
+                .difference(PeriodSet.of(period(-10, 5), period(20, 30), period(40, 50), period(95, 120)));
+
+        Assert.assertEquals(PeriodSet.of(period(5, 20), period(30, 40), period(50, 95)), result);
+
+        result = PeriodSet.of(period(0, 10), period(20, 30)).difference(PeriodSet.of(period(5, 25)));
+        Assert.assertEquals(PeriodSet.of(period(0, 5), period(25, 30)), result);
+
+        result = PeriodSet.of(period(0, 10)).complement(Instant.ofEpochMilli(-10L), Instant.ofEpochMilli(20L));
+        Assert.assertEquals(PeriodSet.of(period(-10, 0), period(10, 20)), result);
+    }
+
+    @Test
+    public void setAlgebraMatchesPointwiseTest() {
+
+        Random random = new Random(18041996L);
+        PeriodSet first = randomPeriodSet(random);
+        PeriodSet second = randomPeriodSet(random);
+
+        PeriodSet union = first.union(second);
+        PeriodSet intersection = first.intersection(second);
+        PeriodSet difference = first.difference(second);
+        for (long epochMillis = -10; epochMillis < 1010; epochMillis++) {
+            Assert.assertEquals(
+                    first.contains(epochMillis) || second.contains(epochMillis),
+                    union.contains(epochMillis));
+            Assert.assertEquals(
+                    first.contains(epochMillis) && second.contains(epochMillis),
+                    intersection.contains(epochMillis));
+            Assert.assertEquals(
+                    first.contains(epochMillis) && !second.contains(epochMillis),
+                    difference.contains(epochMillis));
+        }
+    }
+
+    private static PeriodSet randomPeriodSet(Random random) {
+
+        long[] starts = new long[40];
+        long[] ends = new long[40];
+        for (int index = 0; index < starts.length; index++) {
+            starts[index] = random.nextInt(1000);
+            ends[index] = starts[index] + random.nextInt(30);
+        }
+        return PeriodSet.ofEpochMillis(starts, ends);
+    }
+
+    private static Period period(long startingMillis, long endingMillis) {
+        return new Period(Instant.ofEpochMilli(startingMillis), Instant.ofEpochMilli(endingMillis));
+    }
+}
@@ -0,0 +1,85 @@
+package common.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+public class StorageQuantityTest {
+
+    @Test
+    public void parseTest() {
+
+        Assert.assertEquals(13421772800L, StorageQuantity.parse("12.5 GiB").getBytes());
+        Assert.assertEquals(3000000L, StorageQuantity.parse("3MB").getBytes());
+        Assert.assertEquals(1024L, StorageQuantity.parse(" 1024 ").getBytes());
+        Assert.assertEquals(1024L, StorageQuantity.parse("1 kib").getBytes());
+        Assert.assertEquals(512L, StorageQuantity.parse(".5 KiB").getBytes());
+        Assert.assertEquals(2L, StorageQuantity.parse("1.5 B").getBytes());
+        Assert.assertEquals(1152921504606846976L + 576460752303423488L, StorageQuantity.parse("1.5 EiB").getBytes());
+        Assert.assertEquals(123456789012345678L, StorageQuantity.parse("0.123456789012345678 EB").getBytes());
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void parseUnknownUnitTest() {
+        StorageQuantity.parse("12 parsecs");
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void parseWithoutNumberTest() {
+        StorageQuantity.parse("GiB");
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void parseOutOfRangeTest() {
+        StorageQuantity.parse("9 EiB");
+    }
+
+    @Test
+    public void formatTest() {
+
+        Assert.assertEquals("12.5 GiB", StorageQuantity.ofBytes(13421772800L).toString());
+        Assert.assertEquals("12.05 GiB", StorageQuantity.parse("12.05 GiB").toString());
+        Assert.assertEquals("1 KiB", StorageQuantity.ofBytes(1024L).toString());
+        Assert.assertEquals("2 KiB", StorageQuantity.ofBytes(2047L).toString());
+        Assert.assertEquals("999 B", StorageQuantity.ofBytes(999L).toString());
+        Assert.assertEquals("0 B", StorageQuantity.ZERO.toString());
+        Assert.assertEquals("7.5 EiB", StorageQuantity.parse("7.5 EiB").toString());
+        Assert.assertEquals("1.5 MB", StorageQuantity.ofBytes(1500000L).formatTo(new StringBuilder(), true).toString());
+        Assert.assertEquals("1536 KiB", StorageQuantity.ofBytes(1572864L).format(StorageUnit.KIBIBYTE));
+        Assert.assertEquals("-1 KiB", StorageQuantity.ofBytes(-1024L).toString());
+        Assert.assertEquals("-8 EiB", StorageQuantity.ofBytes(Long.MIN_VALUE).toString());
+        Assert.assertEquals("-9223372036854775808 B", StorageQuantity.ofBytes(Long.MIN_VALUE).format(StorageUnit.BYTE));
+        Assert.assertEquals("-9.22 EB", StorageQuantity.ofBytes(Long.MIN_VALUE).formatTo(new StringBuilder(), true)
+                .toString());
+    }
+
+    @Test
+    public void conversionTest() {
+
+        StorageQuantity storageQuantity = StorageQuantity.of(3, StorageUnit.GIBIBYTE);
+
+        Assert.assertEquals(3221225472L, storageQuantity.getBytes());
+        Assert.assertEquals(3072L, storageQuantity.toWholeUnits(StorageUnit.MEBIBYTE));
+        Assert.assertEquals(3221L, storageQuantity.toWholeUnits(StorageUnit.DECIMAL_MEGABYTE));
+        Assert.assertEquals(3.221225472, storageQuantity.toUnits(StorageUnit.DECIMAL_GIGABYTE), 0.0);
+        Assert.assertEquals(new BigDecimal("3.221225472"), storageQuantity.toExactUnits(StorageUnit.DECIMAL_GIGABYTE));
+    }
+
+    @Test
+    public void arithmeticTest() {
+
+        StorageQuantity storageQuantity = StorageQuantity.of(1, StorageUnit.KIBIBYTE)
+                .plus(StorageQuantity.ofBytes(512L))
+                .minus(StorageQuantity.ofBytes(256L));
+
+        Assert.assertEquals(1280L, storageQuantity.getBytes());
+        Assert.assertEquals(StorageQuantity.ofBytes(1280L), storageQuantity);
+        Assert.assertTrue(storageQuantity.compareTo(StorageQuantity.of(1, StorageUnit.DECIMAL_KILOBYTE)) > 0);
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void overflowTest() {
+        StorageQuantity.of(8, StorageUnit.EXBIBYTE);
+    }
+}
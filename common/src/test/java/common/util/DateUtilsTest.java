@@ -1,5 +1,7 @@
 package common.util;
 
+import common.model.Period;
+
 import org.joda.time.DateTime;
 import org.junit.Assert;
 import org.junit.Test;
@@ -215,4 +217,60 @@ public class DateUtilsTest {
         result = DateUtils.getDecade(1991);
         Assert.assertEquals(expectedDecadeNumber, result);
     }
+
+    @Test
+    public void getNextDayPeriodTest() {
+
+        // 18th April 1996 09:00:00:500
+        DateTime initialDate = new DateTime(1996, 4, 18, 9, 0, 0, 500);
+
+        Period result = DateUtils.getNextDayPeriod(initialDate);
+        Assert.assertEquals(new DateTime(1996, 4, 19, 0, 0).toDate().toInstant(), result.getStartingInstant());
+        Assert.assertEquals(new DateTime(1996, 4, 20, 0, 0).toDate().toInstant(), result.getEndingInstant());
+    }
+
+    @Test
+    public void getNextWeekPeriodTest() {
+
+        // 18th April 1996 09:00:00:500 (Thursday)
+        DateTime initialDate = new DateTime(1996, 4, 18, 9, 0, 0, 500);
+
+        Period result = DateUtils.getNextWeekPeriod(initialDate);
+        Assert.assertEquals(new DateTime(1996, 4, 22, 0, 0).toDate().toInstant(), result.getStartingInstant());
+        Assert.assertEquals(new DateTime(1996, 4, 29, 0, 0).toDate().toInstant(), result.getEndingInstant());
+    }
+
+    @Test
+    public void getNextTrimesterPeriodTest() {
+
+        // 18th April 1996 09:00:00:500
+        DateTime initialDate = new DateTime(1996, 4, 18, 9, 0, 0, 500);
+
+        Period result = DateUtils.getNextTrimesterPeriod(initialDate);
+        Assert.assertEquals(new DateTime(1996, 7, 1, 0, 0).toDate().toInstant(), result.getStartingInstant());
+        Assert.assertEquals(new DateTime(1996, 10, 1, 0, 0).toDate().toInstant(), result.getEndingInstant());
+
+        // 18th January 1996 09:00:00:500
+        result = DateUtils.getNextTrimesterPeriod(new DateTime(1996, 1, 18, 9, 0, 0, 500));
+        Assert.assertEquals(new DateTime(1996, 4, 1, 0, 0).toDate().toInstant(), result.getStartingInstant());
+
+        // 18th December 1996 09:00:00:500
+        result = DateUtils.getNextTrimesterPeriod(new DateTime(1996, 12, 18, 9, 0, 0, 500));
+        Assert.assertEquals(new DateTime(1997, 1, 1, 0, 0).toDate().toInstant(), result.getStartingInstant());
+    }
+
+    @Test
+    public void getNextSemesterPeriodTest() {
+
+        // 18th April 1996 09:00:00:500
+        DateTime initialDate = new DateTime(1996, 4, 18, 9, 0, 0, 500);
+
+        Period result = DateUtils.getNextSemesterPeriod(initialDate);
+        Assert.assertEquals(new DateTime(1996, 7, 1, 0, 0).toDate().toInstant(), result.getStartingInstant());
+        Assert.assertEquals(new DateTime(1997, 1, 1, 0, 0).toDate().toInstant(), result.getEndingInstant());
+
+        // 18th July 1996 09:00:00:500
+        result = DateUtils.getNextSemesterPeriod(new DateTime(1996, 7, 18, 9, 0, 0, 500));
+        Assert.assertEquals(new DateTime(1997, 1, 1, 0, 0).toDate().toInstant(), result.getStartingInstant());
+    }
 }
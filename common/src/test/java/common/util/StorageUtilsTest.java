@@ -1,4 +1,77 @@
 package common.util;
 
+import common.exceptions.SameStorageUnitException;
+import common.model.Storage;
+import common.model.StorageUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
 public class StorageUtilsTest {
+
+    private static final double DELTA = 0.000001;
+
+    @Test
+    public void convertStorageUnitTest() {
+
+        Assert.assertEquals(2048, StorageUtils.convertStorageUnit(Storage.KILOBYTE, 2, Storage.BYTE), DELTA);
+        Assert.assertEquals(1048576, StorageUtils.convertStorageUnit(Storage.GIGABYTE, 1, Storage.KILOBYTE), DELTA);
+        Assert.assertEquals(0.5, StorageUtils.convertStorageUnit(Storage.BYTE, 536870912, Storage.GIGABYTE), DELTA);
+        Assert.assertEquals(1024, StorageUtils.convertStorageUnit(Storage.PETABYTE, 1, Storage.TERABYTE), DELTA);
+    }
+
+    @Test(expected = SameStorageUnitException.class)
+    public void convertStorageUnitSameUnitTest() {
+        StorageUtils.convertStorageUnit(Storage.BYTE, 1, Storage.BYTE);
+    }
+
+    @Test
+    public void convertBytesToMegabytesTest() {
+        Assert.assertEquals(3, StorageUtils.convertBytesToMegabytes(3 * 1024 * 1024), DELTA);
+    }
+
+    @Test
+    public void convertStorageUnitBulkTest() {
+
+        double[] results = new double[3];
+        StorageUtils.convertStorageUnit(
+                StorageUnit.GIBIBYTE,
+                new double[] {1, 0.5, 2},
+                StorageUnit.DECIMAL_MEGABYTE,
+                results);
+
+        Assert.assertArrayEquals(new double[] {1073.741824, 536.870912, 2147.483648}, results, DELTA);
+    }
+
+    @Test
+    public void convertBytesToWholeUnitsTest() {
+
+        long[] bytesValues = {0L, 1023L, 1024L, 5L * 1024 * 1024 * 1024 + 1};
+        long[] results = new long[bytesValues.length];
+
+        StorageUtils.convertBytesToWholeUnits(bytesValues, StorageUnit.KIBIBYTE, results);
+        Assert.assertArrayEquals(new long[] {0L, 0L, 1L, 5L * 1024 * 1024}, results);
+
+        StorageUtils.convertBytesToWholeUnits(bytesValues, StorageUnit.DECIMAL_KILOBYTE, results);
+        Assert.assertArrayEquals(new long[] {0L, 1L, 1L, 5368709L}, results);
+    }
+
+    @Test
+    public void convertBytesToUnitsTest() {
+
+        double[] results = new double[2];
+        StorageUtils.convertBytesToUnits(new long[] {1536L, 1000L}, StorageUnit.KIBIBYTE, results);
+
+        Assert.assertArrayEquals(new double[] {1.5, 0.9765625}, results, DELTA);
+    }
+
+    @Test
+    public void sumBytesTest() {
+        Assert.assertEquals(6L, StorageUtils.sumBytes(new long[] {1L, 2L, 3L}).getBytes());
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void sumBytesOverflowTest() {
+        StorageUtils.sumBytes(new long[] {Long.MAX_VALUE, 1L});
+    }
 }
@@ -0,0 +1,188 @@
+package common.util;
+
+import common.model.CalendarPeriod;
+import common.model.TimeBucketCounts;
+
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Random;
+
+public class TimeBucketUtilsTest {
+
+    private static final ZoneId MADRID = ZoneId.of("Europe/Madrid");
+
+    @Test
+    public void getBucketStartsTest() {
+
+        // 18th April 1996 09:00:00 and 31st December 1996 23:59:59
+        long[] epochMillis = {
+                millis(1996, 4, 18, 9, 0, 0, MADRID),
+                millis(1996, 12, 31, 23, 59, 59, MADRID)};
+
+        Assert.assertArrayEquals(
+                new long[] {millis(1996, 4, 18, 0, 0, 0, MADRID), millis(1996, 12, 31, 0, 0, 0, MADRID)},
+                TimeBucketUtils.getBucketStarts(epochMillis, CalendarPeriod.DAY, MADRID));
+
+        // 15th April 1996 is a Monday and 30th December 1996 is a Monday
+        Assert.assertArrayEquals(
+                new long[] {millis(1996, 4, 15, 0, 0, 0, MADRID), millis(1996, 12, 30, 0, 0, 0, MADRID)},
+                TimeBucketUtils.getBucketStarts(epochMillis, CalendarPeriod.WEEK, MADRID));
+
+        Assert.assertArrayEquals(
+                new long[] {millis(1996, 4, 1, 0, 0, 0, MADRID), millis(1996, 12, 1, 0, 0, 0, MADRID)},
+                TimeBucketUtils.getBucketStarts(epochMillis, CalendarPeriod.MONTH, MADRID));
+
+        Assert.assertArrayEquals(
+                new long[] {millis(1996, 4, 1, 0, 0, 0, MADRID), millis(1996, 10, 1, 0, 0, 0, MADRID)},
+                TimeBucketUtils.getBucketStarts(epochMillis, CalendarPeriod.TRIMESTER, MADRID));
+
+        Assert.assertArrayEquals(
+                new long[] {millis(1996, 1, 1, 0, 0, 0, MADRID), millis(1996, 7, 1, 0, 0, 0, MADRID)},
+                TimeBucketUtils.getBucketStarts(epochMillis, CalendarPeriod.SEMESTER, MADRID));
+
+        Assert.assertArrayEquals(
+                new long[] {millis(1996, 1, 1, 0, 0, 0, MADRID), millis(1996, 1, 1, 0, 0, 0, MADRID)},
+                TimeBucketUtils.getBucketStarts(epochMillis, CalendarPeriod.YEAR, MADRID));
+    }
+
+    @Test
+    public void getBucketStartsDaylightSavingTest() {
+
+        // 31st March 1996 is 23 hours long in Madrid and 27th October 1996 is 25 hours long
+        long[] epochMillis = {
+                millis(1996, 3, 31, 23, 30, 0, MADRID),
+                millis(1996, 4, 1, 0, 30, 0, MADRID),
+                millis(1996, 10, 27, 23, 30, 0, MADRID),
+                millis(1996, 10, 28, 0, 30, 0, MADRID)};
+
+        Assert.assertArrayEquals(
+                new long[] {
+                        millis(1996, 3, 31, 0, 0, 0, MADRID),
+                        millis(1996, 4, 1, 0, 0, 0, MADRID),
+                        millis(1996, 10, 27, 0, 0, 0, MADRID),
+                        millis(1996, 10, 28, 0, 0, 0, MADRID)},
+                TimeBucketUtils.getBucketStarts(epochMillis, CalendarPeriod.DAY, MADRID));
+    }
+
+    @Test
+    public void getBucketStartsMatchesDateUtilsTest() {
+
+        // Every bucket starts where DateUtils' last period of the following period's first instant starts.
+        ZoneId defaultZoneId = ZoneId.systemDefault();
+        long initialDateMillis = 829861200000L;
+        long[] epochMillis = new long[1000];
+        Random random = new Random(18041996L);
+        for (int index = 0; index < epochMillis.length; index++) {
+            epochMillis[index] = initialDateMillis + (long) (random.nextDouble() * 4 * 365 * 24 * 3600 * 1000L);
+        }
+
+        long[] trimesterStarts = TimeBucketUtils.getBucketStarts(epochMillis, CalendarPeriod.TRIMESTER, defaultZoneId);
+        for (int index = 0; index < epochMillis.length; index++) {
+            long nextTrimesterStart = DateUtils.getNextTrimesterPeriod(new DateTime(epochMillis[index]))
+                    .getStartingInstant()
+                    .toEpochMilli();
+            long expectedStart = DateUtils.getLastTrimesterPeriod(new DateTime(nextTrimesterStart))
+                    .getStartingInstant()
+                    .toEpochMilli();
+            Assert.assertEquals(expectedStart, trimesterStarts[index]);
+        }
+    }
+
+    @Test
+    public void countByBucketTest() {
+
+        // 18th April 1996 09:00:00, 18th April 1996 22:00:00 and 20th April 1996 10:00:00
+        long[] epochMillis = {
+                millis(1996, 4, 20, 10, 0, 0, MADRID),
+                millis(1996, 4, 18, 9, 0, 0, MADRID),
+                millis(1996, 4, 18, 22, 0, 0, MADRID)};
+
+        TimeBucketCounts result = TimeBucketUtils.countByBucket(epochMillis, CalendarPeriod.DAY, MADRID);
+
+        Assert.assertEquals(3, result.size());
+        Assert.assertEquals(millis(1996, 4, 18, 0, 0, 0, MADRID), result.getBucketStartMillis(0));
+        Assert.assertEquals(2, result.getCount(0));
+        Assert.assertEquals(0, result.getCount(1));
+        Assert.assertEquals(1, result.getCount(2));
+        Assert.assertEquals(
+                millis(1996, 4, 21, 0, 0, 0, MADRID),
+                result.getPeriod(2).getEndingInstant().toEpochMilli());
+        Assert.assertEquals(3, result.getTotalCount());
+
+        Assert.assertEquals(0, TimeBucketUtils.countByBucket(new long[0], CalendarPeriod.DAY, MADRID).size());
+    }
+
+    @Test
+    public void parallelMatchesSequentialTest() {
+
+        long initialDateMillis = 829861200000L;
+        long[] epochMillis = new long[300000];
+        Random random = new Random(18041996L);
+        for (int index = 0; index < epochMillis.length; index++) {
+            epochMillis[index] = initialDateMillis + (long) (random.nextDouble() * 10 * 365 * 24 * 3600 * 1000L);
+        }
+
+        for (CalendarPeriod calendarPeriod : CalendarPeriod.values()) {
+            Assert.assertArrayEquals(
+                    TimeBucketUtils.getBucketStarts(epochMillis, calendarPeriod, MADRID, false),
+                    TimeBucketUtils.getBucketStarts(epochMillis, calendarPeriod, MADRID, true));
+
+            TimeBucketCounts sequentialCounts = TimeBucketUtils.countByBucket(epochMillis, calendarPeriod, MADRID);
+            TimeBucketCounts parallelCounts = TimeBucketUtils.countByBucket(epochMillis, calendarPeriod, MADRID, true);
+            Assert.assertEquals(sequentialCounts.size(), parallelCounts.size());
+            Assert.assertEquals(epochMillis.length, parallelCounts.getTotalCount());
+            for (int bucketIndex = 0; bucketIndex < sequentialCounts.size(); bucketIndex++) {
+                Assert.assertEquals(sequentialCounts.getCount(bucketIndex), parallelCounts.getCount(bucketIndex));
+            }
+        }
+    }
+
+    @Test
+    public void outlierTest() {
+
+        // 18th April 1996 09:00:00, next to an outlier on 1st January 3000 spanning far too many days to be tabled
+        long[] epochMillis = {
+                millis(1996, 4, 18, 9, 0, 0, MADRID),
+                millis(3000, 1, 1, 12, 0, 0, MADRID),
+                millis(1996, 4, 19, 9, 0, 0, MADRID)};
+
+        Assert.assertArrayEquals(
+                new long[] {
+                        millis(1996, 4, 18, 0, 0, 0, MADRID),
+                        millis(3000, 1, 1, 0, 0, 0, MADRID),
+                        millis(1996, 4, 19, 0, 0, 0, MADRID)},
+                TimeBucketUtils.getBucketStarts(epochMillis, CalendarPeriod.DAY, MADRID));
+
+        // The ordinary instants are still placed from the table, which the outlier has not extended.
+        Assert.assertArrayEquals(
+                new long[] {millis(1996, 4, 18, 0, 0, 0, MADRID)},
+                TimeBucketUtils.getBucketStarts(new long[] {epochMillis[0]}, CalendarPeriod.DAY, MADRID));
+
+        TimeBucketCounts timeBucketCounts = TimeBucketUtils.countByBucket(
+                new long[] {epochMillis[0], millis(2030, 1, 1, 12, 0, 0, MADRID)},
+                CalendarPeriod.DAY,
+                MADRID);
+        Assert.assertEquals(2, timeBucketCounts.getTotalCount());
+        Assert.assertEquals(1, timeBucketCounts.getCount(timeBucketCounts.size() - 1));
+    }
+
+    @Test
+    public void getPeriodStartTest() {
+
+        // 18th April 1996
+        LocalDate date = LocalDate.of(1996, 4, 18);
+
+        Assert.assertEquals(LocalDate.of(1996, 4, 15), TimeBucketUtils.getPeriodStart(date, CalendarPeriod.WEEK));
+        Assert.assertEquals(LocalDate.of(1996, 4, 1), TimeBucketUtils.getPeriodStart(date, CalendarPeriod.TRIMESTER));
+        Assert.assertEquals(LocalDate.of(1996, 1, 1), TimeBucketUtils.getPeriodStart(date, CalendarPeriod.SEMESTER));
+    }
+
+    private static long millis(int year, int month, int day, int hour, int minute, int second, ZoneId zoneId) {
+        return ZonedDateTime.of(year, month, day, hour, minute, second, 0, zoneId).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,259 @@
+package s3.browse;
+
+import s3.externalapi.S3Manager;
+import s3.util.Constants;
+import s3.util.PrefetchingIterator;
+import s3.util.S3CommonUtils;
+
+import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Browses a bucket one directory at a time by listing with the slash delimiter: S3 groups the keys below each
+ * subdirectory into a single common prefix, so a listing only returns the immediate children of the directory,
+ * however many objects lie deeper. Browsing a directory costs requests in proportion to its children rather than to
+ * its whole subtree.
+ */
+public class DirectoryBrowser {
+
+    private static final Comparator<DirectoryEntry> KEY_ORDER =
+            (firstEntry, secondEntry) -> S3CommonUtils.compareKeys(firstEntry.getKey(), secondEntry.getKey());
+
+    private final S3Manager s3Manager;
+    private final boolean prefetch;
+
+    /**
+     * Creates a browser.
+     *
+     * @param s3Manager the manager used to list the bucket.
+     * @param prefetch whether streams request the next page on a background thread while the current one is consumed.
+     */
+    public DirectoryBrowser(S3Manager s3Manager, boolean prefetch) {
+        this.s3Manager = s3Manager;
+        this.prefetch = prefetch;
+    }
+
+    public DirectoryBrowser(S3Manager s3Manager) {
+        this(s3Manager, false);
+    }
+
+    /**
+     * Lists one page of the immediate children of a directory.
+     *
+     * @param bucketName the bucket name.
+     * @param path the directory, with or without its trailing slash, or the empty string for the bucket root.
+     * @param continuationToken the token returned with the previous page, or null for the first page.
+     *
+     * @return the page.
+     */
+    public DirectoryPage listPage(String bucketName, String path, String continuationToken) {
+
+        String directoryPrefix = S3CommonUtils.normalizePrefix(path);
+        return listPage(bucketName, directoryPrefix, directoryPrefix, 1, continuationToken);
+    }
+
+    /**
+     * Returns the immediate children of a directory as a lazy stream that requests the next page only when the
+     * current one has been consumed, or just before with prefetching. The stream must be closed when it is not fully
+     * consumed, which stops the prefetching thread.
+     *
+     * @param bucketName the bucket name.
+     * @param path the directory, with or without its trailing slash, or the empty string for the bucket root.
+     *
+     * @return the stream of subdirectories and objects in key order.
+     */
+    public Stream<DirectoryEntry> listDirectory(String bucketName, String path) {
+
+        Iterator<DirectoryPage> pages = new PageIterator(bucketName, path);
+        if (!prefetch) {
+            return toStream(pages).flatMap(page -> page.getEntries().stream());
+        }
+
+        // With a single slot, the background thread fetches the next page as soon as the consumer takes one.
+        PrefetchingIterator<DirectoryPage> prefetchedPages =
+                new PrefetchingIterator<>(pages, 1, 0, "directory-browser");
+        return toStream(prefetchedPages)
+                .flatMap(page -> page.getEntries().stream())
+                .onClose(prefetchedPages::close);
+    }
+
+    /**
+     * Walks the subdirectories of a directory down to a maximum depth, listing the directories of each level in
+     * parallel. Directories below the maximum depth are returned but not listed.
+     *
+     * @param bucketName the bucket name.
+     * @param path the directory, with or without its trailing slash, or the empty string for the bucket root.
+     * @param maxDepth the number of levels to list, 1 for the immediate children only.
+     * @param parallelism the maximum number of directories listed at once.
+     *
+     * @return the subdirectories and objects found, in key order, so every directory precedes its children.
+     */
+    public List<DirectoryEntry> walk(String bucketName, String path, int maxDepth, int parallelism) {
+
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("Maximum depth must be positive: " + maxDepth);
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+
+        String rootPrefix = S3CommonUtils.normalizePrefix(path);
+        List<DirectoryEntry> walkedEntries = new ArrayList<>();
+        List<String> level = Collections.singletonList(rootPrefix);
+
+        ExecutorService executorService = Executors.newFixedThreadPool(parallelism);
+        try {
+            for (int depth = 1; (depth <= maxDepth) && !level.isEmpty(); depth++) {
+                int levelDepth = depth;
+                List<CompletableFuture<List<DirectoryEntry>>> directoryListings = level
+                        .stream()
+                        .map(directoryPrefix -> CompletableFuture.supplyAsync(
+                                () -> listAll(bucketName, rootPrefix, directoryPrefix, levelDepth),
+                                executorService))
+                        .collect(Collectors.toList());
+
+                List<String> nextLevel = new ArrayList<>();
+                for (CompletableFuture<List<DirectoryEntry>> directoryListing : directoryListings) {
+                    for (DirectoryEntry entry : join(directoryListing)) {
+                        walkedEntries.add(entry);
+                        if (entry.isDirectory()) {
+                            nextLevel.add(entry.getKey());
+                        }
+                    }
+                }
+                level = nextLevel;
+            }
+        } finally {
+            executorService.shutdown();
+        }
+
+        walkedEntries.sort(KEY_ORDER);
+        return walkedEntries;
+    }
+
+    /**
+     * Lists a page of a directory, naming its children relative to the root of the walk, which is the directory
+     * itself outside walks.
+     */
+    private DirectoryPage listPage(
+            String bucketName,
+            String directoryPrefix,
+            String rootPrefix,
+            int depth,
+            String continuationToken) {
+
+        ListObjectsV2Response listObjectsV2Response = s3Manager.listObjectsV2WithDelimiter(
+                bucketName, directoryPrefix, Constants.SLASH_CHAR, continuationToken);
+
+        List<DirectoryEntry> entries = new ArrayList<>();
+        for (CommonPrefix commonPrefix : listObjectsV2Response.commonPrefixes()) {
+            entries.add(toDirectoryEntry(rootPrefix, commonPrefix.prefix(), depth));
+        }
+        for (S3Object s3Object : listObjectsV2Response.contents()) {
+            // The empty object some tools create to mark a directory is the directory itself, not one of its children.
+            if (!s3Object.key().equals(directoryPrefix)) {
+                entries.add(toFileEntry(rootPrefix, s3Object, depth));
+            }
+        }
+        entries.sort(KEY_ORDER);
+
+        String nextContinuationToken = Boolean.TRUE.equals(listObjectsV2Response.isTruncated())
+                ? listObjectsV2Response.nextContinuationToken()
+                : null;
+        return new DirectoryPage(directoryPrefix, entries, nextContinuationToken);
+    }
+
+    private List<DirectoryEntry> listAll(String bucketName, String rootPrefix, String directoryPrefix, int depth) {
+
+        List<DirectoryEntry> entries = new ArrayList<>();
+        String continuationToken = null;
+        do {
+            DirectoryPage page = listPage(bucketName, directoryPrefix, rootPrefix, depth, continuationToken);
+            entries.addAll(page.getEntries());
+            continuationToken = page.getNextContinuationToken();
+        } while (continuationToken != null);
+        return entries;
+    }
+
+    private static DirectoryEntry toDirectoryEntry(String rootPrefix, String commonPrefix, int depth) {
+        return new DirectoryEntry(
+                commonPrefix, commonPrefix.substring(rootPrefix.length()), true, depth, 0L, null, null);
+    }
+
+    private static DirectoryEntry toFileEntry(String rootPrefix, S3Object s3Object, int depth) {
+        return new DirectoryEntry(
+                s3Object.key(),
+                s3Object.key().substring(rootPrefix.length()),
+                false,
+                depth,
+                s3Object.size(),
+                s3Object.lastModified(),
+                s3Object.storageClassAsString());
+    }
+
+    private static <T> Stream<T> toStream(Iterator<T> iterator) {
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL),
+                false);
+    }
+
+    private static List<DirectoryEntry> join(CompletableFuture<List<DirectoryEntry>> future) {
+
+        try {
+            return future.join();
+        } catch (CompletionException exc) {
+            if (exc.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exc.getCause();
+            }
+            throw exc;
+        }
+    }
+
+    private final class PageIterator implements Iterator<DirectoryPage> {
+
+        private final String bucketName;
+        private final String path;
+
+        private String continuationToken;
+        private boolean lastPage;
+
+        private PageIterator(String bucketName, String path) {
+            this.bucketName = bucketName;
+            this.path = path;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !lastPage;
+        }
+
+        @Override
+        public DirectoryPage next() {
+
+            if (lastPage) {
+                throw new NoSuchElementException();
+            }
+            DirectoryPage page = listPage(bucketName, path, continuationToken);
+            continuationToken = page.getNextContinuationToken();
+            lastPage = !page.hasNextPage();
+            return page;
+        }
+    }
+}
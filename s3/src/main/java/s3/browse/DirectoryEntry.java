@@ -0,0 +1,84 @@
+package s3.browse;
+
+import java.time.Instant;
+
+/**
+ * A child of a directory: either an object, or a subdirectory given by the common prefix of its objects. Only
+ * objects have a size, a modification time and a storage class.
+ */
+public final class DirectoryEntry {
+
+    private final String key;
+    private final String name;
+    private final boolean directory;
+    private final int depth;
+    private final long size;
+    private final Instant lastModified;
+    private final String storageClass;
+
+    public DirectoryEntry(
+            String key,
+            String name,
+            boolean directory,
+            int depth,
+            long size,
+            Instant lastModified,
+            String storageClass) {
+
+        this.key = key;
+        this.name = name;
+        this.directory = directory;
+        this.depth = depth;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.storageClass = storageClass;
+    }
+
+    /**
+     * Returns the full key of the object, or the common prefix of the subdirectory, which ends with a slash.
+     *
+     * @return the key.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the key relative to the directory that was listed or walked.
+     *
+     * @return the name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    public boolean isDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns how far below the listed directory the entry is, 1 for its immediate children.
+     *
+     * @return the depth.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    public String getStorageClass() {
+        return storageClass;
+    }
+
+    @Override
+    public String toString() {
+        return directory ? key : key + ": " + size + " bytes, modified " + lastModified;
+    }
+}
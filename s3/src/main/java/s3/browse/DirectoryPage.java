@@ -0,0 +1,45 @@
+package s3.browse;
+
+import java.util.List;
+
+/**
+ * One listing page of a directory, with the token to request the next page.
+ */
+public final class DirectoryPage {
+
+    private final String directoryPrefix;
+    private final List<DirectoryEntry> entries;
+    private final String nextContinuationToken;
+
+    public DirectoryPage(String directoryPrefix, List<DirectoryEntry> entries, String nextContinuationToken) {
+        this.directoryPrefix = directoryPrefix;
+        this.entries = entries;
+        this.nextContinuationToken = nextContinuationToken;
+    }
+
+    public String getDirectoryPrefix() {
+        return directoryPrefix;
+    }
+
+    /**
+     * Returns the subdirectories and objects of the page, sorted by key.
+     *
+     * @return the page entries.
+     */
+    public List<DirectoryEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Returns the token of the next page, or null if this is the last page.
+     *
+     * @return the next continuation token.
+     */
+    public String getNextContinuationToken() {
+        return nextContinuationToken;
+    }
+
+    public boolean hasNextPage() {
+        return nextContinuationToken != null;
+    }
+}
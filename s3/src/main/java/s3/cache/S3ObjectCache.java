@@ -0,0 +1,322 @@
+package s3.cache;
+
+import s3.exception.ObjectCacheException;
+import s3.exception.TransferException;
+import s3.externalapi.S3Manager;
+import s3.transfer.TransferController;
+import s3.util.Constants;
+import s3.util.Messages;
+
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache that keeps object bodies on local disk, bounded by a total size in bytes.
+ * Entries are keyed by bucket and key, remember the ETag they were downloaded with and are revalidated on every
+ * read with a conditional GET, so an unchanged object costs a 304 round-trip instead of a full download.
+ * The least recently used entries are evicted once the size cap is exceeded, and objects larger than the cap are
+ * returned without being cached. The index lives in memory only, so the files a previous process left in the cache
+ * directory are deleted on creation. Files that cannot be deleted are counted by {@link #getFailedDeletions()}.
+ * Downloads may go through a {@link TransferController}, which bounds how many run at once and charges the bytes
+ * they received to its bandwidth cap.
+ */
+public class S3ObjectCache {
+
+    private static final String PARTIAL_FILE_SUFFIX = ".part";
+
+    private final S3Manager s3Manager;
+    private final Path cacheDirectory;
+    private final long maximumSizeInBytes;
+    private final TransferController transferController;
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong failedDeletions = new AtomicLong();
+
+    private long currentSizeInBytes;
+
+    /**
+     * Creates a cache.
+     *
+     * @param s3Manager the manager objects are downloaded with.
+     * @param cacheDirectory the directory holding the cached objects.
+     * @param maximumSizeInBytes the size cap of the cached objects.
+     * @param transferController the controller of the downloads in flight and the bandwidth, or null for none.
+     */
+    public S3ObjectCache(
+            S3Manager s3Manager,
+            Path cacheDirectory,
+            long maximumSizeInBytes,
+            TransferController transferController) {
+
+        this.s3Manager = s3Manager;
+        this.cacheDirectory = cacheDirectory;
+        this.maximumSizeInBytes = maximumSizeInBytes;
+        this.transferController = transferController;
+
+        try {
+            Files.createDirectories(cacheDirectory);
+            deleteLeftoverFiles(cacheDirectory);
+        } catch (IOException exc) {
+            throw new ObjectCacheException(Messages.OBJECT_CACHE_IO_FAILURE, exc);
+        }
+    }
+
+    public S3ObjectCache(S3Manager s3Manager, Path cacheDirectory, long maximumSizeInBytes) {
+        this(s3Manager, cacheDirectory, maximumSizeInBytes, null);
+    }
+
+    /**
+     * Returns the body of the object as a read-only memory-mapped buffer, downloading it only when there is no
+     * cached copy or the cached ETag no longer matches the remote object. Objects over 2 GiB cannot be mapped and
+     * fail with an {@link ObjectCacheException}.
+     *
+     * @param bucketName the bucket name.
+     * @param key the object key.
+     *
+     * @return the object body.
+     */
+    public MappedByteBuffer getObject(String bucketName, String key) {
+
+        String entryKey = bucketName + Constants.SLASH_CHAR + key;
+
+        CacheEntry cachedEntry;
+        synchronized (this) {
+            cachedEntry = entries.get(entryKey);
+        }
+
+        MappedByteBuffer buffer = download(bucketName, key, entryKey, cachedEntry);
+        if (buffer == null) {
+            // The entry was evicted or replaced while it was being revalidated. An unconditional GET cannot be
+            // answered with 304, so a single retry is enough however busy the cache is.
+            buffer = download(bucketName, key, entryKey, null);
+        }
+        return buffer;
+    }
+
+    /**
+     * Downloads the object into the cache, sending the ETag of the cached entry, if any, with If-None-Match.
+     *
+     * @return the object body, or null when the cached entry was found unchanged but had meanwhile been evicted or
+     * replaced.
+     */
+    private MappedByteBuffer download(String bucketName, String key, String entryKey, CacheEntry cachedEntry) {
+
+        Path downloadPath = cacheDirectory.resolve(UUID.randomUUID() + PARTIAL_FILE_SUFFIX);
+        long downloadedBytes = 0L;
+        startDownload();
+        try {
+            GetObjectResponse getObjectResponse = s3Manager.getObject(
+                    bucketName,
+                    key,
+                    cachedEntry == null ? null : cachedEntry.eTag,
+                    downloadPath);
+            downloadedBytes = Files.size(downloadPath);
+            chargeDownload(downloadedBytes);
+            if (downloadedBytes > Integer.MAX_VALUE) {
+                // A single buffer cannot map more than 2 GiB, and the partial file is deleted below.
+                throw new ObjectCacheException(Messages.OBJECT_CACHE_OBJECT_TOO_LARGE);
+            }
+
+            Path entryPath = cacheDirectory.resolve(UUID.randomUUID().toString());
+            Files.move(downloadPath, entryPath);
+
+            CacheEntry entry = new CacheEntry(getObjectResponse.eTag(), entryPath, Files.size(entryPath));
+            synchronized (this) {
+                MappedByteBuffer buffer;
+                try {
+                    buffer = map(entryPath);
+                } catch (ObjectCacheException exc) {
+                    deleteQuietly(entryPath);
+                    throw exc;
+                }
+                if (entry.sizeInBytes > maximumSizeInBytes) {
+                    // The mapping outlives the file, which could only be cached by evicting everything else.
+                    invalidate(bucketName, key);
+                    deleteQuietly(entryPath);
+                } else {
+                    store(entryKey, entry);
+                }
+                return buffer;
+            }
+        } catch (S3Exception exc) {
+            if ((cachedEntry == null) || (exc.statusCode() != Constants.HTTP_NOT_MODIFIED)) {
+                throw exc;
+            }
+            synchronized (this) {
+                // The entry may have been evicted or replaced while it was being revalidated.
+                if (entries.get(entryKey) == cachedEntry) {
+                    return map(cachedEntry.path);
+                }
+            }
+            return null;
+        } catch (IOException exc) {
+            throw new ObjectCacheException(Messages.OBJECT_CACHE_IO_FAILURE, exc);
+        } finally {
+            endDownload(downloadedBytes);
+            deleteQuietly(downloadPath);
+        }
+    }
+
+    public synchronized void invalidate(String bucketName, String key) {
+
+        CacheEntry entry = entries.remove(bucketName + Constants.SLASH_CHAR + key);
+        if (entry != null) {
+            currentSizeInBytes -= entry.sizeInBytes;
+            deleteQuietly(entry.path);
+        }
+    }
+
+    public synchronized void clear() {
+
+        for (CacheEntry entry : entries.values()) {
+            deleteQuietly(entry.path);
+        }
+        entries.clear();
+        currentSizeInBytes = 0L;
+    }
+
+    public synchronized long getCurrentSizeInBytes() {
+        return currentSizeInBytes;
+    }
+
+    public long getMaximumSizeInBytes() {
+        return maximumSizeInBytes;
+    }
+
+    /**
+     * Returns how many evicted entries, partial downloads or leftover files could not be deleted from the cache
+     * directory, and keep taking disk space beyond the size cap.
+     *
+     * @return the number of failed deletions.
+     */
+    public long getFailedDeletions() {
+        return failedDeletions.get();
+    }
+
+    private void startDownload() {
+
+        if (transferController == null) {
+            return;
+        }
+        try {
+            // The size is only known once the object is received, so it is charged afterwards.
+            transferController.acquire(0L);
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            throw new TransferException(Messages.TRANSFER_FAILURE, exc);
+        }
+    }
+
+    private void chargeDownload(long downloadedBytes) {
+
+        if (transferController == null) {
+            return;
+        }
+        try {
+            transferController.charge(downloadedBytes);
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            throw new TransferException(Messages.TRANSFER_FAILURE, exc);
+        }
+    }
+
+    private void endDownload(long downloadedBytes) {
+
+        if (transferController != null) {
+            transferController.release(downloadedBytes);
+        }
+    }
+
+    private void store(String entryKey, CacheEntry entry) {
+
+        CacheEntry previousEntry = entries.put(entryKey, entry);
+        if (previousEntry != null) {
+            currentSizeInBytes -= previousEntry.sizeInBytes;
+            deleteQuietly(previousEntry.path);
+        }
+        currentSizeInBytes += entry.sizeInBytes;
+
+        // Evict from the least recently used end, never the entry that was just stored.
+        Iterator<Map.Entry<String, CacheEntry>> iterator = entries.entrySet().iterator();
+        while ((currentSizeInBytes > maximumSizeInBytes) && iterator.hasNext()) {
+            CacheEntry eldestEntry = iterator.next().getValue();
+            if (eldestEntry == entry) {
+                break;
+            }
+            iterator.remove();
+            currentSizeInBytes -= eldestEntry.sizeInBytes;
+            deleteQuietly(eldestEntry.path);
+        }
+    }
+
+    /**
+     * Deletes the entries and partial downloads of a previous process, which are named after random UUIDs, and
+     * leaves any other file alone.
+     */
+    private void deleteLeftoverFiles(Path cacheDirectory) throws IOException {
+
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(cacheDirectory)) {
+            for (Path path : paths) {
+                String fileName = path.getFileName().toString();
+                if (fileName.endsWith(PARTIAL_FILE_SUFFIX)) {
+                    fileName = fileName.substring(0, fileName.length() - PARTIAL_FILE_SUFFIX.length());
+                }
+                if (Files.isRegularFile(path) && isUuid(fileName)) {
+                    deleteQuietly(path);
+                }
+            }
+        }
+    }
+
+    private static boolean isUuid(String fileName) {
+
+        try {
+            return UUID.fromString(fileName).toString().equals(fileName);
+        } catch (IllegalArgumentException exc) {
+            return false;
+        }
+    }
+
+    private static MappedByteBuffer map(Path path) {
+
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+        } catch (IOException exc) {
+            throw new ObjectCacheException(Messages.OBJECT_CACHE_IO_FAILURE, exc);
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException exc) {
+            failedDeletions.incrementAndGet();
+        }
+    }
+
+    private static final class CacheEntry {
+
+        private final String eTag;
+        private final Path path;
+        private final long sizeInBytes;
+
+        private CacheEntry(String eTag, Path path, long sizeInBytes) {
+            this.eTag = eTag;
+            this.path = path;
+            this.sizeInBytes = sizeInBytes;
+        }
+    }
+}
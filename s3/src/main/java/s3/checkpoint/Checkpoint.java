@@ -0,0 +1,53 @@
+package s3.checkpoint;
+
+/**
+ * The progress of one partition of a resumable operation: the last key it processed, in listing order, and the
+ * objects and bytes it counted up to that key.
+ */
+public final class Checkpoint {
+
+    private final String partition;
+    private final String lastKey;
+    private final long objectCount;
+    private final long sizeInBytes;
+    private final boolean completed;
+
+    public Checkpoint(String partition, String lastKey, long objectCount, long sizeInBytes, boolean completed) {
+        this.partition = partition;
+        this.lastKey = lastKey;
+        this.objectCount = objectCount;
+        this.sizeInBytes = sizeInBytes;
+        this.completed = completed;
+    }
+
+    public String getPartition() {
+        return partition;
+    }
+
+    /**
+     * Returns the last processed key, or null if no key was processed yet.
+     *
+     * @return the last processed key.
+     */
+    public String getLastKey() {
+        return lastKey;
+    }
+
+    public long getObjectCount() {
+        return objectCount;
+    }
+
+    public long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    @Override
+    public String toString() {
+        return partition + (completed ? ": completed" : ": after " + lastKey)
+                + ", " + objectCount + " objects (" + sizeInBytes + " bytes)";
+    }
+}
@@ -0,0 +1,240 @@
+package s3.checkpoint;
+
+import s3.util.Constants;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file of checkpoints, replayed on open so that the latest checkpoint of every partition survives a
+ * restart. Every record carries its length and a CRC32, and replay stops at the first incomplete or corrupt record,
+ * which is where a crash in the middle of a write leaves the file.
+ * <p>
+ * Forcing the file to disk costs far more than writing to it, so {@link #record(Checkpoint)} only forces it once
+ * per sync interval; a crash loses the unforced records and the operation resumes from an earlier checkpoint.
+ * Operations that cannot be repeated use {@link #recordAndSync(Checkpoint)} instead. The file is rewritten with
+ * one record per partition once enough records have accumulated.
+ */
+public class CheckpointJournal implements AutoCloseable {
+
+    private static final int RECORD_HEADER_SIZE = Integer.BYTES;
+    private static final int RECORD_TRAILER_SIZE = Integer.BYTES;
+
+    private final Path path;
+    private final long syncIntervalInMillis;
+    private final Map<String, Checkpoint> checkpoints = new LinkedHashMap<>();
+    private FileChannel fileChannel;
+    private int recordsSinceCompaction;
+    private long lastSyncMillis;
+    private boolean syncPending;
+
+    private CheckpointJournal(Path path, long syncIntervalInMillis) {
+        this.path = path;
+        this.syncIntervalInMillis = syncIntervalInMillis;
+    }
+
+    /**
+     * Opens a journal, replaying the checkpoints of the file if it exists.
+     *
+     * @param path the journal file.
+     * @param syncIntervalInMillis the longest time a recorded checkpoint may stay unforced.
+     *
+     * @return the opened journal.
+     *
+     * @throws IOException if the file cannot be read or written.
+     */
+    public static CheckpointJournal open(Path path, long syncIntervalInMillis) throws IOException {
+
+        CheckpointJournal checkpointJournal = new CheckpointJournal(path, syncIntervalInMillis);
+        if (Files.exists(path)) {
+            checkpointJournal.replay();
+        }
+        checkpointJournal.compact();
+        return checkpointJournal;
+    }
+
+    public static CheckpointJournal open(Path path) throws IOException {
+        return open(path, Constants.JOURNAL_SYNC_INTERVAL_IN_MILLIS);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the latest checkpoint of a partition, or null if the partition has none.
+     *
+     * @param partition the partition name.
+     *
+     * @return the latest checkpoint.
+     */
+    public synchronized Checkpoint getCheckpoint(String partition) {
+        return checkpoints.get(partition);
+    }
+
+    public synchronized Map<String, Checkpoint> getCheckpoints() {
+        return new LinkedHashMap<>(checkpoints);
+    }
+
+    /**
+     * Appends a checkpoint, forcing the file to disk if the sync interval has elapsed since it was last forced.
+     *
+     * @param checkpoint the checkpoint.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    public synchronized void record(Checkpoint checkpoint) throws IOException {
+
+        append(checkpoint);
+        if (System.currentTimeMillis() - lastSyncMillis >= syncIntervalInMillis) {
+            sync();
+        }
+    }
+
+    /**
+     * Appends a checkpoint and forces the file to disk before returning.
+     *
+     * @param checkpoint the checkpoint.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    public synchronized void recordAndSync(Checkpoint checkpoint) throws IOException {
+
+        append(checkpoint);
+        sync();
+    }
+
+    public synchronized void sync() throws IOException {
+
+        if (syncPending) {
+            fileChannel.force(false);
+            syncPending = false;
+        }
+        lastSyncMillis = System.currentTimeMillis();
+        if (recordsSinceCompaction >= Constants.JOURNAL_COMPACTION_THRESHOLD) {
+            compact();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+
+        if (fileChannel.isOpen()) {
+            sync();
+            fileChannel.close();
+        }
+    }
+
+    private void append(Checkpoint checkpoint) throws IOException {
+
+        checkpoints.put(checkpoint.getPartition(), checkpoint);
+        ByteBuffer record = encode(checkpoint);
+        while (record.hasRemaining()) {
+            fileChannel.write(record);
+        }
+        recordsSinceCompaction++;
+        syncPending = true;
+    }
+
+    /**
+     * Rewrites the file with the latest checkpoint of every partition, replacing it atomically once forced.
+     */
+    private void compact() throws IOException {
+
+        Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel temporaryChannel = FileChannel.open(
+                temporaryPath,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+
+            for (Checkpoint checkpoint : checkpoints.values()) {
+                ByteBuffer record = encode(checkpoint);
+                while (record.hasRemaining()) {
+                    temporaryChannel.write(record);
+                }
+            }
+            temporaryChannel.force(true);
+        }
+
+        if (fileChannel != null) {
+            fileChannel.close();
+        }
+        Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        fileChannel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        recordsSinceCompaction = 0;
+        syncPending = false;
+        lastSyncMillis = System.currentTimeMillis();
+    }
+
+    private void replay() throws IOException {
+
+        ByteBuffer journal = ByteBuffer.wrap(Files.readAllBytes(path));
+        while (journal.remaining() >= RECORD_HEADER_SIZE) {
+            int payloadLength = journal.getInt();
+            if ((payloadLength <= 0) || (journal.remaining() < payloadLength + RECORD_TRAILER_SIZE)) {
+                return;
+            }
+
+            byte[] payload = new byte[payloadLength];
+            journal.get(payload);
+            CRC32 crc32 = new CRC32();
+            crc32.update(payload);
+            if ((int) crc32.getValue() != journal.getInt()) {
+                return;
+            }
+
+            Checkpoint checkpoint = decode(payload);
+            checkpoints.put(checkpoint.getPartition(), checkpoint);
+        }
+    }
+
+    private static ByteBuffer encode(Checkpoint checkpoint) throws IOException {
+
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(payload)) {
+            output.writeUTF(checkpoint.getPartition());
+            output.writeBoolean(checkpoint.getLastKey() != null);
+            output.writeUTF((checkpoint.getLastKey() == null) ? "" : checkpoint.getLastKey());
+            output.writeLong(checkpoint.getObjectCount());
+            output.writeLong(checkpoint.getSizeInBytes());
+            output.writeBoolean(checkpoint.isCompleted());
+        }
+
+        byte[] payloadBytes = payload.toByteArray();
+        CRC32 crc32 = new CRC32();
+        crc32.update(payloadBytes);
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + payloadBytes.length + RECORD_TRAILER_SIZE);
+        record.putInt(payloadBytes.length).put(payloadBytes).putInt((int) crc32.getValue());
+        record.flip();
+        return record;
+    }
+
+    private static Checkpoint decode(byte[] payload) throws IOException {
+
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload))) {
+            String partition = input.readUTF();
+            boolean hasLastKey = input.readBoolean();
+            String lastKey = input.readUTF();
+            return new Checkpoint(
+                    partition,
+                    hasLastKey ? lastKey : null,
+                    input.readLong(),
+                    input.readLong(),
+                    input.readBoolean());
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package s3.checkpoint;
+
+import s3.externalapi.S3Manager;
+import s3.util.Constants;
+import s3.util.Messages;
+import s3.util.S3CommonUtils;
+import s3.util.S3Listings;
+
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Runs long scans and deletions that survive a restart. Every partition, a bucket and prefix scanned for one
+ * operation, checkpoints the last key it processed together with its running totals, and a restarted operation lists
+ * its partition again starting after that key with the totals of the checkpoint. Completed partitions return their
+ * final checkpoint without listing anything.
+ * <p>
+ * Scan checkpoints are forced to disk in batches, since repeating part of a scan only costs listing requests.
+ * Deletions flush their pending keys and force a checkpoint after every DeleteObjects request, so a restart neither
+ * deletes a batch again nor loses its count.
+ */
+public class ResumableScanner {
+
+    private static final String DELETE_PRIOR_OPERATION = "delete-prior-";
+
+    private final S3Manager s3Manager;
+    private final CheckpointJournal checkpointJournal;
+    private final int checkpointInterval;
+
+    public ResumableScanner(S3Manager s3Manager, CheckpointJournal checkpointJournal, int checkpointInterval) {
+
+        if (checkpointInterval <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive: " + checkpointInterval);
+        }
+
+        this.s3Manager = s3Manager;
+        this.checkpointJournal = checkpointJournal;
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    public ResumableScanner(S3Manager s3Manager, CheckpointJournal checkpointJournal) {
+        this(s3Manager, checkpointJournal, Constants.DEFAULT_CHECKPOINT_INTERVAL_IN_OBJECTS);
+    }
+
+    /**
+     * Counts the objects under a prefix and sums their sizes.
+     *
+     * @param bucketName the bucket name.
+     * @param prefix the key prefix, or null for the whole bucket.
+     *
+     * @return the completed checkpoint holding the totals.
+     *
+     * @throws IOException if the journal cannot be written.
+     */
+    public Checkpoint sumStorageSize(String bucketName, String prefix) throws IOException {
+        return scan(getPartition("size", bucketName, prefix), bucketName, prefix, s3Object -> true, false);
+    }
+
+    /**
+     * Deletes the objects under a prefix last modified before an instant. The instant is part of the partition name,
+     * so it is stored in the journal: when the journal holds an interrupted deletion of the same prefix, the deletion
+     * resumes with the instant it started with rather than the received one, since an instant computed when the call
+     * is made, such as a number of days ago, moves on between restarts.
+     *
+     * @param bucketName the bucket name.
+     * @param prefix the key prefix, or null for the whole bucket.
+     * @param instant the exclusive modification time bound, unless an interrupted deletion is resumed.
+     *
+     * @return the completed checkpoint holding the deleted objects and bytes.
+     *
+     * @throws IOException if the journal cannot be written.
+     */
+    public Checkpoint deletePriorDateObjects(String bucketName, String prefix, Instant instant) throws IOException {
+
+        Instant interruptedInstant = getInterruptedDeletionInstant(bucketName, prefix);
+        Instant deletionInstant = (interruptedInstant == null) ? instant : interruptedInstant;
+        return delete(
+                getPartition(DELETE_PRIOR_OPERATION + deletionInstant.toEpochMilli(), bucketName, prefix),
+                bucketName,
+                prefix,
+                s3Object -> s3Object.lastModified().isBefore(deletionInstant));
+    }
+
+    /**
+     * Deletes the objects under a prefix that match a filter. The partition name identifies the operation in the
+     * journal, so it must change whenever the filter does.
+     *
+     * @param partition the partition name.
+     * @param bucketName the bucket name.
+     * @param prefix the key prefix, or null for the whole bucket.
+     * @param filter the objects to delete.
+     *
+     * @return the completed checkpoint holding the deleted objects and bytes.
+     *
+     * @throws IOException if the journal cannot be written.
+     */
+    public Checkpoint delete(String partition, String bucketName, String prefix, Predicate<S3Object> filter)
+            throws IOException {
+
+        return scan(partition, bucketName, prefix, filter, true);
+    }
+
+    private Checkpoint scan(
+            String partition,
+            String bucketName,
+            String prefix,
+            Predicate<S3Object> filter,
+            boolean delete)
+            throws IOException {
+
+        Checkpoint checkpoint = checkpointJournal.getCheckpoint(partition);
+        if ((checkpoint != null) && checkpoint.isCompleted()) {
+            return checkpoint;
+        }
+
+        String lastKey = (checkpoint == null) ? null : checkpoint.getLastKey();
+        long objectCount = (checkpoint == null) ? 0L : checkpoint.getObjectCount();
+        long sizeInBytes = (checkpoint == null) ? 0L : checkpoint.getSizeInBytes();
+        List<String> pendingKeys = new ArrayList<>(Constants.MAX_DELETE_OBJECTS_PER_REQUEST);
+        long pendingBytes = 0L;
+        int uncheckpointedObjects = 0;
+
+        try (Stream<S3Object> s3Objects = S3Listings.streamObjects(s3Manager, bucketName, prefix, lastKey)) {
+            Iterator<S3Object> iterator = s3Objects.iterator();
+            while (iterator.hasNext()) {
+                S3Object s3Object = iterator.next();
+                lastKey = s3Object.key();
+                uncheckpointedObjects++;
+
+                if (filter.test(s3Object)) {
+                    if (delete) {
+                        pendingKeys.add(s3Object.key());
+                        pendingBytes += s3Object.size();
+                    } else {
+                        objectCount++;
+                        sizeInBytes += s3Object.size();
+                    }
+                }
+
+                if ((pendingKeys.size() == Constants.MAX_DELETE_OBJECTS_PER_REQUEST)
+                        || (uncheckpointedObjects >= checkpointInterval)) {
+
+                    // Every matching key up to the last one is deleted once the pending keys are.
+                    if (!pendingKeys.isEmpty()) {
+                        deleteObjects(bucketName, pendingKeys);
+                        objectCount += pendingKeys.size();
+                        sizeInBytes += pendingBytes;
+                        pendingKeys.clear();
+                        pendingBytes = 0L;
+                    }
+
+                    Checkpoint progress = new Checkpoint(partition, lastKey, objectCount, sizeInBytes, false);
+                    if (delete) {
+                        checkpointJournal.recordAndSync(progress);
+                    } else {
+                        checkpointJournal.record(progress);
+                    }
+                    uncheckpointedObjects = 0;
+                }
+            }
+        }
+
+        if (!pendingKeys.isEmpty()) {
+            deleteObjects(bucketName, pendingKeys);
+            objectCount += pendingKeys.size();
+            sizeInBytes += pendingBytes;
+        }
+
+        Checkpoint completed = new Checkpoint(partition, lastKey, objectCount, sizeInBytes, true);
+        checkpointJournal.recordAndSync(completed);
+        return completed;
+    }
+
+    private void deleteObjects(String bucketName, List<String> keys) {
+
+        DeleteObjectsResponse deleteObjectsResponse =
+                s3Manager.deleteObjects(bucketName, S3CommonUtils.convertKeysToObjectIdentifiers(keys));
+
+        // The checkpoint must not move past keys that are still there, so the operation stops and a restart retries.
+        if ((deleteObjectsResponse != null) && deleteObjectsResponse.hasErrors()
+                && !deleteObjectsResponse.errors().isEmpty()) {
+
+            throw new IllegalStateException(Messages.DELETE_FAILURE + " First error: "
+                    + deleteObjectsResponse.errors().get(0));
+        }
+    }
+
+    /**
+     * Returns the instant of an uncompleted deletion of the prefix found in the journal, or null if there is none.
+     */
+    private Instant getInterruptedDeletionInstant(String bucketName, String prefix) {
+
+        // Operation names have no colon, so the instant ends at the first one.
+        String partitionSuffix = getPartition("", bucketName, prefix);
+        for (Checkpoint checkpoint : checkpointJournal.getCheckpoints().values()) {
+            String partition = checkpoint.getPartition();
+            int operationEnd = partition.indexOf(':');
+            if (!checkpoint.isCompleted()
+                    && partition.startsWith(DELETE_PRIOR_OPERATION)
+                    && (operationEnd > 0)
+                    && partition.substring(operationEnd).equals(partitionSuffix)) {
+
+                return Instant.ofEpochMilli(
+                        Long.parseLong(partition.substring(DELETE_PRIOR_OPERATION.length(), operationEnd)));
+            }
+        }
+        return null;
+    }
+
+    private static String getPartition(String operation, String bucketName, String prefix) {
+        return operation + ":" + bucketName + ":" + ((prefix == null) ? "" : prefix);
+    }
+}
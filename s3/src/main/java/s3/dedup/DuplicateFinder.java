@@ -0,0 +1,451 @@
+package s3.dedup;
+
+import s3.exception.TransferException;
+import s3.externalapi.S3Manager;
+import s3.util.Constants;
+import s3.util.Messages;
+import s3.util.S3CommonUtils;
+import s3.util.S3Listings;
+
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Finds objects with the same content across any number of buckets and prefixes, grouping them by size and ETag.
+ * The first pass streams every listing into an off-heap {@link FingerprintTable}, so the heap does not grow with the
+ * number of objects. The second pass lists again and spills the locations of objects whose (size, ETag) was seen
+ * more than once to temporary files, partitioned by hash so that each partition holds whole groups and fits on the
+ * heap; the groups are then rebuilt one partition at a time. Candidates can be confirmed by downloading them and
+ * comparing SHA-256 checksums, which also settles multipart ETags that depend on the part size rather than the
+ * content alone.
+ * <p>
+ * The table lives in direct buffers, which count against -XX:MaxDirectMemorySize rather than the heap. That limit
+ * defaults to the maximum heap size, and the table needs up to about 100 bytes per distinct (size, ETag) while it
+ * grows, so scans of hundreds of millions of objects need it raised.
+ */
+public class DuplicateFinder {
+
+    private static final String CHECKSUM_ALGORITHM = "SHA-256";
+
+    private final S3Manager s3Manager;
+    private final int parallelism;
+    private final long minimumSize;
+    private final AtomicLong failedDeletions = new AtomicLong();
+
+    /**
+     * Creates a finder.
+     *
+     * @param s3Manager the manager used to list and download objects.
+     * @param parallelism the number of sources listed, or objects downloaded, at once.
+     * @param minimumSize the size below which objects are ignored, in bytes; empty objects are always identical.
+     */
+    public DuplicateFinder(S3Manager s3Manager, int parallelism, long minimumSize) {
+        this.s3Manager = s3Manager;
+        this.parallelism = parallelism;
+        this.minimumSize = minimumSize;
+    }
+
+    public DuplicateFinder(S3Manager s3Manager) {
+        this(s3Manager, Constants.DEFAULT_LISTING_PARALLELISM, 1L);
+    }
+
+    /**
+     * Returns how many spill files, spill directories or checksum downloads could not be deleted, and were left in
+     * the temporary directory.
+     *
+     * @return the number of failed deletions.
+     */
+    public long getFailedDeletions() {
+        return failedDeletions.get();
+    }
+
+    public DuplicateReport findDuplicates(Collection<ObjectLocation> sources, boolean confirmWithChecksums) {
+
+        List<DuplicateSet> duplicateSets = new ArrayList<>();
+        DuplicateReport scanReport = findDuplicates(sources, confirmWithChecksums, duplicateSets::add);
+        duplicateSets.sort(Comparator.comparingLong(DuplicateSet::getWastedBytes).reversed());
+        return new DuplicateReport(
+                scanReport.getScannedObjects(),
+                scanReport.getScannedBytes(),
+                confirmWithChecksums,
+                duplicateSets);
+    }
+
+    /**
+     * Finds the duplicate sets and hands each one to a consumer, on the calling thread, as soon as its partition has
+     * been grouped, so only one partition of candidates is ever on the heap.
+     *
+     * @param sources the buckets, or bucket prefixes, to scan.
+     * @param confirmWithChecksums whether to download candidates and confirm them with SHA-256 checksums.
+     * @param consumer the consumer of the duplicate sets, which come in no particular order.
+     *
+     * @return the report of the scan, counting the consumed sets without holding them.
+     */
+    public DuplicateReport findDuplicates(
+            Collection<ObjectLocation> sources,
+            boolean confirmWithChecksums,
+            Consumer<DuplicateSet> consumer) {
+
+        FingerprintTable fingerprintTable = new FingerprintTable(0L);
+        long[] scannedTotals = new long[2];
+        long[] duplicateTotals = new long[3];
+        Path spillDirectory = null;
+        try {
+            forEachObject(sources, (source, s3Object) -> {
+                synchronized (fingerprintTable) {
+                    scannedTotals[0]++;
+                    scannedTotals[1] += s3Object.size();
+                    fingerprintTable.increment(s3Object.size(), FingerprintTable.fingerprint(getETag(s3Object)));
+                }
+            });
+
+            long candidateObjects = fingerprintTable.countRepeatedOccurrences();
+            int partitionCount = (int) Math.min(
+                    Constants.MAX_DUPLICATE_SPILL_PARTITIONS,
+                    Math.max(1L, (candidateObjects + Constants.DUPLICATE_CANDIDATES_PER_PARTITION - 1)
+                            / Constants.DUPLICATE_CANDIDATES_PER_PARTITION));
+
+            spillDirectory = Files.createTempDirectory("duplicates");
+            try (CandidateSpill candidateSpill = new CandidateSpill(spillDirectory, partitionCount)) {
+                forEachObject(sources, (source, s3Object) -> {
+                    String eTag = getETag(s3Object);
+                    long fingerprint = FingerprintTable.fingerprint(eTag);
+                    long count;
+                    synchronized (fingerprintTable) {
+                        count = fingerprintTable.getCount(s3Object.size(), fingerprint);
+                    }
+                    if (count > 1) {
+                        candidateSpill.write(s3Object.size(), fingerprint, eTag, source, s3Object.key());
+                    }
+                });
+            }
+            fingerprintTable.clear();
+
+            for (int partition = 0; partition < partitionCount; partition++) {
+                List<DuplicateSet> duplicateSets = readDuplicateSets(CandidateSpill.getPath(spillDirectory, partition));
+                if (confirmWithChecksums) {
+                    duplicateSets = confirm(duplicateSets);
+                }
+                for (DuplicateSet duplicateSet : duplicateSets) {
+                    duplicateTotals[0]++;
+                    duplicateTotals[1] += duplicateSet.getObjectLocations().size() - 1;
+                    duplicateTotals[2] += duplicateSet.getWastedBytes();
+                    consumer.accept(duplicateSet);
+                }
+            }
+        } catch (IOException exc) {
+            throw new TransferException(Messages.LOCAL_FILE_IO_FAILURE, exc);
+        } catch (UncheckedIOException exc) {
+            throw new TransferException(Messages.LOCAL_FILE_IO_FAILURE, exc.getCause());
+        } finally {
+            fingerprintTable.clear();
+            deleteDirectoryQuietly(spillDirectory);
+        }
+
+        return new DuplicateReport(
+                scannedTotals[0],
+                scannedTotals[1],
+                confirmWithChecksums,
+                duplicateTotals[0],
+                duplicateTotals[1],
+                duplicateTotals[2]);
+    }
+
+    /**
+     * Groups the candidates of one spilled partition by size and ETag, keeping the groups with several locations.
+     */
+    private static List<DuplicateSet> readDuplicateSets(Path partitionPath) throws IOException {
+
+        // Sets dedupe locations listed twice through overlapping sources.
+        Map<CandidateKey, Set<ObjectLocation>> candidates = new HashMap<>();
+        try (DataInputStream input =
+                new DataInputStream(new BufferedInputStream(Files.newInputStream(partitionPath)))) {
+            while (true) {
+                long size;
+                try {
+                    size = input.readLong();
+                } catch (EOFException exc) {
+                    break;
+                }
+                String eTag = input.readUTF();
+                ObjectLocation objectLocation = new ObjectLocation(input.readUTF(), input.readUTF());
+                candidates.computeIfAbsent(new CandidateKey(size, eTag), key -> new LinkedHashSet<>())
+                        .add(objectLocation);
+            }
+        }
+        Files.delete(partitionPath);
+
+        List<DuplicateSet> duplicateSets = new ArrayList<>();
+        for (Map.Entry<CandidateKey, Set<ObjectLocation>> candidate : candidates.entrySet()) {
+            if (candidate.getValue().size() > 1) {
+                duplicateSets.add(new DuplicateSet(
+                        candidate.getKey().size,
+                        candidate.getKey().eTag,
+                        null,
+                        new ArrayList<>(candidate.getValue())));
+            }
+        }
+        return duplicateSets;
+    }
+
+    private void forEachObject(Collection<ObjectLocation> sources, BiConsumer<ObjectLocation, S3Object> consumer) {
+
+        ExecutorService executorService =
+                Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, sources.size())));
+        try {
+            List<CompletableFuture<Void>> listings = sources
+                    .stream()
+                    .map(source -> CompletableFuture.runAsync(() -> {
+                        try (Stream<S3Object> s3Objects = S3Listings.streamObjects(
+                                s3Manager,
+                                source.getBucketName(),
+                                source.getKey())) {
+                            s3Objects
+                                    .filter(s3Object -> (s3Object.size() >= minimumSize) && (s3Object.eTag() != null))
+                                    .forEach(s3Object -> consumer.accept(source, s3Object));
+                        }
+                    }, executorService))
+                    .collect(Collectors.toList());
+
+            for (CompletableFuture<Void> listing : listings) {
+                join(listing);
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * Splits every candidate set by the SHA-256 of its objects' content and keeps the groups that still hold several
+     * objects.
+     */
+    private List<DuplicateSet> confirm(List<DuplicateSet> candidateSets) {
+
+        ExecutorService executorService = Executors.newFixedThreadPool(parallelism);
+        try {
+            Map<ObjectLocation, CompletableFuture<String>> checksums = new HashMap<>();
+            for (DuplicateSet candidateSet : candidateSets) {
+                for (ObjectLocation objectLocation : candidateSet.getObjectLocations()) {
+                    checksums.put(
+                            objectLocation,
+                            CompletableFuture.supplyAsync(() -> checksum(objectLocation), executorService));
+                }
+            }
+
+            List<DuplicateSet> confirmedSets = new ArrayList<>();
+            for (DuplicateSet candidateSet : candidateSets) {
+                Map<String, List<ObjectLocation>> objectLocationsByChecksum = new LinkedHashMap<>();
+                for (ObjectLocation objectLocation : candidateSet.getObjectLocations()) {
+                    objectLocationsByChecksum
+                            .computeIfAbsent(join(checksums.get(objectLocation)), checksum -> new ArrayList<>())
+                            .add(objectLocation);
+                }
+                for (Map.Entry<String, List<ObjectLocation>> group : objectLocationsByChecksum.entrySet()) {
+                    if (group.getValue().size() > 1) {
+                        confirmedSets.add(new DuplicateSet(
+                                candidateSet.getSize(),
+                                candidateSet.getETag(),
+                                group.getKey(),
+                                group.getValue()));
+                    }
+                }
+            }
+            return confirmedSets;
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    private String checksum(ObjectLocation objectLocation) {
+
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance(CHECKSUM_ALGORITHM);
+        } catch (NoSuchAlgorithmException exc) {
+            throw new IllegalStateException(exc);
+        }
+
+        Path downloadPath = null;
+        try {
+            downloadPath = Files.createTempFile("duplicate", ".part");
+            Files.delete(downloadPath);
+            s3Manager.getObject(objectLocation.getBucketName(), objectLocation.getKey(), null, downloadPath);
+            try (InputStream inputStream = new DigestInputStream(Files.newInputStream(downloadPath), messageDigest)) {
+                byte[] buffer = new byte[64 * 1024];
+                while (inputStream.read(buffer) != -1) {
+                    // Reading is enough, the digest is updated by the stream.
+                }
+            }
+        } catch (IOException exc) {
+            throw new TransferException(Messages.CHECKSUM_FAILURE, exc);
+        } finally {
+            deleteQuietly(downloadPath);
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for (byte digestByte : messageDigest.digest()) {
+            hex.append(String.format("%02x", digestByte));
+        }
+        return hex.toString();
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+
+        try {
+            return future.join();
+        } catch (CompletionException exc) {
+            if (exc.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exc.getCause();
+            }
+            throw new TransferException(Messages.CHECKSUM_FAILURE, exc.getCause());
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException exc) {
+            failedDeletions.incrementAndGet();
+        }
+    }
+
+    private void deleteDirectoryQuietly(Path directory) {
+
+        if (directory == null) {
+            return;
+        }
+        try (Stream<Path> paths = Files.list(directory)) {
+            paths.forEach(this::deleteQuietly);
+        } catch (IOException exc) {
+            failedDeletions.incrementAndGet();
+        }
+        deleteQuietly(directory);
+    }
+
+    private static String getETag(S3Object s3Object) {
+        return S3CommonUtils.normalizeETag(s3Object.eTag());
+    }
+
+    /**
+     * Temporary files of candidate locations, one per partition, each holding every candidate of the (size, ETag)
+     * pairs that hash to it. Written concurrently by the listing threads.
+     */
+    private static final class CandidateSpill implements AutoCloseable {
+
+        private static final int BUFFER_SIZE_IN_BYTES = 8 * 1024;
+
+        private final DataOutputStream[] outputs;
+
+        private CandidateSpill(Path spillDirectory, int partitionCount) throws IOException {
+
+            outputs = new DataOutputStream[partitionCount];
+            try {
+                for (int partition = 0; partition < partitionCount; partition++) {
+                    outputs[partition] = new DataOutputStream(new BufferedOutputStream(
+                            Files.newOutputStream(getPath(spillDirectory, partition)),
+                            BUFFER_SIZE_IN_BYTES));
+                }
+            } catch (IOException exc) {
+                close();
+                throw exc;
+            }
+        }
+
+        private static Path getPath(Path spillDirectory, int partition) {
+            return spillDirectory.resolve("candidates-" + partition);
+        }
+
+        private synchronized void write(long size, long fingerprint, String eTag, ObjectLocation source, String key) {
+
+            int partition = Math.floorMod(31 * Long.hashCode(size) + Long.hashCode(fingerprint), outputs.length);
+            DataOutputStream output = outputs[partition];
+            try {
+                output.writeLong(size);
+                output.writeUTF(eTag);
+                output.writeUTF(source.getBucketName());
+                output.writeUTF(key);
+            } catch (IOException exc) {
+                throw new UncheckedIOException(exc);
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+
+            IOException closeFailure = null;
+            for (DataOutputStream output : outputs) {
+                try {
+                    if (output != null) {
+                        output.close();
+                    }
+                } catch (IOException exc) {
+                    closeFailure = exc;
+                }
+            }
+            if (closeFailure != null) {
+                throw closeFailure;
+            }
+        }
+    }
+
+    private static final class CandidateKey {
+
+        private final long size;
+        private final String eTag;
+
+        private CandidateKey(long size, String eTag) {
+            this.size = size;
+            this.eTag = eTag;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+
+            if (!(other instanceof CandidateKey)) {
+                return false;
+            }
+            CandidateKey candidateKey = (CandidateKey) other;
+            return (size == candidateKey.size) && eTag.equals(candidateKey.eTag);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(size) + eTag.hashCode();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package s3.dedup;
+
+import java.util.Collections;
+import java.util.List;
+
+public class DuplicateReport {
+
+    private final long scannedObjects;
+    private final long scannedBytes;
+    private final boolean confirmed;
+    private final List<DuplicateSet> duplicateSets;
+    private final long duplicateSetCount;
+    private final long duplicateObjects;
+    private final long wastedBytes;
+
+    public DuplicateReport(
+            long scannedObjects,
+            long scannedBytes,
+            boolean confirmed,
+            List<DuplicateSet> duplicateSets) {
+
+        this.scannedObjects = scannedObjects;
+        this.scannedBytes = scannedBytes;
+        this.confirmed = confirmed;
+        this.duplicateSets = Collections.unmodifiableList(duplicateSets);
+        this.duplicateSetCount = duplicateSets.size();
+
+        long redundantObjects = 0L;
+        long redundantBytes = 0L;
+        for (DuplicateSet duplicateSet : duplicateSets) {
+            redundantObjects += duplicateSet.getObjectLocations().size() - 1;
+            redundantBytes += duplicateSet.getWastedBytes();
+        }
+        this.duplicateObjects = redundantObjects;
+        this.wastedBytes = redundantBytes;
+    }
+
+    /**
+     * Creates the report of a scan whose duplicate sets were handed to a consumer rather than kept.
+     */
+    public DuplicateReport(
+            long scannedObjects,
+            long scannedBytes,
+            boolean confirmed,
+            long duplicateSetCount,
+            long duplicateObjects,
+            long wastedBytes) {
+
+        this.scannedObjects = scannedObjects;
+        this.scannedBytes = scannedBytes;
+        this.confirmed = confirmed;
+        this.duplicateSets = Collections.emptyList();
+        this.duplicateSetCount = duplicateSetCount;
+        this.duplicateObjects = duplicateObjects;
+        this.wastedBytes = wastedBytes;
+    }
+
+    public long getScannedObjects() {
+        return scannedObjects;
+    }
+
+    public long getScannedBytes() {
+        return scannedBytes;
+    }
+
+    /**
+     * Returns whether every duplicate set was confirmed by comparing full-content checksums.
+     *
+     * @return true if the sets were confirmed.
+     */
+    public boolean isConfirmed() {
+        return confirmed;
+    }
+
+    /**
+     * Returns the duplicate sets, the most wasteful first, or an empty list when they were handed to a consumer.
+     *
+     * @return the duplicate sets.
+     */
+    public List<DuplicateSet> getDuplicateSets() {
+        return duplicateSets;
+    }
+
+    public long getDuplicateSetCount() {
+        return duplicateSetCount;
+    }
+
+    public long getDuplicateObjects() {
+        return duplicateObjects;
+    }
+
+    public long getWastedBytes() {
+        return wastedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "Scanned " + scannedObjects + " objects (" + scannedBytes + " bytes): "
+                + duplicateSetCount + (confirmed ? " confirmed" : "") + " duplicate sets, "
+                + duplicateObjects + " redundant objects, "
+                + wastedBytes + " wasted bytes";
+    }
+}
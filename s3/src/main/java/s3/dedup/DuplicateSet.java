@@ -0,0 +1,57 @@
+package s3.dedup;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Objects holding the same content, as far as their size and ETag, or their checksum once confirmed, tell.
+ */
+public class DuplicateSet {
+
+    private final long size;
+    private final String eTag;
+    private final String checksum;
+    private final List<ObjectLocation> objectLocations;
+
+    public DuplicateSet(long size, String eTag, String checksum, List<ObjectLocation> objectLocations) {
+        this.size = size;
+        this.eTag = eTag;
+        this.checksum = checksum;
+        this.objectLocations = Collections.unmodifiableList(objectLocations);
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    /**
+     * Returns the SHA-256 of the content, in hexadecimal, or null when the set was not confirmed.
+     *
+     * @return the content checksum.
+     */
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public List<ObjectLocation> getObjectLocations() {
+        return objectLocations;
+    }
+
+    /**
+     * Returns the bytes that keeping a single copy would save.
+     *
+     * @return the wasted bytes.
+     */
+    public long getWastedBytes() {
+        return size * (objectLocations.size() - 1);
+    }
+
+    @Override
+    public String toString() {
+        return objectLocations.size() + " copies of " + size + " bytes (ETag " + eTag + "): " + objectLocations;
+    }
+}
@@ -0,0 +1,172 @@
+package s3.dedup;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Open-addressing hash table from (size, ETag fingerprint) to an occurrence count, stored off-heap in direct buffers
+ * of at most 32M slots each. A slot takes 24 bytes and no object header, so hundreds of millions of objects cost a
+ * few gigabytes of native memory and nothing on the heap. The buffers count against -XX:MaxDirectMemorySize, and
+ * while the table doubles the old and new buffers coexist, about 100 bytes per entry. Not thread-safe.
+ */
+final class FingerprintTable {
+
+    private static final int SLOT_SIZE = 24;
+    private static final int SIZE_OFFSET = 0;
+    private static final int FINGERPRINT_OFFSET = 8;
+    private static final int COUNT_OFFSET = 16;
+    private static final int SLOTS_PER_BUFFER_SHIFT = 25;
+    private static final long SLOTS_PER_BUFFER_MASK = (1L << SLOTS_PER_BUFFER_SHIFT) - 1;
+    private static final double MAXIMUM_LOAD_FACTOR = 0.7;
+    private static final long MINIMUM_CAPACITY = 1L << 10;
+
+    private ByteBuffer[] buffers;
+    private long capacity;
+    private long size;
+
+    FingerprintTable(long expectedEntries) {
+        allocate(Math.max(MINIMUM_CAPACITY, Long.highestOneBit((long) (expectedEntries / MAXIMUM_LOAD_FACTOR)) << 1));
+    }
+
+    /**
+     * Counts one more occurrence of the entry.
+     *
+     * @return the count after the increment.
+     */
+    long increment(long objectSize, long fingerprint) {
+
+        if (size >= capacity * MAXIMUM_LOAD_FACTOR) {
+            grow();
+        }
+        long slot = findSlot(objectSize, fingerprint);
+        long count = getLong(slot, COUNT_OFFSET);
+        if (count == 0L) {
+            putLong(slot, SIZE_OFFSET, objectSize);
+            putLong(slot, FINGERPRINT_OFFSET, fingerprint);
+            size++;
+        }
+        putLong(slot, COUNT_OFFSET, count + 1);
+        return count + 1;
+    }
+
+    long getCount(long objectSize, long fingerprint) {
+        return getLong(findSlot(objectSize, fingerprint), COUNT_OFFSET);
+    }
+
+    long size() {
+        return size;
+    }
+
+    /**
+     * Returns the total count of the entries seen more than once, which bounds the objects a second pass keeps.
+     */
+    long countRepeatedOccurrences() {
+
+        long repeatedOccurrences = 0L;
+        for (long slot = 0; slot < capacity; slot++) {
+            long count = getLong(slot, COUNT_OFFSET);
+            if (count > 1) {
+                repeatedOccurrences += count;
+            }
+        }
+        return repeatedOccurrences;
+    }
+
+    /**
+     * Returns the native memory held by the table, in bytes.
+     */
+    long getMemoryInBytes() {
+        return capacity * SLOT_SIZE;
+    }
+
+    /**
+     * Drops the buffers so the native memory is returned once they are collected.
+     */
+    void clear() {
+        buffers = new ByteBuffer[0];
+        capacity = 0L;
+        size = 0L;
+    }
+
+    /**
+     * Mixes a string, typically an ETag, into 64 bits with FNV-1a. Fingerprint collisions only produce candidates
+     * that the caller then compares by full ETag.
+     */
+    static long fingerprint(String text) {
+
+        long hash = 0xcbf29ce484222325L;
+        for (int index = 0; index < text.length(); index++) {
+            hash ^= text.charAt(index);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private long findSlot(long objectSize, long fingerprint) {
+
+        // Linear probing from the mixed hash until the entry or an empty slot is found.
+        long mask = capacity - 1;
+        long slot = mix(objectSize * 0x9e3779b97f4a7c15L + fingerprint) & mask;
+        while (true) {
+            if ((getLong(slot, COUNT_OFFSET) == 0L)
+                    || ((getLong(slot, SIZE_OFFSET) == objectSize)
+                            && (getLong(slot, FINGERPRINT_OFFSET) == fingerprint))) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void grow() {
+
+        ByteBuffer[] oldBuffers = buffers;
+        long oldCapacity = capacity;
+        allocate(capacity << 1);
+
+        for (long oldSlot = 0; oldSlot < oldCapacity; oldSlot++) {
+            ByteBuffer oldBuffer = oldBuffers[(int) (oldSlot >>> SLOTS_PER_BUFFER_SHIFT)];
+            int offset = (int) (oldSlot & SLOTS_PER_BUFFER_MASK) * SLOT_SIZE;
+            long count = oldBuffer.getLong(offset + COUNT_OFFSET);
+            if (count != 0L) {
+                long objectSize = oldBuffer.getLong(offset + SIZE_OFFSET);
+                long fingerprint = oldBuffer.getLong(offset + FINGERPRINT_OFFSET);
+                long slot = findSlot(objectSize, fingerprint);
+                putLong(slot, SIZE_OFFSET, objectSize);
+                putLong(slot, FINGERPRINT_OFFSET, fingerprint);
+                putLong(slot, COUNT_OFFSET, count);
+            }
+        }
+    }
+
+    private void allocate(long newCapacity) {
+
+        long slotsPerBuffer = Math.min(newCapacity, 1L << SLOTS_PER_BUFFER_SHIFT);
+        ByteBuffer[] newBuffers = new ByteBuffer[(int) (newCapacity / slotsPerBuffer)];
+        for (int bufferIndex = 0; bufferIndex < newBuffers.length; bufferIndex++) {
+            // Direct buffers come zeroed, so every slot starts empty.
+            newBuffers[bufferIndex] = ByteBuffer.allocateDirect((int) (slotsPerBuffer * SLOT_SIZE));
+        }
+        buffers = newBuffers;
+        capacity = newCapacity;
+    }
+
+    private long getLong(long slot, int fieldOffset) {
+        return buffers[(int) (slot >>> SLOTS_PER_BUFFER_SHIFT)]
+                .getLong((int) (slot & SLOTS_PER_BUFFER_MASK) * SLOT_SIZE + fieldOffset);
+    }
+
+    private void putLong(long slot, int fieldOffset, long value) {
+        buffers[(int) (slot >>> SLOTS_PER_BUFFER_SHIFT)]
+                .putLong((int) (slot & SLOTS_PER_BUFFER_MASK) * SLOT_SIZE + fieldOffset, value);
+    }
+
+    private static long mix(long value) {
+
+        // Murmur3 finalizer.
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
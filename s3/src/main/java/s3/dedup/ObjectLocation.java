@@ -0,0 +1,57 @@
+package s3.dedup;
+
+import java.util.Objects;
+
+/**
+ * A bucket and a key, or a key prefix when used to name the part of a bucket to scan.
+ */
+public class ObjectLocation {
+
+    private final String bucketName;
+    private final String key;
+
+    public ObjectLocation(String bucketName, String key) {
+        this.bucketName = bucketName;
+        this.key = key;
+    }
+
+    public static ObjectLocation ofBucket(String bucketName) {
+        return new ObjectLocation(bucketName, null);
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    /**
+     * Returns the key or prefix, or null for the whole bucket.
+     *
+     * @return the key or prefix.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof ObjectLocation)) {
+            return false;
+        }
+        ObjectLocation objectLocation = (ObjectLocation) other;
+        return bucketName.equals(objectLocation.bucketName) && Objects.equals(key, objectLocation.key);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * bucketName.hashCode() + Objects.hashCode(key);
+    }
+
+    @Override
+    public String toString() {
+        return "s3://" + bucketName + "/" + ((key == null) ? "" : key);
+    }
+}
@@ -0,0 +1,79 @@
+package s3.diff;
+
+import s3.util.S3CommonUtils;
+
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.util.Objects;
+
+/**
+ * A key present on one side only, or on both sides with a different size, ETag or, when compared, modification time.
+ * Keys are relative to the prefix of their side.
+ */
+public class DiffEntry {
+
+    private final DiffType diffType;
+    private final String relativeKey;
+    private final S3Object leftObject;
+    private final S3Object rightObject;
+
+    public DiffEntry(DiffType diffType, String relativeKey, S3Object leftObject, S3Object rightObject) {
+        this.diffType = diffType;
+        this.relativeKey = relativeKey;
+        this.leftObject = leftObject;
+        this.rightObject = rightObject;
+    }
+
+    public DiffType getDiffType() {
+        return diffType;
+    }
+
+    public String getRelativeKey() {
+        return relativeKey;
+    }
+
+    /**
+     * Returns the left object, or null for ONLY_RIGHT entries.
+     *
+     * @return the left object.
+     */
+    public S3Object getLeftObject() {
+        return leftObject;
+    }
+
+    /**
+     * Returns the right object, or null for ONLY_LEFT entries.
+     *
+     * @return the right object.
+     */
+    public S3Object getRightObject() {
+        return rightObject;
+    }
+
+    public boolean isSizeChanged() {
+        return (diffType == DiffType.CHANGED) && !Objects.equals(leftObject.size(), rightObject.size());
+    }
+
+    public boolean isETagChanged() {
+
+        return (diffType == DiffType.CHANGED) && !Objects.equals(
+                S3CommonUtils.normalizeETag(leftObject.eTag()),
+                S3CommonUtils.normalizeETag(rightObject.eTag()));
+    }
+
+    public boolean isLastModifiedChanged() {
+        return (diffType == DiffType.CHANGED) && !Objects.equals(leftObject.lastModified(), rightObject.lastModified());
+    }
+
+    @Override
+    public String toString() {
+
+        StringBuilder stringBuilder = new StringBuilder(diffType.name()).append(' ').append(relativeKey);
+        if (diffType == DiffType.CHANGED) {
+            stringBuilder.append(isSizeChanged() ? " size" : "")
+                    .append(isETagChanged() ? " eTag" : "")
+                    .append(isLastModifiedChanged() ? " lastModified" : "");
+        }
+        return stringBuilder.toString();
+    }
+}
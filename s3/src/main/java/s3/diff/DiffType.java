@@ -0,0 +1,8 @@
+package s3.diff;
+
+public enum DiffType {
+
+    ONLY_LEFT,
+    ONLY_RIGHT,
+    CHANGED
+}
@@ -0,0 +1,204 @@
+package s3.diff;
+
+import s3.externalapi.S3Manager;
+import s3.util.PrefetchingIterator;
+import s3.util.S3CommonUtils;
+import s3.util.S3Listings;
+
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Compares two key spaces by merge-joining their listings, which S3 returns in key order. Each side is listed on its
+ * own thread a few pages ahead of the merge, so both listings progress concurrently, and memory holds only those
+ * pages whatever the number of keys. Keys are compared relative to the prefix of their side, which lets a prefix be
+ * compared with a copy under another prefix or in another bucket.
+ */
+public class ListingDiff {
+
+    private final S3Manager s3Manager;
+    private final boolean compareLastModified;
+
+    /**
+     * Creates a diff.
+     *
+     * @param s3Manager the manager used to list the buckets.
+     * @param compareLastModified whether a different modification time alone makes a key changed; copies made by
+     *                            replication or migration usually have a later one.
+     */
+    public ListingDiff(S3Manager s3Manager, boolean compareLastModified) {
+        this.s3Manager = s3Manager;
+        this.compareLastModified = compareLastModified;
+    }
+
+    /**
+     * Returns the differences between two prefixes as a lazy stream in key order. The stream must be closed, which
+     * stops the listings when it is not consumed to the end.
+     *
+     * @param leftBucketName the left bucket name.
+     * @param leftPrefix the left prefix, or null for the whole bucket.
+     * @param rightBucketName the right bucket name.
+     * @param rightPrefix the right prefix, or null for the whole bucket.
+     *
+     * @return the stream of differences.
+     */
+    public Stream<DiffEntry> diff(
+            String leftBucketName,
+            String leftPrefix,
+            String rightBucketName,
+            String rightPrefix) {
+
+        return diff(
+                S3Listings.streamObjects(s3Manager, leftBucketName, leftPrefix),
+                leftPrefix,
+                S3Listings.streamObjects(s3Manager, rightBucketName, rightPrefix),
+                rightPrefix);
+    }
+
+    /**
+     * Returns the differences between a saved listing, on the left, and the current listing of its bucket and
+     * prefix, on the right.
+     *
+     * @param listingFile the saved listing.
+     *
+     * @return the stream of differences.
+     *
+     * @throws IOException if the listing file cannot be opened.
+     */
+    public Stream<DiffEntry> diff(ListingFile listingFile) throws IOException {
+
+        return diff(
+                listingFile.streamObjects(),
+                listingFile.getPrefix(),
+                S3Listings.streamObjects(s3Manager, listingFile.getBucketName(), listingFile.getPrefix()),
+                listingFile.getPrefix());
+    }
+
+    public Stream<DiffEntry> diff(
+            Stream<S3Object> leftObjects,
+            String leftPrefix,
+            Stream<S3Object> rightObjects,
+            String rightPrefix) {
+
+        PrefetchingIterator<S3Object> leftIterator =
+                new PrefetchingIterator<>(leftObjects.iterator(), "listing-diff-left");
+        PrefetchingIterator<S3Object> rightIterator =
+                new PrefetchingIterator<>(rightObjects.iterator(), "listing-diff-right");
+
+        Iterator<DiffEntry> mergeIterator = new MergeIterator(
+                new Side(leftIterator, leftPrefix),
+                new Side(rightIterator, rightPrefix));
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(mergeIterator, Spliterator.ORDERED | Spliterator.NONNULL),
+                false)
+                .onClose(() -> {
+                    leftIterator.close();
+                    rightIterator.close();
+                    leftObjects.close();
+                    rightObjects.close();
+                });
+    }
+
+    private boolean isChanged(S3Object leftObject, S3Object rightObject) {
+
+        return !Objects.equals(leftObject.size(), rightObject.size())
+                || !Objects.equals(
+                        S3CommonUtils.normalizeETag(leftObject.eTag()),
+                        S3CommonUtils.normalizeETag(rightObject.eTag()))
+                || (compareLastModified && !Objects.equals(leftObject.lastModified(), rightObject.lastModified()));
+    }
+
+    /**
+     * One listing with its current object, checking that keys really come in S3 order since the merge relies on it.
+     */
+    private static final class Side {
+
+        private final Iterator<S3Object> iterator;
+        private final int prefixLength;
+        private S3Object head;
+        private String relativeKey;
+
+        private Side(Iterator<S3Object> iterator, String prefix) {
+            this.iterator = iterator;
+            this.prefixLength = (prefix == null) ? 0 : prefix.length();
+        }
+
+        private S3Object advance() {
+
+            S3Object previousHead = head;
+            String previousRelativeKey = relativeKey;
+            head = iterator.hasNext() ? iterator.next() : null;
+            relativeKey = (head == null) ? null : head.key().substring(prefixLength);
+
+            if ((relativeKey != null) && (previousRelativeKey != null)
+                    && (S3CommonUtils.compareKeys(previousRelativeKey, relativeKey) >= 0)) {
+                throw new IllegalStateException("Listing is not in key order at " + head.key());
+            }
+            return previousHead;
+        }
+    }
+
+    private final class MergeIterator implements Iterator<DiffEntry> {
+
+        private final Side left;
+        private final Side right;
+        private DiffEntry nextEntry;
+        private boolean started;
+
+        private MergeIterator(Side left, Side right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean hasNext() {
+
+            if (!started) {
+                left.advance();
+                right.advance();
+                started = true;
+            }
+
+            while ((nextEntry == null) && ((left.head != null) || (right.head != null))) {
+                int comparison = (left.head == null) ? 1
+                        : (right.head == null) ? -1
+                        : S3CommonUtils.compareKeys(left.relativeKey, right.relativeKey);
+
+                if (comparison < 0) {
+                    String relativeKey = left.relativeKey;
+                    nextEntry = new DiffEntry(DiffType.ONLY_LEFT, relativeKey, left.advance(), null);
+                } else if (comparison > 0) {
+                    String relativeKey = right.relativeKey;
+                    nextEntry = new DiffEntry(DiffType.ONLY_RIGHT, relativeKey, null, right.advance());
+                } else {
+                    String relativeKey = left.relativeKey;
+                    S3Object leftObject = left.advance();
+                    S3Object rightObject = right.advance();
+                    if (isChanged(leftObject, rightObject)) {
+                        nextEntry = new DiffEntry(DiffType.CHANGED, relativeKey, leftObject, rightObject);
+                    }
+                }
+            }
+            return nextEntry != null;
+        }
+
+        @Override
+        public DiffEntry next() {
+
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            DiffEntry diffEntry = nextEntry;
+            nextEntry = null;
+            return diffEntry;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package s3.diff;
+
+import s3.externalapi.S3Manager;
+import s3.util.S3CommonUtils;
+import s3.util.S3Listings;
+
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * A listing saved to a local file, one object per line in listing order, so that a bucket can later be compared with
+ * the state it had when the file was written. The first line holds the bucket name and the prefix; every other line
+ * holds the size, modification time, ETag, storage class and key, the key last and with backslashes, line feeds and
+ * carriage returns escaped.
+ */
+public class ListingFile {
+
+    private static final String SEPARATOR = "\t";
+
+    private final Path path;
+    private final String bucketName;
+    private final String prefix;
+
+    private ListingFile(Path path, String bucketName, String prefix) {
+        this.path = path;
+        this.bucketName = bucketName;
+        this.prefix = prefix;
+    }
+
+    /**
+     * Streams the listing of a prefix into a file, replacing it atomically once complete.
+     *
+     * @param s3Manager the manager used to list the bucket.
+     * @param bucketName the bucket name.
+     * @param prefix the key prefix, or null for the whole bucket.
+     * @param path the file to write.
+     *
+     * @return the saved listing.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    public static ListingFile save(S3Manager s3Manager, String bucketName, String prefix, Path path)
+            throws IOException {
+
+        Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temporaryPath, StandardCharsets.UTF_8);
+             Stream<S3Object> s3Objects = S3Listings.streamObjects(s3Manager, bucketName, prefix)) {
+
+            writer.write(bucketName + SEPARATOR + ((prefix == null) ? "" : prefix));
+            writer.newLine();
+
+            Iterator<S3Object> iterator = s3Objects.iterator();
+            while (iterator.hasNext()) {
+                S3Object s3Object = iterator.next();
+                writer.write(s3Object.size() + SEPARATOR
+                        + s3Object.lastModified().toEpochMilli() + SEPARATOR
+                        + nullToEmpty(S3CommonUtils.normalizeETag(s3Object.eTag())) + SEPARATOR
+                        + nullToEmpty(s3Object.storageClassAsString()) + SEPARATOR
+                        + escape(s3Object.key()));
+                writer.newLine();
+            }
+        }
+        Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING);
+        return new ListingFile(path, bucketName, prefix);
+    }
+
+    public static ListingFile open(Path path) throws IOException {
+
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (header == null) {
+                throw new IOException("Empty listing file: " + path);
+            }
+            String[] fields = header.split(SEPARATOR, 2);
+            String prefix = ((fields.length < 2) || fields[1].isEmpty()) ? null : fields[1];
+            return new ListingFile(path, fields[0], prefix);
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Returns the saved objects as a lazy stream, in the order they were listed. The stream must be closed.
+     *
+     * @return the stream of saved objects.
+     *
+     * @throws IOException if the file cannot be opened.
+     */
+    public Stream<S3Object> streamObjects() throws IOException {
+
+        return Files.lines(path, StandardCharsets.UTF_8)
+                .skip(1)
+                .map(ListingFile::parse);
+    }
+
+    private static S3Object parse(String line) {
+
+        String[] fields = line.split(SEPARATOR, 5);
+        if (fields.length < 5) {
+            throw new UncheckedIOException(new IOException("Malformed listing file line: " + line));
+        }
+        return S3Object.builder()
+                .size(Long.parseLong(fields[0]))
+                .lastModified(Instant.ofEpochMilli(Long.parseLong(fields[1])))
+                .eTag(fields[2].isEmpty() ? null : fields[2])
+                .storageClass(fields[3].isEmpty() ? null : fields[3])
+                .key(unescape(fields[4]))
+                .build();
+    }
+
+    private static String escape(String key) {
+
+        if ((key.indexOf('\\') < 0) && (key.indexOf('\n') < 0) && (key.indexOf('\r') < 0)) {
+            return key;
+        }
+        return key.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String escapedKey) {
+
+        if (escapedKey.indexOf('\\') < 0) {
+            return escapedKey;
+        }
+
+        StringBuilder key = new StringBuilder(escapedKey.length());
+        for (int index = 0; index < escapedKey.length(); index++) {
+            char character = escapedKey.charAt(index);
+            if ((character == '\\') && (index + 1 < escapedKey.length())) {
+                char escaped = escapedKey.charAt(++index);
+                key.append((escaped == 'n') ? '\n' : (escaped == 'r') ? '\r' : escaped);
+            } else {
+                key.append(character);
+            }
+        }
+        return key.toString();
+    }
+
+    private static String nullToEmpty(String value) {
+        return (value == null) ? "" : value;
+    }
+}
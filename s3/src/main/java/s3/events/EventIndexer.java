@@ -0,0 +1,228 @@
+package s3.events;
+
+import s3.externalapi.S3Manager;
+import s3.scheduler.IntervalTrigger;
+import s3.scheduler.MaintenanceScheduler;
+import s3.scheduler.ScheduledJob;
+import s3.scheduler.ScheduledJobHandle;
+import s3.util.Constants;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps an {@link ObjectIndex} per bucket current from the bucket's event notifications. A single thread polls the
+ * message source, applies the events of every message, and only then acknowledges the messages, so that a crash
+ * leads to redelivery rather than to lost events. Redelivered events are recognized by their sequencer and ignored.
+ * <p>
+ * Notifications are delivered at least once but not always promptly, so indexes should be reconciled against a
+ * listing from time to time, see {@link #scheduleReconciliation(MaintenanceScheduler, Duration)}.
+ */
+public class EventIndexer implements AutoCloseable {
+
+    private final S3Manager s3Manager;
+    private final EventMessageSource eventMessageSource;
+    private final Map<String, ObjectIndex> objectIndexes;
+    private final AtomicLong receivedMessages = new AtomicLong();
+    private final AtomicLong malformedMessages = new AtomicLong();
+    private final AtomicLong ignoredEvents = new AtomicLong();
+    private final AtomicLong pollFailures = new AtomicLong();
+    private volatile EventMessage lastMalformedMessage;
+    private volatile RuntimeException lastPollFailure;
+    private Thread pollingThread;
+    private volatile boolean closed;
+
+    public EventIndexer(S3Manager s3Manager, EventMessageSource eventMessageSource, Collection<String> bucketNames) {
+
+        if (bucketNames.isEmpty()) {
+            throw new IllegalArgumentException("At least one bucket must be indexed.");
+        }
+
+        this.s3Manager = s3Manager;
+        this.eventMessageSource = eventMessageSource;
+        Map<String, ObjectIndex> indexes = new LinkedHashMap<>();
+        for (String bucketName : bucketNames) {
+            indexes.put(bucketName, new ObjectIndex(bucketName));
+        }
+        this.objectIndexes = Collections.unmodifiableMap(indexes);
+    }
+
+    /**
+     * Starts polling for notifications, then loads every index from a listing. Polling starts first so that no
+     * change made during the listing is missed.
+     */
+    public synchronized void start() {
+
+        if (closed || (pollingThread != null)) {
+            throw new IllegalStateException("Event indexer already started or closed.");
+        }
+
+        pollingThread = new Thread(this::poll, "event-indexer");
+        pollingThread.setDaemon(true);
+        pollingThread.start();
+        reconcileAll();
+    }
+
+    /**
+     * Returns the index of a bucket, or null if the bucket is not indexed.
+     *
+     * @param bucketName the bucket name.
+     *
+     * @return the bucket index.
+     */
+    public ObjectIndex getObjectIndex(String bucketName) {
+        return objectIndexes.get(bucketName);
+    }
+
+    public Collection<ObjectIndex> getObjectIndexes() {
+        return objectIndexes.values();
+    }
+
+    public void reconcile(String bucketName) {
+
+        ObjectIndex objectIndex = objectIndexes.get(bucketName);
+        if (objectIndex == null) {
+            throw new IllegalArgumentException("Bucket is not indexed: " + bucketName);
+        }
+        objectIndex.reconcile(s3Manager);
+    }
+
+    public void reconcileAll() {
+
+        for (ObjectIndex objectIndex : objectIndexes.values()) {
+            objectIndex.reconcile(s3Manager);
+        }
+    }
+
+    /**
+     * Schedules the periodic reconciliation of every index.
+     *
+     * @param maintenanceScheduler the scheduler running the reconciliations.
+     * @param interval the time between reconciliations.
+     *
+     * @return the handle of the scheduled job.
+     */
+    public ScheduledJobHandle scheduleReconciliation(MaintenanceScheduler maintenanceScheduler, Duration interval) {
+
+        return maintenanceScheduler.schedule(ScheduledJob.builder()
+                .name("event-index-reconciliation")
+                .trigger(new IntervalTrigger(interval))
+                .task(this::reconcileAll)
+                .build());
+    }
+
+    public long getReceivedMessages() {
+        return receivedMessages.get();
+    }
+
+    public long getMalformedMessages() {
+        return malformedMessages.get();
+    }
+
+    public long getIgnoredEvents() {
+        return ignoredEvents.get();
+    }
+
+    /**
+     * @return the last message that could not be parsed, or {@code null} if none.
+     */
+    public EventMessage getLastMalformedMessage() {
+        return lastMalformedMessage;
+    }
+
+    public long getPollFailures() {
+        return pollFailures.get();
+    }
+
+    /**
+     * @return the last failure of a poll or of its processing, or {@code null} if none.
+     */
+    public RuntimeException getLastPollFailure() {
+        return lastPollFailure;
+    }
+
+    @Override
+    public void close() {
+
+        Thread thread;
+        synchronized (this) {
+            closed = true;
+            thread = pollingThread;
+        }
+
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join();
+            } catch (InterruptedException exc) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        eventMessageSource.close();
+    }
+
+    private void poll() {
+
+        Duration pollTimeout = Duration.ofMillis(Constants.DEFAULT_EVENT_POLL_TIMEOUT_IN_MILLIS);
+        while (!closed) {
+            List<EventMessage> eventMessages;
+            try {
+                eventMessages = eventMessageSource.poll(Constants.DEFAULT_EVENT_BATCH_SIZE, pollTimeout);
+                if (!eventMessages.isEmpty()) {
+                    process(eventMessages);
+                    eventMessageSource.acknowledge(eventMessages);
+                }
+            } catch (InterruptedException exc) {
+                return;
+            } catch (RuntimeException exc) {
+                pollFailures.incrementAndGet();
+                lastPollFailure = exc;
+                // Unacknowledged messages are redelivered, so polling goes on after a pause.
+                try {
+                    Thread.sleep(Constants.EVENT_POLL_FAILURE_BACKOFF_IN_MILLIS);
+                } catch (InterruptedException interruptedExc) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void process(List<EventMessage> eventMessages) {
+
+        Map<String, List<ObjectEvent>> objectEventsByBucket = new HashMap<>();
+        for (EventMessage eventMessage : eventMessages) {
+            receivedMessages.incrementAndGet();
+
+            List<ObjectEvent> objectEvents;
+            try {
+                objectEvents = S3EventParser.parse(eventMessage.getBody());
+            } catch (IllegalArgumentException exc) {
+                // A malformed message never parses, so it is acknowledged rather than redelivered forever.
+                malformedMessages.incrementAndGet();
+                lastMalformedMessage = eventMessage;
+                continue;
+            }
+
+            for (ObjectEvent objectEvent : objectEvents) {
+                if (objectIndexes.containsKey(objectEvent.getBucketName())) {
+                    objectEventsByBucket
+                            .computeIfAbsent(objectEvent.getBucketName(), bucketName -> new ArrayList<>())
+                            .add(objectEvent);
+                } else {
+                    ignoredEvents.incrementAndGet();
+                }
+            }
+        }
+
+        for (Map.Entry<String, List<ObjectEvent>> bucketEvents : objectEventsByBucket.entrySet()) {
+            objectIndexes.get(bucketEvents.getKey()).apply(bucketEvents.getValue());
+        }
+    }
+}
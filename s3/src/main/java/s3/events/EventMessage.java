@@ -0,0 +1,23 @@
+package s3.events;
+
+/**
+ * A raw notification message with the handle its source needs to acknowledge it, such as an SQS receipt handle.
+ */
+public class EventMessage {
+
+    private final String receiptHandle;
+    private final String body;
+
+    public EventMessage(String receiptHandle, String body) {
+        this.receiptHandle = receiptHandle;
+        this.body = body;
+    }
+
+    public String getReceiptHandle() {
+        return receiptHandle;
+    }
+
+    public String getBody() {
+        return body;
+    }
+}
@@ -0,0 +1,35 @@
+package s3.events;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Where S3 event notification messages are read from. An SQS queue maps onto it directly: poll is a long-polling
+ * ReceiveMessage and acknowledge a DeleteMessageBatch. Messages that are polled but never acknowledged may be
+ * delivered again, which the index tolerates since applying an event twice has no effect.
+ */
+public interface EventMessageSource extends AutoCloseable {
+
+    /**
+     * Waits up to the timeout for messages and returns those available, possibly none.
+     *
+     * @param maxMessages the maximum number of messages to return.
+     * @param timeout the maximum time to wait for a first message.
+     *
+     * @return the received messages.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    List<EventMessage> poll(int maxMessages, Duration timeout) throws InterruptedException;
+
+    /**
+     * Marks messages as processed so that they are not delivered again.
+     *
+     * @param eventMessages the processed messages.
+     */
+    void acknowledge(List<EventMessage> eventMessages);
+
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,145 @@
+package s3.events;
+
+import s3.util.Messages;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stand-in for a notification queue that tails a local file holding one JSON message per line, such as a capture of
+ * a real queue. Only complete lines are read, so the file may be appended to while it is tailed. The receipt handle
+ * of a message is the file offset right after its line, and {@link #getAcknowledgedOffset()} gives the offset to
+ * resume from after a restart.
+ * <p>
+ * Every poll reads from the acknowledged offset, so messages that were polled but not acknowledged are delivered
+ * again by the next poll, as a queue does once their visibility timeout expires. Messages are meant to be
+ * acknowledged in the order they were polled, by a single consumer.
+ */
+public class FileEventMessageSource implements EventMessageSource {
+
+    private static final long POLL_INTERVAL_IN_MILLIS = 100L;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel fileChannel;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private long readOffset;
+    private volatile long acknowledgedOffset;
+
+    public FileEventMessageSource(Path path, long startingOffset) throws IOException {
+
+        this.fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+        this.readOffset = startingOffset;
+        this.acknowledgedOffset = startingOffset;
+    }
+
+    public FileEventMessageSource(Path path) throws IOException {
+        this(path, 0L);
+    }
+
+    @Override
+    public synchronized List<EventMessage> poll(int maxMessages, Duration timeout) throws InterruptedException {
+
+        long deadline = System.currentTimeMillis() + timeout.toMillis();
+        List<EventMessage> eventMessages = new ArrayList<>();
+        readOffset = acknowledgedOffset;
+        while (true) {
+            readLines(eventMessages, maxMessages);
+            if (!eventMessages.isEmpty() || (System.currentTimeMillis() >= deadline)) {
+                return eventMessages;
+            }
+            Thread.sleep(Math.min(POLL_INTERVAL_IN_MILLIS, Math.max(1L, deadline - System.currentTimeMillis())));
+        }
+    }
+
+    @Override
+    public synchronized void acknowledge(List<EventMessage> eventMessages) {
+
+        for (EventMessage eventMessage : eventMessages) {
+            acknowledgedOffset = Math.max(acknowledgedOffset, Long.parseLong(eventMessage.getReceiptHandle()));
+        }
+    }
+
+    public long getAcknowledgedOffset() {
+        return acknowledgedOffset;
+    }
+
+    @Override
+    public void close() {
+
+        try {
+            fileChannel.close();
+        } catch (IOException exc) {
+            throw new UncheckedIOException(Messages.LOCAL_FILE_IO_FAILURE, exc);
+        }
+    }
+
+    private void readLines(List<EventMessage> eventMessages, int maxMessages) {
+
+        try {
+            while (eventMessages.size() < maxMessages) {
+                readBuffer.clear();
+                int readBytes = fileChannel.read(readBuffer, readOffset);
+                if (readBytes <= 0) {
+                    return;
+                }
+
+                // Lines longer than the buffer are rare enough to be read through a dedicated buffer.
+                byte[] bytes = readBuffer.array();
+                int lineStart = 0;
+                int lineEnd = indexOfNewLine(bytes, lineStart, readBytes);
+                if ((lineEnd < 0) && (readBytes == READ_BUFFER_SIZE)) {
+                    bytes = readLongLine();
+                    if (bytes == null) {
+                        return;
+                    }
+                    readBytes = bytes.length;
+                    lineEnd = readBytes - 1;
+                }
+
+                while ((lineEnd >= 0) && (eventMessages.size() < maxMessages)) {
+                    String line = new String(bytes, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8).trim();
+                    readOffset += lineEnd + 1 - lineStart;
+                    if (!line.isEmpty()) {
+                        eventMessages.add(new EventMessage(String.valueOf(readOffset), line));
+                    }
+                    lineStart = lineEnd + 1;
+                    lineEnd = indexOfNewLine(bytes, lineStart, readBytes);
+                }
+                if (lineStart == 0) {
+                    // Only a partial line is available so far.
+                    return;
+                }
+            }
+        } catch (IOException exc) {
+            throw new UncheckedIOException(Messages.LOCAL_FILE_IO_FAILURE, exc);
+        }
+    }
+
+    private byte[] readLongLine() throws IOException {
+
+        long size = fileChannel.size();
+        ByteBuffer lineBuffer = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE - 8, size - readOffset));
+        fileChannel.read(lineBuffer, readOffset);
+        int lineEnd = indexOfNewLine(lineBuffer.array(), 0, lineBuffer.position());
+        return (lineEnd < 0) ? null : Arrays.copyOf(lineBuffer.array(), lineEnd + 1);
+    }
+
+    private static int indexOfNewLine(byte[] bytes, int start, int end) {
+
+        for (int index = start; index < end; index++) {
+            if (bytes[index] == '\n') {
+                return index;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,92 @@
+package s3.events;
+
+/**
+ * One record of an S3 event notification, reduced to what an object index needs.
+ */
+public class ObjectEvent {
+
+    private final String bucketName;
+    private final String key;
+    private final ObjectEventType objectEventType;
+    private final long size;
+    private final String eTag;
+    private final long eventTimeMillis;
+    private final String sequencer;
+
+    public ObjectEvent(
+            String bucketName,
+            String key,
+            ObjectEventType objectEventType,
+            long size,
+            String eTag,
+            long eventTimeMillis,
+            String sequencer) {
+
+        this.bucketName = bucketName;
+        this.key = key;
+        this.objectEventType = objectEventType;
+        this.size = size;
+        this.eTag = eTag;
+        this.eventTimeMillis = eventTimeMillis;
+        this.sequencer = sequencer;
+    }
+
+    /**
+     * Compares the sequencers of two events on the same key. Sequencers are hexadecimal strings of varying length
+     * that order events on a key; the shorter one is right-padded with zeros before comparing.
+     *
+     * @param firstSequencer the first sequencer.
+     * @param secondSequencer the second sequencer.
+     *
+     * @return a negative number, zero or a positive number as the first event happened before, with or after the
+     *         second.
+     */
+    public static int compareSequencers(String firstSequencer, String secondSequencer) {
+
+        int length = Math.max(firstSequencer.length(), secondSequencer.length());
+        for (int index = 0; index < length; index++) {
+            int comparison = Character.compare(getDigit(firstSequencer, index), getDigit(secondSequencer, index));
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    private static char getDigit(String sequencer, int index) {
+        return (index < sequencer.length()) ? Character.toUpperCase(sequencer.charAt(index)) : '0';
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public ObjectEventType getObjectEventType() {
+        return objectEventType;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public long getEventTimeMillis() {
+        return eventTimeMillis;
+    }
+
+    public String getSequencer() {
+        return sequencer;
+    }
+
+    @Override
+    public String toString() {
+        return objectEventType + " " + bucketName + "/" + key + " (" + sequencer + ")";
+    }
+}
@@ -0,0 +1,7 @@
+package s3.events;
+
+public enum ObjectEventType {
+
+    CREATED,
+    REMOVED
+}
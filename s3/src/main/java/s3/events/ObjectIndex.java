@@ -0,0 +1,333 @@
+package s3.events;
+
+import s3.externalapi.S3Manager;
+import s3.util.S3CommonUtils;
+import s3.util.S3Listings;
+
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * In-process index of a bucket's objects, kept current by S3 event notifications instead of relisting. Keys are kept
+ * sorted in S3's listing order so that prefix queries only visit their own range, and the object count and total size are maintained on
+ * every change.
+ * <p>
+ * Notifications arrive out of order and possibly twice. Every key remembers the sequencer of the last event applied
+ * to it, removals included, and events with an older or equal sequencer are ignored. Entries loaded from a listing
+ * have no sequencer and are only replaced by events not older than their modification time. A reconciliation lists
+ * the bucket again to recover from lost notifications, keeping the entries that events changed while it ran.
+ */
+public class ObjectIndex {
+
+    private static final int LOCK_STRIPES = 256;
+
+    private final String bucketName;
+    private final ConcurrentSkipListMap<String, Entry> entries = new ConcurrentSkipListMap<>(S3CommonUtils::compareKeys);
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final AtomicLong version = new AtomicLong();
+    private final LongAdder objectCount = new LongAdder();
+    private final LongAdder totalSizeInBytes = new LongAdder();
+    private final AtomicLong appliedEvents = new AtomicLong();
+    private final AtomicLong staleEvents = new AtomicLong();
+    private volatile Instant lastReconciliationTime;
+
+    public ObjectIndex(String bucketName) {
+
+        this.bucketName = bucketName;
+        for (int stripe = 0; stripe < LOCK_STRIPES; stripe++) {
+            locks[stripe] = new Object();
+        }
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    /**
+     * Applies a batch of events. Only the latest event of every key in the batch is applied.
+     *
+     * @param objectEvents the events, in any order.
+     *
+     * @return the number of events that changed the index.
+     */
+    public int apply(List<ObjectEvent> objectEvents) {
+
+        Map<String, ObjectEvent> latestEvents = new HashMap<>();
+        for (ObjectEvent objectEvent : objectEvents) {
+            latestEvents.merge(objectEvent.getKey(), objectEvent, (first, second) ->
+                    (ObjectEvent.compareSequencers(first.getSequencer(), second.getSequencer()) >= 0) ? first : second);
+        }
+        staleEvents.addAndGet(objectEvents.size() - latestEvents.size());
+
+        int changes = 0;
+        for (ObjectEvent objectEvent : latestEvents.values()) {
+            changes += apply(objectEvent) ? 1 : 0;
+        }
+        return changes;
+    }
+
+    public boolean apply(ObjectEvent objectEvent) {
+
+        String key = objectEvent.getKey();
+        synchronized (getLock(key)) {
+            Entry current = entries.get(key);
+            if ((current != null) && isStale(objectEvent, current)) {
+                staleEvents.incrementAndGet();
+                return false;
+            }
+
+            boolean created = objectEvent.getObjectEventType() == ObjectEventType.CREATED;
+            replace(key, current, new Entry(
+                    created ? objectEvent.getSize() : 0L,
+                    objectEvent.getEventTimeMillis(),
+                    S3CommonUtils.normalizeETag(objectEvent.getETag()),
+                    null,
+                    objectEvent.getSequencer(),
+                    !created,
+                    version.incrementAndGet()));
+        }
+        appliedEvents.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Lists the bucket and makes the index match the listing, except for keys changed by events during the listing.
+     * Keys missing from the listing and not changed since it started are removed, along with old removal markers.
+     *
+     * @param s3Manager the manager used to list the bucket.
+     */
+    public synchronized void reconcile(S3Manager s3Manager) {
+
+        Instant reconciliationTime = Instant.now();
+        long startingVersion = version.get();
+        long reconciliationVersion = startingVersion;
+
+        try (Stream<S3Object> s3Objects = S3Listings.streamObjects(s3Manager, bucketName)) {
+            Iterator<S3Object> iterator = s3Objects.iterator();
+            while (iterator.hasNext()) {
+                S3Object s3Object = iterator.next();
+                synchronized (getLock(s3Object.key())) {
+                    Entry current = entries.get(s3Object.key());
+                    if ((current != null) && (current.version > startingVersion)) {
+                        current.listed = true;
+                        continue;
+                    }
+                    Entry entry = new Entry(
+                            s3Object.size(),
+                            s3Object.lastModified().toEpochMilli(),
+                            S3CommonUtils.normalizeETag(s3Object.eTag()),
+                            s3Object.storageClassAsString(),
+                            null,
+                            false,
+                            reconciliationVersion);
+                    entry.listed = true;
+                    replace(s3Object.key(), current, entry);
+                }
+            }
+        }
+
+        for (Map.Entry<String, Entry> indexEntry : entries.entrySet()) {
+            synchronized (getLock(indexEntry.getKey())) {
+                Entry current = entries.get(indexEntry.getKey());
+                if (current == null) {
+                    continue;
+                }
+                if (!current.listed && (current.version <= startingVersion)) {
+                    replace(indexEntry.getKey(), current, null);
+                } else {
+                    current.listed = false;
+                }
+            }
+        }
+        lastReconciliationTime = reconciliationTime;
+    }
+
+    /**
+     * Returns when the last reconciliation started, or null if the index was never loaded from a listing.
+     *
+     * @return the last reconciliation time.
+     */
+    public Instant getLastReconciliationTime() {
+        return lastReconciliationTime;
+    }
+
+    public boolean isReconciled() {
+        return lastReconciliationTime != null;
+    }
+
+    public long getObjectCount() {
+        return objectCount.sum();
+    }
+
+    public long getTotalSizeInBytes() {
+        return totalSizeInBytes.sum();
+    }
+
+    public long getAppliedEvents() {
+        return appliedEvents.get();
+    }
+
+    public long getStaleEvents() {
+        return staleEvents.get();
+    }
+
+    /**
+     * Returns the indexed object, or null if the key is not in the index.
+     *
+     * @param key the object key.
+     *
+     * @return the indexed object.
+     */
+    public S3Object getObject(String key) {
+
+        Entry entry = entries.get(key);
+        return ((entry == null) || entry.deleted) ? null : entry.toS3Object(key);
+    }
+
+    /**
+     * Returns the indexed objects under the prefix, in key order.
+     *
+     * @param prefix the key prefix, or null for the whole bucket.
+     *
+     * @return the stream of indexed objects.
+     */
+    public Stream<S3Object> streamObjects(String prefix) {
+
+        return streamRange(prefix)
+                .filter(indexEntry -> !indexEntry.getValue().deleted)
+                .map(indexEntry -> indexEntry.getValue().toS3Object(indexEntry.getKey()));
+    }
+
+    public long getObjectCount(String prefix) {
+
+        if (prefix == null) {
+            return getObjectCount();
+        }
+        return streamRange(prefix).filter(indexEntry -> !indexEntry.getValue().deleted).count();
+    }
+
+    public long getStorageSizeInBytes(String prefix) {
+
+        if (prefix == null) {
+            return getTotalSizeInBytes();
+        }
+        return streamRange(prefix)
+                .filter(indexEntry -> !indexEntry.getValue().deleted)
+                .mapToLong(indexEntry -> indexEntry.getValue().size)
+                .sum();
+    }
+
+    /**
+     * Returns the indexed objects under the prefix last modified within the received bounds, in key order.
+     *
+     * @param prefix the key prefix, or null for the whole bucket.
+     * @param startingInstant the exclusive lower bound, or null for none.
+     * @param endingInstant the exclusive upper bound, or null for none.
+     *
+     * @return the matching objects.
+     */
+    public List<S3Object> listModifiedBetween(String prefix, Instant startingInstant, Instant endingInstant) {
+
+        long startingMillis = (startingInstant == null) ? Long.MIN_VALUE : startingInstant.toEpochMilli();
+        long endingMillis = (endingInstant == null) ? Long.MAX_VALUE : endingInstant.toEpochMilli();
+        return streamRange(prefix)
+                .filter(indexEntry -> !indexEntry.getValue().deleted
+                        && (indexEntry.getValue().lastModifiedMillis > startingMillis)
+                        && (indexEntry.getValue().lastModifiedMillis < endingMillis))
+                .map(indexEntry -> indexEntry.getValue().toS3Object(indexEntry.getKey()))
+                .collect(Collectors.toList());
+    }
+
+    private Stream<Map.Entry<String, Entry>> streamRange(String prefix) {
+
+        if ((prefix == null) || prefix.isEmpty()) {
+            return entries.entrySet().stream();
+        }
+        // The keys starting with the prefix follow each other in key order, from the prefix itself on.
+        return entries.tailMap(prefix, true)
+                .entrySet()
+                .stream()
+                .takeWhile(indexEntry -> indexEntry.getKey().startsWith(prefix));
+    }
+
+    private void replace(String key, Entry current, Entry next) {
+
+        if (next == null) {
+            entries.remove(key);
+        } else {
+            entries.put(key, next);
+        }
+
+        if ((current != null) && !current.deleted) {
+            objectCount.decrement();
+            totalSizeInBytes.add(-current.size);
+        }
+        if ((next != null) && !next.deleted) {
+            objectCount.increment();
+            totalSizeInBytes.add(next.size);
+        }
+    }
+
+    private static boolean isStale(ObjectEvent objectEvent, Entry current) {
+
+        if ((current.sequencer != null) && (objectEvent.getSequencer() != null)) {
+            return ObjectEvent.compareSequencers(objectEvent.getSequencer(), current.sequencer) <= 0;
+        }
+        return objectEvent.getEventTimeMillis() < current.lastModifiedMillis;
+    }
+
+    private Object getLock(String key) {
+        return locks[(key.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES];
+    }
+
+    private static final class Entry {
+
+        private final long size;
+        private final long lastModifiedMillis;
+        private final String eTag;
+        private final String storageClass;
+        private final String sequencer;
+        private final boolean deleted;
+        private final long version;
+        private boolean listed;
+
+        private Entry(
+                long size,
+                long lastModifiedMillis,
+                String eTag,
+                String storageClass,
+                String sequencer,
+                boolean deleted,
+                long version) {
+
+            this.size = size;
+            this.lastModifiedMillis = lastModifiedMillis;
+            this.eTag = eTag;
+            this.storageClass = storageClass;
+            this.sequencer = sequencer;
+            this.deleted = deleted;
+            this.version = version;
+        }
+
+        private S3Object toS3Object(String key) {
+
+            return S3Object.builder()
+                    .key(key)
+                    .size(size)
+                    .lastModified(Instant.ofEpochMilli(lastModifiedMillis))
+                    .eTag(eTag)
+                    .storageClass(storageClass)
+                    .build();
+        }
+    }
+}
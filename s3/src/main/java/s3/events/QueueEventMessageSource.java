@@ -0,0 +1,48 @@
+package s3.events;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for a notification queue, fed with {@link #publish(String)}.
+ */
+public class QueueEventMessageSource implements EventMessageSource {
+
+    private final BlockingQueue<EventMessage> eventMessages = new LinkedBlockingQueue<>();
+    private final AtomicLong publishedMessages = new AtomicLong();
+    private final AtomicLong acknowledgedMessages = new AtomicLong();
+
+    public void publish(String body) {
+        eventMessages.add(new EventMessage(String.valueOf(publishedMessages.incrementAndGet()), body));
+    }
+
+    @Override
+    public List<EventMessage> poll(int maxMessages, Duration timeout) throws InterruptedException {
+
+        List<EventMessage> polledMessages = new ArrayList<>();
+        EventMessage firstMessage = eventMessages.poll(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        if (firstMessage != null) {
+            polledMessages.add(firstMessage);
+            eventMessages.drainTo(polledMessages, maxMessages - 1);
+        }
+        return polledMessages;
+    }
+
+    @Override
+    public void acknowledge(List<EventMessage> eventMessages) {
+        acknowledgedMessages.addAndGet(eventMessages.size());
+    }
+
+    public long getPendingMessages() {
+        return eventMessages.size();
+    }
+
+    public long getAcknowledgedMessages() {
+        return acknowledgedMessages.get();
+    }
+}
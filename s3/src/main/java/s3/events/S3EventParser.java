@@ -0,0 +1,136 @@
+package s3.events;
+
+import software.amazon.awssdk.protocols.jsoncore.JsonNode;
+import software.amazon.awssdk.protocols.jsoncore.JsonNodeParser;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses S3 event notification messages, as delivered to SQS directly or wrapped in an SNS notification. Test events
+ * and records of other event types yield no events.
+ */
+final class S3EventParser {
+
+    private static final JsonNodeParser JSON_NODE_PARSER = JsonNodeParser.create();
+    private static final String OBJECT_CREATED_PREFIX = "ObjectCreated:";
+    private static final String OBJECT_REMOVED_PREFIX = "ObjectRemoved:";
+
+    private S3EventParser() {}
+
+    /**
+     * Returns the object events of a message.
+     *
+     * @throws IllegalArgumentException if the message is not a well-formed notification.
+     */
+    static List<ObjectEvent> parse(String body) {
+
+        JsonNode message;
+        try {
+            message = JSON_NODE_PARSER.parse(body);
+        } catch (RuntimeException exc) {
+            throw new IllegalArgumentException("Malformed event notification: " + body, exc);
+        }
+        if (!message.isObject()) {
+            throw new IllegalArgumentException("Malformed event notification: " + body);
+        }
+
+        // SNS wraps the notification in the Message field of its own envelope.
+        Map<String, JsonNode> fields = message.asObject();
+        if (!fields.containsKey("Records") && fields.containsKey("Message") && fields.get("Message").isString()) {
+            return parse(fields.get("Message").asString());
+        }
+
+        JsonNode records = fields.get("Records");
+        if ((records == null) || !records.isArray()) {
+            return Collections.emptyList();
+        }
+
+        List<ObjectEvent> objectEvents = new ArrayList<>();
+        for (JsonNode record : records.asArray()) {
+            ObjectEvent objectEvent = parseRecord(record);
+            if (objectEvent != null) {
+                objectEvents.add(objectEvent);
+            }
+        }
+        return objectEvents;
+    }
+
+    private static ObjectEvent parseRecord(JsonNode record) {
+
+        String eventName = getString(record, "eventName");
+        ObjectEventType objectEventType;
+        if (eventName.startsWith(OBJECT_CREATED_PREFIX)) {
+            objectEventType = ObjectEventType.CREATED;
+        } else if (eventName.startsWith(OBJECT_REMOVED_PREFIX)) {
+            objectEventType = ObjectEventType.REMOVED;
+        } else {
+            return null;
+        }
+
+        JsonNode s3 = getField(record, "s3");
+        JsonNode object = getField(s3, "object");
+        String size = object.field("size").filter(JsonNode::isNumber).map(JsonNode::asNumber).orElse("0");
+
+        return new ObjectEvent(
+                getString(getField(s3, "bucket"), "name"),
+                decodeKey(getString(object, "key")),
+                objectEventType,
+                parseSize(size),
+                object.field("eTag").filter(JsonNode::isString).map(JsonNode::asString).orElse(null),
+                parseEventTime(getString(record, "eventTime")),
+                getString(object, "sequencer"));
+    }
+
+    private static long parseSize(String size) {
+
+        // A JSON number may be fractional or have an exponent, which no object size has.
+        try {
+            return Long.parseLong(size);
+        } catch (NumberFormatException exc) {
+            throw new IllegalArgumentException("Malformed event notification size: " + size, exc);
+        }
+    }
+
+    private static long parseEventTime(String eventTime) {
+
+        try {
+            return Instant.parse(eventTime).toEpochMilli();
+        } catch (DateTimeException | ArithmeticException exc) {
+            throw new IllegalArgumentException("Malformed event notification time: " + eventTime, exc);
+        }
+    }
+
+    private static String decodeKey(String encodedKey) {
+
+        // Keys are URL-encoded the way HTML forms are, with '+' for spaces. A truncated escape sequence is rejected
+        // by the decoder with an IllegalArgumentException, so the message is deemed malformed.
+        try {
+            return URLDecoder.decode(encodedKey, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException exc) {
+            throw new IllegalStateException(exc);
+        }
+    }
+
+    private static JsonNode getField(JsonNode node, String name) {
+
+        return node.field(name)
+                .filter(JsonNode::isObject)
+                .orElseThrow(() -> new IllegalArgumentException("Missing event notification field: " + name));
+    }
+
+    private static String getString(JsonNode node, String name) {
+
+        return node.field(name)
+                .filter(JsonNode::isString)
+                .map(JsonNode::asString)
+                .orElseThrow(() -> new IllegalArgumentException("Missing event notification field: " + name));
+    }
+}
@@ -0,0 +1,16 @@
+package s3.exception;
+
+public class InvalidQueryException extends IllegalArgumentException {
+
+    public InvalidQueryException() {
+        super();
+    }
+
+    public InvalidQueryException(String message) {
+        super(message);
+    }
+
+    public InvalidQueryException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,16 @@
+package s3.exception;
+
+public class ObjectCacheException extends RuntimeException {
+
+    public ObjectCacheException() {
+        super();
+    }
+
+    public ObjectCacheException(String message) {
+        super(message);
+    }
+
+    public ObjectCacheException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,265 @@
+package s3.existence;
+
+import s3.externalapi.S3Manager;
+import s3.scheduler.IntervalTrigger;
+import s3.scheduler.MaintenanceScheduler;
+import s3.scheduler.ScheduledJob;
+import s3.scheduler.ScheduledJobHandle;
+import s3.util.Constants;
+import s3.util.S3Listings;
+
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Answers whether keys exist in a bucket with as few HeadObject requests as possible. A Bloom filter built from a
+ * listing of the bucket answers "no" locally for keys it has never seen, and only the keys it might hold are checked
+ * with HeadObject, so a positive answer is always confirmed.
+ * <p>
+ * The filter knows the keys listed at the last refresh and those recorded with {@link #recordWrite(String)} since.
+ * Keys written by others after the refresh are reported missing until the next one, so writers should record their
+ * writes, or notifications should be fed to {@link #recordWrite(String)}, and the filter refreshed periodically.
+ * Deleted keys stay in the filter and only cost a HeadObject request.
+ */
+public class ObjectExistenceChecker {
+
+    private final S3Manager s3Manager;
+    private final String bucketName;
+    private final int parallelism;
+    private final double falsePositiveRate;
+    private final LongAdder localNegatives = new LongAdder();
+    private final LongAdder headRequests = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private volatile ScalableBloomFilter filter;
+    private volatile ScalableBloomFilter rebuiltFilter;
+    private volatile Instant lastRefreshTime;
+
+    /**
+     * Creates a checker, which issues a HeadObject request for every key until {@link #refresh()} loads the filter.
+     *
+     * @param s3Manager the manager used to list the bucket and check keys.
+     * @param bucketName the bucket name.
+     * @param parallelism the number of HeadObject requests run at once.
+     * @param falsePositiveRate the share of missing keys the filter may still send to HeadObject.
+     */
+    public ObjectExistenceChecker(S3Manager s3Manager, String bucketName, int parallelism, double falsePositiveRate) {
+
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        if ((falsePositiveRate <= 0.0) || (falsePositiveRate >= 1.0)) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1: " + falsePositiveRate);
+        }
+
+        this.s3Manager = s3Manager;
+        this.bucketName = bucketName;
+        this.parallelism = parallelism;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    public ObjectExistenceChecker(S3Manager s3Manager, String bucketName) {
+
+        this(
+                s3Manager,
+                bucketName,
+                Constants.DEFAULT_EXISTENCE_CHECK_PARALLELISM,
+                Constants.DEFAULT_FALSE_POSITIVE_RATE);
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    /**
+     * Lists the bucket into a new filter and replaces the current one with it. Writes recorded during the listing go
+     * to both filters, so none is lost by the replacement.
+     */
+    public synchronized void refresh() {
+
+        ScalableBloomFilter refreshedFilter = new ScalableBloomFilter(
+                Constants.DEFAULT_EXISTENCE_FILTER_CAPACITY,
+                falsePositiveRate);
+        Instant refreshTime = Instant.now();
+
+        rebuiltFilter = refreshedFilter;
+        try (Stream<S3Object> s3Objects = S3Listings.streamObjects(s3Manager, bucketName)) {
+            s3Objects.forEach(s3Object -> refreshedFilter.add(s3Object.key()));
+            filter = refreshedFilter;
+            lastRefreshTime = refreshTime;
+        } finally {
+            rebuiltFilter = null;
+        }
+    }
+
+    /**
+     * Schedules the periodic refresh of the filter.
+     *
+     * @param maintenanceScheduler the scheduler running the refreshes.
+     * @param interval the time between refreshes.
+     *
+     * @return the handle of the scheduled job.
+     */
+    public ScheduledJobHandle scheduleRefresh(MaintenanceScheduler maintenanceScheduler, Duration interval) {
+
+        return maintenanceScheduler.schedule(ScheduledJob.builder()
+                .name("existence-filter-refresh-" + bucketName)
+                .trigger(new IntervalTrigger(interval))
+                .task(this::refresh)
+                .build());
+    }
+
+    /**
+     * Records a key written to the bucket, so that it is not reported missing before the next refresh.
+     *
+     * @param key the written key.
+     */
+    public void recordWrite(String key) {
+
+        // The rebuilt filter is read first: once it is null again, the current filter is already the rebuilt one.
+        ScalableBloomFilter pendingFilter = rebuiltFilter;
+        ScalableBloomFilter currentFilter = filter;
+        if (currentFilter != null) {
+            currentFilter.add(key);
+        }
+        if ((pendingFilter != null) && (pendingFilter != currentFilter)) {
+            pendingFilter.add(key);
+        }
+    }
+
+    public boolean objectExists(String key) {
+
+        ScalableBloomFilter currentFilter = filter;
+        if ((currentFilter != null) && !currentFilter.mightContain(key)) {
+            localNegatives.increment();
+            return false;
+        }
+        return headObjectExists(key, currentFilter != null);
+    }
+
+    /**
+     * Returns the received keys that exist in the bucket, in the order received. Keys the filter rules out are
+     * dropped locally and the others are checked with HeadObject requests run in parallel.
+     *
+     * @param keys the keys to check.
+     *
+     * @return the existing keys.
+     */
+    public List<String> filterExisting(Collection<String> keys) {
+
+        ScalableBloomFilter currentFilter = filter;
+        List<String> candidateKeys = new ArrayList<>();
+        for (String key : keys) {
+            if ((currentFilter == null) || currentFilter.mightContain(key)) {
+                candidateKeys.add(key);
+            } else {
+                localNegatives.increment();
+            }
+        }
+        if (candidateKeys.isEmpty()) {
+            return candidateKeys;
+        }
+
+        ExecutorService executorService =
+                Executors.newFixedThreadPool(Math.min(parallelism, candidateKeys.size()));
+        try {
+            Map<String, CompletableFuture<Boolean>> existences = new LinkedHashMap<>();
+            for (String key : candidateKeys) {
+                if (!existences.containsKey(key)) {
+                    existences.put(key, CompletableFuture.supplyAsync(
+                            () -> headObjectExists(key, currentFilter != null),
+                            executorService));
+                }
+            }
+
+            List<String> existingKeys = new ArrayList<>();
+            for (String key : candidateKeys) {
+                if (join(existences.get(key))) {
+                    existingKeys.add(key);
+                }
+            }
+            return existingKeys;
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    public boolean isLoaded() {
+        return filter != null;
+    }
+
+    /**
+     * Returns when the filter was last refreshed, or null if it was never loaded.
+     *
+     * @return the last refresh time.
+     */
+    public Instant getLastRefreshTime() {
+        return lastRefreshTime;
+    }
+
+    public long getFilteredKeys() {
+
+        ScalableBloomFilter currentFilter = filter;
+        return (currentFilter == null) ? 0L : currentFilter.getKeyCount();
+    }
+
+    public long getFilterSizeInBytes() {
+
+        ScalableBloomFilter currentFilter = filter;
+        return (currentFilter == null) ? 0L : currentFilter.getSizeInBytes();
+    }
+
+    public long getLocalNegatives() {
+        return localNegatives.sum();
+    }
+
+    public long getHeadRequests() {
+        return headRequests.sum();
+    }
+
+    public long getFalsePositives() {
+        return falsePositives.sum();
+    }
+
+    private boolean headObjectExists(String key, boolean filtered) {
+
+        headRequests.increment();
+        try {
+            s3Manager.headObject(bucketName, key);
+            return true;
+        } catch (S3Exception exc) {
+            if (exc.statusCode() != Constants.HTTP_NOT_FOUND) {
+                throw exc;
+            }
+            if (filtered) {
+                falsePositives.increment();
+            }
+            return false;
+        }
+    }
+
+    private static boolean join(CompletableFuture<Boolean> future) {
+
+        try {
+            return future.join();
+        } catch (CompletionException exc) {
+            if (exc.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exc.getCause();
+            }
+            throw exc;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package s3.existence;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter of keys that keeps its false positive rate bounded however many keys are added, which is not known
+ * before a bucket has been listed. Once a filter holds the keys it was sized for, another filter twice as large with
+ * half the false positive rate takes the new keys. The first filter gets half the requested rate, so the rates of
+ * all filters add up to less than the requested one. Keys may be added and looked up from any thread.
+ */
+final class ScalableBloomFilter {
+
+    private static final double LN_2 = Math.log(2.0);
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final List<Filter> filters = new CopyOnWriteArrayList<>();
+    private final AtomicLong keyCount = new AtomicLong();
+
+    ScalableBloomFilter(long initialCapacity, double falsePositiveRate) {
+
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("Initial capacity must be positive: " + initialCapacity);
+        }
+        if ((falsePositiveRate <= 0.0) || (falsePositiveRate >= 1.0)) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1: " + falsePositiveRate);
+        }
+        filters.add(new Filter(initialCapacity, falsePositiveRate / 2.0));
+    }
+
+    void add(String key) {
+
+        long hash = hash(key);
+        Filter filter = filters.get(filters.size() - 1);
+        if (filter.addedKeys.get() >= filter.capacity) {
+            filter = grow(filter);
+        }
+        filter.add(hash);
+        keyCount.incrementAndGet();
+    }
+
+    boolean mightContain(String key) {
+
+        long hash = hash(key);
+        for (Filter filter : filters) {
+            if (filter.mightContain(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    long getKeyCount() {
+        return keyCount.get();
+    }
+
+    long getSizeInBytes() {
+        return filters.stream().mapToLong(filter -> filter.bits.length() * (long) Long.BYTES).sum();
+    }
+
+    private synchronized Filter grow(Filter full) {
+
+        Filter last = filters.get(filters.size() - 1);
+        if (last != full) {
+            // Another thread grew the filter first.
+            return last;
+        }
+        Filter next = new Filter(full.capacity * 2, full.falsePositiveRate / 2.0);
+        filters.add(next);
+        return next;
+    }
+
+    /**
+     * 64-bit FNV-1a of the key's chars, finished with the SplitMix64 mixer so that both halves of the hash are
+     * usable as independent 32-bit hashes.
+     */
+    private static long hash(String key) {
+
+        long hash = FNV_OFFSET_BASIS;
+        for (int index = 0; index < key.length(); index++) {
+            hash ^= key.charAt(index);
+            hash *= FNV_PRIME;
+        }
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+
+    private static final class Filter {
+
+        private final long capacity;
+        private final double falsePositiveRate;
+        private final AtomicLongArray bits;
+        private final long bitCount;
+        private final int hashCount;
+        private final AtomicLong addedKeys = new AtomicLong();
+
+        private Filter(long capacity, double falsePositiveRate) {
+
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+
+            // The optimal sizes: m = -n ln(p) / ln(2)^2 bits and k = m / n ln(2) hashes.
+            long optimalBits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (LN_2 * LN_2));
+            int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1L, (optimalBits + 63) / 64));
+            this.bits = new AtomicLongArray(words);
+            this.bitCount = words * 64L;
+            this.hashCount = (int) Math.max(1L, Math.round((double) bitCount / capacity * LN_2));
+        }
+
+        private void add(long hash) {
+
+            int hash1 = (int) hash;
+            int hash2 = (int) (hash >>> 32);
+            for (int index = 1; index <= hashCount; index++) {
+                long bit = ((hash1 + (long) index * hash2) & Long.MAX_VALUE) % bitCount;
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current = bits.get(word);
+                while (((current & mask) == 0L) && !bits.compareAndSet(word, current, current | mask)) {
+                    current = bits.get(word);
+                }
+            }
+            addedKeys.incrementAndGet();
+        }
+
+        private boolean mightContain(long hash) {
+
+            int hash1 = (int) hash;
+            int hash2 = (int) (hash >>> 32);
+            for (int index = 1; index <= hashCount; index++) {
+                long bit = ((hash1 + (long) index * hash2) & Long.MAX_VALUE) % bitCount;
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0L) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
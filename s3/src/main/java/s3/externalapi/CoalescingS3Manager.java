@@ -0,0 +1,347 @@
+package s3.externalapi;
+
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Decorates a manager so that concurrent identical read calls share a single request: the first caller issues it and
+ * the callers arriving while it is in flight wait for its result, or its failure, instead of issuing their own.
+ * Bursts of threads listing the same prefix or the buckets of the account then cost one request each.
+ * <p>
+ * Calls are keyed by operation and arguments, and the keys are spread over independently locked stripes so that
+ * unrelated calls do not contend. With a result window, a successful result is also shared with identical calls made
+ * shortly after it completed; writes through this manager drop the shared results of their bucket, but writes made
+ * elsewhere can be missed for up to the window. Downloads and writes are never coalesced.
+ */
+public class CoalescingS3Manager implements S3Manager {
+
+    private static final int LOCK_STRIPES = 64;
+    private static final String LIST_BUCKETS = "listBuckets";
+
+    private final S3Manager s3Manager;
+    private final long resultWindowInNanos;
+    private final Stripe[] stripes = new Stripe[LOCK_STRIPES];
+    private final LongAdder issuedRequests = new LongAdder();
+    private final LongAdder coalescedRequests = new LongAdder();
+
+    /**
+     * Creates a coalescing manager.
+     *
+     * @param s3Manager the manager issuing the requests.
+     * @param resultWindow how long a completed result keeps being shared, or zero to only share in-flight requests.
+     */
+    public CoalescingS3Manager(S3Manager s3Manager, Duration resultWindow) {
+
+        if (resultWindow.isNegative()) {
+            throw new IllegalArgumentException("Result window must not be negative: " + resultWindow);
+        }
+
+        this.s3Manager = s3Manager;
+        this.resultWindowInNanos = resultWindow.toNanos();
+        for (int stripe = 0; stripe < LOCK_STRIPES; stripe++) {
+            stripes[stripe] = new Stripe();
+        }
+    }
+
+    public CoalescingS3Manager(S3Manager s3Manager) {
+        this(s3Manager, Duration.ZERO);
+    }
+
+    public long getIssuedRequests() {
+        return issuedRequests.sum();
+    }
+
+    public long getCoalescedRequests() {
+        return coalescedRequests.sum();
+    }
+
+    /**
+     * Stops sharing the in-flight and completed results of a bucket, so that the next calls issue new requests.
+     *
+     * @param bucketName the bucket name.
+     */
+    public void invalidate(String bucketName) {
+
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.flights.keySet().removeIf(requestKey -> bucketName.equals(requestKey.get(1)));
+            }
+        }
+    }
+
+    @Override
+    public AbortMultipartUploadResponse abortMultipartUpload(String bucketName, String key, String uploadId) {
+        return s3Manager.abortMultipartUpload(bucketName, key, uploadId);
+    }
+
+    @Override
+    public CompleteMultipartUploadResponse completeMultipartUpload(
+            String bucketName,
+            String key,
+            String uploadId,
+            List<CompletedPart> completedParts) {
+
+        CompleteMultipartUploadResponse completeMultipartUploadResponse =
+                s3Manager.completeMultipartUpload(bucketName, key, uploadId, completedParts);
+        invalidate(bucketName);
+        return completeMultipartUploadResponse;
+    }
+
+    @Override
+    public CopyObjectResponse copyObject(
+            String sourceBucketName,
+            String sourceKey,
+            String destinationBucketName,
+            String destinationKey) {
+
+        CopyObjectResponse copyObjectResponse =
+                s3Manager.copyObject(sourceBucketName, sourceKey, destinationBucketName, destinationKey);
+        invalidate(destinationBucketName);
+        return copyObjectResponse;
+    }
+
+    @Override
+    public CreateMultipartUploadResponse createMultipartUpload(String bucketName, String key) {
+        return s3Manager.createMultipartUpload(bucketName, key);
+    }
+
+    @Override
+    public CreateMultipartUploadResponse createMultipartUpload(
+            String bucketName,
+            String key,
+            HeadObjectResponse sourceObject) {
+
+        return s3Manager.createMultipartUpload(bucketName, key, sourceObject);
+    }
+
+    @Override
+    public DeleteBucketResponse deleteBucket(String bucketName) {
+
+        DeleteBucketResponse deleteBucketResponse = s3Manager.deleteBucket(bucketName);
+        invalidate(bucketName);
+        invalidate(LIST_BUCKETS);
+        return deleteBucketResponse;
+    }
+
+    @Override
+    public DeleteObjectsResponse deleteObjects(String bucketName, List<ObjectIdentifier> s3Objects) {
+
+        DeleteObjectsResponse deleteObjectsResponse = s3Manager.deleteObjects(bucketName, s3Objects);
+        invalidate(bucketName);
+        return deleteObjectsResponse;
+    }
+
+    @Override
+    public GetBucketLocationResponse getBucketLocation(String bucketName) {
+
+        return coalesce(
+                () -> s3Manager.getBucketLocation(bucketName),
+                "getBucketLocation", bucketName);
+    }
+
+    @Override
+    public GetObjectResponse getObject(String bucketName, String key, String eTag, Path destination) {
+        return s3Manager.getObject(bucketName, key, eTag, destination);
+    }
+
+    @Override
+    public HeadBucketResponse headBucket(String bucketName) {
+        return coalesce(() -> s3Manager.headBucket(bucketName), "headBucket", bucketName);
+    }
+
+    @Override
+    public HeadObjectResponse headObject(String bucketName, String key) {
+        return coalesce(() -> s3Manager.headObject(bucketName, key), "headObject", bucketName, key);
+    }
+
+    @Override
+    public ListBucketsResponse listBuckets() {
+
+        // The operation name stands in for the bucket so that deleting a bucket can drop the shared listing.
+        return coalesce(s3Manager::listBuckets, LIST_BUCKETS, LIST_BUCKETS);
+    }
+
+    @Override
+    public ListObjectsResponse listObjects(String bucketName) {
+        return coalesce(() -> s3Manager.listObjects(bucketName), "listObjects", bucketName);
+    }
+
+    @Override
+    public ListObjectsResponse listObjects(String bucketName, String prefix) {
+        return coalesce(() -> s3Manager.listObjects(bucketName, prefix), "listObjects", bucketName, prefix);
+    }
+
+    @Override
+    public ListObjectsV2Response listObjectsV2(String bucketName, String prefix, String continuationToken) {
+
+        return coalesce(
+                () -> s3Manager.listObjectsV2(bucketName, prefix, continuationToken),
+                "listObjectsV2", bucketName, prefix, null, continuationToken);
+    }
+
+    @Override
+    public ListObjectsV2Response listObjectsV2(
+            String bucketName,
+            String prefix,
+            String startAfter,
+            String continuationToken) {
+
+        return coalesce(
+                () -> s3Manager.listObjectsV2(bucketName, prefix, startAfter, continuationToken),
+                "listObjectsV2", bucketName, prefix, startAfter, continuationToken);
+    }
+
+    @Override
+    public ListObjectsV2Response listObjectsV2WithDelimiter(
+            String bucketName,
+            String prefix,
+            String delimiter,
+            String continuationToken) {
+
+        return coalesce(
+                () -> s3Manager.listObjectsV2WithDelimiter(bucketName, prefix, delimiter, continuationToken),
+                "listObjectsV2WithDelimiter", bucketName, prefix, delimiter, continuationToken);
+    }
+
+    @Override
+    public PutObjectResponse putObject(String bucketName, String key, Path source) {
+
+        PutObjectResponse putObjectResponse = s3Manager.putObject(bucketName, key, source);
+        invalidate(bucketName);
+        return putObjectResponse;
+    }
+
+    @Override
+    public RestoreObjectResponse restoreObject(String bucketName, String key) {
+
+        RestoreObjectResponse restoreObjectResponse = s3Manager.restoreObject(bucketName, key);
+        invalidate(bucketName);
+        return restoreObjectResponse;
+    }
+
+    @Override
+    public UploadPartCopyResponse uploadPartCopy(
+            String sourceBucketName,
+            String sourceKey,
+            String destinationBucketName,
+            String destinationKey,
+            String uploadId,
+            int partNumber,
+            long firstByte,
+            long lastByte,
+            String sourceETag) {
+
+        return s3Manager.uploadPartCopy(
+                sourceBucketName,
+                sourceKey,
+                destinationBucketName,
+                destinationKey,
+                uploadId,
+                partNumber,
+                firstByte,
+                lastByte,
+                sourceETag);
+    }
+
+    /**
+     * Issues the request unless an identical one is in flight, or completed within the result window, and returns
+     * the shared result. The bucket name must be the first argument, which is how {@link #invalidate(String)} finds
+     * the results of a bucket.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T coalesce(Supplier<T> request, String operation, Object... arguments) {
+
+        Object[] keyElements = new Object[arguments.length + 1];
+        keyElements[0] = operation;
+        System.arraycopy(arguments, 0, keyElements, 1, arguments.length);
+        List<Object> requestKey = Arrays.asList(keyElements);
+
+        Stripe stripe = stripes[(requestKey.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES];
+        Flight flight;
+        boolean leader = false;
+        synchronized (stripe) {
+            flight = stripe.flights.get(requestKey);
+            if ((flight == null) || flight.isExpired(System.nanoTime())) {
+                flight = new Flight();
+                stripe.flights.put(requestKey, flight);
+                leader = true;
+            }
+        }
+
+        if (!leader) {
+            coalescedRequests.increment();
+            return (T) flight.await();
+        }
+
+        issuedRequests.increment();
+        try {
+            T result = request.get();
+            flight.future.complete(result);
+            return result;
+        } catch (RuntimeException | Error exc) {
+            flight.future.completeExceptionally(exc);
+            throw exc;
+        } finally {
+            synchronized (stripe) {
+                long now = System.nanoTime();
+                flight.expiresAtNanos = now + resultWindowInNanos;
+                if ((resultWindowInNanos == 0L) || flight.future.isCompletedExceptionally()) {
+                    stripe.flights.remove(requestKey, flight);
+                }
+                stripe.removeExpired(now);
+            }
+        }
+    }
+
+    private static final class Stripe {
+
+        private final Map<List<Object>, Flight> flights = new HashMap<>();
+
+        private void removeExpired(long now) {
+
+            Iterator<Flight> iterator = flights.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().isExpired(now)) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private static final class Flight {
+
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+        private long expiresAtNanos = Long.MAX_VALUE;
+
+        private boolean isExpired(long now) {
+            return (expiresAtNanos != Long.MAX_VALUE) && (now - expiresAtNanos >= 0L);
+        }
+
+        private Object await() {
+
+            try {
+                return future.join();
+            } catch (CompletionException exc) {
+                Throwable cause = exc.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw exc;
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package s3.externalapi;
+
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.crt.AwsCrtAsyncHttpClient;
+import software.amazon.awssdk.http.crt.AwsCrtHttpClient;
+
+/**
+ * Builds CRT clients, blocking and asynchronous. Kept apart from {@link S3ClientRegistry} so that the optional
+ * engine's classes, and its native library, are only loaded when it is selected.
+ */
+final class CrtHttpClients {
+
+    private CrtHttpClients() {}
+
+    static SdkHttpClient create(S3ClientConfiguration s3ClientConfiguration) {
+
+        AwsCrtHttpClient.Builder crtHttpClientBuilder = AwsCrtHttpClient.builder()
+                .maxConcurrency(s3ClientConfiguration.getMaxConnections())
+                .connectionTimeout(s3ClientConfiguration.getConnectionTimeout())
+                .connectionMaxIdleTime(s3ClientConfiguration.getConnectionMaxIdleTime());
+
+        if (s3ClientConfiguration.isTcpKeepAlive()) {
+            crtHttpClientBuilder.tcpKeepAliveConfiguration(tcpKeepAliveConfiguration -> tcpKeepAliveConfiguration
+                    .keepAliveInterval(s3ClientConfiguration.getTcpKeepAliveInterval())
+                    .keepAliveTimeout(s3ClientConfiguration.getTcpKeepAliveTimeout()));
+        }
+        return crtHttpClientBuilder.build();
+    }
+
+    static SdkAsyncHttpClient createAsync(S3ClientConfiguration s3ClientConfiguration) {
+
+        AwsCrtAsyncHttpClient.Builder crtAsyncHttpClientBuilder = AwsCrtAsyncHttpClient.builder()
+                .maxConcurrency(s3ClientConfiguration.getMaxConnections())
+                .connectionTimeout(s3ClientConfiguration.getConnectionTimeout())
+                .connectionMaxIdleTime(s3ClientConfiguration.getConnectionMaxIdleTime());
+
+        if (s3ClientConfiguration.isTcpKeepAlive()) {
+            crtAsyncHttpClientBuilder.tcpKeepAliveConfiguration(tcpKeepAliveConfiguration -> tcpKeepAliveConfiguration
+                    .keepAliveInterval(s3ClientConfiguration.getTcpKeepAliveInterval())
+                    .keepAliveTimeout(s3ClientConfiguration.getTcpKeepAliveTimeout()));
+        }
+        return crtAsyncHttpClientBuilder.build();
+    }
+}
@@ -0,0 +1,8 @@
+package s3.externalapi;
+
+public enum HttpEngine {
+
+    APACHE,
+    URL_CONNECTION,
+    CRT
+}
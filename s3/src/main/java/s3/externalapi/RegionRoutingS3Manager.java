@@ -0,0 +1,266 @@
+package s3.externalapi;
+
+import s3.util.S3CommonUtils;
+
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Routes every bucket-scoped call to a client in the bucket's own region, so buckets outside the configured region
+ * cost neither redirect round-trips nor failures. Each bucket's region is resolved once with GetBucketLocation and
+ * cached; the regional managers share their clients through the {@link S3ClientRegistry}. Callers denied
+ * GetBucketLocation fall back to the region HeadBucket reports, then to the configured region, and buckets whose
+ * region stays unknown are served by the default manager.
+ */
+public class RegionRoutingS3Manager implements S3Manager, AutoCloseable {
+
+    private final S3ClientConfiguration s3ClientConfiguration;
+    private final S3Manager defaultS3Manager;
+    private final Function<Region, S3Manager> regionalS3ManagerFactory;
+    private final Map<String, Optional<Region>> bucketRegions = new ConcurrentHashMap<>();
+    private final Map<Region, S3Manager> regionalS3Managers = new ConcurrentHashMap<>();
+
+    public RegionRoutingS3Manager(S3ClientConfiguration s3ClientConfiguration) {
+        this(
+                s3ClientConfiguration,
+                new S3ManagerImpl(s3ClientConfiguration),
+                region -> new S3ManagerImpl(s3ClientConfiguration.toBuilder().region(region).build()));
+    }
+
+    public RegionRoutingS3Manager() {
+        this(S3ClientConfiguration.builder().build());
+    }
+
+    RegionRoutingS3Manager(
+            S3ClientConfiguration s3ClientConfiguration,
+            S3Manager defaultS3Manager,
+            Function<Region, S3Manager> regionalS3ManagerFactory) {
+
+        this.s3ClientConfiguration = s3ClientConfiguration;
+        this.defaultS3Manager = defaultS3Manager;
+        this.regionalS3ManagerFactory = regionalS3ManagerFactory;
+    }
+
+    /**
+     * Returns the region of a bucket, resolving it on first use.
+     *
+     * @param bucketName the bucket name.
+     * @return the region, or null if it could not be resolved, in which case the default manager serves the bucket.
+     */
+    public Region getBucketRegion(String bucketName) {
+
+        // Resolved outside the map so that its requests do not block other buckets sharing a bin of the map.
+        Optional<Region> bucketRegion = bucketRegions.get(bucketName);
+        if (bucketRegion == null) {
+            Optional<Region> resolvedRegion = Optional.ofNullable(resolveBucketRegion(bucketName));
+            bucketRegion = bucketRegions.putIfAbsent(bucketName, resolvedRegion);
+            if (bucketRegion == null) {
+                bucketRegion = resolvedRegion;
+            }
+        }
+        return bucketRegion.orElse(null);
+    }
+
+    public void evictBucketRegion(String bucketName) {
+        bucketRegions.remove(bucketName);
+    }
+
+    /**
+     * Closes the default and regional managers, which releases the clients they took from the registry.
+     */
+    @Override
+    public void close() {
+
+        close(defaultS3Manager);
+        for (S3Manager regionalS3Manager : regionalS3Managers.values()) {
+            close(regionalS3Manager);
+        }
+        regionalS3Managers.clear();
+    }
+
+    @Override
+    public AbortMultipartUploadResponse abortMultipartUpload(String bucketName, String key, String uploadId) {
+        return forBucket(bucketName).abortMultipartUpload(bucketName, key, uploadId);
+    }
+
+    @Override
+    public CompleteMultipartUploadResponse completeMultipartUpload(
+            String bucketName,
+            String key,
+            String uploadId,
+            List<CompletedPart> completedParts) {
+
+        return forBucket(bucketName).completeMultipartUpload(bucketName, key, uploadId, completedParts);
+    }
+
+    @Override
+    public CopyObjectResponse copyObject(
+            String sourceBucketName,
+            String sourceKey,
+            String destinationBucketName,
+            String destinationKey) {
+
+        // Copies are served by the destination bucket's region.
+        return forBucket(destinationBucketName).copyObject(
+                sourceBucketName,
+                sourceKey,
+                destinationBucketName,
+                destinationKey);
+    }
+
+    @Override
+    public CreateMultipartUploadResponse createMultipartUpload(String bucketName, String key) {
+        return forBucket(bucketName).createMultipartUpload(bucketName, key);
+    }
+
+    @Override
+    public CreateMultipartUploadResponse createMultipartUpload(
+            String bucketName,
+            String key,
+            HeadObjectResponse sourceObject) {
+
+        return forBucket(bucketName).createMultipartUpload(bucketName, key, sourceObject);
+    }
+
+    @Override
+    public DeleteBucketResponse deleteBucket(String bucketName) {
+
+        DeleteBucketResponse deleteBucketResponse = forBucket(bucketName).deleteBucket(bucketName);
+        evictBucketRegion(bucketName);
+        return deleteBucketResponse;
+    }
+
+    @Override
+    public DeleteObjectsResponse deleteObjects(String bucketName, List<ObjectIdentifier> s3Objects) {
+        return forBucket(bucketName).deleteObjects(bucketName, s3Objects);
+    }
+
+    @Override
+    public GetBucketLocationResponse getBucketLocation(String bucketName) {
+
+        Region bucketRegion = getBucketRegion(bucketName);
+        if (bucketRegion == null) {
+            return defaultS3Manager.getBucketLocation(bucketName);
+        }
+        return GetBucketLocationResponse.builder()
+                .locationConstraint(bucketRegion.id())
+                .build();
+    }
+
+    @Override
+    public GetObjectResponse getObject(String bucketName, String key, String eTag, Path destination) {
+        return forBucket(bucketName).getObject(bucketName, key, eTag, destination);
+    }
+
+    @Override
+    public HeadBucketResponse headBucket(String bucketName) {
+        return forBucket(bucketName).headBucket(bucketName);
+    }
+
+    @Override
+    public HeadObjectResponse headObject(String bucketName, String key) {
+        return forBucket(bucketName).headObject(bucketName, key);
+    }
+
+    @Override
+    public ListBucketsResponse listBuckets() {
+        return defaultS3Manager.listBuckets();
+    }
+
+    @Override
+    public ListObjectsResponse listObjects(String bucketName) {
+        return forBucket(bucketName).listObjects(bucketName);
+    }
+
+    @Override
+    public ListObjectsResponse listObjects(String bucketName, String prefix) {
+        return forBucket(bucketName).listObjects(bucketName, prefix);
+    }
+
+    @Override
+    public ListObjectsV2Response listObjectsV2(String bucketName, String prefix, String continuationToken) {
+        return forBucket(bucketName).listObjectsV2(bucketName, prefix, continuationToken);
+    }
+
+    @Override
+    public ListObjectsV2Response listObjectsV2(
+            String bucketName,
+            String prefix,
+            String startAfter,
+            String continuationToken) {
+
+        return forBucket(bucketName).listObjectsV2(bucketName, prefix, startAfter, continuationToken);
+    }
+
+    @Override
+    public ListObjectsV2Response listObjectsV2WithDelimiter(
+            String bucketName,
+            String prefix,
+            String delimiter,
+            String continuationToken) {
+
+        return forBucket(bucketName).listObjectsV2WithDelimiter(bucketName, prefix, delimiter, continuationToken);
+    }
+
+    @Override
+    public PutObjectResponse putObject(String bucketName, String key, Path source) {
+        return forBucket(bucketName).putObject(bucketName, key, source);
+    }
+
+    @Override
+    public RestoreObjectResponse restoreObject(String bucketName, String key) {
+        return forBucket(bucketName).restoreObject(bucketName, key);
+    }
+
+    @Override
+    public UploadPartCopyResponse uploadPartCopy(
+            String sourceBucketName,
+            String sourceKey,
+            String destinationBucketName,
+            String destinationKey,
+            String uploadId,
+            int partNumber,
+            long firstByte,
+            long lastByte,
+            String sourceETag) {
+
+        return forBucket(destinationBucketName).uploadPartCopy(
+                sourceBucketName,
+                sourceKey,
+                destinationBucketName,
+                destinationKey,
+                uploadId,
+                partNumber,
+                firstByte,
+                lastByte,
+                sourceETag);
+    }
+
+    private Region resolveBucketRegion(String bucketName) {
+
+        Region bucketRegion = S3CommonUtils.resolveBucketRegion(defaultS3Manager, bucketName);
+        return (bucketRegion != null) ? bucketRegion : s3ClientConfiguration.getRegion();
+    }
+
+    private static void close(S3Manager s3Manager) {
+
+        if (s3Manager instanceof S3ManagerImpl) {
+            ((S3ManagerImpl) s3Manager).close();
+        }
+    }
+
+    private S3Manager forBucket(String bucketName) {
+
+        Region bucketRegion = getBucketRegion(bucketName);
+        return (bucketRegion == null)
+                ? defaultS3Manager
+                : regionalS3Managers.computeIfAbsent(bucketRegion, regionalS3ManagerFactory);
+    }
+}
@@ -0,0 +1,14 @@
+package s3.externalapi;
+
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+public interface S3AsyncManager {
+
+    CompletableFuture<PutObjectResponse> putObject(String bucketName, String key, ByteBuffer content);
+
+    CompletableFuture<PutObjectResponse> putObject(String bucketName, String key, Path source);
+}
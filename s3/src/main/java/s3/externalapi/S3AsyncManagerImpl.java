@@ -0,0 +1,104 @@
+package s3.externalapi;
+
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+public class S3AsyncManagerImpl implements S3AsyncManager, AutoCloseable {
+
+    private final S3ClientConfiguration s3ClientConfiguration;
+    private final S3ClientRegistry s3ClientRegistry;
+    private volatile S3AsyncClient s3AsyncClient;
+
+    public S3AsyncManagerImpl() {
+        this(S3ClientConfiguration.builder().build());
+    }
+
+    public S3AsyncManagerImpl(S3AsyncClient s3AsyncClient) {
+        this.s3ClientConfiguration = null;
+        this.s3ClientRegistry = null;
+        this.s3AsyncClient = s3AsyncClient;
+    }
+
+    /**
+     * Creates a manager whose asynchronous client is only taken from the registry, and built if needed, on the first
+     * call, and is shared with every other manager of the same configuration.
+     *
+     * @param s3ClientConfiguration the configuration of the client to use.
+     */
+    public S3AsyncManagerImpl(S3ClientConfiguration s3ClientConfiguration) {
+        this(s3ClientConfiguration, S3ClientRegistry.getDefault());
+    }
+
+    S3AsyncManagerImpl(S3ClientConfiguration s3ClientConfiguration, S3ClientRegistry s3ClientRegistry) {
+        this.s3ClientConfiguration = s3ClientConfiguration;
+        this.s3ClientRegistry = s3ClientRegistry;
+    }
+
+    public S3AsyncManagerImpl(AwsCredentialsProvider awsCredentialsProvider, Region region) {
+        this(S3ClientConfiguration.builder().credentialsProvider(awsCredentialsProvider).region(region).build());
+    }
+
+    public S3AsyncManagerImpl(Region region) {
+        this(S3ClientConfiguration.builder().region(region).build());
+    }
+
+    @Override
+    public CompletableFuture<PutObjectResponse> putObject(String bucketName, String key, ByteBuffer content) {
+
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentLength((long) content.remaining())
+                .build();
+
+        // The caller owns the buffer until the future completes, so it does not need to be copied.
+        return getS3AsyncClient()
+                .putObject(putObjectRequest, AsyncRequestBody.fromRemainingByteBufferUnsafe(content));
+    }
+
+    @Override
+    public CompletableFuture<PutObjectResponse> putObject(String bucketName, String key, Path source) {
+
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build();
+
+        return getS3AsyncClient().putObject(putObjectRequest, AsyncRequestBody.fromFile(source));
+    }
+
+    /**
+     * Releases the client taken from the registry, which closes it unless other managers still use it. A client
+     * given to the constructor belongs to the caller and is left open. The manager takes a client again if it is
+     * used after being closed.
+     */
+    @Override
+    public synchronized void close() {
+
+        if ((s3ClientRegistry != null) && (s3AsyncClient != null)) {
+            s3AsyncClient = null;
+            s3ClientRegistry.releaseAsyncClient(s3ClientConfiguration);
+        }
+    }
+
+    S3AsyncClient getS3AsyncClient() {
+
+        S3AsyncClient resolvedS3AsyncClient = s3AsyncClient;
+        if (resolvedS3AsyncClient == null) {
+            synchronized (this) {
+                if (s3AsyncClient == null) {
+                    s3AsyncClient = s3ClientRegistry.getAsyncClient(s3ClientConfiguration);
+                }
+                resolvedS3AsyncClient = s3AsyncClient;
+            }
+        }
+        return resolvedS3AsyncClient;
+    }
+}
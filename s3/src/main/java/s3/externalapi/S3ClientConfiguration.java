@@ -0,0 +1,240 @@
+package s3.externalapi;
+
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Settings that identify a shareable S3 client: region, credentials and HTTP engine with its connection pool.
+ * Two configurations with equal settings and the same credentials provider instance map to the same client in the
+ * {@link S3ClientRegistry}. A null region or credentials provider leaves it to the SDK's default provider chain.
+ */
+public final class S3ClientConfiguration {
+
+    // Shared so that repeated calls to forFastStartup() map to the same registered client.
+    private static final AwsCredentialsProvider FAST_STARTUP_CREDENTIALS_PROVIDER =
+            EnvironmentVariableCredentialsProvider.create();
+
+    private final Region region;
+    private final AwsCredentialsProvider credentialsProvider;
+    private final HttpEngine httpEngine;
+    private final int maxConnections;
+    private final Duration connectionTimeout;
+    private final Duration socketTimeout;
+    private final Duration connectionMaxIdleTime;
+    private final boolean tcpKeepAlive;
+    private final Duration tcpKeepAliveInterval;
+    private final Duration tcpKeepAliveTimeout;
+
+    private S3ClientConfiguration(Builder builder) {
+        this.region = builder.region;
+        this.credentialsProvider = builder.credentialsProvider;
+        this.httpEngine = builder.httpEngine;
+        this.maxConnections = builder.maxConnections;
+        this.connectionTimeout = builder.connectionTimeout;
+        this.socketTimeout = builder.socketTimeout;
+        this.connectionMaxIdleTime = builder.connectionMaxIdleTime;
+        this.tcpKeepAlive = builder.tcpKeepAlive;
+        this.tcpKeepAliveInterval = builder.tcpKeepAliveInterval;
+        this.tcpKeepAliveTimeout = builder.tcpKeepAliveTimeout;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns a configuration tuned for short-lived and serverless invocations. Region and credentials are read
+     * directly from the AWS_REGION and AWS_* credential environment variables set by the runtime, which skips the
+     * default provider chains, and the lightweight URLConnection engine keeps class loading to a minimum. Its
+     * url-connection-client artifact must be on the classpath.
+     *
+     * @return the startup-optimized configuration.
+     */
+    public static S3ClientConfiguration forFastStartup() {
+
+        String regionName = System.getenv("AWS_REGION");
+        return builder()
+                .region((regionName == null) ? null : Region.of(regionName))
+                .credentialsProvider(FAST_STARTUP_CREDENTIALS_PROVIDER)
+                .httpEngine(HttpEngine.URL_CONNECTION)
+                .build();
+    }
+
+    public Builder toBuilder() {
+
+        return new Builder()
+                .region(region)
+                .credentialsProvider(credentialsProvider)
+                .httpEngine(httpEngine)
+                .maxConnections(maxConnections)
+                .connectionTimeout(connectionTimeout)
+                .socketTimeout(socketTimeout)
+                .connectionMaxIdleTime(connectionMaxIdleTime)
+                .tcpKeepAlive(tcpKeepAlive)
+                .tcpKeepAliveInterval(tcpKeepAliveInterval)
+                .tcpKeepAliveTimeout(tcpKeepAliveTimeout);
+    }
+
+    public Region getRegion() {
+        return region;
+    }
+
+    public AwsCredentialsProvider getCredentialsProvider() {
+        return credentialsProvider;
+    }
+
+    public HttpEngine getHttpEngine() {
+        return httpEngine;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public Duration getConnectionTimeout() {
+        return connectionTimeout;
+    }
+
+    public Duration getSocketTimeout() {
+        return socketTimeout;
+    }
+
+    public Duration getConnectionMaxIdleTime() {
+        return connectionMaxIdleTime;
+    }
+
+    public boolean isTcpKeepAlive() {
+        return tcpKeepAlive;
+    }
+
+    /**
+     * Returns how long a connection stays idle before a keep-alive probe is sent. Only the CRT engine sets it, the
+     * other engines use the operating system's setting.
+     *
+     * @return the keep-alive interval.
+     */
+    public Duration getTcpKeepAliveInterval() {
+        return tcpKeepAliveInterval;
+    }
+
+    /**
+     * Returns how long an unanswered keep-alive probe waits before the connection is considered dead. Only the CRT
+     * engine sets it.
+     *
+     * @return the keep-alive timeout.
+     */
+    public Duration getTcpKeepAliveTimeout() {
+        return tcpKeepAliveTimeout;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof S3ClientConfiguration)) {
+            return false;
+        }
+        S3ClientConfiguration that = (S3ClientConfiguration) other;
+        return (maxConnections == that.maxConnections)
+                && (tcpKeepAlive == that.tcpKeepAlive)
+                && Objects.equals(region, that.region)
+                && (credentialsProvider == that.credentialsProvider)
+                && (httpEngine == that.httpEngine)
+                && Objects.equals(connectionTimeout, that.connectionTimeout)
+                && Objects.equals(socketTimeout, that.socketTimeout)
+                && Objects.equals(connectionMaxIdleTime, that.connectionMaxIdleTime)
+                && Objects.equals(tcpKeepAliveInterval, that.tcpKeepAliveInterval)
+                && Objects.equals(tcpKeepAliveTimeout, that.tcpKeepAliveTimeout);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(
+                region,
+                System.identityHashCode(credentialsProvider),
+                httpEngine,
+                maxConnections,
+                connectionTimeout,
+                socketTimeout,
+                connectionMaxIdleTime,
+                tcpKeepAlive,
+                tcpKeepAliveInterval,
+                tcpKeepAliveTimeout);
+    }
+
+    public static final class Builder {
+
+        private Region region;
+        private AwsCredentialsProvider credentialsProvider;
+        private HttpEngine httpEngine = HttpEngine.APACHE;
+        private int maxConnections = 50;
+        private Duration connectionTimeout = Duration.ofSeconds(2);
+        private Duration socketTimeout = Duration.ofSeconds(30);
+        private Duration connectionMaxIdleTime = Duration.ofSeconds(60);
+        private boolean tcpKeepAlive;
+        private Duration tcpKeepAliveInterval = Duration.ofSeconds(60);
+        private Duration tcpKeepAliveTimeout = Duration.ofSeconds(10);
+
+        private Builder() {}
+
+        public Builder region(Region region) {
+            this.region = region;
+            return this;
+        }
+
+        public Builder credentialsProvider(AwsCredentialsProvider credentialsProvider) {
+            this.credentialsProvider = credentialsProvider;
+            return this;
+        }
+
+        public Builder httpEngine(HttpEngine httpEngine) {
+            this.httpEngine = httpEngine;
+            return this;
+        }
+
+        public Builder maxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        public Builder connectionTimeout(Duration connectionTimeout) {
+            this.connectionTimeout = connectionTimeout;
+            return this;
+        }
+
+        public Builder socketTimeout(Duration socketTimeout) {
+            this.socketTimeout = socketTimeout;
+            return this;
+        }
+
+        public Builder connectionMaxIdleTime(Duration connectionMaxIdleTime) {
+            this.connectionMaxIdleTime = connectionMaxIdleTime;
+            return this;
+        }
+
+        public Builder tcpKeepAlive(boolean tcpKeepAlive) {
+            this.tcpKeepAlive = tcpKeepAlive;
+            return this;
+        }
+
+        public Builder tcpKeepAliveInterval(Duration tcpKeepAliveInterval) {
+            this.tcpKeepAliveInterval = tcpKeepAliveInterval;
+            return this;
+        }
+
+        public Builder tcpKeepAliveTimeout(Duration tcpKeepAliveTimeout) {
+            this.tcpKeepAliveTimeout = tcpKeepAliveTimeout;
+            return this;
+        }
+
+        public S3ClientConfiguration build() {
+            return new S3ClientConfiguration(this);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package s3.externalapi;
+
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3AsyncClientBuilder;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shares S3 clients between managers and services that use the same configuration, so creating one more
+ * S3ManagerImpl neither pays for client construction nor opens another connection pool.
+ * Clients are reference counted: every getClient call acquires one reference, which the caller gives back with
+ * releaseClient once done, and a client is closed when its last reference is released. Managers release theirs when
+ * they are closed. Clients still referenced are closed with the registry, either explicitly or, for the default
+ * registry, when the JVM shuts down. Since configurations compare credentials providers by identity, managers that
+ * are never closed should share their providers, or each of them pins a client of its own.
+ * <p>
+ * Asynchronous clients are registered apart from blocking ones. The Apache and URLConnection engines are blocking
+ * only, so the asynchronous client of such a configuration runs on Netty with the same pool settings.
+ * <p>
+ * The URLConnection and CRT engines are optional dependencies: their artifacts must be added to the classpath by the
+ * applications that select them, and their classes are only loaded when they are.
+ */
+public class S3ClientRegistry implements AutoCloseable {
+
+    private static final String URL_CONNECTION_CLIENT_CLASS =
+            "software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient";
+    private static final String CRT_CLIENT_CLASS = "software.amazon.awssdk.http.crt.AwsCrtHttpClient";
+
+    private static final S3ClientRegistry DEFAULT_REGISTRY = createDefaultRegistry();
+
+    private final Map<S3ClientConfiguration, RegisteredClient> registeredClients = new ConcurrentHashMap<>();
+    private final Map<S3ClientConfiguration, RegisteredAsyncClient> registeredAsyncClients =
+            new ConcurrentHashMap<>();
+
+    public static S3ClientRegistry getDefault() {
+        return DEFAULT_REGISTRY;
+    }
+
+    public S3Client getClient(S3ClientConfiguration s3ClientConfiguration) {
+
+        return registeredClients.compute(s3ClientConfiguration, (configuration, registeredClient) -> {
+            RegisteredClient acquiredClient =
+                    (registeredClient == null) ? createClient(configuration) : registeredClient;
+            acquiredClient.references++;
+            return acquiredClient;
+        }).s3Client;
+    }
+
+    public S3Client getClient() {
+        return getClient(S3ClientConfiguration.builder().build());
+    }
+
+    public S3AsyncClient getAsyncClient(S3ClientConfiguration s3ClientConfiguration) {
+
+        return registeredAsyncClients.compute(s3ClientConfiguration, (configuration, registeredAsyncClient) -> {
+            RegisteredAsyncClient acquiredAsyncClient =
+                    (registeredAsyncClient == null) ? createAsyncClient(configuration) : registeredAsyncClient;
+            acquiredAsyncClient.references++;
+            return acquiredAsyncClient;
+        }).s3AsyncClient;
+    }
+
+    public S3AsyncClient getAsyncClient() {
+        return getAsyncClient(S3ClientConfiguration.builder().build());
+    }
+
+    /**
+     * Gives back a reference acquired with getClient, and closes the client once no reference is left.
+     *
+     * @param s3ClientConfiguration the configuration the client was acquired with.
+     */
+    public void releaseClient(S3ClientConfiguration s3ClientConfiguration) {
+
+        registeredClients.computeIfPresent(s3ClientConfiguration, (configuration, registeredClient) -> {
+            if (--registeredClient.references > 0) {
+                return registeredClient;
+            }
+            registeredClient.close();
+            return null;
+        });
+    }
+
+    /**
+     * Gives back a reference acquired with getAsyncClient, and closes the client once no reference is left.
+     *
+     * @param s3ClientConfiguration the configuration the client was acquired with.
+     */
+    public void releaseAsyncClient(S3ClientConfiguration s3ClientConfiguration) {
+
+        registeredAsyncClients.computeIfPresent(s3ClientConfiguration, (configuration, registeredAsyncClient) -> {
+            if (--registeredAsyncClient.references > 0) {
+                return registeredAsyncClient;
+            }
+            registeredAsyncClient.close();
+            return null;
+        });
+    }
+
+    public int size() {
+        return registeredClients.size() + registeredAsyncClients.size();
+    }
+
+    @Override
+    public void close() {
+
+        List<RegisteredClient> closedClients = new ArrayList<>(registeredClients.values());
+        registeredClients.clear();
+        for (RegisteredClient registeredClient : closedClients) {
+            registeredClient.close();
+        }
+
+        List<RegisteredAsyncClient> closedAsyncClients = new ArrayList<>(registeredAsyncClients.values());
+        registeredAsyncClients.clear();
+        for (RegisteredAsyncClient registeredAsyncClient : closedAsyncClients) {
+            registeredAsyncClient.close();
+        }
+    }
+
+    private static RegisteredClient createClient(S3ClientConfiguration s3ClientConfiguration) {
+
+        SdkHttpClient sdkHttpClient = createHttpClient(s3ClientConfiguration);
+        S3ClientBuilder s3ClientBuilder = S3Client.builder()
+                .httpClient(sdkHttpClient);
+
+        if (s3ClientConfiguration.getRegion() != null) {
+            s3ClientBuilder.region(s3ClientConfiguration.getRegion());
+        }
+        if (s3ClientConfiguration.getCredentialsProvider() != null) {
+            s3ClientBuilder.credentialsProvider(s3ClientConfiguration.getCredentialsProvider());
+        }
+        return new RegisteredClient(s3ClientBuilder.build(), sdkHttpClient);
+    }
+
+    private static RegisteredAsyncClient createAsyncClient(S3ClientConfiguration s3ClientConfiguration) {
+
+        SdkAsyncHttpClient sdkAsyncHttpClient = createAsyncHttpClient(s3ClientConfiguration);
+        S3AsyncClientBuilder s3AsyncClientBuilder = S3AsyncClient.builder()
+                .httpClient(sdkAsyncHttpClient);
+
+        if (s3ClientConfiguration.getRegion() != null) {
+            s3AsyncClientBuilder.region(s3ClientConfiguration.getRegion());
+        }
+        if (s3ClientConfiguration.getCredentialsProvider() != null) {
+            s3AsyncClientBuilder.credentialsProvider(s3ClientConfiguration.getCredentialsProvider());
+        }
+        return new RegisteredAsyncClient(s3AsyncClientBuilder.build(), sdkAsyncHttpClient);
+    }
+
+    private static SdkHttpClient createHttpClient(S3ClientConfiguration s3ClientConfiguration) {
+
+        switch (s3ClientConfiguration.getHttpEngine()) {
+
+            case URL_CONNECTION:
+                requireEngine(URL_CONNECTION_CLIENT_CLASS, "url-connection-client");
+                return UrlConnectionHttpClients.create(s3ClientConfiguration);
+            case CRT:
+                requireEngine(CRT_CLIENT_CLASS, "aws-crt-client");
+                return CrtHttpClients.create(s3ClientConfiguration);
+            case APACHE:
+            default:
+                return ApacheHttpClient.builder()
+                        .maxConnections(s3ClientConfiguration.getMaxConnections())
+                        .connectionTimeout(s3ClientConfiguration.getConnectionTimeout())
+                        .socketTimeout(s3ClientConfiguration.getSocketTimeout())
+                        .connectionMaxIdleTime(s3ClientConfiguration.getConnectionMaxIdleTime())
+                        .tcpKeepAlive(s3ClientConfiguration.isTcpKeepAlive())
+                        .build();
+        }
+    }
+
+    private static SdkAsyncHttpClient createAsyncHttpClient(S3ClientConfiguration s3ClientConfiguration) {
+
+        if (s3ClientConfiguration.getHttpEngine() == HttpEngine.CRT) {
+            requireEngine(CRT_CLIENT_CLASS, "aws-crt-client");
+            return CrtHttpClients.createAsync(s3ClientConfiguration);
+        }
+        return NettyNioAsyncHttpClient.builder()
+                .maxConcurrency(s3ClientConfiguration.getMaxConnections())
+                .connectionTimeout(s3ClientConfiguration.getConnectionTimeout())
+                .readTimeout(s3ClientConfiguration.getSocketTimeout())
+                .writeTimeout(s3ClientConfiguration.getSocketTimeout())
+                .connectionMaxIdleTime(s3ClientConfiguration.getConnectionMaxIdleTime())
+                .tcpKeepAlive(s3ClientConfiguration.isTcpKeepAlive())
+                .build();
+    }
+
+    static void requireEngine(String clientClassName, String artifactId) {
+
+        try {
+            Class.forName(clientClassName, false, S3ClientRegistry.class.getClassLoader());
+        } catch (ClassNotFoundException exc) {
+            throw new IllegalStateException(
+                    "The HTTP engine requires software.amazon.awssdk:" + artifactId + " on the classpath.", exc);
+        }
+    }
+
+    private static S3ClientRegistry createDefaultRegistry() {
+
+        S3ClientRegistry s3ClientRegistry = new S3ClientRegistry();
+        Runtime.getRuntime().addShutdownHook(new Thread(s3ClientRegistry::close));
+        return s3ClientRegistry;
+    }
+
+    private static final class RegisteredClient {
+
+        private final S3Client s3Client;
+        private final SdkHttpClient sdkHttpClient;
+        // Only read and written inside the compute functions of the map, which serialize them per configuration.
+        private int references;
+
+        private RegisteredClient(S3Client s3Client, SdkHttpClient sdkHttpClient) {
+            this.s3Client = s3Client;
+            this.sdkHttpClient = sdkHttpClient;
+        }
+
+        private void close() {
+
+            // The SDK does not close HTTP clients it was given, so both are closed here.
+            s3Client.close();
+            sdkHttpClient.close();
+        }
+    }
+
+    private static final class RegisteredAsyncClient {
+
+        private final S3AsyncClient s3AsyncClient;
+        private final SdkAsyncHttpClient sdkAsyncHttpClient;
+        private int references;
+
+        private RegisteredAsyncClient(S3AsyncClient s3AsyncClient, SdkAsyncHttpClient sdkAsyncHttpClient) {
+            this.s3AsyncClient = s3AsyncClient;
+            this.sdkAsyncHttpClient = sdkAsyncHttpClient;
+        }
+
+        private void close() {
+
+            s3AsyncClient.close();
+            sdkAsyncHttpClient.close();
+        }
+    }
+}
@@ -2,19 +2,87 @@ package s3.externalapi;
 
 import software.amazon.awssdk.services.s3.model.*;
 
+import java.nio.file.Path;
 import java.util.List;
 
 public interface S3Manager {
 
+    AbortMultipartUploadResponse abortMultipartUpload(String bucketName, String key, String uploadId);
+
+    CompleteMultipartUploadResponse completeMultipartUpload(
+            String bucketName,
+            String key,
+            String uploadId,
+            List<CompletedPart> completedParts);
+
+    CopyObjectResponse copyObject(
+            String sourceBucketName,
+            String sourceKey,
+            String destinationBucketName,
+            String destinationKey);
+
+    CreateMultipartUploadResponse createMultipartUpload(String bucketName, String key);
+
+    /**
+     * Starts a multipart upload whose object gets the content headers, user metadata and storage class of the source
+     * object, as a CopyObject of the source would.
+     *
+     * @param bucketName the bucket name.
+     * @param key the object key.
+     * @param sourceObject the HeadObject response of the source object.
+     *
+     * @return the response holding the upload id.
+     */
+    CreateMultipartUploadResponse createMultipartUpload(String bucketName, String key, HeadObjectResponse sourceObject);
+
     DeleteBucketResponse deleteBucket(String bucketName);
 
     DeleteObjectsResponse deleteObjects(String bucketName, List<ObjectIdentifier> s3Objects);
 
+    GetBucketLocationResponse getBucketLocation(String bucketName);
+
+    GetObjectResponse getObject(String bucketName, String key, String eTag, Path destination);
+
+    HeadBucketResponse headBucket(String bucketName);
+
+    HeadObjectResponse headObject(String bucketName, String key);
+
     ListBucketsResponse listBuckets();
 
     ListObjectsResponse listObjects(String bucketName);
 
     ListObjectsResponse listObjects(String bucketName, String prefix);
 
+    ListObjectsV2Response listObjectsV2(String bucketName, String prefix, String continuationToken);
+
+    ListObjectsV2Response listObjectsV2(
+            String bucketName,
+            String prefix,
+            String startAfter,
+            String continuationToken);
+
+    ListObjectsV2Response listObjectsV2WithDelimiter(
+            String bucketName,
+            String prefix,
+            String delimiter,
+            String continuationToken);
+
+    PutObjectResponse putObject(String bucketName, String key, Path source);
+
     RestoreObjectResponse restoreObject(String bucketName, String key);
+
+    /**
+     * Copies a byte range of the source object into a part, only if the source still has the received ETag, so that
+     * the parts of one upload cannot come from different versions of an object overwritten during the copy.
+     */
+    UploadPartCopyResponse uploadPartCopy(
+            String sourceBucketName,
+            String sourceKey,
+            String destinationBucketName,
+            String destinationKey,
+            String uploadId,
+            int partNumber,
+            long firstByte,
+            long lastByte,
+            String sourceETag);
 }
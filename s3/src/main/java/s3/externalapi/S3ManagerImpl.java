@@ -2,42 +2,188 @@ package s3.externalapi;
 
 import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.*;
 
+import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
-public class S3ManagerImpl implements S3Manager {
+public class S3ManagerImpl implements S3Manager, AutoCloseable {
 
-    private S3Client s3Client;
+    private final S3ClientConfiguration s3ClientConfiguration;
+    private final S3ClientRegistry s3ClientRegistry;
+    private volatile S3Client s3Client;
 
     public S3ManagerImpl() {
-        this.s3Client = S3Client.builder().build();
+        this(S3ClientConfiguration.builder().build());
     }
 
     public S3ManagerImpl(S3Client s3Client) {
+        this.s3ClientConfiguration = null;
+        this.s3ClientRegistry = null;
         this.s3Client = s3Client;
     }
 
+    /**
+     * Creates a manager whose client is only taken from the registry, and built if needed, on the first call, so
+     * constructing the manager costs nothing on the startup path.
+     *
+     * @param s3ClientConfiguration the configuration of the client to use.
+     */
+    public S3ManagerImpl(S3ClientConfiguration s3ClientConfiguration) {
+        this(s3ClientConfiguration, S3ClientRegistry.getDefault());
+    }
+
+    S3ManagerImpl(S3ClientConfiguration s3ClientConfiguration, S3ClientRegistry s3ClientRegistry) {
+        this.s3ClientConfiguration = s3ClientConfiguration;
+        this.s3ClientRegistry = s3ClientRegistry;
+    }
+
     public S3ManagerImpl(AwsCredentialsProvider awsCredentialsProvider, Region region) {
-        this.s3Client = S3Client.builder().credentialsProvider(awsCredentialsProvider).region(region).build();
+        this(S3ClientConfiguration.builder().credentialsProvider(awsCredentialsProvider).region(region).build());
     }
 
     public S3ManagerImpl(AwsCredentialsProvider awsCredentialsProvider) {
-        this.s3Client = S3Client.builder().credentialsProvider(awsCredentialsProvider).build();
+        this(S3ClientConfiguration.builder().credentialsProvider(awsCredentialsProvider).build());
     }
 
     public S3ManagerImpl(Region region) {
-        this.s3Client = S3Client.builder().region(region).build();
+        this(S3ClientConfiguration.builder().region(region).build());
     }
 
     public S3ManagerImpl(String region) {
-        new S3ManagerImpl(Region.of(region));
+        this(Region.of(region));
+    }
+
+    /**
+     * Builds the client and opens a connection to the bucket's endpoint in the background, so that the first real
+     * request does not pay for client construction, credential resolution and the TLS handshake.
+     *
+     * @param bucketName a bucket the caller is about to use.
+     *
+     * @return a future completed once the connection attempt is over, whatever its outcome.
+     */
+    public CompletableFuture<Void> prewarm(String bucketName) {
+
+        return CompletableFuture.runAsync(() -> {
+            try {
+                headBucket(bucketName);
+            } catch (RuntimeException exc) {
+                // Only the side effects matter: an access error still leaves a warm client and connection.
+            }
+        });
+    }
+
+    @Override
+    public AbortMultipartUploadResponse abortMultipartUpload(String bucketName, String key, String uploadId) {
+
+        AbortMultipartUploadRequest abortMultipartUploadRequest = AbortMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .uploadId(uploadId)
+                .build();
+
+        return getS3Client().abortMultipartUpload(abortMultipartUploadRequest);
+    }
+
+    @Override
+    public CompleteMultipartUploadResponse completeMultipartUpload(
+            String bucketName,
+            String key,
+            String uploadId,
+            List<CompletedPart> completedParts) {
+
+        CompletedMultipartUpload completedMultipartUpload = CompletedMultipartUpload.builder()
+                .parts(completedParts)
+                .build();
+
+        CompleteMultipartUploadRequest completeMultipartUploadRequest = CompleteMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .uploadId(uploadId)
+                .multipartUpload(completedMultipartUpload)
+                .build();
+
+        return getS3Client().completeMultipartUpload(completeMultipartUploadRequest);
+    }
+
+    @Override
+    public CopyObjectResponse copyObject(
+            String sourceBucketName,
+            String sourceKey,
+            String destinationBucketName,
+            String destinationKey) {
+
+        CopyObjectRequest copyObjectRequest = CopyObjectRequest.builder()
+                .sourceBucket(sourceBucketName)
+                .sourceKey(sourceKey)
+                .destinationBucket(destinationBucketName)
+                .destinationKey(destinationKey)
+                .build();
+
+        return getS3Client().copyObject(copyObjectRequest);
+    }
+
+    @Override
+    public CreateMultipartUploadResponse createMultipartUpload(String bucketName, String key) {
+
+        CreateMultipartUploadRequest createMultipartUploadRequest = CreateMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build();
+
+        return getS3Client().createMultipartUpload(createMultipartUploadRequest);
+    }
+
+    @Override
+    public CreateMultipartUploadResponse createMultipartUpload(
+            String bucketName,
+            String key,
+            HeadObjectResponse sourceObject) {
+
+        CreateMultipartUploadRequest createMultipartUploadRequest = CreateMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(sourceObject.contentType())
+                .contentEncoding(sourceObject.contentEncoding())
+                .contentDisposition(sourceObject.contentDisposition())
+                .contentLanguage(sourceObject.contentLanguage())
+                .cacheControl(sourceObject.cacheControl())
+                .expires(sourceObject.expires())
+                .metadata(sourceObject.metadata())
+                .storageClass(sourceObject.storageClassAsString())
+                .build();
+
+        return getS3Client().createMultipartUpload(createMultipartUploadRequest);
+    }
+
+    @Override
+    public HeadBucketResponse headBucket(String bucketName) {
+
+        HeadBucketRequest headBucketRequest = HeadBucketRequest.builder()
+                .bucket(bucketName)
+                .build();
+
+        return getS3Client().headBucket(headBucketRequest);
+    }
+
+    @Override
+    public HeadObjectResponse headObject(String bucketName, String key) {
+
+        HeadObjectRequest headObjectRequest = HeadObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build();
+
+        return getS3Client().headObject(headObjectRequest);
     }
 
     @Override
     public ListBucketsResponse listBuckets() {
-        return s3Client.listBuckets();
+        return getS3Client().listBuckets();
     }
 
     public DeleteBucketResponse deleteBucket(String bucketName) {
@@ -46,7 +192,7 @@ public class S3ManagerImpl implements S3Manager {
                 .bucket(bucketName)
                 .build();
 
-        return s3Client.deleteBucket(deleteBucketRequest);
+        return getS3Client().deleteBucket(deleteBucketRequest);
     }
 
     @Override
@@ -61,7 +207,29 @@ public class S3ManagerImpl implements S3Manager {
                 .delete(delete)
                 .build();
 
-        return s3Client.deleteObjects(deleteObjectRequest);
+        return getS3Client().deleteObjects(deleteObjectRequest);
+    }
+
+    @Override
+    public GetBucketLocationResponse getBucketLocation(String bucketName) {
+
+        GetBucketLocationRequest getBucketLocationRequest = GetBucketLocationRequest.builder()
+                .bucket(bucketName)
+                .build();
+
+        return getS3Client().getBucketLocation(getBucketLocationRequest);
+    }
+
+    @Override
+    public GetObjectResponse getObject(String bucketName, String key, String eTag, Path destination) {
+
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .ifNoneMatch(eTag)
+                .build();
+
+        return getS3Client().getObject(getObjectRequest, ResponseTransformer.toFile(destination));
     }
 
     @Override
@@ -73,7 +241,7 @@ public class S3ManagerImpl implements S3Manager {
                 .prefix(prefix)
                 .build();
 
-        return s3Client.listObjects(listObjectsRequest);
+        return getS3Client().listObjects(listObjectsRequest);
     }
 
     @Override
@@ -81,6 +249,62 @@ public class S3ManagerImpl implements S3Manager {
         return listObjects(bucketName, null);
     }
 
+    @Override
+    public ListObjectsV2Response listObjectsV2(String bucketName, String prefix, String continuationToken) {
+
+        ListObjectsV2Request listObjectsV2Request = ListObjectsV2Request.builder()
+                .bucket(bucketName)
+                .prefix(prefix)
+                .continuationToken(continuationToken)
+                .build();
+
+        return getS3Client().listObjectsV2(listObjectsV2Request);
+    }
+
+    @Override
+    public ListObjectsV2Response listObjectsV2(
+            String bucketName,
+            String prefix,
+            String startAfter,
+            String continuationToken) {
+
+        ListObjectsV2Request listObjectsV2Request = ListObjectsV2Request.builder()
+                .bucket(bucketName)
+                .prefix(prefix)
+                .startAfter(startAfter)
+                .continuationToken(continuationToken)
+                .build();
+
+        return getS3Client().listObjectsV2(listObjectsV2Request);
+    }
+
+    @Override
+    public ListObjectsV2Response listObjectsV2WithDelimiter(
+            String bucketName,
+            String prefix,
+            String delimiter,
+            String continuationToken) {
+
+        ListObjectsV2Request listObjectsV2Request = ListObjectsV2Request.builder()
+                .bucket(bucketName)
+                .prefix(prefix)
+                .delimiter(delimiter)
+                .continuationToken(continuationToken)
+                .build();
+
+        return getS3Client().listObjectsV2(listObjectsV2Request);
+    }
+
+    @Override
+    public PutObjectResponse putObject(String bucketName, String key, Path source) {
+
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build();
+
+        return getS3Client().putObject(putObjectRequest, RequestBody.fromFile(source));
+    }
 
     @Override
     public RestoreObjectResponse restoreObject(String bucketName, String key) {
@@ -90,6 +314,60 @@ public class S3ManagerImpl implements S3Manager {
                 .key(key)
                 .build();
 
-        return s3Client.restoreObject(restoreObjectRequest);
+        return getS3Client().restoreObject(restoreObjectRequest);
+    }
+
+    @Override
+    public UploadPartCopyResponse uploadPartCopy(
+            String sourceBucketName,
+            String sourceKey,
+            String destinationBucketName,
+            String destinationKey,
+            String uploadId,
+            int partNumber,
+            long firstByte,
+            long lastByte,
+            String sourceETag) {
+
+        UploadPartCopyRequest uploadPartCopyRequest = UploadPartCopyRequest.builder()
+                .sourceBucket(sourceBucketName)
+                .sourceKey(sourceKey)
+                .destinationBucket(destinationBucketName)
+                .destinationKey(destinationKey)
+                .uploadId(uploadId)
+                .partNumber(partNumber)
+                .copySourceRange("bytes=" + firstByte + "-" + lastByte)
+                .copySourceIfMatch(sourceETag)
+                .build();
+
+        return getS3Client().uploadPartCopy(uploadPartCopyRequest);
+    }
+
+    /**
+     * Releases the client taken from the registry, which closes it unless other managers still use it. A client
+     * given to the constructor belongs to the caller and is left open. The manager takes a client again if it is
+     * used after being closed.
+     */
+    @Override
+    public synchronized void close() {
+
+        if ((s3ClientRegistry != null) && (s3Client != null)) {
+            s3Client = null;
+            s3ClientRegistry.releaseClient(s3ClientConfiguration);
+        }
+    }
+
+    S3Client getS3Client() {
+
+        S3Client resolvedS3Client = s3Client;
+        if (resolvedS3Client == null) {
+            synchronized (this) {
+                if (s3Client == null) {
+                    s3Client = s3ClientRegistry.getClient(s3ClientConfiguration);
+                }
+                resolvedS3Client = s3Client;
+            }
+        }
+        return resolvedS3Client;
     }
 }
@@ -0,0 +1,22 @@
+package s3.externalapi;
+
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+
+/**
+ * Builds URLConnection clients. Kept apart from {@link S3ClientRegistry} so that the optional engine's classes are
+ * only loaded when it is selected.
+ */
+final class UrlConnectionHttpClients {
+
+    private UrlConnectionHttpClients() {}
+
+    static SdkHttpClient create(S3ClientConfiguration s3ClientConfiguration) {
+
+        // URLConnection pools through the JDK's keep-alive cache and has no pool size setting of its own.
+        return UrlConnectionHttpClient.builder()
+                .connectionTimeout(s3ClientConfiguration.getConnectionTimeout())
+                .socketTimeout(s3ClientConfiguration.getSocketTimeout())
+                .build();
+    }
+}
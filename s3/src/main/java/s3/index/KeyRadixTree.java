@@ -0,0 +1,479 @@
+package s3.index;
+
+import s3.externalapi.S3Manager;
+import s3.util.Constants;
+import s3.util.S3CommonUtils;
+import s3.util.S3Listings;
+
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Radix tree of a bucket's keys in which every node holds the object count, total size and modification time range
+ * of the keys below it. Summarizing a prefix only walks down to the prefix, and listing a prefix or a directory only
+ * visits the nodes of the result, whatever the size of the bucket.
+ * <p>
+ * Nodes are immutable: an update copies the nodes on the path to its key and then publishes the new root, so readers
+ * never lock and every query sees the tree as it was when the query started. Updates are serialized. Children are
+ * kept sorted by the first char of their label, so there are at most as many children as distinct chars, in the
+ * order of {@link S3CommonUtils#compareKeys(String, String)} so that listings come in S3's own order.
+ */
+public class KeyRadixTree {
+
+    private volatile Node root = new Node("", null, Node.NO_CHILDREN);
+
+    /**
+     * Lists a prefix of a bucket into a new tree.
+     *
+     * @param s3Manager the manager used to list the bucket.
+     * @param bucketName the bucket name.
+     * @param prefix the key prefix, or null for the whole bucket.
+     *
+     * @return the loaded tree.
+     */
+    public static KeyRadixTree load(S3Manager s3Manager, String bucketName, String prefix) {
+
+        KeyRadixTree keyRadixTree = new KeyRadixTree();
+        try (Stream<S3Object> s3Objects = S3Listings.streamObjects(s3Manager, bucketName, prefix)) {
+            Iterator<S3Object> iterator = s3Objects.iterator();
+            while (iterator.hasNext()) {
+                keyRadixTree.put(iterator.next());
+            }
+        }
+        return keyRadixTree;
+    }
+
+    /**
+     * Adds an object, or replaces the object with the same key.
+     *
+     * @param s3Object the object.
+     */
+    public synchronized void put(S3Object s3Object) {
+
+        Leaf leaf = new Leaf(
+                s3Object.size(),
+                s3Object.lastModified().toEpochMilli(),
+                s3Object.eTag(),
+                s3Object.storageClassAsString());
+        root = put(root, s3Object.key(), 0, leaf);
+    }
+
+    /**
+     * Removes an object.
+     *
+     * @param key the object key.
+     *
+     * @return whether the key was in the tree.
+     */
+    public synchronized boolean remove(String key) {
+
+        Node currentRoot = root;
+        Node newRoot = remove(currentRoot, key, 0, true);
+        root = newRoot;
+        return newRoot != currentRoot;
+    }
+
+    public S3Object get(String key) {
+
+        Location location = locate(root, key);
+        if ((location == null) || (location.key.length() != key.length()) || (location.node.leaf == null)) {
+            return null;
+        }
+        return location.node.leaf.toS3Object(key);
+    }
+
+    public long getObjectCount() {
+        return root.objectCount;
+    }
+
+    public long getTotalSizeInBytes() {
+        return root.totalSizeInBytes;
+    }
+
+    /**
+     * Summarizes the objects under a prefix, in time proportional to the length of the prefix.
+     *
+     * @param prefix the key prefix.
+     *
+     * @return the summary of the prefix.
+     */
+    public PrefixSummary summarize(String prefix) {
+
+        Location location = locate(root, prefix);
+        if (location == null) {
+            return new PrefixSummary(prefix, true, 0L, 0L, null, null);
+        }
+        return location.node.summarize(prefix, true);
+    }
+
+    /**
+     * Returns whether a path holds objects when read as a directory, that is with a trailing slash.
+     *
+     * @param directoryPath the directory path, with or without its trailing slash.
+     *
+     * @return whether the directory holds objects.
+     */
+    public boolean isDirectory(String directoryPath) {
+        return summarize(S3CommonUtils.normalizePrefix(directoryPath)).getObjectCount() > 0;
+    }
+
+    /**
+     * Returns the objects under a prefix, sorted by key.
+     *
+     * @param prefix the key prefix.
+     *
+     * @return the objects under the prefix.
+     */
+    public List<S3Object> list(String prefix) {
+
+        List<S3Object> s3Objects = new ArrayList<>();
+        Location location = locate(root, prefix);
+        if (location != null) {
+            collect(location.node, new StringBuilder(location.key), s3Objects);
+        }
+        return s3Objects;
+    }
+
+    /**
+     * Returns the content of a directory: its objects, and a common prefix summarizing each subdirectory, sorted by
+     * key. Only the nodes down to each entry are visited, not the objects of the subdirectories. The object whose key
+     * is the directory prefix itself, if any, marks the directory and is not one of its entries.
+     *
+     * @param directoryPath the directory path, with or without its trailing slash, or an empty path for the root.
+     *
+     * @return the directory entries.
+     */
+    public List<PrefixSummary> listDirectory(String directoryPath) {
+
+        String directoryPrefix = S3CommonUtils.normalizePrefix(directoryPath);
+        List<PrefixSummary> entries = new ArrayList<>();
+        Location location = locate(root, directoryPrefix);
+        if (location != null) {
+            collectEntries(location.node, location.key, directoryPrefix.length(), entries);
+        }
+        return entries;
+    }
+
+    /**
+     * Returns the keys under a prefix grouped in DeleteObjects batches, in time proportional to the number of keys.
+     *
+     * @param prefix the key prefix.
+     *
+     * @return the batches of keys to delete.
+     */
+    public List<List<String>> planDeletion(String prefix) {
+
+        List<List<String>> batches = new ArrayList<>();
+        List<String> batch = new ArrayList<>();
+        for (S3Object s3Object : list(prefix)) {
+            batch.add(s3Object.key());
+            if (batch.size() == Constants.MAX_DELETE_OBJECTS_PER_REQUEST) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    private static Node put(Node node, String key, int offset, Leaf leaf) {
+
+        if (offset == key.length()) {
+            return new Node(node.label, leaf, node.children);
+        }
+
+        int index = findChild(node.children, key.charAt(offset));
+        if (index < 0) {
+            return node.withChildAdded(-index - 1, new Node(key.substring(offset), leaf, Node.NO_CHILDREN));
+        }
+
+        Node child = node.children[index];
+        int common = commonPrefixLength(child.label, key, offset);
+        if (common == child.label.length()) {
+            return node.withChildReplaced(index, put(child, key, offset + common, leaf));
+        }
+
+        // The key leaves the child's label midway, which is split where they differ.
+        Node lowered = child.withLabel(child.label.substring(common));
+        String splitLabel = child.label.substring(0, common);
+        Node split;
+        if (offset + common == key.length()) {
+            split = new Node(splitLabel, leaf, new Node[] {lowered});
+        } else {
+            Node added = new Node(key.substring(offset + common), leaf, Node.NO_CHILDREN);
+            split = new Node(
+                    splitLabel,
+                    null,
+                    (added.label.charAt(0) < lowered.label.charAt(0))
+                            ? new Node[] {added, lowered}
+                            : new Node[] {lowered, added});
+        }
+        return node.withChildReplaced(index, split);
+    }
+
+    /**
+     * Returns the node without the key, the same node if the key is not below it, or null if nothing is left.
+     */
+    private static Node remove(Node node, String key, int offset, boolean isRoot) {
+
+        if (offset == key.length()) {
+            if (node.leaf == null) {
+                return node;
+            }
+            return collapse(node.label, null, node.children, isRoot);
+        }
+
+        int index = findChild(node.children, key.charAt(offset));
+        if (index < 0) {
+            return node;
+        }
+        Node child = node.children[index];
+        if (!key.startsWith(child.label, offset)) {
+            return node;
+        }
+
+        Node newChild = remove(child, key, offset + child.label.length(), false);
+        if (newChild == child) {
+            return node;
+        }
+        if (newChild != null) {
+            return node.withChildReplaced(index, newChild);
+        }
+
+        Node[] children = new Node[node.children.length - 1];
+        System.arraycopy(node.children, 0, children, 0, index);
+        System.arraycopy(node.children, index + 1, children, index, children.length - index);
+        return collapse(node.label, node.leaf, children, isRoot);
+    }
+
+    /**
+     * Builds a node, merging it with its only child when it holds no key, so that every inner node branches.
+     */
+    private static Node collapse(String label, Leaf leaf, Node[] children, boolean isRoot) {
+
+        if (isRoot || (leaf != null)) {
+            return new Node(label, leaf, children);
+        }
+        if (children.length == 0) {
+            return null;
+        }
+        if (children.length == 1) {
+            return children[0].withLabel(label + children[0].label);
+        }
+        return new Node(label, null, children);
+    }
+
+    /**
+     * Finds the node below which exactly the keys starting with the prefix are, together with the key text leading
+     * to it, which extends past the prefix when the prefix ends inside a label.
+     */
+    private static Location locate(Node node, String prefix) {
+
+        StringBuilder key = new StringBuilder();
+        int offset = 0;
+        while (offset < prefix.length()) {
+            int index = findChild(node.children, prefix.charAt(offset));
+            if (index < 0) {
+                return null;
+            }
+            Node child = node.children[index];
+            int remaining = prefix.length() - offset;
+            if (child.label.length() >= remaining) {
+                if (!child.label.startsWith(prefix.substring(offset))) {
+                    return null;
+                }
+                return new Location(child, key.append(child.label).toString());
+            }
+            if (!prefix.startsWith(child.label, offset)) {
+                return null;
+            }
+            key.append(child.label);
+            offset += child.label.length();
+            node = child;
+        }
+        return new Location(node, key.toString());
+    }
+
+    private static void collect(Node node, StringBuilder key, List<S3Object> s3Objects) {
+
+        if (node.leaf != null) {
+            s3Objects.add(node.leaf.toS3Object(key.toString()));
+        }
+        for (Node child : node.children) {
+            int length = key.length();
+            key.append(child.label);
+            collect(child, key, s3Objects);
+            key.setLength(length);
+        }
+    }
+
+    private static void collectEntries(Node node, String key, int directoryLength, List<PrefixSummary> entries) {
+
+        int delimiterIndex = key.indexOf(Constants.SLASH_CHAR, directoryLength);
+        if (delimiterIndex >= 0) {
+            // Every key below shares the subdirectory prefix.
+            entries.add(node.summarize(key.substring(0, delimiterIndex + 1), true));
+            return;
+        }
+        // The empty object some tools create to mark a directory is the directory itself, not one of its children.
+        if ((node.leaf != null) && (key.length() > directoryLength)) {
+            entries.add(node.leaf.summarize(key));
+        }
+        for (Node child : node.children) {
+            collectEntries(child, key + child.label, directoryLength, entries);
+        }
+    }
+
+    private static int findChild(Node[] children, char firstChar) {
+
+        int low = 0;
+        int high = children.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = S3CommonUtils.compareKeyChars(children[middle].label.charAt(0), firstChar);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static int commonPrefixLength(String label, String key, int offset) {
+
+        int length = Math.min(label.length(), key.length() - offset);
+        int common = 0;
+        while ((common < length) && (label.charAt(common) == key.charAt(offset + common))) {
+            common++;
+        }
+        return common;
+    }
+
+    private static final class Location {
+
+        private final Node node;
+        private final String key;
+
+        private Location(Node node, String key) {
+            this.node = node;
+            this.key = key;
+        }
+    }
+
+    private static final class Leaf {
+
+        private final long size;
+        private final long lastModifiedMillis;
+        private final String eTag;
+        private final String storageClass;
+
+        private Leaf(long size, long lastModifiedMillis, String eTag, String storageClass) {
+            this.size = size;
+            this.lastModifiedMillis = lastModifiedMillis;
+            this.eTag = eTag;
+            this.storageClass = storageClass;
+        }
+
+        private PrefixSummary summarize(String key) {
+
+            Instant lastModified = Instant.ofEpochMilli(lastModifiedMillis);
+            return new PrefixSummary(key, false, 1L, size, lastModified, lastModified);
+        }
+
+        private S3Object toS3Object(String key) {
+
+            return S3Object.builder()
+                    .key(key)
+                    .size(size)
+                    .lastModified(Instant.ofEpochMilli(lastModifiedMillis))
+                    .eTag(eTag)
+                    .storageClass(storageClass)
+                    .build();
+        }
+    }
+
+    private static final class Node {
+
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private final String label;
+        private final Leaf leaf;
+        private final Node[] children;
+        private final long objectCount;
+        private final long totalSizeInBytes;
+        private final long oldestLastModifiedMillis;
+        private final long newestLastModifiedMillis;
+
+        private Node(String label, Leaf leaf, Node[] children) {
+
+            long count = 0L;
+            long size = 0L;
+            long oldest = Long.MAX_VALUE;
+            long newest = Long.MIN_VALUE;
+            if (leaf != null) {
+                count = 1L;
+                size = leaf.size;
+                oldest = leaf.lastModifiedMillis;
+                newest = leaf.lastModifiedMillis;
+            }
+            for (Node child : children) {
+                count += child.objectCount;
+                size += child.totalSizeInBytes;
+                oldest = Math.min(oldest, child.oldestLastModifiedMillis);
+                newest = Math.max(newest, child.newestLastModifiedMillis);
+            }
+
+            this.label = label;
+            this.leaf = leaf;
+            this.children = children;
+            this.objectCount = count;
+            this.totalSizeInBytes = size;
+            this.oldestLastModifiedMillis = oldest;
+            this.newestLastModifiedMillis = newest;
+        }
+
+        private Node withLabel(String newLabel) {
+            return new Node(newLabel, leaf, children);
+        }
+
+        private Node withChildAdded(int index, Node child) {
+
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(children, 0, newChildren, 0, index);
+            newChildren[index] = child;
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+            return new Node(label, leaf, newChildren);
+        }
+
+        private Node withChildReplaced(int index, Node child) {
+
+            Node[] newChildren = children.clone();
+            newChildren[index] = child;
+            return new Node(label, leaf, newChildren);
+        }
+
+        private PrefixSummary summarize(String prefix, boolean commonPrefix) {
+
+            if (objectCount == 0) {
+                return new PrefixSummary(prefix, commonPrefix, 0L, 0L, null, null);
+            }
+            return new PrefixSummary(
+                    prefix,
+                    commonPrefix,
+                    objectCount,
+                    totalSizeInBytes,
+                    Instant.ofEpochMilli(oldestLastModifiedMillis),
+                    Instant.ofEpochMilli(newestLastModifiedMillis));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package s3.index;
+
+import java.time.Instant;
+
+/**
+ * The objects under a key prefix: how many there are, their total size and the range of their modification times.
+ * In a directory listing, a summary is either a single object or a common prefix grouping the objects of a
+ * subdirectory.
+ */
+public final class PrefixSummary {
+
+    private final String prefix;
+    private final boolean commonPrefix;
+    private final long objectCount;
+    private final long totalSizeInBytes;
+    private final Instant oldestLastModified;
+    private final Instant newestLastModified;
+
+    public PrefixSummary(
+            String prefix,
+            boolean commonPrefix,
+            long objectCount,
+            long totalSizeInBytes,
+            Instant oldestLastModified,
+            Instant newestLastModified) {
+
+        this.prefix = prefix;
+        this.commonPrefix = commonPrefix;
+        this.objectCount = objectCount;
+        this.totalSizeInBytes = totalSizeInBytes;
+        this.oldestLastModified = oldestLastModified;
+        this.newestLastModified = newestLastModified;
+    }
+
+    /**
+     * Returns the summary of a common prefix whose objects were not listed, as read from a delimiter listing. Its
+     * object count and total size are unknown and reported as -1.
+     *
+     * @param prefix the common prefix.
+     *
+     * @return the unsummarized common prefix.
+     */
+    public static PrefixSummary ofCommonPrefix(String prefix) {
+        return new PrefixSummary(prefix, true, -1L, -1L, null, null);
+    }
+
+    /**
+     * Returns the summarized prefix, which is the object key for a single object.
+     *
+     * @return the prefix.
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public boolean isCommonPrefix() {
+        return commonPrefix;
+    }
+
+    /**
+     * Returns whether the objects under the prefix were counted, which they are not for a common prefix read from a
+     * delimiter listing.
+     *
+     * @return true if the count, size and modification times are known.
+     */
+    public boolean isSummarized() {
+        return objectCount >= 0;
+    }
+
+    public long getObjectCount() {
+        return objectCount;
+    }
+
+    public long getTotalSizeInBytes() {
+        return totalSizeInBytes;
+    }
+
+    /**
+     * Returns the modification time of the oldest object, or null if there is no object under the prefix.
+     *
+     * @return the oldest modification time.
+     */
+    public Instant getOldestLastModified() {
+        return oldestLastModified;
+    }
+
+    public Instant getNewestLastModified() {
+        return newestLastModified;
+    }
+
+    @Override
+    public String toString() {
+
+        if (!isSummarized()) {
+            return prefix;
+        }
+        return prefix + ": " + objectCount + " objects (" + totalSizeInBytes + " bytes)"
+                + ((objectCount == 0) ? "" : ", modified " + oldestLastModified + " to " + newestLastModified);
+    }
+}
@@ -0,0 +1,235 @@
+package s3.partition;
+
+import common.model.Period;
+import common.util.DateUtils;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Describes keys partitioned by date, such as "events/{yyyy}/{MM}/{dd}/{HH}/", and turns a time range into the
+ * minimal set of key prefixes covering it. Text inside braces is a {@link DateTimeFormatter} pattern and everything
+ * else is literal. When the date fields appear from the coarsest to the finest, whole days, months or years inside
+ * the range are covered by a single shorter prefix instead of one prefix per finest partition.
+ * <p>
+ * A field whose width varies, such as {M} printing "1" to "12", must be followed by a literal separator, otherwise
+ * the prefix of January would also match October to December.
+ */
+public class DatePartitionLayout {
+
+    private static final char FIELD_START = '{';
+    private static final char FIELD_END = '}';
+    private static final char QUOTE = '\'';
+
+    private final String template;
+    private final ZoneId zoneId;
+    private final DateTimeZone dateTimeZone;
+    private final List<Level> levels = new ArrayList<>();
+
+    public DatePartitionLayout(String template, ZoneId zoneId) {
+
+        this.template = template;
+        this.zoneId = zoneId;
+        this.dateTimeZone = DateTimeZone.forTimeZone(TimeZone.getTimeZone(zoneId));
+        parse(template);
+    }
+
+    public DatePartitionLayout(String template) {
+        this(template, ZoneOffset.UTC);
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    public ChronoUnit getGranularity() {
+        return levels.get(levels.size() - 1).unit;
+    }
+
+    /**
+     * Returns the prefixes whose partitions exactly cover the time range, from the earliest to the latest.
+     * The range is widened to whole partitions of the finest granularity.
+     *
+     * @param startingInstant the inclusive start of the range.
+     * @param endingInstant the exclusive end of the range.
+     *
+     * @return the minimal list of key prefixes.
+     */
+    public List<String> getPrefixes(Instant startingInstant, Instant endingInstant) {
+
+        Level finestLevel = levels.get(levels.size() - 1);
+        Instant cursor = getPeriod(startingInstant, finestLevel.unit).getStartingInstant();
+
+        List<String> prefixes = new ArrayList<>();
+        while (cursor.isBefore(endingInstant)) {
+            Level level = finestLevel;
+            Period period = getPeriod(cursor, finestLevel.unit);
+            for (Level candidateLevel : levels) {
+                Period candidatePeriod = getPeriod(cursor, candidateLevel.unit);
+                if (candidatePeriod.getStartingInstant().equals(cursor)
+                        && !candidatePeriod.getEndingInstant().isAfter(endingInstant)) {
+                    level = candidateLevel;
+                    period = candidatePeriod;
+                    break;
+                }
+            }
+            prefixes.add(level.formatter.format(cursor));
+            cursor = period.getEndingInstant();
+        }
+        return prefixes;
+    }
+
+    /**
+     * Returns the calendar period of the unit that contains the instant, in the time zone of the layout.
+     */
+    private Period getPeriod(Instant instant, ChronoUnit unit) {
+
+        // The next period after the previous one is the period containing the instant.
+        DateTime dateTime = new DateTime(instant.toEpochMilli(), dateTimeZone);
+        switch (unit) {
+
+            case MINUTES:
+                return DateUtils.getNextMinutePeriod(dateTime.minusMinutes(1));
+            case HOURS:
+                return DateUtils.getNextHourPeriod(dateTime.minusHours(1));
+            case DAYS:
+                return DateUtils.getNextDayPeriod(dateTime.minusDays(1));
+            case MONTHS:
+                return DateUtils.getNextMonthPeriod(dateTime.minusMonths(1));
+            default:
+                return DateUtils.getNextYearPeriod(dateTime.minusYears(1));
+        }
+    }
+
+    private void parse(String template) {
+
+        // Pattern pieces, each either a quoted literal or a date field, and the piece index of every field.
+        List<String> pieces = new ArrayList<>();
+        List<Integer> fieldPieceIndexes = new ArrayList<>();
+        List<ChronoUnit> units = new ArrayList<>();
+
+        int index = 0;
+        while (index < template.length()) {
+            int fieldStart = template.indexOf(FIELD_START, index);
+            int literalEnd = (fieldStart < 0) ? template.length() : fieldStart;
+            if (literalEnd > index) {
+                pieces.add(QUOTE + template.substring(index, literalEnd).replace("'", "''") + QUOTE);
+            }
+            if (fieldStart < 0) {
+                break;
+            }
+
+            int fieldEnd = template.indexOf(FIELD_END, fieldStart);
+            if (fieldEnd < 0) {
+                throw new IllegalArgumentException("Unclosed date field in partition template: " + template);
+            }
+            String field = template.substring(fieldStart + 1, fieldEnd);
+            fieldPieceIndexes.add(pieces.size());
+            units.add(getUnit(field));
+            pieces.add(field);
+            index = fieldEnd + 1;
+        }
+
+        if (units.isEmpty()) {
+            throw new IllegalArgumentException("No date field in partition template: " + template);
+        }
+        for (int pieceIndex : fieldPieceIndexes) {
+            boolean separated = (pieceIndex + 1 < pieces.size()) && !fieldPieceIndexes.contains(pieceIndex + 1);
+            if (!separated && !isFixedWidth(pieces.get(pieceIndex))) {
+                throw new IllegalArgumentException(
+                        "Variable-width date field without a following separator in partition template: " + template);
+            }
+        }
+
+        // Shorter prefixes only denote a coarser period when the fields go from the coarsest to the finest,
+        // otherwise every prefix is formatted in full at the finest unit.
+        boolean ordered = true;
+        for (int unitIndex = 1; unitIndex < units.size(); unitIndex++) {
+            ordered &= units.get(unitIndex).compareTo(units.get(unitIndex - 1)) < 0;
+        }
+        if (!ordered) {
+            levels.add(new Level(
+                    Collections.min(units),
+                    DateTimeFormatter.ofPattern(String.join("", pieces)).withZone(zoneId)));
+            return;
+        }
+
+        for (int levelIndex = 0; levelIndex < units.size(); levelIndex++) {
+            boolean finest = (levelIndex == units.size() - 1);
+
+            // A coarser prefix ends with the literal separator that follows its field, if any.
+            int lastPieceIndex = finest ? pieces.size() - 1 : fieldPieceIndexes.get(levelIndex);
+            if (!finest && (lastPieceIndex + 1 < fieldPieceIndexes.get(levelIndex + 1))) {
+                lastPieceIndex++;
+            }
+            String pattern = String.join("", pieces.subList(0, lastPieceIndex + 1));
+
+            levels.add(new Level(units.get(levelIndex), DateTimeFormatter.ofPattern(pattern).withZone(zoneId)));
+        }
+    }
+
+    private static ChronoUnit getUnit(String field) {
+
+        if (field.indexOf('m') >= 0) {
+            return ChronoUnit.MINUTES;
+        } else if ((field.indexOf('H') >= 0) || (field.indexOf('k') >= 0)) {
+            return ChronoUnit.HOURS;
+        } else if (field.indexOf('d') >= 0) {
+            return ChronoUnit.DAYS;
+        } else if ((field.indexOf('M') >= 0) || (field.indexOf('L') >= 0)) {
+            return ChronoUnit.MONTHS;
+        } else if ((field.indexOf('y') >= 0) || (field.indexOf('u') >= 0)) {
+            return ChronoUnit.YEARS;
+        }
+        throw new IllegalArgumentException("Unsupported date field in partition template: " + field);
+    }
+
+    /**
+     * Tells whether every value of the field is printed with the same number of characters: two-letter fields are
+     * zero-padded, as are years of four letters or more, while single letters and names vary in width.
+     */
+    private static boolean isFixedWidth(String field) {
+
+        boolean quoted = false;
+        int index = 0;
+        while (index < field.length()) {
+            char letter = field.charAt(index);
+            int runEnd = index + 1;
+            while ((runEnd < field.length()) && (field.charAt(runEnd) == letter) && (letter != QUOTE)) {
+                runEnd++;
+            }
+            if (letter == QUOTE) {
+                quoted = !quoted;
+            } else if (!quoted && Character.isLetter(letter)) {
+                int count = runEnd - index;
+                boolean year = (letter == 'y') || (letter == 'u');
+                if ((count != 2) && !(year && (count >= 4))) {
+                    return false;
+                }
+            }
+            index = runEnd;
+        }
+        return true;
+    }
+
+    private static final class Level {
+
+        private final ChronoUnit unit;
+        private final DateTimeFormatter formatter;
+
+        private Level(ChronoUnit unit, DateTimeFormatter formatter) {
+            this.unit = unit;
+            this.formatter = formatter;
+        }
+    }
+}
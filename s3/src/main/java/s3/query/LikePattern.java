@@ -0,0 +1,137 @@
+package s3.query;
+
+import s3.exception.InvalidQueryException;
+
+/**
+ * SQL LIKE pattern, where '%' matches any sequence of characters and '_' exactly one. An optional escape character
+ * makes the '%', '_' or escape character that follows it match itself, so keys holding them can be matched exactly.
+ * Matching is a single pass that only backtracks to the last '%', without compiling to a regular expression.
+ */
+class LikePattern {
+
+    private static final char ANY_SEQUENCE = '%';
+    private static final char ANY_CHARACTER = '_';
+
+    private static final byte LITERAL = 0;
+    private static final byte ANY_CHARACTER_TOKEN = 1;
+    private static final byte ANY_SEQUENCE_TOKEN = 2;
+
+    private final String pattern;
+    private final char[] characters;
+    private final byte[] tokens;
+    private final String literalPrefix;
+    private final boolean prefixOnly;
+
+    LikePattern(String pattern) {
+        this(pattern, null);
+    }
+
+    /**
+     * Parses a pattern.
+     *
+     * @param pattern the pattern.
+     * @param escape the escape character, or null if the pattern has none.
+     *
+     * @throws InvalidQueryException if the escape character is not followed by '%', '_' or itself.
+     */
+    LikePattern(String pattern, Character escape) {
+
+        this.pattern = pattern;
+
+        // Every token is a literal character or a wildcard, with the escape characters resolved.
+        char[] parsedCharacters = new char[pattern.length()];
+        byte[] parsedTokens = new byte[pattern.length()];
+        int tokenCount = 0;
+        for (int index = 0; index < pattern.length(); index++) {
+            char character = pattern.charAt(index);
+            if ((escape != null) && (character == escape)) {
+                index++;
+                if ((index == pattern.length())
+                        || ((pattern.charAt(index) != ANY_SEQUENCE)
+                                && (pattern.charAt(index) != ANY_CHARACTER)
+                                && (pattern.charAt(index) != escape))) {
+                    throw new InvalidQueryException(
+                            "The escape character must be followed by '%', '_' or itself: " + pattern);
+                }
+                parsedCharacters[tokenCount] = pattern.charAt(index);
+                parsedTokens[tokenCount++] = LITERAL;
+            } else {
+                parsedCharacters[tokenCount] = character;
+                parsedTokens[tokenCount++] = (character == ANY_SEQUENCE)
+                        ? ANY_SEQUENCE_TOKEN
+                        : (character == ANY_CHARACTER) ? ANY_CHARACTER_TOKEN : LITERAL;
+            }
+        }
+        this.characters = new char[tokenCount];
+        this.tokens = new byte[tokenCount];
+        System.arraycopy(parsedCharacters, 0, characters, 0, tokenCount);
+        System.arraycopy(parsedTokens, 0, tokens, 0, tokenCount);
+
+        int literalEnd = 0;
+        while ((literalEnd < tokens.length) && (tokens[literalEnd] == LITERAL)) {
+            literalEnd++;
+        }
+        this.literalPrefix = new String(characters, 0, literalEnd);
+
+        int wildcardEnd = literalEnd;
+        while ((wildcardEnd < tokens.length) && (tokens[wildcardEnd] == ANY_SEQUENCE_TOKEN)) {
+            wildcardEnd++;
+        }
+        this.prefixOnly = (wildcardEnd > literalEnd) && (wildcardEnd == tokens.length);
+    }
+
+    /**
+     * Returns the characters before the first wildcard, which every matching text starts with.
+     *
+     * @return the literal prefix.
+     */
+    String getLiteralPrefix() {
+        return literalPrefix;
+    }
+
+    /**
+     * Returns whether the pattern is its literal prefix followed by '%' only, so that starting with the prefix is
+     * enough to match.
+     *
+     * @return true if the pattern only constrains a prefix.
+     */
+    boolean isPrefixOnly() {
+        return prefixOnly;
+    }
+
+    boolean matches(String text) {
+
+        int textIndex = 0;
+        int tokenIndex = 0;
+        int lastSequenceTokenIndex = -1;
+        int lastSequenceTextIndex = 0;
+
+        while (textIndex < text.length()) {
+            byte token = (tokenIndex < tokens.length) ? tokens[tokenIndex] : -1;
+            if (token == ANY_SEQUENCE_TOKEN) {
+                lastSequenceTokenIndex = tokenIndex++;
+                lastSequenceTextIndex = textIndex;
+            } else if ((token == ANY_CHARACTER_TOKEN)
+                    || ((token == LITERAL) && (characters[tokenIndex] == text.charAt(textIndex)))) {
+                tokenIndex++;
+                textIndex++;
+            } else if (lastSequenceTokenIndex >= 0) {
+                // Let the last '%' absorb one more character and retry from there.
+                tokenIndex = lastSequenceTokenIndex + 1;
+                textIndex = ++lastSequenceTextIndex;
+            } else {
+                return false;
+            }
+        }
+
+        while ((tokenIndex < tokens.length) && (tokens[tokenIndex] == ANY_SEQUENCE_TOKEN)) {
+            tokenIndex++;
+        }
+        return tokenIndex == tokens.length;
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+}
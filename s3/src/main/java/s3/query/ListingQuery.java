@@ -0,0 +1,180 @@
+package s3.query;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A parsed listing query, such as:
+ * <pre>
+ * SELECT count(*), sum(size) FROM my-bucket
+ * WHERE key LIKE 'tenant/x/%.parquet' AND age &gt; 'P90D' AND storageClass = 'STANDARD'
+ * GROUP BY prefix(2)
+ * </pre>
+ * Conditions are combined with AND. Literals are quoted strings or whole numbers; sizes also accept quantities such
+ * as '10 MiB', and lastModified accepts ISO-8601 instants, dates or epoch millis.
+ */
+public class ListingQuery {
+
+    private final String bucketName;
+    private final List<SelectItem> selectItems;
+    private final List<Condition> conditions;
+    private final int groupByPrefixDepth;
+    private final long limit;
+
+    ListingQuery(
+            String bucketName,
+            List<SelectItem> selectItems,
+            List<Condition> conditions,
+            int groupByPrefixDepth,
+            long limit) {
+
+        this.bucketName = bucketName;
+        this.selectItems = Collections.unmodifiableList(selectItems);
+        this.conditions = Collections.unmodifiableList(conditions);
+        this.groupByPrefixDepth = groupByPrefixDepth;
+        this.limit = limit;
+    }
+
+    /**
+     * Parses a query.
+     *
+     * @param query the query text.
+     *
+     * @return the parsed query.
+     *
+     * @throws s3.exception.InvalidQueryException if the query is malformed.
+     */
+    public static ListingQuery parse(String query) {
+        return new QueryParser(query).parse();
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public List<SelectItem> getSelectItems() {
+        return selectItems;
+    }
+
+    public List<Condition> getConditions() {
+        return conditions;
+    }
+
+    /**
+     * Returns the number of key path segments objects are grouped by, or 0 when the query is not grouped.
+     *
+     * @return the group by prefix depth.
+     */
+    public int getGroupByPrefixDepth() {
+        return groupByPrefixDepth;
+    }
+
+    public boolean isAggregate() {
+        return selectItems.get(0).getQueryFunction() != null;
+    }
+
+    /**
+     * Returns the maximum number of rows, or -1 when unlimited.
+     *
+     * @return the row limit.
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    public static class SelectItem {
+
+        private final QueryFunction queryFunction;
+        private final QueryField queryField;
+
+        SelectItem(QueryFunction queryFunction, QueryField queryField) {
+            this.queryFunction = queryFunction;
+            this.queryField = queryField;
+        }
+
+        /**
+         * Returns the aggregate function, or null when the item selects the field of every matching object.
+         *
+         * @return the aggregate function.
+         */
+        public QueryFunction getQueryFunction() {
+            return queryFunction;
+        }
+
+        /**
+         * Returns the selected field, or null for count(*).
+         *
+         * @return the selected field.
+         */
+        public QueryField getQueryField() {
+            return queryField;
+        }
+
+        public String getColumnName() {
+
+            if (queryFunction == null) {
+                return queryField.getName();
+            }
+            return queryFunction.name().toLowerCase() + "(" + ((queryField == null) ? "*" : queryField.getName()) + ")";
+        }
+
+        @Override
+        public String toString() {
+            return getColumnName();
+        }
+    }
+
+    public static class Condition {
+
+        private final QueryField queryField;
+        private final QueryOperator queryOperator;
+        private final List<Object> values;
+
+        Condition(QueryField queryField, QueryOperator queryOperator, List<Object> values) {
+            this.queryField = queryField;
+            this.queryOperator = queryOperator;
+            this.values = Collections.unmodifiableList(values);
+        }
+
+        public QueryField getQueryField() {
+            return queryField;
+        }
+
+        public QueryOperator getQueryOperator() {
+            return queryOperator;
+        }
+
+        /**
+         * Returns the literal operands, each a String or a Long: one for comparisons, two for BETWEEN, any number
+         * for IN, and for LIKE the pattern followed by the escape character if there is one.
+         *
+         * @return the literal operands.
+         */
+        public List<Object> getValues() {
+            return values;
+        }
+
+        @Override
+        public String toString() {
+
+            StringBuilder stringBuilder = new StringBuilder(queryField.getName())
+                    .append(' ')
+                    .append(queryOperator.getSymbol())
+                    .append(' ');
+            boolean list = (queryOperator == QueryOperator.IN) || (queryOperator == QueryOperator.NOT_IN);
+            stringBuilder.append(list ? "(" : "");
+            for (int index = 0; index < values.size(); index++) {
+                if (index > 0) {
+                    stringBuilder.append((queryOperator == QueryOperator.BETWEEN)
+                            ? " AND "
+                            : list ? ", " : " ESCAPE ");
+                }
+                Object value = values.get(index);
+                stringBuilder.append((value instanceof String)
+                        ? "'" + ((String) value).replace("'", "''") + "'"
+                        : value);
+            }
+            return stringBuilder.append(list ? ")" : "").toString();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package s3.query;
+
+import s3.externalapi.S3Manager;
+import s3.util.S3Listings;
+
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Answers listing queries in a single streaming pass over the planned listing, holding one page of objects and one
+ * accumulator per group at a time. Plain field selections stop listing as soon as their LIMIT is reached.
+ */
+public class ListingQueryEngine {
+
+    private static final String PREFIX_COLUMN = "prefix";
+
+    private final S3Manager s3Manager;
+
+    public ListingQueryEngine(S3Manager s3Manager) {
+        this.s3Manager = s3Manager;
+    }
+
+    public QueryResult execute(String query) {
+        return execute(ListingQuery.parse(query));
+    }
+
+    public QueryResult execute(ListingQuery listingQuery) {
+        return execute(QueryPlan.of(listingQuery, Instant.now()));
+    }
+
+    public QueryPlan explain(String query) {
+        return QueryPlan.of(ListingQuery.parse(query), Instant.now());
+    }
+
+    public QueryResult execute(QueryPlan queryPlan) {
+
+        ListingQuery listingQuery = queryPlan.getListingQuery();
+        List<String> columnNames = new ArrayList<>();
+        if (listingQuery.getGroupByPrefixDepth() > 0) {
+            columnNames.add(PREFIX_COLUMN);
+        }
+        for (ListingQuery.SelectItem selectItem : listingQuery.getSelectItems()) {
+            columnNames.add(selectItem.getColumnName());
+        }
+
+        long[] scannedObjects = new long[1];
+        Map<String, Accumulator> accumulators = new HashMap<>();
+        List<List<Object>> rows = new ArrayList<>();
+
+        if (!queryPlan.isEmpty()) {
+            try (Stream<S3Object> s3Objects = S3Listings.streamObjects(
+                    s3Manager,
+                    queryPlan.getBucketName(),
+                    queryPlan.getListingPrefix())) {
+
+                Stream<S3Object> matchingObjects = s3Objects
+                        .peek(s3Object -> scannedObjects[0]++)
+                        .filter(queryPlan::matches);
+
+                if (listingQuery.isAggregate()) {
+                    int depth = listingQuery.getGroupByPrefixDepth();
+                    matchingObjects.forEach(s3Object -> accumulators
+                            .computeIfAbsent(getGroupPrefix(s3Object.key(), depth), groupPrefix -> new Accumulator())
+                            .add(s3Object));
+                } else {
+                    if (listingQuery.getLimit() >= 0) {
+                        matchingObjects = matchingObjects.limit(listingQuery.getLimit());
+                    }
+                    matchingObjects.forEach(s3Object -> rows.add(project(listingQuery, s3Object)));
+                }
+            }
+        }
+
+        if (!listingQuery.isAggregate()) {
+            return new QueryResult(columnNames, rows, scannedObjects[0], rows.size());
+        }
+
+        long matchedObjects = 0L;
+        if (listingQuery.getGroupByPrefixDepth() == 0) {
+            Accumulator accumulator = accumulators.getOrDefault("", new Accumulator());
+            matchedObjects = accumulator.count;
+            rows.add(aggregate(listingQuery, null, accumulator));
+        } else {
+            for (Map.Entry<String, Accumulator> group : new TreeMap<>(accumulators).entrySet()) {
+                matchedObjects += group.getValue().count;
+                if ((listingQuery.getLimit() < 0) || (rows.size() < listingQuery.getLimit())) {
+                    rows.add(aggregate(listingQuery, group.getKey(), group.getValue()));
+                }
+            }
+        }
+        return new QueryResult(columnNames, rows, scannedObjects[0], matchedObjects);
+    }
+
+    /**
+     * Returns the key up to and including its depth-th '/', or up to its last '/' when it has fewer.
+     */
+    static String getGroupPrefix(String key, int depth) {
+
+        int end = 0;
+        for (int level = 0; level < depth; level++) {
+            int separator = key.indexOf('/', end);
+            if (separator < 0) {
+                break;
+            }
+            end = separator + 1;
+        }
+        return key.substring(0, end);
+    }
+
+    private static List<Object> project(ListingQuery listingQuery, S3Object s3Object) {
+
+        List<Object> row = new ArrayList<>();
+        for (ListingQuery.SelectItem selectItem : listingQuery.getSelectItems()) {
+            switch (selectItem.getQueryField()) {
+                case KEY:
+                    row.add(s3Object.key());
+                    break;
+                case SIZE:
+                    row.add(s3Object.size());
+                    break;
+                case LAST_MODIFIED:
+                    row.add(s3Object.lastModified());
+                    break;
+                default:
+                    row.add(QueryPlan.getStorageClass(s3Object).toString());
+                    break;
+            }
+        }
+        return row;
+    }
+
+    private static List<Object> aggregate(ListingQuery listingQuery, String groupPrefix, Accumulator accumulator) {
+
+        List<Object> row = new ArrayList<>();
+        if (groupPrefix != null) {
+            row.add(groupPrefix);
+        }
+
+        boolean empty = accumulator.count == 0L;
+        for (ListingQuery.SelectItem selectItem : listingQuery.getSelectItems()) {
+            boolean size = selectItem.getQueryField() == QueryField.SIZE;
+            switch (selectItem.getQueryFunction()) {
+                case COUNT:
+                    row.add(accumulator.count);
+                    break;
+                case SUM:
+                    row.add(accumulator.sizeSum);
+                    break;
+                case AVG:
+                    row.add(empty ? null : (double) accumulator.sizeSum / accumulator.count);
+                    break;
+                case MIN:
+                    row.add(empty ? null : size
+                            ? (Object) accumulator.minimumSize
+                            : Instant.ofEpochMilli(accumulator.earliestLastModified));
+                    break;
+                default:
+                    row.add(empty ? null : size
+                            ? (Object) accumulator.maximumSize
+                            : Instant.ofEpochMilli(accumulator.latestLastModified));
+                    break;
+            }
+        }
+        return row;
+    }
+
+    private static final class Accumulator {
+
+        private long count;
+        private long sizeSum;
+        private long minimumSize = Long.MAX_VALUE;
+        private long maximumSize = Long.MIN_VALUE;
+        private long earliestLastModified = Long.MAX_VALUE;
+        private long latestLastModified = Long.MIN_VALUE;
+
+        private void add(S3Object s3Object) {
+
+            long size = s3Object.size();
+            long lastModified = s3Object.lastModified().toEpochMilli();
+            count++;
+            sizeSum += size;
+            minimumSize = Math.min(minimumSize, size);
+            maximumSize = Math.max(maximumSize, size);
+            earliestLastModified = Math.min(earliestLastModified, lastModified);
+            latestLastModified = Math.max(latestLastModified, lastModified);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package s3.query;
+
+/**
+ * The object attributes a listing query can select and filter on. AGE is derived from LAST_MODIFIED at planning time
+ * and can only be compared with an ISO-8601 duration such as 'P90D'.
+ */
+public enum QueryField {
+
+    KEY("key"),
+    SIZE("size"),
+    LAST_MODIFIED("lastModified"),
+    STORAGE_CLASS("storageClass"),
+    AGE("age");
+
+    private final String name;
+
+    QueryField(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public static QueryField getQueryFieldByName(String name) {
+
+        for (QueryField queryField : values()) {
+            if (queryField.name.equalsIgnoreCase(name)) {
+                return queryField;
+            }
+        }
+        return null;
+    }
+}
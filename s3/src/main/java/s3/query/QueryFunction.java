@@ -0,0 +1,10 @@
+package s3.query;
+
+public enum QueryFunction {
+
+    COUNT,
+    SUM,
+    MIN,
+    MAX,
+    AVG
+}
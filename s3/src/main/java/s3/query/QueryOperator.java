@@ -0,0 +1,26 @@
+package s3.query;
+
+public enum QueryOperator {
+
+    EQUAL("="),
+    NOT_EQUAL("!="),
+    LESS("<"),
+    LESS_OR_EQUAL("<="),
+    GREATER(">"),
+    GREATER_OR_EQUAL(">="),
+    BETWEEN("BETWEEN"),
+    LIKE("LIKE"),
+    NOT_LIKE("NOT LIKE"),
+    IN("IN"),
+    NOT_IN("NOT IN");
+
+    private final String symbol;
+
+    QueryOperator(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+}
@@ -0,0 +1,397 @@
+package s3.query;
+
+import s3.exception.InvalidQueryException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Recursive descent parser for listing queries:
+ * <pre>
+ * query     := SELECT selection FROM bucket [WHERE condition (AND condition)*] [GROUP BY PREFIX(n)] [LIMIT n]
+ * selection := * | item (, item)*
+ * item      := COUNT(*) | (SUM | MIN | MAX | AVG)(field) | field
+ * condition := field (= | != | &lt;&gt; | &lt; | &lt;= | &gt; | &gt;=) literal
+ *            | field [NOT] LIKE string [ESCAPE string]
+ *            | field [NOT] IN (literal (, literal)*) | field BETWEEN literal AND literal
+ * </pre>
+ * Keywords and field names are case-insensitive. The ESCAPE string is a single character, which makes the '%', '_'
+ * or escape character following it in the LIKE pattern match itself.
+ */
+class QueryParser {
+
+    private static final List<QueryField> ALL_FIELDS = Arrays.asList(
+            QueryField.KEY,
+            QueryField.SIZE,
+            QueryField.LAST_MODIFIED,
+            QueryField.STORAGE_CLASS);
+
+    private final String query;
+    private int position;
+    private TokenType tokenType;
+    private String token;
+    private int tokenStart;
+
+    QueryParser(String query) {
+        this.query = query;
+        advance();
+    }
+
+    ListingQuery parse() {
+
+        expectKeyword("SELECT");
+        List<ListingQuery.SelectItem> selectItems = parseSelectItems();
+
+        expectKeyword("FROM");
+        String bucketName = parseBucketName();
+
+        List<ListingQuery.Condition> conditions = new ArrayList<>();
+        if (acceptKeyword("WHERE")) {
+            do {
+                conditions.add(parseCondition());
+            } while (acceptKeyword("AND"));
+        }
+
+        int groupByPrefixDepth = 0;
+        if (acceptKeyword("GROUP")) {
+            expectKeyword("BY");
+            expectKeyword("PREFIX");
+            expectSymbol("(");
+            groupByPrefixDepth = (int) parsePositiveNumber();
+            expectSymbol(")");
+        }
+
+        long limit = -1L;
+        if (acceptKeyword("LIMIT")) {
+            limit = parsePositiveNumber();
+        }
+
+        if (tokenType != TokenType.END) {
+            throw error("Unexpected '" + token + "'");
+        }
+
+        boolean aggregate = selectItems.get(0).getQueryFunction() != null;
+        for (ListingQuery.SelectItem selectItem : selectItems) {
+            if ((selectItem.getQueryFunction() != null) != aggregate) {
+                throw new InvalidQueryException("Aggregates and plain fields cannot be selected together: " + query);
+            }
+        }
+        if ((groupByPrefixDepth > 0) && !aggregate) {
+            throw new InvalidQueryException("GROUP BY requires aggregate selections: " + query);
+        }
+        return new ListingQuery(bucketName, selectItems, conditions, groupByPrefixDepth, limit);
+    }
+
+    private List<ListingQuery.SelectItem> parseSelectItems() {
+
+        List<ListingQuery.SelectItem> selectItems = new ArrayList<>();
+        if (acceptSymbol("*")) {
+            for (QueryField queryField : ALL_FIELDS) {
+                selectItems.add(new ListingQuery.SelectItem(null, queryField));
+            }
+            return selectItems;
+        }
+
+        do {
+            selectItems.add(parseSelectItem());
+        } while (acceptSymbol(","));
+        return selectItems;
+    }
+
+    private String parseBucketName() {
+
+        if (tokenType == TokenType.NUMBER) {
+            // Bucket names may start with a digit, as in 123-logs, which would otherwise end the number at the hyphen.
+            position = tokenStart;
+            while ((position < query.length()) && isWordPart(query.charAt(position))) {
+                position++;
+            }
+            tokenType = TokenType.WORD;
+            token = query.substring(tokenStart, position);
+        }
+        if ((tokenType != TokenType.WORD) && (tokenType != TokenType.STRING)) {
+            throw error("Expected a bucket name");
+        }
+        String bucketName = token;
+        advance();
+        return bucketName;
+    }
+
+    private ListingQuery.SelectItem parseSelectItem() {
+
+        QueryFunction queryFunction = null;
+        if (tokenType == TokenType.WORD) {
+            for (QueryFunction candidateFunction : QueryFunction.values()) {
+                if (candidateFunction.name().equalsIgnoreCase(token)) {
+                    queryFunction = candidateFunction;
+                }
+            }
+        }
+
+        if (queryFunction == null) {
+            int fieldStart = tokenStart;
+            QueryField queryField = parseField();
+            if (queryField == QueryField.AGE) {
+                throw new InvalidQueryException(
+                        "The age field can only be used in conditions at position " + fieldStart + ": " + query);
+            }
+            return new ListingQuery.SelectItem(null, queryField);
+        }
+
+        int functionStart = tokenStart;
+        advance();
+        expectSymbol("(");
+        if (queryFunction == QueryFunction.COUNT) {
+            expectSymbol("*");
+            expectSymbol(")");
+            return new ListingQuery.SelectItem(queryFunction, null);
+        }
+
+        QueryField queryField = parseField();
+        expectSymbol(")");
+        boolean numeric = (queryField == QueryField.SIZE)
+                || ((queryField == QueryField.LAST_MODIFIED)
+                        && ((queryFunction == QueryFunction.MIN) || (queryFunction == QueryFunction.MAX)));
+        if (!numeric) {
+            throw new InvalidQueryException(
+                    queryFunction + " cannot be applied to " + queryField.getName() + " at position " + functionStart
+                            + ": " + query);
+        }
+        return new ListingQuery.SelectItem(queryFunction, queryField);
+    }
+
+    private ListingQuery.Condition parseCondition() {
+
+        QueryField queryField = parseField();
+        List<Object> values = new ArrayList<>();
+
+        QueryOperator queryOperator;
+        boolean negated = acceptKeyword("NOT");
+        if (acceptKeyword("LIKE")) {
+            queryOperator = negated ? QueryOperator.NOT_LIKE : QueryOperator.LIKE;
+            if (tokenType != TokenType.STRING) {
+                throw error("Expected a quoted LIKE pattern");
+            }
+            values.add(parseLiteral());
+            if (acceptKeyword("ESCAPE")) {
+                if ((tokenType != TokenType.STRING) || (token.length() != 1)) {
+                    throw error("Expected a quoted single ESCAPE character");
+                }
+                values.add(parseLiteral());
+            }
+        } else if (acceptKeyword("IN")) {
+            queryOperator = negated ? QueryOperator.NOT_IN : QueryOperator.IN;
+            expectSymbol("(");
+            do {
+                values.add(parseLiteral());
+            } while (acceptSymbol(","));
+            expectSymbol(")");
+        } else if (negated) {
+            throw error("Expected LIKE or IN after NOT");
+        } else if (acceptKeyword("BETWEEN")) {
+            queryOperator = QueryOperator.BETWEEN;
+            values.add(parseLiteral());
+            expectKeyword("AND");
+            values.add(parseLiteral());
+        } else {
+            queryOperator = parseComparisonOperator();
+            values.add(parseLiteral());
+        }
+        return new ListingQuery.Condition(queryField, queryOperator, values);
+    }
+
+    private QueryOperator parseComparisonOperator() {
+
+        if (tokenType == TokenType.SYMBOL) {
+            QueryOperator queryOperator = null;
+            switch (token) {
+                case "=":
+                    queryOperator = QueryOperator.EQUAL;
+                    break;
+                case "!=":
+                case "<>":
+                    queryOperator = QueryOperator.NOT_EQUAL;
+                    break;
+                case "<":
+                    queryOperator = QueryOperator.LESS;
+                    break;
+                case "<=":
+                    queryOperator = QueryOperator.LESS_OR_EQUAL;
+                    break;
+                case ">":
+                    queryOperator = QueryOperator.GREATER;
+                    break;
+                case ">=":
+                    queryOperator = QueryOperator.GREATER_OR_EQUAL;
+                    break;
+                default:
+                    break;
+            }
+            if (queryOperator != null) {
+                advance();
+                return queryOperator;
+            }
+        }
+        throw error("Expected a comparison operator");
+    }
+
+    private QueryField parseField() {
+
+        QueryField queryField = (tokenType == TokenType.WORD) ? QueryField.getQueryFieldByName(token) : null;
+        if (queryField == null) {
+            throw error("Expected one of the fields key, size, lastModified, storageClass or age");
+        }
+        advance();
+        return queryField;
+    }
+
+    private Object parseLiteral() {
+
+        Object literal;
+        if (tokenType == TokenType.STRING) {
+            literal = token;
+        } else if (tokenType == TokenType.NUMBER) {
+            literal = parseNumber();
+        } else {
+            throw error("Expected a quoted string or a number");
+        }
+        advance();
+        return literal;
+    }
+
+    private long parsePositiveNumber() {
+
+        if (tokenType != TokenType.NUMBER) {
+            throw error("Expected a number");
+        }
+        long number = parseNumber();
+        if (number <= 0) {
+            throw error("Expected a positive number");
+        }
+        advance();
+        return number;
+    }
+
+    private long parseNumber() {
+
+        try {
+            return Long.parseLong(token);
+        } catch (NumberFormatException numberFormatException) {
+            throw error("Number out of range");
+        }
+    }
+
+    private void expectKeyword(String keyword) {
+
+        if (!acceptKeyword(keyword)) {
+            throw error("Expected " + keyword);
+        }
+    }
+
+    private boolean acceptKeyword(String keyword) {
+
+        if ((tokenType == TokenType.WORD) && token.equalsIgnoreCase(keyword)) {
+            advance();
+            return true;
+        }
+        return false;
+    }
+
+    private void expectSymbol(String symbol) {
+
+        if (!acceptSymbol(symbol)) {
+            throw error("Expected '" + symbol + "'");
+        }
+    }
+
+    private boolean acceptSymbol(String symbol) {
+
+        if ((tokenType == TokenType.SYMBOL) && token.equals(symbol)) {
+            advance();
+            return true;
+        }
+        return false;
+    }
+
+    private InvalidQueryException error(String message) {
+
+        String found = (tokenType == TokenType.END) ? "end of query" : "'" + token + "'";
+        return new InvalidQueryException(
+                message + " at position " + tokenStart + ", found " + found + ": " + query);
+    }
+
+    private void advance() {
+
+        while ((position < query.length()) && Character.isWhitespace(query.charAt(position))) {
+            position++;
+        }
+        tokenStart = position;
+        if (position == query.length()) {
+            tokenType = TokenType.END;
+            token = "";
+            return;
+        }
+
+        char character = query.charAt(position);
+        if (character == '\'') {
+            tokenType = TokenType.STRING;
+            token = readString();
+        } else if (Character.isDigit(character)) {
+            tokenType = TokenType.NUMBER;
+            while ((position < query.length()) && Character.isDigit(query.charAt(position))) {
+                position++;
+            }
+            token = query.substring(tokenStart, position);
+        } else if (Character.isLetter(character) || (character == '_')) {
+            tokenType = TokenType.WORD;
+            while ((position < query.length()) && isWordPart(query.charAt(position))) {
+                position++;
+            }
+            token = query.substring(tokenStart, position);
+        } else {
+            tokenType = TokenType.SYMBOL;
+            String symbol = query.substring(position, Math.min(position + 2, query.length()));
+            boolean twoCharacters = symbol.equals("<=") || symbol.equals(">=") || symbol.equals("!=")
+                    || symbol.equals("<>");
+            position += twoCharacters ? 2 : 1;
+            token = query.substring(tokenStart, position);
+        }
+    }
+
+    private String readString() {
+
+        // Quotes inside the string are doubled, as in SQL.
+        StringBuilder stringBuilder = new StringBuilder();
+        position++;
+        while (true) {
+            if (position == query.length()) {
+                throw new InvalidQueryException("Unclosed string at position " + tokenStart + ": " + query);
+            }
+            char character = query.charAt(position++);
+            if (character == '\'') {
+                if ((position < query.length()) && (query.charAt(position) == '\'')) {
+                    position++;
+                } else {
+                    return stringBuilder.toString();
+                }
+            }
+            stringBuilder.append(character);
+        }
+    }
+
+    private static boolean isWordPart(char character) {
+
+        // Bucket names may contain dots and hyphens.
+        return Character.isLetterOrDigit(character) || (character == '_') || (character == '-') || (character == '.');
+    }
+
+    private enum TokenType {
+
+        WORD,
+        STRING,
+        NUMBER,
+        SYMBOL,
+        END
+    }
+}
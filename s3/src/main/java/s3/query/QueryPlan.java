@@ -0,0 +1,468 @@
+package s3.query;
+
+import common.model.StorageQuantity;
+
+import s3.exception.InvalidQueryException;
+import s3.util.S3CommonUtils;
+
+import software.amazon.awssdk.services.s3.model.ObjectStorageClass;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * How a {@link ListingQuery} is executed. Key prefixes implied by equality, IN, BETWEEN and LIKE conditions are
+ * pushed down into the listing request; size and lastModified comparisons are folded into one inclusive range each,
+ * and storage class conditions into one bit mask, all checked before anything else. What remains is evaluated per
+ * object, key patterns last, and contradictory conditions skip the listing altogether.
+ */
+public class QueryPlan {
+
+    private static final ObjectStorageClass[] STORAGE_CLASSES = ObjectStorageClass.values();
+
+    private final ListingQuery listingQuery;
+    private final List<Predicate<S3Object>> residualPredicates = new ArrayList<>();
+    private final List<String> residualDescriptions = new ArrayList<>();
+    private final Map<LikePattern, String> prefixPatterns = new LinkedHashMap<>();
+    private String listingPrefix = "";
+    private long minimumSize = Long.MIN_VALUE;
+    private long maximumSize = Long.MAX_VALUE;
+    private long earliestLastModified = Long.MIN_VALUE;
+    private long latestLastModified = Long.MAX_VALUE;
+    private long storageClassMask = -1L;
+    private boolean empty;
+
+    private QueryPlan(ListingQuery listingQuery) {
+        this.listingQuery = listingQuery;
+    }
+
+    /**
+     * Plans a query, resolving ages against the received instant.
+     *
+     * @param listingQuery the parsed query.
+     * @param now the instant ages are measured from.
+     *
+     * @return the query plan.
+     *
+     * @throws InvalidQueryException if a literal does not fit the field it is compared with.
+     */
+    public static QueryPlan of(ListingQuery listingQuery, Instant now) {
+
+        QueryPlan queryPlan = new QueryPlan(listingQuery);
+        List<ListingQuery.Condition> keyConditions = new ArrayList<>();
+        for (ListingQuery.Condition condition : listingQuery.getConditions()) {
+            switch (condition.getQueryField()) {
+                case SIZE:
+                    queryPlan.planSizeCondition(condition);
+                    break;
+                case LAST_MODIFIED:
+                    queryPlan.planLastModifiedCondition(condition, condition.getQueryOperator(), now);
+                    break;
+                case AGE:
+                    queryPlan.planLastModifiedCondition(condition, reverse(condition.getQueryOperator()), now);
+                    break;
+                case STORAGE_CLASS:
+                    queryPlan.planStorageClassCondition(condition);
+                    break;
+                default:
+                    keyConditions.add(condition);
+                    break;
+            }
+        }
+
+        // Key conditions go last: they are the most expensive and may be made redundant by the listing prefix.
+        for (ListingQuery.Condition condition : keyConditions) {
+            queryPlan.planKeyCondition(condition);
+        }
+        for (Map.Entry<LikePattern, String> prefixPattern : queryPlan.prefixPatterns.entrySet()) {
+            LikePattern likePattern = prefixPattern.getKey();
+            if (!queryPlan.listingPrefix.startsWith(likePattern.getLiteralPrefix())) {
+                queryPlan.addResidual(prefixPattern.getValue(), s3Object -> likePattern.matches(s3Object.key()));
+            }
+        }
+
+        queryPlan.empty |= (queryPlan.minimumSize > queryPlan.maximumSize)
+                || (queryPlan.earliestLastModified > queryPlan.latestLastModified)
+                || (queryPlan.storageClassMask == 0L);
+        return queryPlan;
+    }
+
+    public ListingQuery getListingQuery() {
+        return listingQuery;
+    }
+
+    public String getBucketName() {
+        return listingQuery.getBucketName();
+    }
+
+    /**
+     * Returns the prefix sent with every listing request, or null when the whole bucket has to be listed.
+     *
+     * @return the listing prefix.
+     */
+    public String getListingPrefix() {
+        return listingPrefix.isEmpty() ? null : listingPrefix;
+    }
+
+    /**
+     * Returns whether the conditions contradict each other, in which case nothing needs to be listed.
+     *
+     * @return true if no object can match.
+     */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    public int getResidualPredicateCount() {
+        return residualPredicates.size();
+    }
+
+    /**
+     * Returns whether a listed object satisfies every condition of the query.
+     *
+     * @param s3Object the listed object.
+     *
+     * @return true if the object matches.
+     */
+    public boolean matches(S3Object s3Object) {
+
+        long size = s3Object.size();
+        long lastModified = s3Object.lastModified().toEpochMilli();
+        if ((size < minimumSize) || (size > maximumSize)
+                || (lastModified < earliestLastModified) || (lastModified > latestLastModified)
+                || (((storageClassMask >>> getStorageClass(s3Object).ordinal()) & 1L) == 0L)) {
+            return false;
+        }
+        for (Predicate<S3Object> residualPredicate : residualPredicates) {
+            if (!residualPredicate.test(s3Object)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static ObjectStorageClass getStorageClass(S3Object s3Object) {
+        return (s3Object.storageClass() == null) ? ObjectStorageClass.STANDARD : s3Object.storageClass();
+    }
+
+    private void planSizeCondition(ListingQuery.Condition condition) {
+
+        List<Long> values = new ArrayList<>();
+        for (Object value : condition.getValues()) {
+            values.add(toSize(value));
+        }
+        planRangeCondition(condition, condition.getQueryOperator(), values, S3Object::size, true);
+    }
+
+    private void planLastModifiedCondition(ListingQuery.Condition condition, QueryOperator queryOperator, Instant now) {
+
+        List<Long> values = new ArrayList<>();
+        for (Object value : condition.getValues()) {
+            values.add((condition.getQueryField() == QueryField.AGE)
+                    ? now.minus(toDuration(value)).toEpochMilli()
+                    : toEpochMillis(value));
+        }
+        if ((queryOperator == QueryOperator.BETWEEN) && (condition.getQueryField() == QueryField.AGE)) {
+            // The oldest age gives the earliest modification time.
+            values.add(values.remove(0));
+        }
+        planRangeCondition(condition, queryOperator, values, s3Object -> s3Object.lastModified().toEpochMilli(), false);
+    }
+
+    private void planRangeCondition(
+            ListingQuery.Condition condition,
+            QueryOperator queryOperator,
+            List<Long> values,
+            ToLongFunction<S3Object> field,
+            boolean size) {
+
+        long lower = Long.MIN_VALUE;
+        long upper = Long.MAX_VALUE;
+        long value = values.get(0);
+        switch (queryOperator) {
+            case EQUAL:
+                lower = value;
+                upper = value;
+                break;
+            case LESS:
+                empty |= (value == Long.MIN_VALUE);
+                upper = value - 1;
+                break;
+            case LESS_OR_EQUAL:
+                upper = value;
+                break;
+            case GREATER:
+                empty |= (value == Long.MAX_VALUE);
+                lower = value + 1;
+                break;
+            case GREATER_OR_EQUAL:
+                lower = value;
+                break;
+            case BETWEEN:
+                lower = value;
+                upper = values.get(1);
+                break;
+            case IN:
+            case NOT_IN:
+            case NOT_EQUAL:
+                Set<Long> valueSet = new HashSet<>(values);
+                boolean negated = queryOperator != QueryOperator.IN;
+                addResidual(
+                        condition.toString(),
+                        s3Object -> valueSet.contains(field.applyAsLong(s3Object)) != negated);
+                if (!negated) {
+                    lower = values.stream().mapToLong(Long::longValue).min().getAsLong();
+                    upper = values.stream().mapToLong(Long::longValue).max().getAsLong();
+                }
+                break;
+            default:
+                throw unsupported(condition);
+        }
+
+        if (size) {
+            minimumSize = Math.max(minimumSize, lower);
+            maximumSize = Math.min(maximumSize, upper);
+        } else {
+            earliestLastModified = Math.max(earliestLastModified, lower);
+            latestLastModified = Math.min(latestLastModified, upper);
+        }
+    }
+
+    private void planStorageClassCondition(ListingQuery.Condition condition) {
+
+        long conditionMask = 0L;
+        for (Object value : condition.getValues()) {
+            ObjectStorageClass storageClass = ObjectStorageClass.fromValue(String.valueOf(value).toUpperCase());
+            if (storageClass == ObjectStorageClass.UNKNOWN_TO_SDK_VERSION) {
+                throw new InvalidQueryException("Unknown storage class '" + value + "' in " + condition);
+            }
+            conditionMask |= 1L << storageClass.ordinal();
+        }
+
+        switch (condition.getQueryOperator()) {
+            case EQUAL:
+            case IN:
+                storageClassMask &= conditionMask;
+                break;
+            case NOT_EQUAL:
+            case NOT_IN:
+                storageClassMask &= ~conditionMask;
+                break;
+            default:
+                throw unsupported(condition);
+        }
+    }
+
+    private void planKeyCondition(ListingQuery.Condition condition) {
+
+        List<String> values = new ArrayList<>();
+        for (Object value : condition.getValues()) {
+            values.add(String.valueOf(value));
+        }
+        String value = values.get(0);
+
+        switch (condition.getQueryOperator()) {
+            case EQUAL:
+                pushPrefix(value);
+                addResidual(condition.toString(), s3Object -> s3Object.key().equals(value));
+                break;
+            case NOT_EQUAL:
+                addResidual(condition.toString(), s3Object -> !s3Object.key().equals(value));
+                break;
+            case LESS:
+                addResidual(
+                        condition.toString(),
+                        s3Object -> S3CommonUtils.compareKeys(s3Object.key(), value) < 0);
+                break;
+            case LESS_OR_EQUAL:
+                addResidual(
+                        condition.toString(),
+                        s3Object -> S3CommonUtils.compareKeys(s3Object.key(), value) <= 0);
+                break;
+            case GREATER:
+                addResidual(
+                        condition.toString(),
+                        s3Object -> S3CommonUtils.compareKeys(s3Object.key(), value) > 0);
+                break;
+            case GREATER_OR_EQUAL:
+                addResidual(
+                        condition.toString(),
+                        s3Object -> S3CommonUtils.compareKeys(s3Object.key(), value) >= 0);
+                break;
+            case BETWEEN:
+                String upperValue = values.get(1);
+                pushPrefix(getCommonPrefix(values));
+                addResidual(condition.toString(), s3Object ->
+                        (S3CommonUtils.compareKeys(s3Object.key(), value) >= 0)
+                                && (S3CommonUtils.compareKeys(s3Object.key(), upperValue) <= 0));
+                break;
+            case IN:
+            case NOT_IN:
+                Set<String> valueSet = new HashSet<>(values);
+                boolean negated = condition.getQueryOperator() == QueryOperator.NOT_IN;
+                if (!negated) {
+                    pushPrefix(getCommonPrefix(values));
+                }
+                addResidual(condition.toString(), s3Object -> valueSet.contains(s3Object.key()) != negated);
+                break;
+            case LIKE:
+                LikePattern likePattern = new LikePattern(value, getEscape(values));
+                pushPrefix(likePattern.getLiteralPrefix());
+                if (likePattern.isPrefixOnly()) {
+                    prefixPatterns.put(likePattern, condition.toString());
+                } else {
+                    addResidual(condition.toString(), s3Object -> likePattern.matches(s3Object.key()));
+                }
+                break;
+            case NOT_LIKE:
+                LikePattern notLikePattern = new LikePattern(value, getEscape(values));
+                addResidual(condition.toString(), s3Object -> !notLikePattern.matches(s3Object.key()));
+                break;
+            default:
+                throw unsupported(condition);
+        }
+    }
+
+    private void pushPrefix(String prefix) {
+
+        if (prefix.startsWith(listingPrefix)) {
+            listingPrefix = prefix;
+        } else if (!listingPrefix.startsWith(prefix)) {
+            // Two unrelated prefixes: no key can start with both.
+            empty = true;
+        }
+    }
+
+    private void addResidual(String description, Predicate<S3Object> predicate) {
+        residualDescriptions.add(description);
+        residualPredicates.add(predicate);
+    }
+
+    private static Character getEscape(List<String> values) {
+        return (values.size() > 1) ? values.get(1).charAt(0) : null;
+    }
+
+    private static String getCommonPrefix(List<String> values) {
+
+        String commonPrefix = values.get(0);
+        for (String value : values) {
+            int length = 0;
+            while ((length < commonPrefix.length()) && (length < value.length())
+                    && (commonPrefix.charAt(length) == value.charAt(length))) {
+                length++;
+            }
+            commonPrefix = commonPrefix.substring(0, length);
+        }
+        return commonPrefix;
+    }
+
+    private static QueryOperator reverse(QueryOperator queryOperator) {
+
+        // An older age is an earlier modification time.
+        switch (queryOperator) {
+            case LESS:
+                return QueryOperator.GREATER;
+            case LESS_OR_EQUAL:
+                return QueryOperator.GREATER_OR_EQUAL;
+            case GREATER:
+                return QueryOperator.LESS;
+            case GREATER_OR_EQUAL:
+                return QueryOperator.LESS_OR_EQUAL;
+            default:
+                return queryOperator;
+        }
+    }
+
+    private static long toSize(Object value) {
+
+        if (value instanceof Long) {
+            return (Long) value;
+        }
+        try {
+            return StorageQuantity.parse((String) value).getBytes();
+        } catch (IllegalArgumentException illegalArgumentException) {
+            throw new InvalidQueryException("Invalid size '" + value + "'", illegalArgumentException);
+        }
+    }
+
+    private static long toEpochMillis(Object value) {
+
+        if (value instanceof Long) {
+            return (Long) value;
+        }
+        String text = (String) value;
+        try {
+            return (text.indexOf('T') >= 0)
+                    ? Instant.parse(text).toEpochMilli()
+                    : LocalDate.parse(text).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        } catch (DateTimeParseException dateTimeParseException) {
+            throw new InvalidQueryException("Invalid instant or date '" + value + "'", dateTimeParseException);
+        }
+    }
+
+    private static Duration toDuration(Object value) {
+
+        try {
+            return Duration.parse(String.valueOf(value));
+        } catch (DateTimeParseException dateTimeParseException) {
+            throw new InvalidQueryException("Invalid ISO-8601 duration '" + value + "'", dateTimeParseException);
+        }
+    }
+
+    private static InvalidQueryException unsupported(ListingQuery.Condition condition) {
+        return new InvalidQueryException("Unsupported condition " + condition);
+    }
+
+    @Override
+    public String toString() {
+
+        if (empty) {
+            return "No listing: the conditions of " + listingQuery.getBucketName() + " cannot match any object";
+        }
+
+        StringBuilder stringBuilder = new StringBuilder("List ")
+                .append(listingQuery.getBucketName())
+                .append('/')
+                .append(listingPrefix);
+        if ((minimumSize != Long.MIN_VALUE) || (maximumSize != Long.MAX_VALUE)) {
+            appendLine(stringBuilder, "size in [" + minimumSize + ", " + maximumSize + "]");
+        }
+        if ((earliestLastModified != Long.MIN_VALUE) || (latestLastModified != Long.MAX_VALUE)) {
+            appendLine(stringBuilder, "lastModified in ["
+                    + ((earliestLastModified == Long.MIN_VALUE) ? "-inf" : Instant.ofEpochMilli(earliestLastModified))
+                    + ", "
+                    + ((latestLastModified == Long.MAX_VALUE) ? "+inf" : Instant.ofEpochMilli(latestLastModified))
+                    + "]");
+        }
+        if (storageClassMask != -1L) {
+            List<ObjectStorageClass> storageClasses = new ArrayList<>();
+            for (ObjectStorageClass storageClass : STORAGE_CLASSES) {
+                if ((storageClass != ObjectStorageClass.UNKNOWN_TO_SDK_VERSION)
+                        && (((storageClassMask >>> storageClass.ordinal()) & 1L) != 0L)) {
+                    storageClasses.add(storageClass);
+                }
+            }
+            appendLine(stringBuilder, "storageClass in " + storageClasses);
+        }
+        for (String residualDescription : residualDescriptions) {
+            appendLine(stringBuilder, "then " + residualDescription);
+        }
+        return stringBuilder.toString();
+    }
+
+    private static void appendLine(StringBuilder stringBuilder, String line) {
+        stringBuilder.append(System.lineSeparator()).append("  ").append(line);
+    }
+}
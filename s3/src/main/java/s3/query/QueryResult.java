@@ -0,0 +1,78 @@
+package s3.query;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The rows returned by a listing query. Values are Strings for keys, prefixes and storage classes, Longs for counts
+ * and sizes, Instants for modification times and Doubles for averages; min, max and avg are null over no objects.
+ */
+public class QueryResult {
+
+    private final List<String> columnNames;
+    private final List<List<Object>> rows;
+    private final long scannedObjects;
+    private final long matchedObjects;
+
+    public QueryResult(List<String> columnNames, List<List<Object>> rows, long scannedObjects, long matchedObjects) {
+        this.columnNames = Collections.unmodifiableList(columnNames);
+        this.rows = Collections.unmodifiableList(rows);
+        this.scannedObjects = scannedObjects;
+        this.matchedObjects = matchedObjects;
+    }
+
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    public List<List<Object>> getRows() {
+        return rows;
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    public Object getValue(int row, String columnName) {
+
+        int column = columnNames.indexOf(columnName);
+        if (column < 0) {
+            throw new IllegalArgumentException("Unknown column: " + columnName);
+        }
+        return rows.get(row).get(column);
+    }
+
+    /**
+     * Returns the number of objects listed to answer the query, which the pushed down prefix keeps low.
+     *
+     * @return the number of scanned objects.
+     */
+    public long getScannedObjects() {
+        return scannedObjects;
+    }
+
+    public long getMatchedObjects() {
+        return matchedObjects;
+    }
+
+    @Override
+    public String toString() {
+
+        StringBuilder stringBuilder = new StringBuilder(String.join("\t", columnNames));
+        for (List<Object> row : rows) {
+            stringBuilder.append(System.lineSeparator());
+            for (int column = 0; column < row.size(); column++) {
+                stringBuilder.append((column == 0) ? "" : "\t").append(row.get(column));
+            }
+        }
+        return stringBuilder.append(System.lineSeparator())
+                .append('(')
+                .append(rows.size())
+                .append(" rows, ")
+                .append(matchedObjects)
+                .append(" of ")
+                .append(scannedObjects)
+                .append(" scanned objects matched)")
+                .toString();
+    }
+}
@@ -0,0 +1,57 @@
+package s3.report;
+
+import common.util.DateUtils;
+
+import java.time.Instant;
+
+/**
+ * Exclusive object age bands, from the hottest to the coldest data. Each band is bounded by the matching DateUtils
+ * past period, the same definitions retention rules are expressed in, so an object modified five days ago falls in
+ * PAST_WEEK and not in PAST_DAY.
+ */
+public enum AgeBand {
+
+    PAST_DAY,
+    PAST_WEEK,
+    PAST_MONTH,
+    PAST_TRIMESTER,
+    PAST_SEMESTER,
+    PAST_YEAR,
+    OLDER;
+
+    /**
+     * Returns the epoch millis where every band but OLDER starts, relative to the received instant and in band order,
+     * so the starts are decreasing.
+     *
+     * @param now the instant ages are measured from.
+     *
+     * @return the start of every bounded band.
+     */
+    public static long[] getBandStarts(Instant now) {
+
+        return new long[] {
+                DateUtils.getPastDayPeriod(now).getStartingInstant().toEpochMilli(),
+                DateUtils.getPastWeekPeriod(now).getStartingInstant().toEpochMilli(),
+                DateUtils.getPastMonthPeriod(now).getStartingInstant().toEpochMilli(),
+                DateUtils.getPastTrimesterPeriod(now).getStartingInstant().toEpochMilli(),
+                DateUtils.getPastSemesterPeriod(now).getStartingInstant().toEpochMilli(),
+                DateUtils.getPastYearPeriod(now).getStartingInstant().toEpochMilli()};
+    }
+
+    /**
+     * Returns the ordinal of the band an object modified at the received epoch millis falls in.
+     *
+     * @param lastModifiedMillis the object's last modification, as epoch millis.
+     * @param bandStarts the band starts returned by {@link #getBandStarts(Instant)}.
+     *
+     * @return the band ordinal.
+     */
+    public static int getBandIndex(long lastModifiedMillis, long[] bandStarts) {
+
+        int bandIndex = 0;
+        while ((bandIndex < bandStarts.length) && (lastModifiedMillis < bandStarts[bandIndex])) {
+            bandIndex++;
+        }
+        return bandIndex;
+    }
+}
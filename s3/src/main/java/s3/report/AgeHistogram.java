@@ -0,0 +1,77 @@
+package s3.report;
+
+/**
+ * Object counts and bytes per age band of a bucket prefix, the basis for storage tiering decisions.
+ */
+public class AgeHistogram {
+
+    private final String bucketName;
+    private final String prefix;
+    private final long[] objectCounts;
+    private final long[] sizesInBytes;
+
+    public AgeHistogram(String bucketName, String prefix, long[] objectCounts, long[] sizesInBytes) {
+        this.bucketName = bucketName;
+        this.prefix = prefix;
+        this.objectCounts = objectCounts;
+        this.sizesInBytes = sizesInBytes;
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public long getObjectCount(AgeBand ageBand) {
+        return objectCounts[ageBand.ordinal()];
+    }
+
+    public long getSizeInBytes(AgeBand ageBand) {
+        return sizesInBytes[ageBand.ordinal()];
+    }
+
+    public long getTotalObjectCount() {
+
+        long totalObjectCount = 0L;
+        for (long objectCount : objectCounts) {
+            totalObjectCount += objectCount;
+        }
+        return totalObjectCount;
+    }
+
+    public long getTotalSizeInBytes() {
+
+        long totalSizeInBytes = 0L;
+        for (long sizeInBytes : sizesInBytes) {
+            totalSizeInBytes += sizeInBytes;
+        }
+        return totalSizeInBytes;
+    }
+
+    @Override
+    public String toString() {
+
+        StringBuilder stringBuilder = new StringBuilder(bucketName)
+                .append('/')
+                .append((prefix == null) ? "" : prefix)
+                .append(": ")
+                .append(getTotalObjectCount())
+                .append(" objects, ")
+                .append(getTotalSizeInBytes())
+                .append(" bytes");
+        for (AgeBand ageBand : AgeBand.values()) {
+            stringBuilder.append(System.lineSeparator())
+                    .append("  ")
+                    .append(ageBand)
+                    .append(": ")
+                    .append(getObjectCount(ageBand))
+                    .append(" objects, ")
+                    .append(getSizeInBytes(ageBand))
+                    .append(" bytes");
+        }
+        return stringBuilder.toString();
+    }
+}
@@ -0,0 +1,178 @@
+package s3.retention;
+
+import s3.externalapi.S3Manager;
+import s3.util.Constants;
+import s3.util.DeleteObjectsBatch;
+import s3.util.S3Listings;
+
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+
+/**
+ * Evaluates any number of retention rules with a single streaming scan per bucket.
+ * When several rules match an object the most protective one wins: the object is expired only if it is older than
+ * the longest matching maximum age, and the largest keep-last count matched in a directory applies to all of its
+ * matched objects, which are ranked together. The newest objects of each directory, up to the largest keep-last count
+ * of the bucket's rules, are tracked in small bounded heaps, so memory depends on the number of directories and the
+ * keep-last counts, not on the size of the bucket; each directory's own count is applied once the scan is over.
+ * Deletions are sent in batches of 1000 keys, and the keys S3 fails to delete are reported in the summary.
+ */
+public class RetentionEngine {
+
+    private final S3Manager s3Manager;
+
+    public RetentionEngine(S3Manager s3Manager) {
+        this.s3Manager = s3Manager;
+    }
+
+    public List<RetentionSummary> apply(List<RetentionRule> retentionRules, boolean dryRun) {
+
+        Map<String, List<RetentionRule>> rulesByBucket = new LinkedHashMap<>();
+        for (RetentionRule retentionRule : retentionRules) {
+            rulesByBucket.computeIfAbsent(retentionRule.getBucketName(), bucketName -> new ArrayList<>())
+                    .add(retentionRule);
+        }
+
+        Instant now = Instant.now();
+        List<RetentionSummary> retentionSummaries = new ArrayList<>();
+        for (Map.Entry<String, List<RetentionRule>> entry : rulesByBucket.entrySet()) {
+            retentionSummaries.add(apply(entry.getKey(), entry.getValue(), now, dryRun));
+        }
+        return retentionSummaries;
+    }
+
+    private RetentionSummary apply(String bucketName, List<RetentionRule> retentionRules, Instant now, boolean dryRun) {
+
+        long[] cutoffs = new long[retentionRules.size()];
+        int maximumKeepLast = 0;
+        for (int ruleIndex = 0; ruleIndex < cutoffs.length; ruleIndex++) {
+            cutoffs[ruleIndex] = retentionRules.get(ruleIndex).getCutoff(now).toEpochMilli();
+            maximumKeepLast = Math.max(maximumKeepLast, retentionRules.get(ruleIndex).getKeepLast());
+        }
+
+        DeleteObjectsBatch deleteObjectsBatch = new DeleteObjectsBatch(s3Manager, bucketName, dryRun);
+        Map<String, DirectoryRanking> directoryRankings = new HashMap<>();
+        long scannedObjects = 0L;
+        long matchedObjects = 0L;
+
+        String listingPrefix = getCommonPrefix(retentionRules);
+        try (Stream<S3Object> s3Objects = S3Listings.streamObjects(s3Manager, bucketName, listingPrefix)) {
+            Iterator<S3Object> iterator = s3Objects.iterator();
+            while (iterator.hasNext()) {
+                S3Object s3Object = iterator.next();
+                scannedObjects++;
+
+                long cutoff = Long.MAX_VALUE;
+                int keepLast = 0;
+                boolean matched = false;
+                for (int ruleIndex = 0; ruleIndex < cutoffs.length; ruleIndex++) {
+                    RetentionRule retentionRule = retentionRules.get(ruleIndex);
+                    if (retentionRule.matches(s3Object.key())) {
+                        matched = true;
+                        cutoff = Math.min(cutoff, cutoffs[ruleIndex]);
+                        keepLast = Math.max(keepLast, retentionRule.getKeepLast());
+                    }
+                }
+                if (!matched) {
+                    continue;
+                }
+                matchedObjects++;
+
+                Candidate candidate = new Candidate(
+                        s3Object.key(),
+                        s3Object.size(),
+                        s3Object.lastModified().toEpochMilli() < cutoff,
+                        s3Object.lastModified().toEpochMilli());
+
+                if (maximumKeepLast > 0) {
+                    // Every matched object takes part in the ranking, expired or not. The directory's count is only
+                    // known at the end of the scan, but the objects pushed out of the newest maximumKeepLast are
+                    // beyond any count and may go right away.
+                    DirectoryRanking directoryRanking = directoryRankings.computeIfAbsent(
+                            getDirectory(s3Object.key()),
+                            directory -> new DirectoryRanking());
+                    directoryRanking.keepLast = Math.max(directoryRanking.keepLast, keepLast);
+                    directoryRanking.newestObjects.add(candidate);
+                    candidate = (directoryRanking.newestObjects.size() > maximumKeepLast)
+                            ? directoryRanking.newestObjects.poll()
+                            : null;
+                }
+
+                if ((candidate != null) && candidate.expired) {
+                    deleteObjectsBatch.add(candidate.key, candidate.size);
+                }
+            }
+        }
+
+        for (DirectoryRanking directoryRanking : directoryRankings.values()) {
+            while (directoryRanking.newestObjects.size() > directoryRanking.keepLast) {
+                Candidate candidate = directoryRanking.newestObjects.poll();
+                if (candidate.expired) {
+                    deleteObjectsBatch.add(candidate.key, candidate.size);
+                }
+            }
+        }
+        deleteObjectsBatch.flush();
+
+        return new RetentionSummary(
+                bucketName,
+                dryRun,
+                scannedObjects,
+                matchedObjects,
+                deleteObjectsBatch.getDeletedObjects(),
+                deleteObjectsBatch.getDeletedBytes(),
+                deleteObjectsBatch.getFailedKeys());
+    }
+
+    private static String getCommonPrefix(List<RetentionRule> retentionRules) {
+
+        String commonPrefix = retentionRules.get(0).getPrefix();
+        for (RetentionRule retentionRule : retentionRules) {
+            String prefix = retentionRule.getPrefix();
+            int length = 0;
+            while ((length < commonPrefix.length())
+                    && (length < prefix.length())
+                    && (commonPrefix.charAt(length) == prefix.charAt(length))) {
+                length++;
+            }
+            commonPrefix = commonPrefix.substring(0, length);
+        }
+        return commonPrefix.isEmpty() ? null : commonPrefix;
+    }
+
+    private static String getDirectory(String key) {
+        return key.substring(0, key.lastIndexOf(Constants.SLASH_CHAR) + 1);
+    }
+
+    private static final class DirectoryRanking {
+
+        private final PriorityQueue<Candidate> newestObjects = new PriorityQueue<>(
+                Comparator.comparingLong((Candidate candidate) -> candidate.lastModifiedMillis));
+        private int keepLast;
+    }
+
+    private static final class Candidate {
+
+        private final String key;
+        private final long size;
+        private final boolean expired;
+        private final long lastModifiedMillis;
+
+        private Candidate(String key, long size, boolean expired, long lastModifiedMillis) {
+            this.key = key;
+            this.size = size;
+            this.expired = expired;
+            this.lastModifiedMillis = lastModifiedMillis;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package s3.retention;
+
+import common.util.DateUtils;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Declares how long the objects of a bucket matching a prefix, and optionally a key pattern, are retained.
+ * Objects older than the maximum age are expired, except for the newest {@code keepLast} objects of every
+ * directory, which are always kept. The maximum age is required: a zero age, which expires every object beyond the
+ * newest {@code keepLast}, has to be set explicitly.
+ */
+public final class RetentionRule {
+
+    private final String bucketName;
+    private final String prefix;
+    private final Pattern keyPattern;
+    private final int maximumAge;
+    private final ChronoUnit maximumAgeUnit;
+    private final int keepLast;
+
+    private RetentionRule(Builder builder) {
+        this.bucketName = builder.bucketName;
+        this.prefix = (builder.prefix == null) ? "" : builder.prefix;
+        this.keyPattern = (builder.keyPattern == null) ? null : Pattern.compile(builder.keyPattern);
+        this.maximumAge = builder.maximumAge;
+        this.maximumAgeUnit = builder.maximumAgeUnit;
+        this.keepLast = builder.keepLast;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public int getMaximumAge() {
+        return maximumAge;
+    }
+
+    public ChronoUnit getMaximumAgeUnit() {
+        return maximumAgeUnit;
+    }
+
+    public int getKeepLast() {
+        return keepLast;
+    }
+
+    public boolean matches(String key) {
+        return key.startsWith(prefix) && ((keyPattern == null) || keyPattern.matcher(key).matches());
+    }
+
+    /**
+     * Returns the instant before which matching objects are expired, computed with the DateUtils unit semantics.
+     *
+     * @param now the instant the rules are evaluated at.
+     *
+     * @return the expiration cutoff.
+     */
+    public Instant getCutoff(Instant now) {
+        return DateUtils.getPriorInstant(now, maximumAge, maximumAgeUnit);
+    }
+
+    @Override
+    public String toString() {
+        return bucketName + "/" + prefix
+                + ((keyPattern == null) ? "" : " ~ " + keyPattern.pattern())
+                + " older than " + maximumAge + " " + maximumAgeUnit
+                + ((keepLast > 0) ? ", keeping the last " + keepLast : "");
+    }
+
+    public static final class Builder {
+
+        private String bucketName;
+        private String prefix;
+        private String keyPattern;
+        private int maximumAge;
+        private ChronoUnit maximumAgeUnit = ChronoUnit.DAYS;
+        private int keepLast;
+        private boolean maximumAgeSet;
+
+        private Builder() {}
+
+        public Builder bucketName(String bucketName) {
+            this.bucketName = bucketName;
+            return this;
+        }
+
+        public Builder prefix(String prefix) {
+            this.prefix = prefix;
+            return this;
+        }
+
+        public Builder keyPattern(String keyPattern) {
+            this.keyPattern = keyPattern;
+            return this;
+        }
+
+        public Builder maximumAge(int maximumAge, ChronoUnit maximumAgeUnit) {
+            this.maximumAge = maximumAge;
+            this.maximumAgeUnit = maximumAgeUnit;
+            this.maximumAgeSet = true;
+            return this;
+        }
+
+        public Builder maximumAgeInTrimesters(int maximumAge) {
+            return maximumAge(maximumAge * 3, ChronoUnit.MONTHS);
+        }
+
+        public Builder maximumAgeInSemesters(int maximumAge) {
+            return maximumAge(maximumAge * 6, ChronoUnit.MONTHS);
+        }
+
+        public Builder keepLast(int keepLast) {
+            this.keepLast = keepLast;
+            return this;
+        }
+
+        public RetentionRule build() {
+
+            if (!maximumAgeSet) {
+                throw new IllegalArgumentException("Retention rule for " + bucketName + "/"
+                        + ((prefix == null) ? "" : prefix) + " has no maximum age.");
+            }
+            if ((maximumAge < 0) || (keepLast < 0)) {
+                throw new IllegalArgumentException("Retention rule maximum age and keep-last count must not be"
+                        + " negative: " + maximumAge + ", " + keepLast);
+            }
+            return new RetentionRule(this);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package s3.retention;
+
+import java.util.List;
+
+public class RetentionSummary {
+
+    private final String bucketName;
+    private final boolean dryRun;
+    private final long scannedObjects;
+    private final long matchedObjects;
+    private final long deletedObjects;
+    private final long deletedBytes;
+    private final List<String> failedKeys;
+
+    public RetentionSummary(
+            String bucketName,
+            boolean dryRun,
+            long scannedObjects,
+            long matchedObjects,
+            long deletedObjects,
+            long deletedBytes,
+            List<String> failedKeys) {
+
+        this.bucketName = bucketName;
+        this.dryRun = dryRun;
+        this.scannedObjects = scannedObjects;
+        this.matchedObjects = matchedObjects;
+        this.deletedObjects = deletedObjects;
+        this.deletedBytes = deletedBytes;
+        this.failedKeys = failedKeys;
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public long getScannedObjects() {
+        return scannedObjects;
+    }
+
+    public long getMatchedObjects() {
+        return matchedObjects;
+    }
+
+    public long getDeletedObjects() {
+        return deletedObjects;
+    }
+
+    public long getDeletedBytes() {
+        return deletedBytes;
+    }
+
+    /**
+     * Returns the keys S3 reported as not deleted, which are not counted in the deleted objects and bytes.
+     *
+     * @return the failed keys.
+     */
+    public List<String> getFailedKeys() {
+        return failedKeys;
+    }
+
+    @Override
+    public String toString() {
+        return bucketName + (dryRun ? " (dry run)" : "")
+                + ": scanned " + scannedObjects
+                + ", matched " + matchedObjects
+                + ", " + (dryRun ? "would delete " : "deleted ") + deletedObjects
+                + " objects (" + deletedBytes + " bytes)"
+                + (failedKeys.isEmpty() ? "" : ", failed to delete " + failedKeys.size());
+    }
+}
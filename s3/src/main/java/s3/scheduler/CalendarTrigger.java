@@ -0,0 +1,57 @@
+package s3.scheduler;
+
+import common.util.DateUtils;
+
+import org.joda.time.DateTime;
+
+import java.time.Instant;
+
+/**
+ * Fires at the start of every calendar period, as computed by the DateUtils next period methods in the default time
+ * zone. Weeks start on Monday.
+ */
+public enum CalendarTrigger implements Trigger {
+
+    START_OF_HOUR {
+        @Override
+        public Instant getNextExecutionTime(Instant after) {
+            return DateUtils.getNextHourPeriod(new DateTime(after.toEpochMilli())).getStartingInstant();
+        }
+    },
+    START_OF_DAY {
+        @Override
+        public Instant getNextExecutionTime(Instant after) {
+            return DateUtils.getNextDayPeriod(new DateTime(after.toEpochMilli())).getStartingInstant();
+        }
+    },
+    START_OF_WEEK {
+        @Override
+        public Instant getNextExecutionTime(Instant after) {
+            return DateUtils.getNextWeekPeriod(new DateTime(after.toEpochMilli())).getStartingInstant();
+        }
+    },
+    START_OF_MONTH {
+        @Override
+        public Instant getNextExecutionTime(Instant after) {
+            return DateUtils.getNextMonthPeriod(new DateTime(after.toEpochMilli())).getStartingInstant();
+        }
+    },
+    START_OF_TRIMESTER {
+        @Override
+        public Instant getNextExecutionTime(Instant after) {
+            return DateUtils.getNextTrimesterPeriod(new DateTime(after.toEpochMilli())).getStartingInstant();
+        }
+    },
+    START_OF_SEMESTER {
+        @Override
+        public Instant getNextExecutionTime(Instant after) {
+            return DateUtils.getNextSemesterPeriod(new DateTime(after.toEpochMilli())).getStartingInstant();
+        }
+    },
+    START_OF_YEAR {
+        @Override
+        public Instant getNextExecutionTime(Instant after) {
+            return DateUtils.getNextYearPeriod(new DateTime(after.toEpochMilli())).getStartingInstant();
+        }
+    }
+}
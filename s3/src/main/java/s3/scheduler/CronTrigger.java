@@ -0,0 +1,150 @@
+package s3.scheduler;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Fires on the times matched by a standard five-field cron expression: minute, hour, day of month, month and day of
+ * week. Every field accepts '*', single values, ranges such as '1-5', lists such as '0,30' and steps such as '*&#47;15'
+ * or '10-50/20'; Sunday is either 0 or 7. As in cron, when both the day of month and the day of week are restricted a
+ * day matches if either of them does. Each field is compiled to a bit mask, so matching costs a few bit operations.
+ */
+public class CronTrigger implements Trigger {
+
+    // Searching further than this without a match means the expression can never fire, e.g. on the 30th of February.
+    private static final int MAXIMUM_SEARCH_YEARS = 8;
+
+    private final String expression;
+    private final ZoneId zoneId;
+    private final long minutes;
+    private final long hours;
+    private final long daysOfMonth;
+    private final long months;
+    private final long daysOfWeek;
+    private final boolean daysOfMonthRestricted;
+    private final boolean daysOfWeekRestricted;
+
+    public CronTrigger(String expression, ZoneId zoneId) {
+
+        String[] fields = expression.trim().split("\\s+");
+        if (fields.length != 5) {
+            throw new IllegalArgumentException("Cron expression must have five fields: " + expression);
+        }
+
+        this.expression = expression;
+        this.zoneId = zoneId;
+        this.minutes = parseField(fields[0], 0, 59, expression);
+        this.hours = parseField(fields[1], 0, 23, expression);
+        this.daysOfMonth = parseField(fields[2], 1, 31, expression);
+        this.months = parseField(fields[3], 1, 12, expression);
+
+        long parsedDaysOfWeek = parseField(fields[4], 0, 7, expression);
+        this.daysOfWeek = ((parsedDaysOfWeek & (1L << 7)) != 0) ? (parsedDaysOfWeek | 1L) : parsedDaysOfWeek;
+
+        this.daysOfMonthRestricted = !fields[2].equals("*");
+        this.daysOfWeekRestricted = !fields[4].equals("*");
+    }
+
+    public CronTrigger(String expression) {
+        this(expression, ZoneId.systemDefault());
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    @Override
+    public Instant getNextExecutionTime(Instant after) {
+
+        ZonedDateTime candidate = after.atZone(zoneId).truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        int maximumYear = candidate.getYear() + MAXIMUM_SEARCH_YEARS;
+
+        // Each mismatch jumps to the start of the next month, day, hour or minute, so a search visits at most a few
+        // hundred candidates however sparse the expression is.
+        while (candidate.getYear() <= maximumYear) {
+            if (!isSet(months, candidate.getMonthValue())) {
+                candidate = candidate.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS).plusMonths(1);
+            } else if (!matchesDay(candidate)) {
+                candidate = candidate.truncatedTo(ChronoUnit.DAYS).plusDays(1);
+            } else if (!isSet(hours, candidate.getHour())) {
+                candidate = candidate.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+            } else if (!isSet(minutes, candidate.getMinute())) {
+                candidate = candidate.plusMinutes(1);
+            } else {
+                return candidate.toInstant();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return expression + " (" + zoneId + ")";
+    }
+
+    private boolean matchesDay(ZonedDateTime candidate) {
+
+        boolean dayOfMonthMatches = isSet(daysOfMonth, candidate.getDayOfMonth());
+        boolean dayOfWeekMatches = isSet(daysOfWeek, candidate.getDayOfWeek().getValue() % 7);
+
+        if (daysOfMonthRestricted && daysOfWeekRestricted) {
+            return dayOfMonthMatches || dayOfWeekMatches;
+        }
+        return dayOfMonthMatches && dayOfWeekMatches;
+    }
+
+    private static boolean isSet(long mask, int value) {
+        return (mask & (1L << value)) != 0;
+    }
+
+    private static long parseField(String field, int minimum, int maximum, String expression) {
+
+        long mask = 0L;
+        for (String part : field.split(",")) {
+            int step = 1;
+            int slash = part.indexOf('/');
+            String range = part;
+            if (slash >= 0) {
+                step = parseValue(part.substring(slash + 1), 1, maximum, expression);
+                range = part.substring(0, slash);
+            }
+
+            int first;
+            int last;
+            if (range.equals("*")) {
+                first = minimum;
+                last = maximum;
+            } else {
+                int dash = range.indexOf('-');
+                if (dash >= 0) {
+                    first = parseValue(range.substring(0, dash), minimum, maximum, expression);
+                    last = parseValue(range.substring(dash + 1), first, maximum, expression);
+                } else {
+                    first = parseValue(range, minimum, maximum, expression);
+                    last = (slash >= 0) ? maximum : first;
+                }
+            }
+
+            for (int value = first; value <= last; value += step) {
+                mask |= 1L << value;
+            }
+        }
+        return mask;
+    }
+
+    private static int parseValue(String value, int minimum, int maximum, String expression) {
+
+        int parsedValue;
+        try {
+            parsedValue = Integer.parseInt(value);
+        } catch (NumberFormatException exc) {
+            throw new IllegalArgumentException("Invalid cron expression: " + expression, exc);
+        }
+        if ((parsedValue < minimum) || (parsedValue > maximum)) {
+            throw new IllegalArgumentException("Cron value out of range in expression: " + expression);
+        }
+        return parsedValue;
+    }
+}
@@ -0,0 +1,30 @@
+package s3.scheduler;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Fires at a fixed interval, measured from the previous scheduled execution time.
+ */
+public class IntervalTrigger implements Trigger {
+
+    private final Duration interval;
+
+    public IntervalTrigger(Duration interval) {
+
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Trigger interval must be positive: " + interval);
+        }
+        this.interval = interval;
+    }
+
+    @Override
+    public Instant getNextExecutionTime(Instant after) {
+        return after.plus(interval);
+    }
+
+    @Override
+    public String toString() {
+        return "every " + interval;
+    }
+}
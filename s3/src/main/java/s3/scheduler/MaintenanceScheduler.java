@@ -0,0 +1,108 @@
+package s3.scheduler;
+
+import s3.util.Constants;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs recurring maintenance jobs, such as retention, size reports or restore polling, inside one long-lived process.
+ * Timers are kept in a hashed timing wheel, so thousands of jobs cost one ticker thread and constant time per
+ * schedule, and due jobs run on a fixed pool of worker threads. Every job is rescheduled from its nominal execution
+ * time before it runs, which keeps its cadence independent of how long it takes; executions missed while the process
+ * was busy are skipped rather than replayed.
+ */
+public class MaintenanceScheduler implements AutoCloseable {
+
+    private final TimingWheel timingWheel;
+    private final ExecutorService workerExecutorService;
+    private final List<ScheduledJobHandle> scheduledJobHandles = new CopyOnWriteArrayList<>();
+
+    public MaintenanceScheduler(int workerThreads, Duration tickDuration) {
+
+        AtomicInteger workerThreadCount = new AtomicInteger();
+        this.workerExecutorService = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "s3-scheduler-worker-" + workerThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timingWheel = new TimingWheel(
+                tickDuration.toMillis(),
+                Constants.DEFAULT_SCHEDULER_WHEEL_SIZE,
+                workerExecutorService);
+    }
+
+    public MaintenanceScheduler() {
+        this(Constants.DEFAULT_SCHEDULER_WORKER_THREADS, Duration.ofMillis(Constants.DEFAULT_SCHEDULER_TICK_IN_MILLIS));
+    }
+
+    public ScheduledJobHandle schedule(ScheduledJob scheduledJob) {
+
+        ScheduledJobHandle scheduledJobHandle = new ScheduledJobHandle(scheduledJob);
+        scheduledJobHandles.add(scheduledJobHandle);
+        scheduleNextExecution(scheduledJobHandle, Instant.now());
+        return scheduledJobHandle;
+    }
+
+    public List<ScheduledJobHandle> getScheduledJobHandles() {
+        return scheduledJobHandles;
+    }
+
+    @Override
+    public void close() {
+
+        for (ScheduledJobHandle scheduledJobHandle : scheduledJobHandles) {
+            scheduledJobHandle.cancel();
+        }
+        timingWheel.stop();
+        workerExecutorService.shutdown();
+        try {
+            workerExecutorService.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void execute(ScheduledJobHandle scheduledJobHandle, Instant executionTime) {
+
+        if (scheduledJobHandle.isCancelled()) {
+            return;
+        }
+        scheduleNextExecution(scheduledJobHandle, executionTime);
+        scheduledJobHandle.execute();
+    }
+
+    private void scheduleNextExecution(ScheduledJobHandle scheduledJobHandle, Instant after) {
+
+        ScheduledJob scheduledJob = scheduledJobHandle.getScheduledJob();
+        Instant now = Instant.now();
+
+        Instant nextExecutionTime = scheduledJob.getTrigger().getNextExecutionTime(after);
+        if ((nextExecutionTime != null) && nextExecutionTime.isBefore(now)) {
+            nextExecutionTime = scheduledJob.getTrigger().getNextExecutionTime(now);
+        }
+        if (nextExecutionTime == null) {
+            scheduledJobHandle.setNextExecution(null, null);
+            return;
+        }
+
+        long jitterMillis = scheduledJob.getMaxJitter().toMillis();
+        long delayMillis = nextExecutionTime.toEpochMilli() - now.toEpochMilli()
+                + ((jitterMillis > 0) ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0L);
+
+        Instant executionTime = nextExecutionTime;
+        scheduledJobHandle.setNextExecution(
+                nextExecutionTime,
+                timingWheel.schedule(
+                        () -> execute(scheduledJobHandle, executionTime),
+                        delayMillis,
+                        scheduledJobHandle::skip));
+    }
+}
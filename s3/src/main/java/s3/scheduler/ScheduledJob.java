@@ -0,0 +1,104 @@
+package s3.scheduler;
+
+import java.time.Duration;
+
+/**
+ * A recurring task with its trigger, the maximum number of its executions allowed to overlap, and the maximum random
+ * delay added to every execution so that jobs sharing a trigger do not all hit S3 at the same instant.
+ */
+public final class ScheduledJob {
+
+    private final String name;
+    private final Trigger trigger;
+    private final Runnable task;
+    private final int maxConcurrency;
+    private final Duration maxJitter;
+
+    private ScheduledJob(Builder builder) {
+        this.name = builder.name;
+        this.trigger = builder.trigger;
+        this.task = builder.task;
+        this.maxConcurrency = builder.maxConcurrency;
+        this.maxJitter = builder.maxJitter;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Trigger getTrigger() {
+        return trigger;
+    }
+
+    public Runnable getTask() {
+        return task;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public Duration getMaxJitter() {
+        return maxJitter;
+    }
+
+    @Override
+    public String toString() {
+        return name + " [" + trigger + "]";
+    }
+
+    public static final class Builder {
+
+        private String name;
+        private Trigger trigger;
+        private Runnable task;
+        private int maxConcurrency = 1;
+        private Duration maxJitter = Duration.ZERO;
+
+        private Builder() {}
+
+        public Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public Builder trigger(Trigger trigger) {
+            this.trigger = trigger;
+            return this;
+        }
+
+        public Builder cron(String expression) {
+            return trigger(new CronTrigger(expression));
+        }
+
+        public Builder task(Runnable task) {
+            this.task = task;
+            return this;
+        }
+
+        public Builder maxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        public Builder maxJitter(Duration maxJitter) {
+            this.maxJitter = maxJitter;
+            return this;
+        }
+
+        public ScheduledJob build() {
+
+            if ((trigger == null) || (task == null)) {
+                throw new IllegalArgumentException("A scheduled job needs a trigger and a task.");
+            }
+            if (maxConcurrency < 1) {
+                throw new IllegalArgumentException("Scheduled job concurrency must be positive: " + maxConcurrency);
+            }
+            return new ScheduledJob(this);
+        }
+    }
+}
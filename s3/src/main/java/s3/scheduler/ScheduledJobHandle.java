@@ -0,0 +1,113 @@
+package s3.scheduler;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks a job registered in a {@link MaintenanceScheduler}: its next execution time and execution counters, and
+ * allows it to be cancelled.
+ */
+public class ScheduledJobHandle {
+
+    private final ScheduledJob scheduledJob;
+    private final AtomicInteger runningExecutions = new AtomicInteger();
+    private final AtomicLong completedExecutions = new AtomicLong();
+    private final AtomicLong failedExecutions = new AtomicLong();
+    private final AtomicLong skippedExecutions = new AtomicLong();
+    private volatile RuntimeException lastFailure;
+    private volatile Instant nextExecutionTime;
+    private volatile TimingWheel.Timeout timeout;
+    private volatile boolean cancelled;
+
+    ScheduledJobHandle(ScheduledJob scheduledJob) {
+        this.scheduledJob = scheduledJob;
+    }
+
+    public ScheduledJob getScheduledJob() {
+        return scheduledJob;
+    }
+
+    public Instant getNextExecutionTime() {
+        return nextExecutionTime;
+    }
+
+    public int getRunningExecutions() {
+        return runningExecutions.get();
+    }
+
+    public long getCompletedExecutions() {
+        return completedExecutions.get();
+    }
+
+    public long getFailedExecutions() {
+        return failedExecutions.get();
+    }
+
+    /**
+     * Returns how many executions were skipped because the job was already running at its maximum concurrency, or
+     * because the worker pool rejected them.
+     *
+     * @return the number of skipped executions.
+     */
+    public long getSkippedExecutions() {
+        return skippedExecutions.get();
+    }
+
+    /**
+     * @return the failure of the last failed execution, or {@code null} if none failed.
+     */
+    public RuntimeException getLastFailure() {
+        return lastFailure;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void cancel() {
+
+        cancelled = true;
+        TimingWheel.Timeout currentTimeout = timeout;
+        if (currentTimeout != null) {
+            currentTimeout.cancel();
+        }
+    }
+
+    void setNextExecution(Instant nextExecutionTime, TimingWheel.Timeout timeout) {
+
+        this.nextExecutionTime = nextExecutionTime;
+        this.timeout = timeout;
+        if (cancelled && (timeout != null)) {
+            timeout.cancel();
+        }
+    }
+
+    void execute() {
+
+        if (runningExecutions.incrementAndGet() > scheduledJob.getMaxConcurrency()) {
+            runningExecutions.decrementAndGet();
+            skip();
+            return;
+        }
+        try {
+            scheduledJob.getTask().run();
+            completedExecutions.incrementAndGet();
+        } catch (RuntimeException exc) {
+            lastFailure = exc;
+            failedExecutions.incrementAndGet();
+        } finally {
+            runningExecutions.decrementAndGet();
+        }
+    }
+
+    void skip() {
+        skippedExecutions.incrementAndGet();
+    }
+
+    @Override
+    public String toString() {
+        return scheduledJob + ": " + completedExecutions + " completed, " + failedExecutions + " failed, "
+                + skippedExecutions + " skipped, next at " + nextExecutionTime;
+    }
+}
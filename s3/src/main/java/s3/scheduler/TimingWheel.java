@@ -0,0 +1,155 @@
+package s3.scheduler;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timing wheel: a ring of buckets, one per tick, served by a single ticker thread. Scheduling only appends to a
+ * lock-free queue and cancelling only sets a flag, both in constant time; on every tick the ticker moves the queued
+ * timeouts into their buckets and walks the current bucket alone. The ticker never runs tasks itself, expired ones
+ * are handed to the executor. Timeouts fire with at most one tick of delay.
+ */
+final class TimingWheel {
+
+    private final long tickNanos;
+    private final int mask;
+    private final Timeout[] buckets;
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final Executor executor;
+    private final Thread tickerThread;
+    private final long startNanos;
+    private volatile boolean running = true;
+
+    // Only touched by the ticker thread.
+    private long tick;
+
+    TimingWheel(long tickMillis, int wheelSize, Executor executor) {
+
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.buckets = new Timeout[Integer.highestOneBit(Math.max(wheelSize - 1, 1)) << 1];
+        this.mask = buckets.length - 1;
+        this.executor = executor;
+        this.startNanos = System.nanoTime();
+        this.tickerThread = new Thread(this::run, "s3-scheduler-ticker");
+        this.tickerThread.setDaemon(true);
+        this.tickerThread.start();
+    }
+
+    Timeout schedule(Runnable task, long delayMillis) {
+        return schedule(task, delayMillis, () -> { });
+    }
+
+    /**
+     * Schedules a task, running the rejection handler on the ticker thread if the executor rejects the task.
+     */
+    Timeout schedule(Runnable task, long delayMillis, Runnable rejectionHandler) {
+
+        Timeout timeout = new Timeout(task, rejectionHandler, System.nanoTime() - startNanos
+                + TimeUnit.MILLISECONDS.toNanos(Math.max(delayMillis, 0L)));
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    void stop() {
+
+        running = false;
+        tickerThread.interrupt();
+        try {
+            tickerThread.join();
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+
+        while (running) {
+            long tickDeadline = startNanos + (tick + 1) * tickNanos;
+            long sleepNanos;
+            while (running && ((sleepNanos = tickDeadline - System.nanoTime()) > 0)) {
+                LockSupport.parkNanos(this, sleepNanos);
+            }
+            if (!running) {
+                return;
+            }
+
+            transferPendingTimeouts();
+            expireTimeouts(buckets[(int) (tick & mask)], (int) (tick & mask));
+            tick++;
+        }
+    }
+
+    private void transferPendingTimeouts() {
+
+        Timeout timeout;
+        while ((timeout = pendingTimeouts.poll()) != null) {
+            if (timeout.cancelled) {
+                continue;
+            }
+            long targetTick = Math.max(timeout.deadlineNanos / tickNanos, tick);
+            timeout.remainingRounds = (targetTick - tick) / buckets.length;
+
+            int bucketIndex = (int) (targetTick & mask);
+            timeout.next = buckets[bucketIndex];
+            buckets[bucketIndex] = timeout;
+        }
+    }
+
+    private void expireTimeouts(Timeout head, int bucketIndex) {
+
+        Timeout previous = null;
+        Timeout timeout = head;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            boolean expired = !timeout.cancelled && (timeout.remainingRounds <= 0);
+            if (timeout.cancelled || expired) {
+                if (previous == null) {
+                    buckets[bucketIndex] = next;
+                } else {
+                    previous.next = next;
+                }
+                timeout.next = null;
+                if (expired) {
+                    dispatch(timeout);
+                }
+            } else {
+                timeout.remainingRounds--;
+                previous = timeout;
+            }
+            timeout = next;
+        }
+    }
+
+    private void dispatch(Timeout timeout) {
+
+        try {
+            executor.execute(timeout.task);
+        } catch (RejectedExecutionException exc) {
+            timeout.rejectionHandler.run();
+        }
+    }
+
+    static final class Timeout {
+
+        private final Runnable task;
+        private final Runnable rejectionHandler;
+        private final long deadlineNanos;
+        private volatile boolean cancelled;
+        private long remainingRounds;
+        private Timeout next;
+
+        private Timeout(Runnable task, Runnable rejectionHandler, long deadlineNanos) {
+            this.task = task;
+            this.rejectionHandler = rejectionHandler;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package s3.scheduler;
+
+import java.time.Instant;
+
+/**
+ * Decides when a scheduled job runs next.
+ */
+public interface Trigger {
+
+    /**
+     * Returns the first execution time strictly after the received instant.
+     *
+     * @param after the instant after which the next execution is searched.
+     *
+     * @return the next execution time, or null if the trigger never fires again.
+     */
+    Instant getNextExecutionTime(Instant after);
+}
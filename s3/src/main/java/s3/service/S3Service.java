@@ -1,37 +1,310 @@
 package s3.service;
 
+import common.model.Period;
+import common.model.StorageQuantity;
 import common.util.DateUtils;
 import common.util.StorageUtils;
 
+import s3.browse.DirectoryBrowser;
+import s3.browse.DirectoryEntry;
+import s3.browse.DirectoryPage;
+import s3.checkpoint.CheckpointJournal;
+import s3.checkpoint.ResumableScanner;
+import s3.dedup.DuplicateFinder;
+import s3.dedup.DuplicateReport;
+import s3.dedup.DuplicateSet;
+import s3.dedup.ObjectLocation;
+import s3.diff.DiffEntry;
+import s3.diff.ListingDiff;
+import s3.diff.ListingFile;
+import s3.events.EventIndexer;
+import s3.events.ObjectIndex;
 import s3.exception.InvalidDirectoryPathException;
+import s3.existence.ObjectExistenceChecker;
+import s3.externalapi.RegionRoutingS3Manager;
+import s3.externalapi.S3ClientConfiguration;
 import s3.externalapi.S3Manager;
-import s3.externalapi.S3ManagerImpl;
+import s3.index.KeyRadixTree;
+import s3.index.PrefixSummary;
+import s3.partition.DatePartitionLayout;
+import s3.query.ListingQueryEngine;
+import s3.query.QueryPlan;
+import s3.query.QueryResult;
+import s3.report.AgeBand;
+import s3.report.AgeHistogram;
+import s3.retention.RetentionEngine;
+import s3.retention.RetentionRule;
+import s3.retention.RetentionSummary;
+import s3.snapshot.BucketSnapshot;
+import s3.transfer.CopyResult;
+import s3.transfer.DirectorySynchronizer;
+import s3.transfer.PrefixCopier;
+import s3.transfer.SyncDirection;
+import s3.transfer.SyncResult;
+import s3.util.Constants;
 import s3.util.Messages;
 import s3.util.S3CommonUtils;
+import s3.util.S3Listings;
 
+import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.model.*;
 import software.amazon.awssdk.utils.CollectionUtils;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class S3Service {
 
     private final S3Manager s3Manager;
+    private final Map<String, ObjectExistenceChecker> existenceCheckers = new ConcurrentHashMap<>();
+    private final Map<String, KeyRadixTree> keyIndexes = new ConcurrentHashMap<>();
+    private volatile EventIndexer eventIndexer;
 
     public S3Service() {
-        this.s3Manager = new S3ManagerImpl();
+        this.s3Manager = new RegionRoutingS3Manager();
+    }
+
+    public S3Service(S3ClientConfiguration s3ClientConfiguration) {
+        this.s3Manager = new RegionRoutingS3Manager(s3ClientConfiguration);
     }
 
     public S3Service(S3Manager s3Manager) {
         this.s3Manager = s3Manager;
     }
 
+    /**
+     * Answers storage size and modification date queries about the buckets of the indexer from its indexes, once they
+     * are loaded, instead of listing the buckets.
+     *
+     * @param eventIndexer the started indexer, or null to always list.
+     */
+    public void useEventIndex(EventIndexer eventIndexer) {
+        this.eventIndexer = eventIndexer;
+    }
+
+    /**
+     * Loads a Bloom filter of the bucket's keys, so that {@link #objectExists(String, String)} and
+     * {@link #filterExisting(String, Collection)} answer most missing keys without a HeadObject request. The copies,
+     * moves and uploads of this service record the keys they write; keys written to the bucket by other means must be
+     * reported with {@link #recordObjectWrite(String, String)}.
+     *
+     * @param bucketName the bucket name.
+     *
+     * @return the existence checker of the bucket, to refresh or schedule refreshes of its filter.
+     */
+    public ObjectExistenceChecker enableExistenceFilter(String bucketName) {
+
+        ObjectExistenceChecker existenceChecker = new ObjectExistenceChecker(s3Manager, bucketName);
+        ObjectExistenceChecker enabledChecker = existenceCheckers.putIfAbsent(bucketName, existenceChecker);
+        if (enabledChecker != null) {
+            return enabledChecker;
+        }
+
+        // The checker is published before its first listing, so that writes recorded during it reach the new filter,
+        // and answers with HeadObject requests until the listing completes.
+        try {
+            existenceChecker.refresh();
+        } catch (RuntimeException exc) {
+            existenceCheckers.remove(bucketName, existenceChecker);
+            throw exc;
+        }
+        return existenceChecker;
+    }
+
+    public void disableExistenceFilter(String bucketName) {
+        existenceCheckers.remove(bucketName);
+    }
+
+    public boolean objectExists(String bucketName, String key) {
+        return getExistenceChecker(bucketName).objectExists(key);
+    }
+
+    public List<String> filterExisting(String bucketName, Collection<String> keys) {
+        return getExistenceChecker(bucketName).filterExisting(keys);
+    }
+
+    /**
+     * Records a key written to a bucket by other means than this service, such as a {@link s3.transfer.BulkUploader}
+     * given this method as its write recorder, so that the existence filter of the bucket does not report it missing.
+     *
+     * @param bucketName the bucket name.
+     * @param key the written key.
+     */
+    public void recordObjectWrite(String bucketName, String key) {
+
+        ObjectExistenceChecker existenceChecker = existenceCheckers.get(bucketName);
+        if (existenceChecker != null) {
+            existenceChecker.recordWrite(key);
+        }
+    }
+
+    /**
+     * Lists the bucket into an in-memory key index, which then answers directory queries without listing. The index
+     * is not refreshed: the objects this service deletes are removed from it, and it is dropped when the service
+     * writes to the bucket or deletes without knowing which keys, but changes made by other means must be applied to
+     * the returned tree, or the bucket indexed again.
+     *
+     * @param bucketName the bucket name.
+     *
+     * @return the key index of the bucket.
+     */
+    public KeyRadixTree indexKeys(String bucketName) {
+
+        KeyRadixTree keyRadixTree = KeyRadixTree.load(s3Manager, bucketName, null);
+        keyIndexes.put(bucketName, keyRadixTree);
+        return keyRadixTree;
+    }
+
+    public void dropKeyIndex(String bucketName) {
+        keyIndexes.remove(bucketName);
+    }
+
+    /**
+     * Returns whether a path holds objects when read as a directory, unlike {@link S3CommonUtils#isDirectory(String)}
+     * which only checks its trailing slash.
+     *
+     * @param bucketName the bucket name.
+     * @param directoryPath the directory path, with or without its trailing slash.
+     *
+     * @return whether the directory holds objects.
+     */
+    public boolean isDirectory(String bucketName, String directoryPath) {
+
+        KeyRadixTree keyRadixTree = keyIndexes.get(bucketName);
+        if (keyRadixTree != null) {
+            return keyRadixTree.isDirectory(directoryPath);
+        }
+        try (Stream<S3Object> s3Objects = S3Listings.streamObjects(
+                s3Manager,
+                bucketName,
+                S3CommonUtils.normalizePrefix(directoryPath))) {
+
+            return s3Objects.findAny().isPresent();
+        }
+    }
+
+    /**
+     * Returns the immediate subdirectories and objects of a directory as a lazy stream, listing one page at a time
+     * with the slash delimiter and prefetching the next one. The stream must be closed. Use
+     * {@link #summarizeDirectory(String, String)} for the size of each subdirectory.
+     *
+     * @param bucketName the bucket name.
+     * @param directoryPath the directory path, with or without its trailing slash, or an empty path for the root.
+     *
+     * @return the stream of directory entries, in key order.
+     */
+    public Stream<DirectoryEntry> listDirectory(String bucketName, String directoryPath) {
+        return new DirectoryBrowser(s3Manager, true).listDirectory(bucketName, directoryPath);
+    }
+
+    public DirectoryPage listDirectoryPage(String bucketName, String directoryPath, String continuationToken) {
+        return new DirectoryBrowser(s3Manager).listPage(bucketName, directoryPath, continuationToken);
+    }
+
+    public List<DirectoryEntry> walkDirectory(String bucketName, String directoryPath, int maxDepth) {
+
+        return new DirectoryBrowser(s3Manager).walk(
+                bucketName,
+                directoryPath,
+                maxDepth,
+                Constants.DEFAULT_LISTING_PARALLELISM);
+    }
+
+    /**
+     * Returns the objects of a directory and a summary of each of its subdirectories, taken from the key index of the
+     * bucket. Without one, summarizing the subdirectories would list their whole subtrees, so the directory is read
+     * with {@link #listDirectory(String, String)} and the subdirectories are returned unsummarized, see
+     * {@link PrefixSummary#isSummarized()}.
+     *
+     * @param bucketName the bucket name.
+     * @param directoryPath the directory path, with or without its trailing slash, or an empty path for the root.
+     *
+     * @return the directory entries, sorted by key.
+     */
+    public List<PrefixSummary> summarizeDirectory(String bucketName, String directoryPath) {
+
+        KeyRadixTree keyRadixTree = keyIndexes.get(bucketName);
+        if (keyRadixTree != null) {
+            return keyRadixTree.listDirectory(directoryPath);
+        }
+
+        try (Stream<DirectoryEntry> directoryEntries = listDirectory(bucketName, directoryPath)) {
+            return directoryEntries
+                    .map(directoryEntry -> directoryEntry.isDirectory()
+                            ? PrefixSummary.ofCommonPrefix(directoryEntry.getKey())
+                            : new PrefixSummary(
+                                    directoryEntry.getKey(),
+                                    false,
+                                    1L,
+                                    directoryEntry.getSize(),
+                                    directoryEntry.getLastModified(),
+                                    directoryEntry.getLastModified()))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    public CopyResult copyPrefix(
+            String sourceBucketName,
+            String sourcePrefix,
+            String destinationBucketName,
+            String destinationPrefix) {
+
+        return createPrefixCopier().copyPrefix(
+                sourceBucketName,
+                sourcePrefix,
+                destinationBucketName,
+                destinationPrefix,
+                false);
+    }
+
+    public CopyResult movePrefix(
+            String sourceBucketName,
+            String sourcePrefix,
+            String destinationBucketName,
+            String destinationPrefix) {
+
+        try {
+            return createPrefixCopier().copyPrefix(
+                    sourceBucketName,
+                    sourcePrefix,
+                    destinationBucketName,
+                    destinationPrefix,
+                    true);
+        } finally {
+            dropKeyIndex(sourceBucketName);
+        }
+    }
+
+    public List<RetentionSummary> applyRetentionRules(List<RetentionRule> retentionRules, boolean dryRun) {
+
+        try {
+            return new RetentionEngine(s3Manager).apply(retentionRules, dryRun);
+        } finally {
+            if (!dryRun) {
+                retentionRules.forEach(retentionRule -> dropKeyIndex(retentionRule.getBucketName()));
+            }
+        }
+    }
+
     public DeleteObjectsResponse deleteObjects(String bucketName, List<String> keys) {
-        return s3Manager.deleteObjects(bucketName, S3CommonUtils.convertKeysToObjectIdentifiers(keys));
+        return deleteInBatches(bucketName, S3CommonUtils.convertKeysToObjectIdentifiers(keys));
     }
 
     public DeleteBucketResponse deleteBucket(String bucketName, boolean forceDeletion) {
@@ -39,6 +312,7 @@ public class S3Service {
         if (forceDeletion) {
             emptyBucket(bucketName);
         }
+        dropKeyIndex(bucketName);
         return s3Manager.deleteBucket(bucketName);
     }
 
@@ -79,7 +353,7 @@ public class S3Service {
             String prefix) {
 
         List<S3Object> s3Objects = listSpecificPrefixObjects(bucketName, prefix);
-        return s3Manager.deleteObjects(bucketName, S3CommonUtils.convertS3ObjectsToObjectIdentifiers(s3Objects));
+        return deleteInBatches(bucketName, S3CommonUtils.convertS3ObjectsToObjectIdentifiers(s3Objects));
     }
 
     public DeleteObjectsResponse deletePosteriorDateObjects(
@@ -87,7 +361,7 @@ public class S3Service {
             Instant instant) {
 
         List<S3Object> s3Objects = listPosteriorDateObjects(bucketName, instant);
-        return s3Manager.deleteObjects(bucketName, S3CommonUtils.convertS3ObjectsToObjectIdentifiers(s3Objects));
+        return deleteInBatches(bucketName, S3CommonUtils.convertS3ObjectsToObjectIdentifiers(s3Objects));
     }
 
     public DeleteObjectsResponse deletePosteriorDateObjects(
@@ -109,7 +383,35 @@ public class S3Service {
             Instant instant) {
 
         List<S3Object> s3Objects = listPriorDateObjects(bucketName, instant);
-        return s3Manager.deleteObjects(bucketName, S3CommonUtils.convertS3ObjectsToObjectIdentifiers(s3Objects));
+        return deleteInBatches(bucketName, S3CommonUtils.convertS3ObjectsToObjectIdentifiers(s3Objects));
+    }
+
+    /**
+     * Deletes every object of the bucket last modified before the instant, checkpointing its progress to a journal.
+     * When interrupted, calling it again with the same journal resumes after the last deleted batch with the instant
+     * the interrupted call received, which the journal keeps, so that a bound computed at call time does not change
+     * across restarts. The journal is removed once the deletion completes.
+     *
+     * @param bucketName the bucket name.
+     * @param instant the exclusive modification time bound, unless an interrupted deletion is resumed.
+     * @param journalPath the checkpoint journal file.
+     *
+     * @return the number of deleted objects, including those deleted before a restart.
+     *
+     * @throws IOException if the journal cannot be read or written.
+     */
+    public long deletePriorDateObjects(String bucketName, Instant instant, Path journalPath) throws IOException {
+
+        long deletedObjects;
+        try (CheckpointJournal checkpointJournal = CheckpointJournal.open(journalPath)) {
+            deletedObjects = new ResumableScanner(s3Manager, checkpointJournal)
+                    .deletePriorDateObjects(bucketName, null, instant)
+                    .getObjectCount();
+        } finally {
+            dropKeyIndex(bucketName);
+        }
+        Files.deleteIfExists(journalPath);
+        return deletedObjects;
     }
 
     public DeleteObjectsResponse deletePriorDateObjects(
@@ -128,7 +430,7 @@ public class S3Service {
 
     public DeleteObjectsResponse emptyBucket(String bucketName) {
 
-        return s3Manager.deleteObjects(
+        return deleteInBatches(
                 bucketName,
                 S3CommonUtils.convertS3ObjectsToObjectIdentifiers(s3Manager.listObjects(bucketName).contents()));
     }
@@ -169,6 +471,11 @@ public class S3Service {
 
     public List<S3Object> listPriorDateObjects(String bucketName, Instant instant) {
 
+        ObjectIndex objectIndex = getReconciledObjectIndex(bucketName);
+        if (objectIndex != null) {
+            return (objectIndex.getObjectCount() == 0) ? null : objectIndex.listModifiedBetween(null, null, instant);
+        }
+
         ListObjectsResponse listObjectsResponse = s3Manager.listObjects(bucketName);
 
         if ((listObjectsResponse != null) &&
@@ -204,6 +511,11 @@ public class S3Service {
 
     public List<S3Object> listPosteriorDateObjects(String bucketName, Instant instant) {
 
+        ObjectIndex objectIndex = getReconciledObjectIndex(bucketName);
+        if (objectIndex != null) {
+            return (objectIndex.getObjectCount() == 0) ? null : objectIndex.listModifiedBetween(null, instant, null);
+        }
+
         ListObjectsResponse listObjectsResponse = s3Manager.listObjects(bucketName);
 
         if ((listObjectsResponse != null) &&
@@ -226,6 +538,68 @@ public class S3Service {
         return listPosteriorDateObjects(bucketName, Instant.ofEpochMilli(millis));
     }
 
+    /**
+     * Lists the objects of a date-partitioned bucket whose partitions cover the time range. Only the minimal set of
+     * partition prefixes is listed, in parallel, instead of the whole bucket.
+     *
+     * @param bucketName the bucket name.
+     * @param datePartitionLayout the layout of the bucket's keys.
+     * @param startingInstant the inclusive start of the range.
+     * @param endingInstant the exclusive end of the range.
+     *
+     * @return the objects of the covering partitions, in key order.
+     */
+    public List<S3Object> listPartitionedObjects(
+            String bucketName,
+            DatePartitionLayout datePartitionLayout,
+            Instant startingInstant,
+            Instant endingInstant) {
+
+        List<String> prefixes = datePartitionLayout.getPrefixes(startingInstant, endingInstant);
+        if (prefixes.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        ExecutorService executorService = Executors.newFixedThreadPool(
+                Math.min(prefixes.size(), Constants.DEFAULT_LISTING_PARALLELISM));
+        try {
+            List<CompletableFuture<List<S3Object>>> prefixListings = prefixes
+                    .stream()
+                    .map(prefix -> CompletableFuture.supplyAsync(
+                            () -> listAllSpecificPrefixObjects(bucketName, prefix),
+                            executorService))
+                    .collect(Collectors.toList());
+
+            List<S3Object> s3Objects = new ArrayList<>();
+            for (CompletableFuture<List<S3Object>> prefixListing : prefixListings) {
+                s3Objects.addAll(prefixListing.join());
+            }
+            return s3Objects;
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    public List<S3Object> listPartitionedObjects(
+            String bucketName,
+            DatePartitionLayout datePartitionLayout,
+            Period period) {
+
+        return listPartitionedObjects(
+                bucketName,
+                datePartitionLayout,
+                period.getStartingInstant(),
+                period.getEndingInstant());
+    }
+
+    public List<S3Object> listPastWeekPartitionedObjects(String bucketName, DatePartitionLayout datePartitionLayout) {
+        return listPartitionedObjects(bucketName, datePartitionLayout, DateUtils.getPastWeekPeriod());
+    }
+
+    public List<S3Object> listPastMonthPartitionedObjects(String bucketName, DatePartitionLayout datePartitionLayout) {
+        return listPartitionedObjects(bucketName, datePartitionLayout, DateUtils.getPastMonthPeriod());
+    }
+
     public List<Bucket> listPriorDateBuckets(Instant instant) {
 
         ListBucketsResponse listObjectsResponse = s3Manager.listBuckets();
@@ -281,6 +655,15 @@ public class S3Service {
             throw new InvalidDirectoryPathException(Messages.INVALID_DIRECTORY_PATH);
         }
 
+        ObjectIndex objectIndex = getReconciledObjectIndex(bucketName);
+        if (objectIndex != null) {
+            return objectIndex.getStorageSizeInBytes(directoryRelativePath);
+        }
+        KeyRadixTree keyRadixTree = keyIndexes.get(bucketName);
+        if (keyRadixTree != null) {
+            return keyRadixTree.summarize(directoryRelativePath).getTotalSizeInBytes();
+        }
+
         ListObjectsResponse listObjectsResponse = s3Manager.listObjects(bucketName, directoryRelativePath);
 
         Long totalSize = 0L;
@@ -332,6 +715,11 @@ public class S3Service {
 
     public Long getBucketStorageSizeInBytes(String bucketName) {
 
+        ObjectIndex objectIndex = getReconciledObjectIndex(bucketName);
+        if (objectIndex != null) {
+            return objectIndex.getTotalSizeInBytes();
+        }
+
         ListObjectsResponse listObjectsResponse = s3Manager.listObjects(bucketName);
 
         Long totalSize = 0L;
@@ -356,4 +744,460 @@ public class S3Service {
     public double getBucketStorageSizeInTerabytes(String bucketName) {
         return StorageUtils.convertBytesToTerabytes(getBucketStorageSizeInBytes(bucketName));
     }
+
+    /**
+     * Returns the exact storage size of every object in the bucket, listing all of its pages.
+     *
+     * @param bucketName the bucket name.
+     *
+     * @return the bucket storage size.
+     */
+    public StorageQuantity getBucketStorageSize(String bucketName) {
+        return StorageQuantity.ofBytes(sumStorageSizeInBytes(bucketName));
+    }
+
+    public SyncResult sync(
+            Path localDirectory,
+            String bucketName,
+            String prefix,
+            SyncDirection direction,
+            boolean deleteExtras) {
+
+        try {
+            return createDirectorySynchronizer().synchronize(
+                    localDirectory,
+                    bucketName,
+                    prefix,
+                    direction,
+                    deleteExtras);
+        } finally {
+            if ((direction == SyncDirection.UPLOAD) && deleteExtras) {
+                dropKeyIndex(bucketName);
+            }
+        }
+    }
+
+    public SyncResult sync(Path localDirectory, String bucketName, String prefix, SyncDirection direction) {
+        return sync(localDirectory, bucketName, prefix, direction, false);
+    }
+
+    /**
+     * Returns the region of a bucket. A {@link RegionRoutingS3Manager} answers from its cache of bucket regions;
+     * other managers send GetBucketLocation, and callers denied it fall back to the region HeadBucket reports.
+     *
+     * @param bucketName the bucket name.
+     *
+     * @return the region, or null if it could not be resolved.
+     */
+    public Region getBucketRegion(String bucketName) {
+
+        if (s3Manager instanceof RegionRoutingS3Manager) {
+            return ((RegionRoutingS3Manager) s3Manager).getBucketRegion(bucketName);
+        }
+        return S3CommonUtils.resolveBucketRegion(s3Manager, bucketName);
+    }
+
+    /**
+     * Groups buckets by region, see {@link #getBucketRegion(String)}. Buckets whose region could not be resolved are
+     * grouped under the null key.
+     *
+     * @param bucketNames the bucket names.
+     *
+     * @return the bucket names by region.
+     */
+    public Map<Region, List<String>> groupBucketsByRegion(Collection<String> bucketNames) {
+
+        Map<Region, List<String>> bucketNamesByRegion = new HashMap<>();
+        for (String bucketName : bucketNames) {
+            bucketNamesByRegion.computeIfAbsent(getBucketRegion(bucketName), region -> new ArrayList<>())
+                    .add(bucketName);
+        }
+        return bucketNamesByRegion;
+    }
+
+    /**
+     * Returns the exact storage size of every object in the bucket, checkpointing the scan to a journal so that an
+     * interrupted scan resumes where it stopped when called again with the same journal. The journal is removed once
+     * the scan completes.
+     *
+     * @param bucketName the bucket name.
+     * @param journalPath the checkpoint journal file.
+     *
+     * @return the bucket storage size in bytes.
+     *
+     * @throws IOException if the journal cannot be read or written.
+     */
+    public long getBucketStorageSizeInBytes(String bucketName, Path journalPath) throws IOException {
+
+        long sizeInBytes;
+        try (CheckpointJournal checkpointJournal = CheckpointJournal.open(journalPath)) {
+            sizeInBytes = new ResumableScanner(s3Manager, checkpointJournal)
+                    .sumStorageSize(bucketName, null)
+                    .getSizeInBytes();
+        }
+        Files.deleteIfExists(journalPath);
+        return sizeInBytes;
+    }
+
+    /**
+     * Returns the storage size of every bucket of the account like {@link #getBucketsStorageSizeInBytes()}, with
+     * every bucket checkpointed as a partition of the journal. A restarted scan skips the buckets already scanned and
+     * resumes the others after their last checkpointed key. The journal is removed once every bucket is scanned.
+     *
+     * @param journalPath the checkpoint journal file.
+     *
+     * @return the storage size in bytes of each bucket, by bucket name.
+     *
+     * @throws IOException if the journal cannot be read or written.
+     */
+    public Map<String, Long> getBucketsStorageSizeInBytes(Path journalPath) throws IOException {
+
+        List<String> bucketNames = s3Manager.listBuckets()
+                .buckets()
+                .stream()
+                .map(Bucket::name)
+                .collect(Collectors.toList());
+
+        Map<Region, List<String>> bucketNamesByRegion = groupBucketsByRegion(bucketNames);
+        if (bucketNamesByRegion.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        Map<String, Long> storageSizes = new HashMap<>();
+        ExecutorService executorService = Executors.newFixedThreadPool(bucketNamesByRegion.size());
+        try (CheckpointJournal checkpointJournal = CheckpointJournal.open(journalPath)) {
+            ResumableScanner resumableScanner = new ResumableScanner(s3Manager, checkpointJournal);
+            List<CompletableFuture<Map<String, Long>>> regionalScans = bucketNamesByRegion.values()
+                    .stream()
+                    .map(regionBucketNames -> CompletableFuture.supplyAsync(
+                            () -> regionBucketNames
+                                    .stream()
+                                    .collect(Collectors.toMap(
+                                            bucketName -> bucketName,
+                                            bucketName -> sumStorageSizeInBytes(resumableScanner, bucketName))),
+                            executorService))
+                    .collect(Collectors.toList());
+
+            for (CompletableFuture<Map<String, Long>> regionalScan : regionalScans) {
+                storageSizes.putAll(regionalScan.join());
+            }
+        } catch (CompletionException exc) {
+            if (exc.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) exc.getCause()).getCause();
+            }
+            throw exc;
+        } finally {
+            executorService.shutdown();
+        }
+        Files.deleteIfExists(journalPath);
+        return storageSizes;
+    }
+
+    /**
+     * Returns the storage size of every bucket of the account. Buckets are grouped by region and each region is
+     * scanned on its own thread, through a client local to that region.
+     *
+     * @return the storage size in bytes of each bucket, by bucket name.
+     */
+    public Map<String, Long> getBucketsStorageSizeInBytes() {
+
+        List<String> bucketNames = s3Manager.listBuckets()
+                .buckets()
+                .stream()
+                .map(Bucket::name)
+                .collect(Collectors.toList());
+
+        Map<Region, List<String>> bucketNamesByRegion = groupBucketsByRegion(bucketNames);
+        if (bucketNamesByRegion.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        ExecutorService executorService = Executors.newFixedThreadPool(bucketNamesByRegion.size());
+        try {
+            List<CompletableFuture<Map<String, Long>>> regionalScans = bucketNamesByRegion.values()
+                    .stream()
+                    .map(regionBucketNames -> CompletableFuture.supplyAsync(
+                            () -> regionBucketNames
+                                    .stream()
+                                    .collect(Collectors.toMap(
+                                            bucketName -> bucketName,
+                                            this::sumStorageSizeInBytes)),
+                            executorService))
+                    .collect(Collectors.toList());
+
+            Map<String, Long> storageSizes = new HashMap<>();
+            for (CompletableFuture<Map<String, Long>> regionalScan : regionalScans) {
+                storageSizes.putAll(regionalScan.join());
+            }
+            return storageSizes;
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * Returns the object counts and bytes per age band of every received prefix, scanning the prefixes in parallel.
+     * Ages are measured from a single instant, so the histograms of all prefixes are comparable.
+     *
+     * @param bucketName the bucket name.
+     * @param prefixes the prefixes to report on.
+     *
+     * @return one histogram per prefix, in the same order.
+     */
+    public List<AgeHistogram> getAgeHistograms(String bucketName, List<String> prefixes) {
+        return getAgeHistograms(bucketName, prefixes, Instant.now());
+    }
+
+    List<AgeHistogram> getAgeHistograms(String bucketName, List<String> prefixes, Instant now) {
+
+        if (prefixes.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        long[] bandStarts = AgeBand.getBandStarts(now);
+        ExecutorService executorService = Executors.newFixedThreadPool(
+                Math.min(prefixes.size(), Constants.DEFAULT_LISTING_PARALLELISM));
+        try {
+            List<CompletableFuture<AgeHistogram>> prefixScans = prefixes
+                    .stream()
+                    .map(prefix -> CompletableFuture.supplyAsync(
+                            () -> scanAgeHistogram(bucketName, prefix, bandStarts),
+                            executorService))
+                    .collect(Collectors.toList());
+
+            return prefixScans.stream()
+                    .map(CompletableFuture::join)
+                    .collect(Collectors.toList());
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    public AgeHistogram getAgeHistogram(String bucketName, String prefix) {
+        return scanAgeHistogram(bucketName, prefix, AgeBand.getBandStarts(Instant.now()));
+    }
+
+    public AgeHistogram getBucketAgeHistogram(String bucketName) {
+        return getAgeHistogram(bucketName, null);
+    }
+
+    /**
+     * Lists the prefix once into a columnar, in-memory snapshot that can be queried repeatedly without further S3
+     * calls.
+     *
+     * @param bucketName the bucket name.
+     * @param prefix the key prefix, or null for the whole bucket.
+     *
+     * @return the bucket snapshot.
+     */
+    public BucketSnapshot captureSnapshot(String bucketName, String prefix) {
+        return BucketSnapshot.capture(s3Manager, bucketName, prefix);
+    }
+
+    /**
+     * Answers a listing query such as "SELECT sum(size) FROM my-bucket WHERE key LIKE 'logs/%.gz' AND age &gt; 'P90D'"
+     * with one streaming scan of the narrowest listing the query allows.
+     *
+     * @param query the query text.
+     *
+     * @return the query result.
+     */
+    public QueryResult query(String query) {
+        return new ListingQueryEngine(s3Manager).execute(query);
+    }
+
+    public QueryPlan explainQuery(String query) {
+        return new ListingQueryEngine(s3Manager).explain(query);
+    }
+
+    /**
+     * Groups the objects of every source by size and ETag and reports the sets holding the same content more than
+     * once. Listing state is kept in direct buffers and candidates are spilled to temporary files, so sources may hold
+     * hundreds of millions of objects. Direct buffers count against -XX:MaxDirectMemorySize, which defaults to the
+     * maximum heap size and has to be raised for such scans, at about 100 bytes per distinct size and ETag.
+     *
+     * @param sources the buckets, or bucket prefixes, to scan.
+     * @param confirmWithChecksums whether to download candidates and confirm them with SHA-256 checksums.
+     *
+     * @return the duplicate report.
+     */
+    public DuplicateReport findDuplicates(Collection<ObjectLocation> sources, boolean confirmWithChecksums) {
+        return new DuplicateFinder(s3Manager).findDuplicates(sources, confirmWithChecksums);
+    }
+
+    /**
+     * Finds duplicates as {@link #findDuplicates(Collection, boolean)} does, but hands every duplicate set to a
+     * consumer instead of keeping them all in the report.
+     *
+     * @param sources the buckets, or bucket prefixes, to scan.
+     * @param confirmWithChecksums whether to download candidates and confirm them with SHA-256 checksums.
+     * @param consumer the consumer of the duplicate sets, which come in no particular order.
+     *
+     * @return the report of the scan, counting the consumed sets without holding them.
+     */
+    public DuplicateReport findDuplicates(
+            Collection<ObjectLocation> sources,
+            boolean confirmWithChecksums,
+            Consumer<DuplicateSet> consumer) {
+
+        return new DuplicateFinder(s3Manager).findDuplicates(sources, confirmWithChecksums, consumer);
+    }
+
+    public DuplicateReport findDuplicateBucketObjects(Collection<String> bucketNames) {
+
+        return findDuplicates(
+                bucketNames.stream().map(ObjectLocation::ofBucket).collect(Collectors.toList()),
+                false);
+    }
+
+    /**
+     * Compares two prefixes, possibly in different buckets, by merge-joining their listings. Keys are compared
+     * relative to each prefix and a key is changed when its size or ETag differs. The stream must be closed.
+     *
+     * @param leftBucketName the left bucket name.
+     * @param leftPrefix the left prefix, or null for the whole bucket.
+     * @param rightBucketName the right bucket name.
+     * @param rightPrefix the right prefix, or null for the whole bucket.
+     *
+     * @return the lazy stream of differences, in key order.
+     */
+    public Stream<DiffEntry> diff(
+            String leftBucketName,
+            String leftPrefix,
+            String rightBucketName,
+            String rightPrefix) {
+
+        return new ListingDiff(s3Manager, false).diff(leftBucketName, leftPrefix, rightBucketName, rightPrefix);
+    }
+
+    public ListingFile saveListing(String bucketName, String prefix, Path path) throws IOException {
+        return ListingFile.save(s3Manager, bucketName, prefix, path);
+    }
+
+    /**
+     * Compares a listing saved with {@link #saveListing(String, String, Path)}, on the left, with the current state of
+     * its bucket and prefix, on the right. Modification times are compared as well.
+     *
+     * @param listingFilePath the saved listing.
+     *
+     * @return the lazy stream of differences, in key order.
+     *
+     * @throws IOException if the listing file cannot be read.
+     */
+    public Stream<DiffEntry> diffWithListing(Path listingFilePath) throws IOException {
+        return new ListingDiff(s3Manager, true).diff(ListingFile.open(listingFilePath));
+    }
+
+    private AgeHistogram scanAgeHistogram(String bucketName, String prefix, long[] bandStarts) {
+
+        long[] objectCounts = new long[AgeBand.values().length];
+        long[] sizesInBytes = new long[AgeBand.values().length];
+
+        try (Stream<S3Object> s3Objects = S3Listings.streamObjects(s3Manager, bucketName, prefix)) {
+            s3Objects.forEach(s3Object -> {
+                int bandIndex = AgeBand.getBandIndex(s3Object.lastModified().toEpochMilli(), bandStarts);
+                objectCounts[bandIndex]++;
+                sizesInBytes[bandIndex] += s3Object.size();
+            });
+        }
+        return new AgeHistogram(bucketName, prefix, objectCounts, sizesInBytes);
+    }
+
+    private List<S3Object> listAllSpecificPrefixObjects(String bucketName, String prefix) {
+
+        try (Stream<S3Object> s3Objects = S3Listings.streamObjects(s3Manager, bucketName, prefix)) {
+            return s3Objects.collect(Collectors.toList());
+        }
+    }
+
+    private long sumStorageSizeInBytes(String bucketName) {
+
+        ObjectIndex objectIndex = getReconciledObjectIndex(bucketName);
+        if (objectIndex != null) {
+            return objectIndex.getTotalSizeInBytes();
+        }
+
+        try (Stream<S3Object> s3Objects = S3Listings.streamObjects(s3Manager, bucketName)) {
+            return s3Objects.mapToLong(S3Object::size).sum();
+        }
+    }
+
+    private static long sumStorageSizeInBytes(ResumableScanner resumableScanner, String bucketName) {
+
+        try {
+            return resumableScanner.sumStorageSize(bucketName, null).getSizeInBytes();
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+    }
+
+    private PrefixCopier createPrefixCopier() {
+        return new PrefixCopier(s3Manager, Constants.DEFAULT_TRANSFER_PARALLELISM, this::recordServiceWrite);
+    }
+
+    private DirectorySynchronizer createDirectorySynchronizer() {
+        return new DirectorySynchronizer(s3Manager, Constants.DEFAULT_TRANSFER_PARALLELISM, this::recordServiceWrite);
+    }
+
+    /**
+     * Records a key written by this service. The key index of the bucket cannot be given the new object without its
+     * metadata, so it is dropped.
+     */
+    private void recordServiceWrite(String bucketName, String key) {
+
+        recordObjectWrite(bucketName, key);
+        keyIndexes.remove(bucketName);
+    }
+
+    /**
+     * Deletes the objects in requests of at most {@link Constants#MAX_DELETE_OBJECTS_PER_REQUEST} keys, the most S3
+     * accepts in one request, and merges their responses.
+     */
+    private DeleteObjectsResponse deleteInBatches(String bucketName, List<ObjectIdentifier> objectIdentifiers) {
+
+        if (objectIdentifiers.size() <= Constants.MAX_DELETE_OBJECTS_PER_REQUEST) {
+            return applyDeletion(bucketName, s3Manager.deleteObjects(bucketName, objectIdentifiers));
+        }
+        List<DeletedObject> deletedObjects = new ArrayList<>();
+        List<S3Error> errors = new ArrayList<>();
+        for (List<ObjectIdentifier> batch
+                : S3CommonUtils.partition(objectIdentifiers, Constants.MAX_DELETE_OBJECTS_PER_REQUEST)) {
+            DeleteObjectsResponse deleteObjectsResponse =
+                    applyDeletion(bucketName, s3Manager.deleteObjects(bucketName, batch));
+            deletedObjects.addAll(deleteObjectsResponse.deleted());
+            errors.addAll(deleteObjectsResponse.errors());
+        }
+        return DeleteObjectsResponse.builder().deleted(deletedObjects).errors(errors).build();
+    }
+
+    /**
+     * Removes the deleted keys from the key index of the bucket, if any, so that it keeps matching the bucket.
+     */
+    private DeleteObjectsResponse applyDeletion(String bucketName, DeleteObjectsResponse deleteObjectsResponse) {
+
+        KeyRadixTree keyRadixTree = keyIndexes.get(bucketName);
+        if ((keyRadixTree != null) && (deleteObjectsResponse != null) && deleteObjectsResponse.hasDeleted()) {
+            for (DeletedObject deletedObject : deleteObjectsResponse.deleted()) {
+                keyRadixTree.remove(deletedObject.key());
+            }
+        }
+        return deleteObjectsResponse;
+    }
+
+    private ObjectExistenceChecker getExistenceChecker(String bucketName) {
+
+        // Without a filter, a checker is only a parallel HeadObject client.
+        ObjectExistenceChecker existenceChecker = existenceCheckers.get(bucketName);
+        return (existenceChecker == null) ? new ObjectExistenceChecker(s3Manager, bucketName) : existenceChecker;
+    }
+
+    private ObjectIndex getReconciledObjectIndex(String bucketName) {
+
+        EventIndexer indexer = eventIndexer;
+        if (indexer == null) {
+            return null;
+        }
+        ObjectIndex objectIndex = indexer.getObjectIndex(bucketName);
+        return ((objectIndex != null) && objectIndex.isReconciled()) ? objectIndex : null;
+    }
 }
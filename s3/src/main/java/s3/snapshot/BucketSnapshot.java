@@ -0,0 +1,261 @@
+package s3.snapshot;
+
+import s3.externalapi.S3Manager;
+import s3.util.S3Listings;
+
+import software.amazon.awssdk.services.s3.model.ObjectStorageClass;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Immutable, column-oriented copy of a bucket listing. Keys are stored as UTF-8 bytes in a shared arena of 16 MiB
+ * chunks addressed by a long offset array, so they are not limited to the 2 GiB of a single array. Sizes,
+ * modification times and storage classes each live in their own primitive array, so a 20M-object snapshot costs a
+ * handful of arrays instead of 20M SDK objects, and scans over one column run at memory bandwidth.
+ * Queries are built with {@link #query()}.
+ */
+public final class BucketSnapshot {
+
+    private static final ObjectStorageClass[] STORAGE_CLASSES = ObjectStorageClass.values();
+    private static final int KEY_CHUNK_BITS = 24;
+    private static final int KEY_CHUNK_SIZE = 1 << KEY_CHUNK_BITS;
+    private static final int KEY_CHUNK_MASK = KEY_CHUNK_SIZE - 1;
+    private static final int MAX_ROWS = Integer.MAX_VALUE - 8;
+
+    private final String bucketName;
+    private final String prefix;
+    private final int size;
+    private final byte[][] keyChunks;
+    private final long[] keyOffsets;
+    private final long[] sizes;
+    private final long[] lastModifiedMillis;
+    private final byte[] storageClassCodes;
+    private final boolean sortedByKey;
+
+    private BucketSnapshot(String bucketName, String prefix, Builder builder) {
+        this.bucketName = bucketName;
+        this.prefix = prefix;
+        this.size = builder.size;
+        this.keyChunks = builder.trimKeyChunks();
+        this.keyOffsets = Arrays.copyOf(builder.keyOffsets, builder.size + 1);
+        this.sizes = Arrays.copyOf(builder.sizes, builder.size);
+        this.lastModifiedMillis = Arrays.copyOf(builder.lastModifiedMillis, builder.size);
+        this.storageClassCodes = Arrays.copyOf(builder.storageClassCodes, builder.size);
+        this.sortedByKey = builder.sortedByKey;
+    }
+
+    /**
+     * Lists every object under the prefix once and stores it in columns.
+     *
+     * @param s3Manager the manager used to list the bucket.
+     * @param bucketName the bucket name.
+     * @param prefix the key prefix, or null for the whole bucket.
+     *
+     * @return the snapshot, in key order.
+     */
+    public static BucketSnapshot capture(S3Manager s3Manager, String bucketName, String prefix) {
+
+        try (Stream<S3Object> s3Objects = S3Listings.streamObjects(s3Manager, bucketName, prefix)) {
+            return of(bucketName, prefix, s3Objects.iterator());
+        }
+    }
+
+    public static BucketSnapshot of(String bucketName, String prefix, Iterator<S3Object> s3Objects) {
+
+        Builder builder = new Builder();
+        while (s3Objects.hasNext()) {
+            builder.add(s3Objects.next());
+        }
+        return new BucketSnapshot(bucketName, prefix, builder);
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String getKey(int row) {
+
+        long offset = keyOffsets[row];
+        int length = (int) (keyOffsets[row + 1] - offset);
+        if (length == 0) {
+            return "";
+        }
+        byte[] chunk = keyChunks[(int) (offset >>> KEY_CHUNK_BITS)];
+        int chunkOffset = (int) (offset & KEY_CHUNK_MASK);
+        if (chunkOffset + length <= KEY_CHUNK_SIZE) {
+            return new String(chunk, chunkOffset, length, StandardCharsets.UTF_8);
+        }
+
+        // The key straddles two chunks.
+        byte[] key = new byte[length];
+        for (int index = 0; index < length; index++) {
+            key[index] = getKeyByte(offset + index);
+        }
+        return new String(key, StandardCharsets.UTF_8);
+    }
+
+    public long getSize(int row) {
+        return sizes[row];
+    }
+
+    public long getLastModifiedMillis(int row) {
+        return lastModifiedMillis[row];
+    }
+
+    public ObjectStorageClass getStorageClass(int row) {
+        return STORAGE_CLASSES[storageClassCodes[row]];
+    }
+
+    /**
+     * Returns whether the rows are in ascending UTF-8 key order, as S3 lists them, which lets key prefix filters
+     * select a row range by binary search.
+     *
+     * @return true if the rows are sorted by key.
+     */
+    public boolean isSortedByKey() {
+        return sortedByKey;
+    }
+
+    public SnapshotQuery query() {
+        return new SnapshotQuery(this);
+    }
+
+    long[] getSizes() {
+        return sizes;
+    }
+
+    long[] getLastModifiedMillis() {
+        return lastModifiedMillis;
+    }
+
+    byte[] getStorageClassCodes() {
+        return storageClassCodes;
+    }
+
+    static byte getStorageClassCode(ObjectStorageClass storageClass) {
+        return (byte) ((storageClass == null) ? ObjectStorageClass.STANDARD : storageClass).ordinal();
+    }
+
+    static ObjectStorageClass getStorageClass(byte storageClassCode) {
+        return STORAGE_CLASSES[storageClassCode];
+    }
+
+    static int getStorageClassCount() {
+        return STORAGE_CLASSES.length;
+    }
+
+    /**
+     * Compares the key of a row with the received UTF-8 bytes, considering only the first bytes of the key when it is
+     * longer than them, so that 0 means the key starts with them.
+     */
+    int compareKeyPrefix(int row, byte[] keyPrefix) {
+
+        long offset = keyOffsets[row];
+        int keyLength = (int) (keyOffsets[row + 1] - offset);
+        int length = Math.min(keyLength, keyPrefix.length);
+        for (int index = 0; index < length; index++) {
+            int comparison = Integer.compare(getKeyByte(offset + index) & 0xFF, keyPrefix[index] & 0xFF);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return (keyLength < keyPrefix.length) ? -1 : 0;
+    }
+
+    private byte getKeyByte(long offset) {
+        return keyChunks[(int) (offset >>> KEY_CHUNK_BITS)][(int) (offset & KEY_CHUNK_MASK)];
+    }
+
+    private static final class Builder {
+
+        // Every chunk but the last is full, so a long offset splits into a chunk index and an offset in the chunk.
+        private byte[][] keyChunks = {new byte[1 << 16]};
+        private long[] keyOffsets = new long[1025];
+        private long[] sizes = new long[1024];
+        private long[] lastModifiedMillis = new long[1024];
+        private byte[] storageClassCodes = new byte[1024];
+        private byte[] previousKey;
+        private int size;
+        private boolean sortedByKey = true;
+
+        private void add(S3Object s3Object) {
+
+            if (size == sizes.length) {
+                if (size == MAX_ROWS) {
+                    throw new IllegalStateException("A snapshot cannot hold more than " + MAX_ROWS + " objects");
+                }
+                int capacity = (int) Math.min(size * 2L, MAX_ROWS);
+                keyOffsets = Arrays.copyOf(keyOffsets, capacity + 1);
+                sizes = Arrays.copyOf(sizes, capacity);
+                lastModifiedMillis = Arrays.copyOf(lastModifiedMillis, capacity);
+                storageClassCodes = Arrays.copyOf(storageClassCodes, capacity);
+            }
+
+            byte[] key = s3Object.key().getBytes(StandardCharsets.UTF_8);
+            if (sortedByKey && (previousKey != null)) {
+                sortedByKey = Arrays.compareUnsigned(previousKey, key) <= 0;
+            }
+            previousKey = key;
+
+            long offset = keyOffsets[size];
+            appendKey(offset, key);
+
+            keyOffsets[size + 1] = offset + key.length;
+            sizes[size] = s3Object.size();
+            lastModifiedMillis[size] = s3Object.lastModified().toEpochMilli();
+            storageClassCodes[size] = getStorageClassCode(s3Object.storageClass());
+            size++;
+        }
+
+        /**
+         * Copies a key to the arena from the received offset, doubling the last chunk up to the chunk size and then
+         * starting new chunks, so a key may straddle two chunks.
+         */
+        private void appendKey(long offset, byte[] key) {
+
+            int copied = 0;
+            while (copied < key.length) {
+                long position = offset + copied;
+                int chunkIndex = (int) (position >>> KEY_CHUNK_BITS);
+                int chunkOffset = (int) (position & KEY_CHUNK_MASK);
+                if (chunkIndex == keyChunks.length) {
+                    keyChunks = Arrays.copyOf(keyChunks, chunkIndex + 1);
+                    keyChunks[chunkIndex] = new byte[Math.min(KEY_CHUNK_SIZE, Math.max(1 << 16, key.length))];
+                }
+
+                byte[] chunk = keyChunks[chunkIndex];
+                int length = Math.min(key.length - copied, KEY_CHUNK_SIZE - chunkOffset);
+                if (chunkOffset + length > chunk.length) {
+                    int capacity = Math.min(KEY_CHUNK_SIZE, Math.max(chunk.length * 2, chunkOffset + length));
+                    chunk = Arrays.copyOf(chunk, capacity);
+                    keyChunks[chunkIndex] = chunk;
+                }
+                System.arraycopy(key, copied, chunk, chunkOffset, length);
+                copied += length;
+            }
+        }
+
+        private byte[][] trimKeyChunks() {
+
+            long keyBytes = keyOffsets[size];
+            int chunkCount = (int) ((keyBytes + KEY_CHUNK_MASK) >>> KEY_CHUNK_BITS);
+            byte[][] trimmedChunks = Arrays.copyOf(keyChunks, Math.max(1, chunkCount));
+            int lastChunkIndex = trimmedChunks.length - 1;
+            int lastChunkLength = (int) (keyBytes - ((long) lastChunkIndex << KEY_CHUNK_BITS));
+            trimmedChunks[lastChunkIndex] = Arrays.copyOf(trimmedChunks[lastChunkIndex], lastChunkLength);
+            return trimmedChunks;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package s3.snapshot;
+
+import software.amazon.awssdk.services.s3.model.ObjectStorageClass;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Filters over a {@link BucketSnapshot}, combined with AND. Every filter scans one column in a tight, branch-free
+ * loop that produces a 64-row bit mask at a time, and the rows are processed in independent chunks of 64K, in
+ * parallel when requested. A key prefix on a key-sorted snapshot is resolved by binary search to a row range instead
+ * of being scanned.
+ */
+public class SnapshotQuery {
+
+    static final int ROWS_PER_CHUNK = 1 << 16;
+
+    private final BucketSnapshot bucketSnapshot;
+    private final List<RowFilter> rowFilters = new ArrayList<>();
+    private int firstRow;
+    private int lastRow;
+    private boolean parallel;
+
+    SnapshotQuery(BucketSnapshot bucketSnapshot) {
+        this.bucketSnapshot = bucketSnapshot;
+        this.lastRow = bucketSnapshot.size();
+    }
+
+    public SnapshotQuery keyPrefix(String keyPrefix) {
+
+        byte[] keyPrefixBytes = keyPrefix.getBytes(StandardCharsets.UTF_8);
+        if (bucketSnapshot.isSortedByKey()) {
+            firstRow = Math.max(firstRow, findFirstRow(keyPrefixBytes, false));
+            lastRow = Math.min(lastRow, findFirstRow(keyPrefixBytes, true));
+            return this;
+        }
+        rowFilters.add((first, last) -> {
+            long bits = 0L;
+            for (int row = first; row < last; row++) {
+                bits |= ((bucketSnapshot.compareKeyPrefix(row, keyPrefixBytes) == 0) ? 1L : 0L) << (row - first);
+            }
+            return bits;
+        });
+        return this;
+    }
+
+    /**
+     * Keeps the objects last modified within the received bounds.
+     *
+     * @param startingInstant the inclusive lower bound.
+     * @param endingInstant the exclusive upper bound.
+     *
+     * @return this query.
+     */
+    public SnapshotQuery modifiedBetween(Instant startingInstant, Instant endingInstant) {
+
+        long startingMillis = startingInstant.toEpochMilli();
+        long endingMillis = endingInstant.toEpochMilli();
+        long[] lastModifiedMillis = bucketSnapshot.getLastModifiedMillis();
+        rowFilters.add((first, last) -> {
+            long bits = 0L;
+            for (int row = first; row < last; row++) {
+                long millis = lastModifiedMillis[row];
+                bits |= (((millis >= startingMillis) & (millis < endingMillis)) ? 1L : 0L) << (row - first);
+            }
+            return bits;
+        });
+        return this;
+    }
+
+    public SnapshotQuery modifiedBefore(Instant instant) {
+        return modifiedBetween(Instant.ofEpochMilli(Long.MIN_VALUE), instant);
+    }
+
+    public SnapshotQuery modifiedSince(Instant instant) {
+        return modifiedBetween(instant, Instant.ofEpochMilli(Long.MAX_VALUE));
+    }
+
+    /**
+     * Keeps the objects whose size is within the received bounds.
+     *
+     * @param minimumSize the inclusive lower bound, in bytes.
+     * @param maximumSize the exclusive upper bound, in bytes.
+     *
+     * @return this query.
+     */
+    public SnapshotQuery sizeBetween(long minimumSize, long maximumSize) {
+
+        long[] sizes = bucketSnapshot.getSizes();
+        rowFilters.add((first, last) -> {
+            long bits = 0L;
+            for (int row = first; row < last; row++) {
+                long size = sizes[row];
+                bits |= (((size >= minimumSize) & (size < maximumSize)) ? 1L : 0L) << (row - first);
+            }
+            return bits;
+        });
+        return this;
+    }
+
+    public SnapshotQuery storageClasses(ObjectStorageClass... storageClasses) {
+
+        long storageClassMask = 0L;
+        for (ObjectStorageClass storageClass : storageClasses) {
+            storageClassMask |= 1L << BucketSnapshot.getStorageClassCode(storageClass);
+        }
+        long finalStorageClassMask = storageClassMask;
+        byte[] storageClassCodes = bucketSnapshot.getStorageClassCodes();
+        rowFilters.add((first, last) -> {
+            long bits = 0L;
+            for (int row = first; row < last; row++) {
+                bits |= ((finalStorageClassMask >>> storageClassCodes[row]) & 1L) << (row - first);
+            }
+            return bits;
+        });
+        return this;
+    }
+
+    public SnapshotQuery parallel(boolean parallel) {
+        this.parallel = parallel;
+        return this;
+    }
+
+    /**
+     * Evaluates the filters and returns the matching rows, ready for aggregation.
+     *
+     * @return the selection of matching rows.
+     */
+    public SnapshotSelection select() {
+
+        long[] selectedRows = new long[(bucketSnapshot.size() + 63) >>> 6];
+        if (firstRow < lastRow) {
+            int chunkCount = (bucketSnapshot.size() + ROWS_PER_CHUNK - 1) / ROWS_PER_CHUNK;
+            IntStream chunkIndexes = IntStream.range(0, chunkCount);
+            (parallel ? chunkIndexes.parallel() : chunkIndexes).forEach(chunkIndex -> selectChunk(
+                    selectedRows,
+                    chunkIndex * ROWS_PER_CHUNK,
+                    Math.min((chunkIndex + 1) * ROWS_PER_CHUNK, bucketSnapshot.size())));
+        }
+        return new SnapshotSelection(bucketSnapshot, selectedRows, parallel);
+    }
+
+    public long count() {
+        return select().count();
+    }
+
+    public long sumSizes() {
+        return select().sumSizes();
+    }
+
+    private void selectChunk(long[] selectedRows, int chunkFirstRow, int chunkLastRow) {
+
+        // Chunks start on a multiple of 64 rows, so every chunk writes its own words of the bit set.
+        for (int first = chunkFirstRow; first < chunkLastRow; first += 64) {
+            int last = Math.min(first + 64, chunkLastRow);
+            int rangeFirst = Math.max(first, firstRow);
+            int rangeLast = Math.min(last, lastRow);
+            if (rangeFirst >= rangeLast) {
+                continue;
+            }
+
+            long bits = (rangeLast - rangeFirst == 64) ? -1L : ((1L << (rangeLast - rangeFirst)) - 1);
+            bits <<= (rangeFirst - first);
+            for (int filterIndex = 0; (filterIndex < rowFilters.size()) && (bits != 0L); filterIndex++) {
+                bits &= rowFilters.get(filterIndex).evaluate(first, last);
+            }
+            selectedRows[first >>> 6] = bits;
+        }
+    }
+
+    private int findFirstRow(byte[] keyPrefixBytes, boolean afterPrefix) {
+
+        // First row whose key is not below the prefix, or, with afterPrefix, not below or starting with it.
+        int low = 0;
+        int high = bucketSnapshot.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int comparison = bucketSnapshot.compareKeyPrefix(middle, keyPrefixBytes);
+            if ((comparison < 0) || (afterPrefix && (comparison == 0))) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    @FunctionalInterface
+    interface RowFilter {
+
+        /**
+         * Returns a mask with bit i set when row first + i passes the filter, for the rows first to last, last
+         * excluded, with last - first at most 64.
+         */
+        long evaluate(int first, int last);
+    }
+}
@@ -0,0 +1,132 @@
+package s3.snapshot;
+
+import software.amazon.awssdk.services.s3.model.ObjectStorageClass;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * The rows of a {@link BucketSnapshot} matched by a query, held as a bit set, with aggregations that only visit the
+ * selected rows.
+ */
+public class SnapshotSelection {
+
+    private static final int WORDS_PER_CHUNK = SnapshotQuery.ROWS_PER_CHUNK >>> 6;
+
+    private final BucketSnapshot bucketSnapshot;
+    private final long[] selectedRows;
+    private final boolean parallel;
+
+    SnapshotSelection(BucketSnapshot bucketSnapshot, long[] selectedRows, boolean parallel) {
+        this.bucketSnapshot = bucketSnapshot;
+        this.selectedRows = selectedRows;
+        this.parallel = parallel;
+    }
+
+    public BucketSnapshot getBucketSnapshot() {
+        return bucketSnapshot;
+    }
+
+    public boolean isSelected(int row) {
+        return (selectedRows[row >>> 6] & (1L << row)) != 0;
+    }
+
+    public long count() {
+
+        long count = 0L;
+        for (long word : selectedRows) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    public long sumSizes() {
+
+        long[] sizes = bucketSnapshot.getSizes();
+        return chunks().mapToLong(chunkIndex -> {
+            long sizeSum = 0L;
+            int lastWord = Math.min((chunkIndex + 1) * WORDS_PER_CHUNK, selectedRows.length);
+            for (int wordIndex = chunkIndex * WORDS_PER_CHUNK; wordIndex < lastWord; wordIndex++) {
+                for (long word = selectedRows[wordIndex]; word != 0L; word &= word - 1) {
+                    sizeSum += sizes[(wordIndex << 6) + Long.numberOfTrailingZeros(word)];
+                }
+            }
+            return sizeSum;
+        }).sum();
+    }
+
+    public Map<ObjectStorageClass, Long> countByStorageClass() {
+        return toStorageClassMap(aggregateByStorageClass(false));
+    }
+
+    public Map<ObjectStorageClass, Long> sumSizesByStorageClass() {
+        return toStorageClassMap(aggregateByStorageClass(true));
+    }
+
+    public int[] getRows() {
+
+        int[] rows = new int[(int) count()];
+        int rowIndex = 0;
+        for (int wordIndex = 0; wordIndex < selectedRows.length; wordIndex++) {
+            for (long word = selectedRows[wordIndex]; word != 0L; word &= word - 1) {
+                rows[rowIndex++] = (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+            }
+        }
+        return rows;
+    }
+
+    public List<String> getKeys() {
+
+        int[] rows = getRows();
+        List<String> keys = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            keys.add(bucketSnapshot.getKey(row));
+        }
+        return keys;
+    }
+
+    private long[] aggregateByStorageClass(boolean sumSizes) {
+
+        long[] sizes = bucketSnapshot.getSizes();
+        byte[] storageClassCodes = bucketSnapshot.getStorageClassCodes();
+        int storageClassCount = BucketSnapshot.getStorageClassCount();
+
+        return chunks().mapToObj(chunkIndex -> {
+            long[] aggregates = new long[storageClassCount];
+            int lastWord = Math.min((chunkIndex + 1) * WORDS_PER_CHUNK, selectedRows.length);
+            for (int wordIndex = chunkIndex * WORDS_PER_CHUNK; wordIndex < lastWord; wordIndex++) {
+                for (long word = selectedRows[wordIndex]; word != 0L; word &= word - 1) {
+                    int row = (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+                    aggregates[storageClassCodes[row]] += sumSizes ? sizes[row] : 1L;
+                }
+            }
+            return aggregates;
+        }).reduce(new long[storageClassCount], (first, second) -> {
+            long[] aggregates = new long[storageClassCount];
+            for (int code = 0; code < storageClassCount; code++) {
+                aggregates[code] = first[code] + second[code];
+            }
+            return aggregates;
+        });
+    }
+
+    private static Map<ObjectStorageClass, Long> toStorageClassMap(long[] aggregates) {
+
+        Map<ObjectStorageClass, Long> storageClassMap = new EnumMap<>(ObjectStorageClass.class);
+        for (int code = 0; code < aggregates.length; code++) {
+            if (aggregates[code] != 0L) {
+                storageClassMap.put(BucketSnapshot.getStorageClass((byte) code), aggregates[code]);
+            }
+        }
+        return storageClassMap;
+    }
+
+    private IntStream chunks() {
+
+        IntStream chunkIndexes = IntStream.range(0, (selectedRows.length + WORDS_PER_CHUNK - 1) / WORDS_PER_CHUNK);
+        return parallel ? chunkIndexes.parallel() : chunkIndexes;
+    }
+}
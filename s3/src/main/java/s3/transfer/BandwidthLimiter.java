@@ -0,0 +1,78 @@
+package s3.transfer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket that caps the rate at which bytes are handed to the network.
+ * The bucket refills continuously at the configured rate up to its burst capacity. A request larger than the
+ * bucket is let through once the bucket is full and leaves it in debt, so large parts are never starved.
+ */
+public class BandwidthLimiter {
+
+    private final long bytesPerSecond;
+    private final long burstCapacityInBytes;
+    private final LongSupplier nanoClock;
+
+    private double availableTokens;
+    private long lastRefillNanos;
+
+    public BandwidthLimiter(long bytesPerSecond, long burstCapacityInBytes) {
+        this(bytesPerSecond, burstCapacityInBytes, System::nanoTime);
+    }
+
+    public BandwidthLimiter(long bytesPerSecond) {
+        this(bytesPerSecond, bytesPerSecond);
+    }
+
+    BandwidthLimiter(long bytesPerSecond, long burstCapacityInBytes, LongSupplier nanoClock) {
+
+        this.bytesPerSecond = bytesPerSecond;
+        this.burstCapacityInBytes = burstCapacityInBytes;
+        this.nanoClock = nanoClock;
+        this.availableTokens = burstCapacityInBytes;
+        this.lastRefillNanos = nanoClock.getAsLong();
+    }
+
+    /**
+     * Blocks until the given amount of bytes may be sent without exceeding the configured rate.
+     *
+     * @param bytes the amount of bytes about to be sent.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public void acquire(long bytes) throws InterruptedException {
+        TimeUnit.NANOSECONDS.sleep(reserve(bytes));
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * Takes the tokens for the given amount of bytes, possibly into debt, and returns how long the caller must wait
+     * before sending them.
+     */
+    synchronized long reserve(long bytes) {
+
+        refill();
+        double requiredTokens = Math.min(bytes, burstCapacityInBytes);
+        if (availableTokens >= requiredTokens) {
+            availableTokens -= bytes;
+            return 0L;
+        }
+        long waitNanos = (long) ((requiredTokens - availableTokens) * TimeUnit.SECONDS.toNanos(1) / bytesPerSecond);
+        // Reserve the tokens now so that concurrent callers queue up behind this one.
+        availableTokens -= bytes;
+        return waitNanos;
+    }
+
+    private void refill() {
+
+        long nowNanos = nanoClock.getAsLong();
+        availableTokens = Math.min(
+                burstCapacityInBytes,
+                availableTokens + ((double) (nowNanos - lastRefillNanos) * bytesPerSecond / TimeUnit.SECONDS.toNanos(1)));
+        lastRefillNanos = nowNanos;
+    }
+}
@@ -0,0 +1,318 @@
+package s3.transfer;
+
+import s3.exception.TransferException;
+import s3.externalapi.S3AsyncManager;
+import s3.util.Constants;
+import s3.util.Messages;
+import s3.util.S3CommonUtils;
+
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+/**
+ * Pipelined upload of a directory tree made of many small files.
+ * Files are discovered by a parallel directory walk that feeds a bounded queue, read asynchronously into a pool of
+ * direct buffers and uploaded with many PUTs in flight on the async client. The queue and the buffer pool keep file
+ * discovery and reading from outrunning the network, so memory stays constant whatever the tree size. Buffers are
+ * only allocated as uploads need them, up to one per upload in flight, and are shared by every upload of the
+ * uploader. Files larger than a pooled buffer are streamed from disk by the client instead. A file whose size
+ * changed since it was discovered fails rather than being uploaded partially. The number of PUTs in flight is
+ * governed by a {@link TransferController}, which may tune it and cap the bandwidth at runtime.
+ */
+public class BulkUploader {
+
+    private static final DiscoveredFile END_OF_WALK = new DiscoveredFile(null, 0L);
+    private static final long QUEUE_OFFER_TIMEOUT_IN_MILLIS = 100L;
+
+    private final S3AsyncManager s3AsyncManager;
+    private final int maxInFlightUploads;
+    private final int bufferSizeInBytes;
+    private final TransferController transferController;
+    private final BiConsumer<String, String> writeRecorder;
+    private final BlockingQueue<ByteBuffer> bufferPool;
+    private final AtomicInteger allocatedBuffers = new AtomicInteger();
+
+    /**
+     * Creates an uploader.
+     *
+     * @param s3AsyncManager the async manager the objects are put with.
+     * @param maxInFlightUploads the number of pooled buffers and the most uploads the controller may allow.
+     * @param bufferSizeInBytes the size of a pooled buffer, above which files are streamed from disk.
+     * @param transferController the controller of the uploads in flight and the bandwidth.
+     * @param writeRecorder receives the bucket name and key of every object uploaded, such as
+     *        {@link s3.service.S3Service#recordObjectWrite(String, String)}, from the client's completion threads.
+     */
+    public BulkUploader(
+            S3AsyncManager s3AsyncManager,
+            int maxInFlightUploads,
+            int bufferSizeInBytes,
+            TransferController transferController,
+            BiConsumer<String, String> writeRecorder) {
+
+        this.s3AsyncManager = s3AsyncManager;
+        this.maxInFlightUploads = maxInFlightUploads;
+        this.bufferSizeInBytes = bufferSizeInBytes;
+        this.transferController = transferController;
+        this.writeRecorder = writeRecorder;
+        this.bufferPool = new ArrayBlockingQueue<>(maxInFlightUploads);
+    }
+
+    public BulkUploader(
+            S3AsyncManager s3AsyncManager,
+            int maxInFlightUploads,
+            int bufferSizeInBytes,
+            TransferController transferController) {
+
+        this(s3AsyncManager, maxInFlightUploads, bufferSizeInBytes, transferController, (bucketName, key) -> { });
+    }
+
+    public BulkUploader(S3AsyncManager s3AsyncManager, int maxInFlightUploads, int bufferSizeInBytes) {
+        this(s3AsyncManager,
+             maxInFlightUploads,
+             bufferSizeInBytes,
+             TransferController.withDefaultRange(maxInFlightUploads));
+    }
+
+    public BulkUploader(S3AsyncManager s3AsyncManager) {
+        this(s3AsyncManager, Constants.DEFAULT_MAX_IN_FLIGHT_UPLOADS, Constants.DEFAULT_UPLOAD_BUFFER_SIZE_IN_BYTES);
+    }
+
+    public UploadResult uploadDirectory(Path localDirectory, String bucketName, String prefix) {
+
+        String normalizedPrefix = S3CommonUtils.normalizePrefix(prefix);
+        BlockingQueue<DiscoveredFile> discoveredFiles = new ArrayBlockingQueue<>(maxInFlightUploads * 4);
+
+        AtomicReference<Throwable> walkFailure = new AtomicReference<>();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        ForkJoinPool walkerPool = new ForkJoinPool();
+        walkerPool.execute(() -> {
+            try {
+                new DirectoryWalk(localDirectory, discoveredFiles, cancelled).invoke();
+            } catch (RuntimeException exc) {
+                walkFailure.set(exc);
+            } finally {
+                offer(discoveredFiles, END_OF_WALK, cancelled);
+            }
+        });
+
+        AtomicLong uploadedFiles = new AtomicLong();
+        AtomicLong uploadedBytes = new AtomicLong();
+        List<Path> failedFiles = Collections.synchronizedList(new ArrayList<>());
+
+        try {
+            DiscoveredFile discoveredFile;
+            while ((discoveredFile = discoveredFiles.take()) != END_OF_WALK) {
+                Path path = discoveredFile.path;
+                long size = discoveredFile.size;
+                String key = normalizedPrefix + localDirectory.relativize(path)
+                        .toString()
+                        .replace(path.getFileSystem().getSeparator(), Constants.SLASH_CHAR);
+
+                transferController.acquire(size);
+
+                CompletableFuture<PutObjectResponse> upload;
+                if (size <= bufferSizeInBytes) {
+                    // Only blocks when the controller allows more uploads in flight than there are buffers.
+                    ByteBuffer buffer = takeBuffer();
+                    buffer.clear().limit((int) size);
+                    upload = readFully(path, buffer)
+                            .thenCompose(content -> s3AsyncManager.putObject(bucketName, key, content))
+                            .whenComplete((putObjectResponse, exc) -> bufferPool.offer(buffer));
+                } else {
+                    upload = s3AsyncManager.putObject(bucketName, key, path);
+                }
+
+                upload.whenComplete((putObjectResponse, exc) -> {
+                    if (exc == null) {
+                        writeRecorder.accept(bucketName, key);
+                        uploadedFiles.incrementAndGet();
+                        uploadedBytes.addAndGet(size);
+                    } else {
+                        failedFiles.add(path);
+                    }
+                    transferController.release((exc == null) ? size : 0L);
+                });
+            }
+            transferController.awaitIdle();
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            throw new TransferException(Messages.TRANSFER_FAILURE, exc);
+        } finally {
+            // Walkers blocked on a full queue give up once the consumer is gone.
+            cancelled.set(true);
+            walkerPool.shutdownNow();
+        }
+
+        if (walkFailure.get() != null) {
+            throw new TransferException(Messages.LOCAL_FILE_IO_FAILURE, walkFailure.get());
+        }
+        return new UploadResult(uploadedFiles.get(), uploadedBytes.get(), new ArrayList<>(failedFiles));
+    }
+
+    int getAllocatedBuffers() {
+        return allocatedBuffers.get();
+    }
+
+    /**
+     * Takes a pooled buffer, allocating a new one while fewer than maxInFlightUploads exist.
+     */
+    private ByteBuffer takeBuffer() throws InterruptedException {
+
+        ByteBuffer buffer = bufferPool.poll();
+        if (buffer != null) {
+            return buffer;
+        }
+        int allocated = allocatedBuffers.getAndUpdate(count -> (count < maxInFlightUploads) ? count + 1 : count);
+        return (allocated < maxInFlightUploads) ? ByteBuffer.allocateDirect(bufferSizeInBytes) : bufferPool.take();
+    }
+
+    /**
+     * Reads the whole file into the buffer, up to its limit, and fails if the file ends before the limit or extends
+     * beyond it.
+     */
+    static CompletableFuture<ByteBuffer> readFully(Path path, ByteBuffer buffer) {
+
+        CompletableFuture<ByteBuffer> future = new CompletableFuture<>();
+        AsynchronousFileChannel fileChannel;
+        try {
+            fileChannel = AsynchronousFileChannel.open(path, StandardOpenOption.READ);
+        } catch (IOException exc) {
+            future.completeExceptionally(exc);
+            return future;
+        }
+
+        fileChannel.read(buffer, 0L, null, new CompletionHandler<Integer, Void>() {
+
+            @Override
+            public void completed(Integer bytesRead, Void attachment) {
+
+                if ((bytesRead >= 0) && buffer.hasRemaining()) {
+                    fileChannel.read(buffer, buffer.position(), null, this);
+                    return;
+                }
+                long fileSize;
+                try (AsynchronousFileChannel readFileChannel = fileChannel) {
+                    fileSize = readFileChannel.size();
+                } catch (IOException exc) {
+                    future.completeExceptionally(exc);
+                    return;
+                }
+                if (buffer.hasRemaining() || (fileSize != buffer.limit())) {
+                    // The file was resized after the walk recorded its size.
+                    future.completeExceptionally(new IOException("File resized during upload: " + path));
+                    return;
+                }
+                buffer.flip();
+                future.complete(buffer);
+            }
+
+            @Override
+            public void failed(Throwable exc, Void attachment) {
+
+                try {
+                    fileChannel.close();
+                } catch (IOException closeExc) {
+                    exc.addSuppressed(closeExc);
+                }
+                future.completeExceptionally(exc);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Queues a discovered file, waiting for room until the upload is cancelled.
+     *
+     * @return whether the file was queued.
+     */
+    private static boolean offer(
+            BlockingQueue<DiscoveredFile> queue,
+            DiscoveredFile discoveredFile,
+            AtomicBoolean cancelled) {
+
+        try {
+            while (!cancelled.get()) {
+                if (queue.offer(discoveredFile, QUEUE_OFFER_TIMEOUT_IN_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    private static final class DiscoveredFile {
+
+        private final Path path;
+        private final long size;
+
+        private DiscoveredFile(Path path, long size) {
+            this.path = path;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Lists one directory, queues its regular files and forks one subtask per subdirectory.
+     */
+    private static final class DirectoryWalk extends RecursiveAction {
+
+        private final Path directory;
+        private final BlockingQueue<DiscoveredFile> discoveredFiles;
+        private final AtomicBoolean cancelled;
+
+        private DirectoryWalk(Path directory, BlockingQueue<DiscoveredFile> discoveredFiles, AtomicBoolean cancelled) {
+            this.directory = directory;
+            this.discoveredFiles = discoveredFiles;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected void compute() {
+
+            List<DirectoryWalk> subdirectoryWalks = new ArrayList<>();
+            try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory)) {
+                for (Path path : directoryStream) {
+                    // Symbolic links are skipped rather than followed, so a link to an ancestor cannot loop forever.
+                    BasicFileAttributes attributes =
+                            Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (attributes.isDirectory()) {
+                        subdirectoryWalks.add(new DirectoryWalk(path, discoveredFiles, cancelled));
+                    } else if (attributes.isRegularFile()
+                            && !offer(discoveredFiles, new DiscoveredFile(path, attributes.size()), cancelled)) {
+                        return;
+                    }
+                }
+            } catch (IOException exc) {
+                throw new UncheckedIOException(exc);
+            }
+            invokeAll(subdirectoryWalks);
+        }
+    }
+}
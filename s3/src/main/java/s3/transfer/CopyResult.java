@@ -0,0 +1,39 @@
+package s3.transfer;
+
+import java.util.List;
+
+public class CopyResult {
+
+    private final long copiedObjects;
+    private final long copiedBytes;
+    private final long deletedObjects;
+    private final List<String> failedKeys;
+
+    public CopyResult(long copiedObjects, long copiedBytes, long deletedObjects, List<String> failedKeys) {
+        this.copiedObjects = copiedObjects;
+        this.copiedBytes = copiedBytes;
+        this.deletedObjects = deletedObjects;
+        this.failedKeys = failedKeys;
+    }
+
+    public long getCopiedObjects() {
+        return copiedObjects;
+    }
+
+    public long getCopiedBytes() {
+        return copiedBytes;
+    }
+
+    public long getDeletedObjects() {
+        return deletedObjects;
+    }
+
+    /**
+     * Returns the source keys that failed to copy and, on a move, those whose source object failed to be deleted.
+     *
+     * @return the failed source keys.
+     */
+    public List<String> getFailedKeys() {
+        return failedKeys;
+    }
+}
@@ -0,0 +1,419 @@
+package s3.transfer;
+
+import s3.exception.TransferException;
+import s3.externalapi.S3Manager;
+import s3.util.Constants;
+import s3.util.DeleteObjectsBatch;
+import s3.util.Messages;
+import s3.util.S3CommonUtils;
+import s3.util.S3Listings;
+
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Synchronizes a local directory tree with a bucket prefix in either direction.
+ * Both sides are compared by size, modification time and ETag with the help of a manifest kept in the local
+ * directory, only the differences are transferred in parallel, and the extras on the target side are optionally
+ * deleted. A sync with no changes costs one listing of the prefix and no transfers. Transfers in both directions go
+ * through a {@link TransferController}, which tunes how many run at once and may cap the bandwidth.
+ */
+public class DirectorySynchronizer {
+
+    public static final String MANIFEST_FILE_NAME = ".s3sync-manifest";
+
+    private static final String MULTIPART_ETAG_SEPARATOR = "-";
+    private static final String PARTIAL_FILE_PREFIX = ".s3sync-";
+    private static final String PARTIAL_FILE_SUFFIX = ".part";
+
+    // Only the names this class gives to partial downloads, so that a user's own "*.part" files are synchronized.
+    private static final Pattern PARTIAL_FILE_NAME_PATTERN = Pattern.compile(
+            Pattern.quote(PARTIAL_FILE_PREFIX)
+                    + "[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}"
+                    + Pattern.quote(PARTIAL_FILE_SUFFIX));
+
+    private final S3Manager s3Manager;
+    private final int parallelism;
+    private final TransferController transferController;
+    private final BiConsumer<String, String> writeRecorder;
+
+    /**
+     * Creates a synchronizer.
+     *
+     * @param s3Manager the manager used to list, transfer and delete objects.
+     * @param parallelism the number of threads running transfers, the most the controller may allow at once.
+     * @param transferController the controller of the transfers in flight and the bandwidth.
+     * @param writeRecorder receives the bucket name and key of every object uploaded.
+     */
+    public DirectorySynchronizer(
+            S3Manager s3Manager,
+            int parallelism,
+            TransferController transferController,
+            BiConsumer<String, String> writeRecorder) {
+
+        this.s3Manager = s3Manager;
+        this.parallelism = parallelism;
+        this.transferController = transferController;
+        this.writeRecorder = writeRecorder;
+    }
+
+    public DirectorySynchronizer(S3Manager s3Manager, int parallelism, BiConsumer<String, String> writeRecorder) {
+        this(s3Manager, parallelism, TransferController.withDefaultRange(parallelism), writeRecorder);
+    }
+
+    public DirectorySynchronizer(S3Manager s3Manager, int parallelism) {
+        this(s3Manager, parallelism, (bucketName, key) -> { });
+    }
+
+    public DirectorySynchronizer(S3Manager s3Manager) {
+        this(s3Manager, Constants.DEFAULT_TRANSFER_PARALLELISM);
+    }
+
+    public SyncResult synchronize(
+            Path localDirectory,
+            String bucketName,
+            String prefix,
+            SyncDirection direction,
+            boolean deleteExtras) {
+
+        String normalizedPrefix = S3CommonUtils.normalizePrefix(prefix);
+        Path manifestPath = localDirectory.resolve(MANIFEST_FILE_NAME);
+
+        ExecutorService executorService = Executors.newFixedThreadPool(parallelism);
+        try {
+            Files.createDirectories(localDirectory);
+            SyncManifest syncManifest = SyncManifest.load(manifestPath);
+            try {
+                Map<String, BasicFileAttributes> localFiles = listLocalFiles(localDirectory);
+
+                return (direction == SyncDirection.UPLOAD)
+                        ? upload(localDirectory, bucketName, normalizedPrefix, localFiles, syncManifest,
+                                 deleteExtras, executorService)
+                        : download(localDirectory, bucketName, normalizedPrefix, localFiles, syncManifest,
+                                   deleteExtras, executorService);
+            } finally {
+                // The transfers that succeeded before a failure are recorded, so the next sync does not repeat them.
+                syncManifest.save(manifestPath);
+            }
+        } catch (IOException exc) {
+            throw new TransferException(Messages.LOCAL_FILE_IO_FAILURE, exc);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private SyncResult upload(
+            Path localDirectory,
+            String bucketName,
+            String prefix,
+            Map<String, BasicFileAttributes> localFiles,
+            SyncManifest syncManifest,
+            boolean deleteExtras,
+            ExecutorService executorService) {
+
+        Map<String, S3Object> remoteObjects;
+        try (Stream<S3Object> s3Objects = S3Listings.streamObjects(s3Manager, bucketName, prefix)) {
+            remoteObjects = s3Objects
+                    .filter(s3Object -> S3CommonUtils.isFile(s3Object.key()))
+                    .collect(Collectors.toMap(s3Object -> s3Object.key().substring(prefix.length()),
+                                              s3Object -> s3Object));
+        }
+
+        AtomicLong transferredFiles = new AtomicLong();
+        AtomicLong transferredBytes = new AtomicLong();
+        AtomicLong unchangedFiles = new AtomicLong();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (Map.Entry<String, BasicFileAttributes> localFile : localFiles.entrySet()) {
+            String relativePath = localFile.getKey();
+            long size = localFile.getValue().size();
+            long lastModifiedMillis = localFile.getValue().lastModifiedTime().toMillis();
+            S3Object remoteObject = remoteObjects.remove(relativePath);
+
+            futures.add(executorService.submit(() -> {
+                Path localPath = localDirectory.resolve(relativePath);
+                if (isUnchanged(localPath, relativePath, size, lastModifiedMillis, remoteObject, syncManifest)) {
+                    unchangedFiles.incrementAndGet();
+                    return null;
+                }
+
+                PutObjectResponse putObjectResponse;
+                long uploadedBytes = 0L;
+                transferController.acquire(size);
+                try {
+                    putObjectResponse = s3Manager.putObject(bucketName, prefix + relativePath, localPath);
+                    uploadedBytes = size;
+                } finally {
+                    transferController.release(uploadedBytes);
+                }
+                writeRecorder.accept(bucketName, prefix + relativePath);
+                syncManifest.put(
+                        relativePath,
+                        size,
+                        lastModifiedMillis,
+                        S3CommonUtils.normalizeETag(putObjectResponse.eTag()));
+                transferredFiles.incrementAndGet();
+                transferredBytes.addAndGet(size);
+                return null;
+            }));
+        }
+        await(futures);
+
+        DeleteObjectsBatch deleteObjectsBatch = new DeleteObjectsBatch(s3Manager, bucketName);
+        if (deleteExtras) {
+            for (S3Object remoteObject : remoteObjects.values()) {
+                deleteObjectsBatch.add(remoteObject.key());
+            }
+            deleteObjectsBatch.flush();
+        }
+        syncManifest.retainAll(localFiles.keySet());
+
+        return new SyncResult(
+                transferredFiles.get(),
+                transferredBytes.get(),
+                unchangedFiles.get(),
+                deleteObjectsBatch.getDeletedObjects(),
+                Collections.emptyList(),
+                deleteObjectsBatch.getFailedKeys());
+    }
+
+    private SyncResult download(
+            Path localDirectory,
+            String bucketName,
+            String prefix,
+            Map<String, BasicFileAttributes> localFiles,
+            SyncManifest syncManifest,
+            boolean deleteExtras,
+            ExecutorService executorService) throws IOException {
+
+        AtomicLong transferredFiles = new AtomicLong();
+        AtomicLong transferredBytes = new AtomicLong();
+        AtomicLong unchangedFiles = new AtomicLong();
+        List<Future<?>> futures = new ArrayList<>();
+        List<String> remoteRelativePaths = new ArrayList<>();
+        List<String> skippedKeys = new ArrayList<>();
+
+        try (Stream<S3Object> s3Objects = S3Listings.streamObjects(s3Manager, bucketName, prefix)) {
+            Iterator<S3Object> iterator = s3Objects.iterator();
+            while (iterator.hasNext()) {
+                S3Object remoteObject = iterator.next();
+                if (S3CommonUtils.isDirectory(remoteObject.key())) {
+                    continue;
+                }
+
+                String relativePath = remoteObject.key().substring(prefix.length());
+                Path localPath = resolveLocalPath(localDirectory, relativePath);
+                if ((localPath == null) || isSyncFile(relativePath)) {
+                    // Keys such as "../x" or "/etc/x" would be written outside the local directory.
+                    skippedKeys.add(remoteObject.key());
+                    continue;
+                }
+                BasicFileAttributes localAttributes = localFiles.remove(relativePath);
+                remoteRelativePaths.add(relativePath);
+
+                futures.add(executorService.submit(() -> {
+                    if ((localAttributes != null) && isUnchanged(
+                            localPath,
+                            relativePath,
+                            localAttributes.size(),
+                            localAttributes.lastModifiedTime().toMillis(),
+                            remoteObject,
+                            syncManifest)) {
+                        unchangedFiles.incrementAndGet();
+                        return null;
+                    }
+
+                    Files.createDirectories(localPath.getParent());
+                    Path downloadPath =
+                            localPath.resolveSibling(PARTIAL_FILE_PREFIX + UUID.randomUUID() + PARTIAL_FILE_SUFFIX);
+                    long downloadedBytes = 0L;
+                    transferController.acquire(remoteObject.size());
+                    try {
+                        GetObjectResponse getObjectResponse =
+                                s3Manager.getObject(bucketName, remoteObject.key(), null, downloadPath);
+                        downloadedBytes = remoteObject.size();
+                        Files.move(downloadPath, localPath, StandardCopyOption.REPLACE_EXISTING);
+                        syncManifest.put(
+                                relativePath,
+                                Files.size(localPath),
+                                Files.getLastModifiedTime(localPath).toMillis(),
+                                S3CommonUtils.normalizeETag(getObjectResponse.eTag()));
+                    } finally {
+                        transferController.release(downloadedBytes);
+                        Files.deleteIfExists(downloadPath);
+                    }
+                    transferredFiles.incrementAndGet();
+                    transferredBytes.addAndGet(remoteObject.size());
+                    return null;
+                }));
+            }
+        }
+        await(futures);
+
+        long deletedFiles = 0L;
+        if (deleteExtras) {
+            for (String relativePath : localFiles.keySet()) {
+                Path localPath = resolveLocalPath(localDirectory, relativePath);
+                if (localPath != null) {
+                    Files.deleteIfExists(localPath);
+                    deletedFiles++;
+                }
+            }
+        }
+        syncManifest.retainAll(remoteRelativePaths);
+
+        return new SyncResult(
+                transferredFiles.get(),
+                transferredBytes.get(),
+                unchangedFiles.get(),
+                deletedFiles,
+                skippedKeys);
+    }
+
+    /**
+     * Decides whether the local file already holds the remote object's content. The manifest answers for files
+     * that have not been touched since the last sync; only files unknown to it, with the same size as the remote
+     * object and a single-part ETag, are hashed.
+     */
+    private static boolean isUnchanged(
+            Path localPath,
+            String relativePath,
+            long size,
+            long lastModifiedMillis,
+            S3Object remoteObject,
+            SyncManifest syncManifest) throws IOException {
+
+        if ((remoteObject == null) || (remoteObject.size() != size)) {
+            return false;
+        }
+
+        String remoteETag = S3CommonUtils.normalizeETag(remoteObject.eTag());
+        SyncManifest.Entry entry = syncManifest.get(relativePath);
+        if ((entry != null) && entry.matches(size, lastModifiedMillis)) {
+            return remoteETag.equals(entry.getETag());
+        }
+
+        if (remoteETag.contains(MULTIPART_ETAG_SEPARATOR) || !remoteETag.equals(md5Hex(localPath))) {
+            return false;
+        }
+        syncManifest.put(relativePath, size, lastModifiedMillis, remoteETag);
+        return true;
+    }
+
+    /**
+     * Resolves a relative path against the local directory, or returns null if it does not name a file inside it.
+     */
+    private static Path resolveLocalPath(Path localDirectory, String relativePath) {
+
+        Path rootPath = localDirectory.toAbsolutePath().normalize();
+        try {
+            Path localPath = rootPath.resolve(relativePath).normalize();
+            return (localPath.startsWith(rootPath) && !localPath.equals(rootPath)) ? localPath : null;
+        } catch (InvalidPathException exc) {
+            return null;
+        }
+    }
+
+    private static Map<String, BasicFileAttributes> listLocalFiles(Path localDirectory) throws IOException {
+
+        Map<String, BasicFileAttributes> localFiles = new HashMap<>();
+        try (Stream<Path> paths = Files.walk(localDirectory)) {
+            Iterator<Path> iterator = paths.iterator();
+            while (iterator.hasNext()) {
+                Path path = iterator.next();
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                String relativePath = localDirectory.relativize(path)
+                        .toString()
+                        .replace(path.getFileSystem().getSeparator(), Constants.SLASH_CHAR);
+
+                if (attributes.isRegularFile() && !isSyncFile(relativePath)) {
+                    localFiles.put(relativePath, attributes);
+                }
+            }
+        }
+        return localFiles;
+    }
+
+    private static boolean isSyncFile(String relativePath) {
+
+        String fileName = relativePath.substring(relativePath.lastIndexOf(Constants.SLASH_CHAR) + 1);
+        return relativePath.equals(MANIFEST_FILE_NAME)
+                || relativePath.equals(MANIFEST_FILE_NAME + SyncManifest.TEMPORARY_SUFFIX)
+                || PARTIAL_FILE_NAME_PATTERN.matcher(fileName).matches();
+    }
+
+    private static String md5Hex(Path path) throws IOException {
+
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException exc) {
+            throw new IllegalStateException(exc);
+        }
+
+        try (InputStream inputStream = new DigestInputStream(Files.newInputStream(path), messageDigest)) {
+            byte[] buffer = new byte[64 * 1024];
+            while (inputStream.read(buffer) != -1) {
+                // Reading is enough, the digest is updated by the stream.
+            }
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for (byte digestByte : messageDigest.digest()) {
+            hex.append(String.format("%02x", digestByte));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Waits for every transfer, not only until the first failure, so that the manifest is saved once no transfer
+     * can still update it.
+     */
+    private static void await(List<Future<?>> futures) {
+
+        TransferException failure = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException exc) {
+                Thread.currentThread().interrupt();
+                throw new TransferException(Messages.TRANSFER_FAILURE, exc);
+            } catch (ExecutionException exc) {
+                if (failure == null) {
+                    failure = new TransferException(Messages.TRANSFER_FAILURE, exc.getCause());
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package s3.transfer;
+
+import s3.exception.TransferException;
+import s3.externalapi.S3Manager;
+import s3.util.Constants;
+import s3.util.DeleteObjectsBatch;
+import s3.util.Messages;
+import s3.util.S3CommonUtils;
+import s3.util.S3Listings;
+
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CopyObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.model.UploadPartCopyResponse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Copies or moves every object under a prefix to another bucket and prefix using server-side copies only, so no
+ * object bytes flow through the JVM. Objects up to 5 GB are copied with CopyObject and larger ones with multipart
+ * UploadPartCopy, which carries over the source metadata and storage class and pins every part to the listed source
+ * ETag. The listing is consumed lazily and the number of in-flight copies is bounded, so memory stays flat however
+ * many objects the prefix holds. On a move, source objects are deleted in 1000-key batches and only once their copy
+ * has been verified.
+ */
+public class PrefixCopier {
+
+    private final S3Manager s3Manager;
+    private final int parallelism;
+    private final BiConsumer<String, String> writeRecorder;
+
+    /**
+     * Creates a copier.
+     *
+     * @param s3Manager the manager used to list, copy and delete objects.
+     * @param parallelism the number of copies run at once.
+     * @param writeRecorder receives the bucket name and key of every object written, such as
+     *        {@link s3.existence.ObjectExistenceChecker#recordWrite(String)} of the destination bucket.
+     */
+    public PrefixCopier(S3Manager s3Manager, int parallelism, BiConsumer<String, String> writeRecorder) {
+        this.s3Manager = s3Manager;
+        this.parallelism = parallelism;
+        this.writeRecorder = writeRecorder;
+    }
+
+    public PrefixCopier(S3Manager s3Manager, int parallelism) {
+        this(s3Manager, parallelism, (bucketName, key) -> { });
+    }
+
+    public PrefixCopier(S3Manager s3Manager) {
+        this(s3Manager, Constants.DEFAULT_TRANSFER_PARALLELISM);
+    }
+
+    public CopyResult copyPrefix(
+            String sourceBucketName,
+            String sourcePrefix,
+            String destinationBucketName,
+            String destinationPrefix,
+            boolean deleteSource) {
+
+        String normalizedSourcePrefix = (sourcePrefix == null) ? "" : sourcePrefix;
+        String normalizedDestinationPrefix = (destinationPrefix == null) ? "" : destinationPrefix;
+
+        // The lazy listing would read back the copies it just made, and copy them again.
+        if (sourceBucketName.equals(destinationBucketName)
+                && normalizedDestinationPrefix.startsWith(normalizedSourcePrefix)) {
+            throw new IllegalArgumentException("Destination prefix " + normalizedDestinationPrefix
+                    + " must not be inside source prefix " + normalizedSourcePrefix);
+        }
+
+        AtomicLong copiedObjects = new AtomicLong();
+        AtomicLong copiedBytes = new AtomicLong();
+        List<String> failedKeys = Collections.synchronizedList(new ArrayList<>());
+        DeleteObjectsBatch sourceDeletionBatch = new DeleteObjectsBatch(s3Manager, sourceBucketName);
+
+        ExecutorService executorService = Executors.newFixedThreadPool(parallelism);
+        Semaphore inFlightCopies = new Semaphore(parallelism * 2);
+
+        try (Stream<S3Object> s3Objects = S3Listings.streamObjects(s3Manager, sourceBucketName, sourcePrefix)) {
+            Iterator<S3Object> iterator = s3Objects.iterator();
+            while (iterator.hasNext()) {
+                S3Object s3Object = iterator.next();
+                String destinationKey = normalizedDestinationPrefix
+                        + s3Object.key().substring(normalizedSourcePrefix.length());
+
+                inFlightCopies.acquireUninterruptibly();
+                executorService.execute(() -> {
+                    try {
+                        copyObject(sourceBucketName, s3Object, destinationBucketName, destinationKey);
+                        copiedObjects.incrementAndGet();
+                        copiedBytes.addAndGet(s3Object.size());
+                        if (deleteSource) {
+                            sourceDeletionBatch.add(s3Object.key());
+                        }
+                    } catch (RuntimeException exc) {
+                        failedKeys.add(s3Object.key());
+                    } finally {
+                        inFlightCopies.release();
+                    }
+                });
+            }
+        } finally {
+            executorService.shutdown();
+            awaitTermination(executorService);
+        }
+
+        if (deleteSource) {
+            sourceDeletionBatch.flush();
+            // The object was copied but is still in the source, so the move of that key did not complete.
+            failedKeys.addAll(sourceDeletionBatch.getFailedKeys());
+        }
+        return new CopyResult(copiedObjects.get(), copiedBytes.get(), sourceDeletionBatch.getDeletedObjects(),
+                              new ArrayList<>(failedKeys));
+    }
+
+    private void copyObject(
+            String sourceBucketName,
+            S3Object s3Object,
+            String destinationBucketName,
+            String destinationKey) {
+
+        if (s3Object.size() <= Constants.MAX_SINGLE_COPY_SIZE_IN_BYTES) {
+            CopyObjectResponse copyObjectResponse =
+                    s3Manager.copyObject(sourceBucketName, s3Object.key(), destinationBucketName, destinationKey);
+            writeRecorder.accept(destinationBucketName, destinationKey);
+
+            String sourceETag = S3CommonUtils.normalizeETag(s3Object.eTag());
+            String copyETag = S3CommonUtils.normalizeETag(copyObjectResponse.copyObjectResult().eTag());
+            if (sourceETag.equals(copyETag)) {
+                return;
+            }
+        } else {
+            copyObjectInParts(sourceBucketName, s3Object, destinationBucketName, destinationKey);
+            writeRecorder.accept(destinationBucketName, destinationKey);
+        }
+
+        // Multipart and encrypted copies get a new ETag, so they are verified by size instead.
+        long copySize = s3Manager.headObject(destinationBucketName, destinationKey).contentLength();
+        if (copySize != s3Object.size()) {
+            throw new TransferException(Messages.COPY_VERIFICATION_FAILURE);
+        }
+    }
+
+    private void copyObjectInParts(
+            String sourceBucketName,
+            S3Object s3Object,
+            String destinationBucketName,
+            String destinationKey) {
+
+        long size = s3Object.size();
+        long partSize = Math.max(
+                Constants.DEFAULT_COPY_PART_SIZE_IN_BYTES,
+                (size + Constants.MAX_MULTIPART_UPLOAD_PARTS - 1) / Constants.MAX_MULTIPART_UPLOAD_PARTS);
+
+        // CopyObject keeps the source metadata by default, a multipart copy has to be given it.
+        HeadObjectResponse sourceObject = s3Manager.headObject(sourceBucketName, s3Object.key());
+        String uploadId =
+                s3Manager.createMultipartUpload(destinationBucketName, destinationKey, sourceObject).uploadId();
+        try {
+            List<CompletedPart> completedParts = new ArrayList<>();
+            int partNumber = 1;
+            for (long firstByte = 0; firstByte < size; firstByte += partSize, partNumber++) {
+                long lastByte = Math.min(firstByte + partSize, size) - 1;
+
+                UploadPartCopyResponse uploadPartCopyResponse = s3Manager.uploadPartCopy(
+                        sourceBucketName,
+                        s3Object.key(),
+                        destinationBucketName,
+                        destinationKey,
+                        uploadId,
+                        partNumber,
+                        firstByte,
+                        lastByte,
+                        s3Object.eTag());
+
+                completedParts.add(CompletedPart.builder()
+                        .partNumber(partNumber)
+                        .eTag(uploadPartCopyResponse.copyPartResult().eTag())
+                        .build());
+            }
+            s3Manager.completeMultipartUpload(destinationBucketName, destinationKey, uploadId, completedParts);
+        } catch (RuntimeException exc) {
+            s3Manager.abortMultipartUpload(destinationBucketName, destinationKey, uploadId);
+            throw exc;
+        }
+    }
+
+    private static void awaitTermination(ExecutorService executorService) {
+
+        try {
+            while (!executorService.awaitTermination(1, TimeUnit.MINUTES)) {
+                // Keep waiting, every submitted copy must finish before the deletions are flushed.
+            }
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            executorService.shutdownNow();
+            throw new TransferException(Messages.TRANSFER_FAILURE, exc);
+        }
+    }
+}
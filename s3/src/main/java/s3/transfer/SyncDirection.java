@@ -0,0 +1,7 @@
+package s3.transfer;
+
+public enum SyncDirection {
+
+    UPLOAD,
+    DOWNLOAD
+}
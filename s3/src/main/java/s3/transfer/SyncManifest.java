@@ -0,0 +1,108 @@
+package s3.transfer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Local record of the size, modification time and ETag every file had when it was last synchronized.
+ * A file whose size and modification time still match its entry is known to hold the recorded ETag, so it never
+ * has to be hashed again to be compared with the remote listing.
+ */
+class SyncManifest {
+
+    static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private static final String SEPARATOR = "\t";
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    static SyncManifest load(Path manifestPath) throws IOException {
+
+        SyncManifest syncManifest = new SyncManifest();
+        if (!Files.exists(manifestPath)) {
+            return syncManifest;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(manifestPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // The relative path goes last so that it may contain the separator itself.
+                String[] fields = line.split(SEPARATOR, 4);
+                if (fields.length == 4) {
+                    syncManifest.entries.put(
+                            fields[3],
+                            new Entry(Long.parseLong(fields[0]), Long.parseLong(fields[1]), fields[2]));
+                }
+            }
+        }
+        return syncManifest;
+    }
+
+    void save(Path manifestPath) throws IOException {
+
+        Path temporaryPath = manifestPath.resolveSibling(manifestPath.getFileName() + TEMPORARY_SUFFIX);
+        try (BufferedWriter writer = Files.newBufferedWriter(temporaryPath, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                writer.write(entry.getValue().size + SEPARATOR
+                        + entry.getValue().lastModifiedMillis + SEPARATOR
+                        + entry.getValue().eTag + SEPARATOR
+                        + entry.getKey());
+                writer.newLine();
+            }
+        }
+        Files.move(temporaryPath, manifestPath, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    Entry get(String relativePath) {
+        return entries.get(relativePath);
+    }
+
+    void put(String relativePath, long size, long lastModifiedMillis, String eTag) {
+        entries.put(relativePath, new Entry(size, lastModifiedMillis, eTag));
+    }
+
+    void remove(String relativePath) {
+        entries.remove(relativePath);
+    }
+
+    void retainAll(Iterable<String> relativePaths) {
+
+        Map<String, Entry> retainedEntries = new ConcurrentHashMap<>();
+        for (String relativePath : relativePaths) {
+            Entry entry = entries.get(relativePath);
+            if (entry != null) {
+                retainedEntries.put(relativePath, entry);
+            }
+        }
+        entries.clear();
+        entries.putAll(retainedEntries);
+    }
+
+    static final class Entry {
+
+        private final long size;
+        private final long lastModifiedMillis;
+        private final String eTag;
+
+        private Entry(long size, long lastModifiedMillis, String eTag) {
+            this.size = size;
+            this.lastModifiedMillis = lastModifiedMillis;
+            this.eTag = eTag;
+        }
+
+        boolean matches(long size, long lastModifiedMillis) {
+            return (this.size == size) && (this.lastModifiedMillis == lastModifiedMillis);
+        }
+
+        String getETag() {
+            return eTag;
+        }
+    }
+}
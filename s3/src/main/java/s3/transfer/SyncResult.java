@@ -0,0 +1,80 @@
+package s3.transfer;
+
+import java.util.Collections;
+import java.util.List;
+
+public class SyncResult {
+
+    private final long transferredFiles;
+    private final long transferredBytes;
+    private final long unchangedFiles;
+    private final long deletedFiles;
+    private final List<String> skippedKeys;
+    private final List<String> failedDeletionKeys;
+
+    public SyncResult(
+            long transferredFiles,
+            long transferredBytes,
+            long unchangedFiles,
+            long deletedFiles,
+            List<String> skippedKeys,
+            List<String> failedDeletionKeys) {
+
+        this.transferredFiles = transferredFiles;
+        this.transferredBytes = transferredBytes;
+        this.unchangedFiles = unchangedFiles;
+        this.deletedFiles = deletedFiles;
+        this.skippedKeys = Collections.unmodifiableList(skippedKeys);
+        this.failedDeletionKeys = Collections.unmodifiableList(failedDeletionKeys);
+    }
+
+    public SyncResult(
+            long transferredFiles,
+            long transferredBytes,
+            long unchangedFiles,
+            long deletedFiles,
+            List<String> skippedKeys) {
+
+        this(transferredFiles, transferredBytes, unchangedFiles, deletedFiles, skippedKeys, Collections.emptyList());
+    }
+
+    public SyncResult(long transferredFiles, long transferredBytes, long unchangedFiles, long deletedFiles) {
+        this(transferredFiles, transferredBytes, unchangedFiles, deletedFiles, Collections.emptyList());
+    }
+
+    public long getTransferredFiles() {
+        return transferredFiles;
+    }
+
+    public long getTransferredBytes() {
+        return transferredBytes;
+    }
+
+    public long getUnchangedFiles() {
+        return unchangedFiles;
+    }
+
+    public long getDeletedFiles() {
+        return deletedFiles;
+    }
+
+    /**
+     * Returns the keys a download left alone because they would be written outside the local directory, such as
+     * "../x" or "/etc/x", or over the sync manifest.
+     *
+     * @return the skipped keys.
+     */
+    public List<String> getSkippedKeys() {
+        return skippedKeys;
+    }
+
+    /**
+     * Returns the extra keys an upload could not delete from the bucket, as reported in the DeleteObjects errors.
+     * They are not counted in {@link #getDeletedFiles()} and are deleted again by the next sync.
+     *
+     * @return the keys whose deletion failed.
+     */
+    public List<String> getFailedDeletionKeys() {
+        return failedDeletionKeys;
+    }
+}
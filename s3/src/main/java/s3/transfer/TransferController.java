@@ -0,0 +1,175 @@
+package s3.transfer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Adjusts the number of in-flight transfers and the part size at runtime from the throughput actually achieved.
+ * Concurrency is tuned by hill climbing: after every sampling window it keeps moving in the same direction while
+ * throughput improves and reverses when it degrades. The part size follows the per-transfer throughput so that a
+ * part takes roughly the same time to send whatever the host and network. An optional bandwidth limiter caps the
+ * total rate so bulk transfers leave room for latency-sensitive traffic.
+ */
+public class TransferController {
+
+    private static final long MIN_PART_SIZE_IN_BYTES = 5L * 1024 * 1024;
+    private static final long MAX_PART_SIZE_IN_BYTES = 512L * 1024 * 1024;
+    private static final long PART_SIZE_GRANULARITY_IN_BYTES = 1024L * 1024;
+    private static final long TARGET_PART_DURATION_MILLIS = 2000L;
+    private static final double SIGNIFICANT_CHANGE_RATIO = 0.05;
+
+    private final int minConcurrency;
+    private final int maxConcurrency;
+    private final long samplingWindowNanos;
+    private final BandwidthLimiter bandwidthLimiter;
+    private final LongSupplier nanoClock;
+
+    private int concurrency;
+    private int concurrencyStep = 1;
+    private int inFlightTransfers;
+    private long partSizeInBytes = MIN_PART_SIZE_IN_BYTES;
+
+    private long windowStartNanos;
+    private long windowBytes;
+    private double previousThroughput;
+
+    public TransferController(
+            int minConcurrency,
+            int maxConcurrency,
+            long samplingWindowMillis,
+            BandwidthLimiter bandwidthLimiter) {
+
+        this(minConcurrency, maxConcurrency, samplingWindowMillis, bandwidthLimiter, System::nanoTime);
+    }
+
+    TransferController(
+            int minConcurrency,
+            int maxConcurrency,
+            long samplingWindowMillis,
+            BandwidthLimiter bandwidthLimiter,
+            LongSupplier nanoClock) {
+
+        if ((minConcurrency < 1) || (maxConcurrency < minConcurrency)) {
+            throw new IllegalArgumentException(
+                    "Invalid transfer concurrency range: " + minConcurrency + " to " + maxConcurrency);
+        }
+
+        this.minConcurrency = minConcurrency;
+        this.maxConcurrency = maxConcurrency;
+        this.samplingWindowNanos = TimeUnit.MILLISECONDS.toNanos(samplingWindowMillis);
+        this.bandwidthLimiter = bandwidthLimiter;
+        this.nanoClock = nanoClock;
+        this.concurrency = minConcurrency;
+        this.windowStartNanos = nanoClock.getAsLong();
+    }
+
+    public TransferController(int minConcurrency, int maxConcurrency) {
+        this(minConcurrency, maxConcurrency, 2000L, null);
+    }
+
+    /**
+     * Creates a controller that tunes the number of transfers in flight between half the given maximum and the
+     * maximum.
+     *
+     * @param maxConcurrency the most transfers in flight.
+     *
+     * @return the controller.
+     */
+    public static TransferController withDefaultRange(int maxConcurrency) {
+        return new TransferController(Math.max(1, maxConcurrency / 2), maxConcurrency);
+    }
+
+    /**
+     * Blocks until a new transfer of the given size may start, given the current concurrency and bandwidth cap.
+     *
+     * @param bytes the amount of bytes the transfer is about to send or receive.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public void acquire(long bytes) throws InterruptedException {
+
+        synchronized (this) {
+            while (inFlightTransfers >= concurrency) {
+                wait();
+            }
+            inFlightTransfers++;
+        }
+
+        if (bandwidthLimiter != null) {
+            try {
+                bandwidthLimiter.acquire(bytes);
+            } catch (InterruptedException exc) {
+                release(0L);
+                throw exc;
+            }
+        }
+    }
+
+    /**
+     * Charges the bandwidth cap for bytes a transfer moved beyond what it acquired, such as a download whose size
+     * was unknown when it started, blocking as {@link #acquire(long)} would.
+     *
+     * @param bytes the amount of bytes moved beyond the acquired ones.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public void charge(long bytes) throws InterruptedException {
+
+        if ((bandwidthLimiter != null) && (bytes > 0L)) {
+            bandwidthLimiter.acquire(bytes);
+        }
+    }
+
+    /**
+     * Records the end of a transfer and re-tunes once a sampling window has elapsed.
+     *
+     * @param transferredBytes the amount of bytes the transfer actually moved.
+     */
+    public synchronized void release(long transferredBytes) {
+
+        inFlightTransfers--;
+        windowBytes += transferredBytes;
+
+        long nowNanos = nanoClock.getAsLong();
+        long elapsedNanos = nowNanos - windowStartNanos;
+        if (elapsedNanos >= samplingWindowNanos) {
+            tune((double) windowBytes * TimeUnit.SECONDS.toNanos(1) / elapsedNanos);
+            windowStartNanos = nowNanos;
+            windowBytes = 0L;
+        }
+        notifyAll();
+    }
+
+    public synchronized void awaitIdle() throws InterruptedException {
+
+        while (inFlightTransfers > 0) {
+            wait();
+        }
+    }
+
+    public synchronized int getConcurrency() {
+        return concurrency;
+    }
+
+    public synchronized long getPartSizeInBytes() {
+        return partSizeInBytes;
+    }
+
+    private void tune(double throughput) {
+
+        if (throughput < previousThroughput * (1 - SIGNIFICANT_CHANGE_RATIO)) {
+            concurrencyStep = -concurrencyStep;
+        } else if (throughput < previousThroughput * (1 + SIGNIFICANT_CHANGE_RATIO)) {
+            // Plateau: hold the current value, a later change in conditions will move it again.
+            previousThroughput = throughput;
+            return;
+        }
+        previousThroughput = throughput;
+        concurrency = Math.max(minConcurrency, Math.min(maxConcurrency, concurrency + concurrencyStep));
+
+        long perTransferBytesPerSecond = (long) (throughput / Math.max(1, concurrency));
+        long targetPartSize = perTransferBytesPerSecond * TARGET_PART_DURATION_MILLIS / 1000L;
+        targetPartSize = (targetPartSize / PART_SIZE_GRANULARITY_IN_BYTES) * PART_SIZE_GRANULARITY_IN_BYTES;
+        partSizeInBytes = Math.max(MIN_PART_SIZE_IN_BYTES, Math.min(MAX_PART_SIZE_IN_BYTES, targetPartSize));
+    }
+}
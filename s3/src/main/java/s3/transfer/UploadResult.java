@@ -0,0 +1,29 @@
+package s3.transfer;
+
+import java.nio.file.Path;
+import java.util.List;
+
+public class UploadResult {
+
+    private final long uploadedFiles;
+    private final long uploadedBytes;
+    private final List<Path> failedFiles;
+
+    public UploadResult(long uploadedFiles, long uploadedBytes, List<Path> failedFiles) {
+        this.uploadedFiles = uploadedFiles;
+        this.uploadedBytes = uploadedBytes;
+        this.failedFiles = failedFiles;
+    }
+
+    public long getUploadedFiles() {
+        return uploadedFiles;
+    }
+
+    public long getUploadedBytes() {
+        return uploadedBytes;
+    }
+
+    public List<Path> getFailedFiles() {
+        return failedFiles;
+    }
+}
@@ -3,4 +3,36 @@ package s3.util;
 public class Constants {
 
     public static final String SLASH_CHAR                           = "/";
+    public static final String LEGACY_EU_LOCATION_CONSTRAINT        = "EU";
+    public static final String BUCKET_REGION_HEADER                 = "x-amz-bucket-region";
+
+    public static final int HTTP_FORBIDDEN                          = 403;
+    public static final int HTTP_NOT_FOUND                          = 404;
+    public static final int HTTP_NOT_MODIFIED                       = 304;
+    public static final int MAX_DELETE_OBJECTS_PER_REQUEST          = 1000;
+    public static final int DEFAULT_TRANSFER_PARALLELISM            = 16;
+    public static final int DEFAULT_LISTING_PARALLELISM             = 16;
+    public static final int MAX_MULTIPART_UPLOAD_PARTS              = 10000;
+    public static final int DEFAULT_MAX_IN_FLIGHT_UPLOADS           = 256;
+    public static final int DEFAULT_UPLOAD_BUFFER_SIZE_IN_BYTES     = 1024 * 1024;
+    public static final int DEFAULT_SCHEDULER_WORKER_THREADS        = 8;
+    public static final int DEFAULT_SCHEDULER_WHEEL_SIZE            = 512;
+    public static final int DEFAULT_PREFETCH_BATCH_SIZE             = 1000;
+    public static final int DEFAULT_PREFETCHED_BATCHES              = 4;
+    public static final int DEFAULT_EVENT_BATCH_SIZE                = 10;
+    public static final int DEFAULT_CHECKPOINT_INTERVAL_IN_OBJECTS  = 1000;
+    public static final int DEFAULT_EXISTENCE_CHECK_PARALLELISM     = 16;
+    public static final int JOURNAL_COMPACTION_THRESHOLD            = 10000;
+    public static final int DUPLICATE_CANDIDATES_PER_PARTITION      = 250000;
+    public static final int MAX_DUPLICATE_SPILL_PARTITIONS          = 1024;
+
+    public static final long MAX_SINGLE_COPY_SIZE_IN_BYTES          = 5L * 1024 * 1024 * 1024;
+    public static final long DEFAULT_COPY_PART_SIZE_IN_BYTES        = 512L * 1024 * 1024;
+    public static final long DEFAULT_SCHEDULER_TICK_IN_MILLIS       = 100L;
+    public static final long DEFAULT_EVENT_POLL_TIMEOUT_IN_MILLIS   = 20000L;
+    public static final long EVENT_POLL_FAILURE_BACKOFF_IN_MILLIS   = 1000L;
+    public static final long JOURNAL_SYNC_INTERVAL_IN_MILLIS        = 1000L;
+    public static final long DEFAULT_EXISTENCE_FILTER_CAPACITY      = 1000000L;
+
+    public static final double DEFAULT_FALSE_POSITIVE_RATE          = 0.01;
 }
@@ -0,0 +1,108 @@
+package s3.util;
+
+import s3.externalapi.S3Manager;
+
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.S3Error;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Accumulates keys to delete from one bucket and sends them in DeleteObjects requests of up to 1000 keys.
+ * It is safe to add keys from several threads; {@link #flush()} must be called once the last key has been added.
+ * Keys reported as errors in a DeleteObjects response are not counted as deleted but collected as failed keys,
+ * along with the errors themselves.
+ */
+public class DeleteObjectsBatch {
+
+    private final S3Manager s3Manager;
+    private final String bucketName;
+    private final boolean dryRun;
+    private final List<String> keys = new ArrayList<>(Constants.MAX_DELETE_OBJECTS_PER_REQUEST);
+    private final Map<String, Long> sizesInBytes = new HashMap<>();
+    private final List<String> failedKeys = new ArrayList<>();
+    private final List<S3Error> errors = new ArrayList<>();
+
+    private long deletedObjects;
+    private long deletedBytes;
+
+    public DeleteObjectsBatch(S3Manager s3Manager, String bucketName, boolean dryRun) {
+        this.s3Manager = s3Manager;
+        this.bucketName = bucketName;
+        this.dryRun = dryRun;
+    }
+
+    public DeleteObjectsBatch(S3Manager s3Manager, String bucketName) {
+        this(s3Manager, bucketName, false);
+    }
+
+    public synchronized void add(String key) {
+        add(key, 0L);
+    }
+
+    /**
+     * Adds a key along with the size of its object, which is counted in {@link #getDeletedBytes()} once deleted.
+     *
+     * @param key the object key.
+     * @param sizeInBytes the object size.
+     */
+    public synchronized void add(String key, long sizeInBytes) {
+
+        keys.add(key);
+        sizesInBytes.merge(key, sizeInBytes, Long::sum);
+        if (keys.size() == Constants.MAX_DELETE_OBJECTS_PER_REQUEST) {
+            flush();
+        }
+    }
+
+    public synchronized void flush() {
+
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        int failedObjects = 0;
+        if (!dryRun) {
+            DeleteObjectsResponse deleteObjectsResponse =
+                    s3Manager.deleteObjects(bucketName, S3CommonUtils.convertKeysToObjectIdentifiers(keys));
+            for (S3Error s3Error : deleteObjectsResponse.errors()) {
+                errors.add(s3Error);
+                if (sizesInBytes.remove(s3Error.key()) != null) {
+                    failedKeys.add(s3Error.key());
+                    failedObjects++;
+                }
+            }
+        }
+
+        for (long sizeInBytes : sizesInBytes.values()) {
+            deletedBytes += sizeInBytes;
+        }
+        deletedObjects += keys.size() - failedObjects;
+        keys.clear();
+        sizesInBytes.clear();
+    }
+
+    public synchronized long getDeletedObjects() {
+        return deletedObjects;
+    }
+
+    public synchronized long getDeletedBytes() {
+        return deletedBytes;
+    }
+
+    public synchronized List<String> getFailedKeys() {
+        return new ArrayList<>(failedKeys);
+    }
+
+    /**
+     * Returns the errors of the DeleteObjects responses, whose codes tell why the failed keys were not deleted.
+     *
+     * @return the errors.
+     */
+    public synchronized List<S3Error> getErrors() {
+        return new ArrayList<>(errors);
+    }
+}
@@ -3,4 +3,11 @@ package s3.util;
 public class Messages {
 
     public static final String INVALID_DIRECTORY_PATH = "The provided directory path is invalid.";
+    public static final String OBJECT_CACHE_IO_FAILURE = "Unable to read or write the local object cache.";
+    public static final String OBJECT_CACHE_OBJECT_TOO_LARGE = "The object is too large to be memory-mapped.";
+    public static final String LOCAL_FILE_IO_FAILURE = "Unable to read or write the local file tree.";
+    public static final String COPY_VERIFICATION_FAILURE = "The copied object does not match its source.";
+    public static final String TRANSFER_FAILURE = "One or more transfers failed.";
+    public static final String CHECKSUM_FAILURE = "Unable to compute the checksum of an object.";
+    public static final String DELETE_FAILURE = "One or more objects could not be deleted.";
 }
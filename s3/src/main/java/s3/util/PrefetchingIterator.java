@@ -0,0 +1,116 @@
+package s3.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Drains another iterator on a background thread, a batch at a time, into a bounded queue. The consumer keeps
+ * working on one batch while the next ones, typically listing pages, are already being fetched, and memory never
+ * exceeds the queue capacity. Failures of the source are rethrown to the consumer. Closing stops the background
+ * thread, and a closed iterator has no next element, even if the consumer was waiting for one.
+ *
+ * @param <T> the element type.
+ */
+public final class PrefetchingIterator<T> implements Iterator<T>, AutoCloseable {
+
+    private final List<T> endOfSource = new ArrayList<>();
+    private final BlockingQueue<List<T>> batches;
+    private final Thread producer;
+
+    private volatile boolean closed;
+    private volatile RuntimeException failure;
+    private Iterator<T> currentBatch = Collections.emptyIterator();
+    private boolean finished;
+
+    public PrefetchingIterator(Iterator<T> source, int batchSize, int prefetchedBatches, String threadName) {
+
+        this.batches = new ArrayBlockingQueue<>(prefetchedBatches + 1);
+        this.producer = new Thread(() -> produce(source, batchSize), threadName);
+        this.producer.setDaemon(true);
+        this.producer.start();
+    }
+
+    public PrefetchingIterator(Iterator<T> source, String threadName) {
+        this(source, Constants.DEFAULT_PREFETCH_BATCH_SIZE, Constants.DEFAULT_PREFETCHED_BATCHES, threadName);
+    }
+
+    @Override
+    public boolean hasNext() {
+
+        while (!closed && !currentBatch.hasNext() && !finished) {
+            List<T> batch;
+            try {
+                batch = batches.take();
+            } catch (InterruptedException exc) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(exc);
+            }
+
+            if (batch == endOfSource) {
+                finished = true;
+                if ((failure != null) && !closed) {
+                    throw failure;
+                }
+            } else {
+                currentBatch = batch.iterator();
+            }
+        }
+        return !closed && currentBatch.hasNext();
+    }
+
+    @Override
+    public T next() {
+
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return currentBatch.next();
+    }
+
+    @Override
+    public void close() {
+
+        closed = true;
+        producer.interrupt();
+        batches.clear();
+        // Wakes up a consumer waiting for a batch; the producer no longer puts the end marker once closed.
+        batches.offer(endOfSource);
+    }
+
+    private void produce(Iterator<T> source, int batchSize) {
+
+        try {
+            List<T> batch = new ArrayList<>(batchSize);
+            while (!closed && source.hasNext()) {
+                batch.add(source.next());
+                if (batch.size() == batchSize) {
+                    batches.put(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                batches.put(batch);
+            }
+        } catch (InterruptedException exc) {
+            return;
+        } catch (RuntimeException exc) {
+            if (closed) {
+                return;
+            }
+            failure = exc;
+        }
+
+        try {
+            if (!closed) {
+                batches.put(endOfSource);
+            }
+        } catch (InterruptedException exc) {
+            // Closed while waiting for room, nobody is left to read the end marker.
+        }
+    }
+}
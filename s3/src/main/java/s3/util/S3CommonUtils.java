@@ -1,8 +1,14 @@
 package s3.util;
 
+import s3.externalapi.S3Manager;
+
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.model.GetBucketLocationResponse;
 import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.S3Exception;
 import software.amazon.awssdk.services.s3.model.S3Object;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -26,6 +32,118 @@ public final class S3CommonUtils {
                 .collect(Collectors.toList());
     }
 
+    public static <T> List<List<T>> partition(List<T> elements, int batchSize) {
+
+        List<List<T>> batches = new ArrayList<>();
+        for (int index = 0; index < elements.size(); index += batchSize) {
+            batches.add(elements.subList(index, Math.min(index + batchSize, elements.size())));
+        }
+        return batches;
+    }
+
+    public static String normalizeETag(String eTag) {
+
+        if ((eTag != null) && (eTag.length() >= 2) && eTag.startsWith("\"") && eTag.endsWith("\"")) {
+            return eTag.substring(1, eTag.length() - 1);
+        }
+        return eTag;
+    }
+
+    public static String normalizePrefix(String prefix) {
+
+        if ((prefix == null) || prefix.isEmpty() || isDirectory(prefix)) {
+            return (prefix == null) ? "" : prefix;
+        }
+        return prefix + Constants.SLASH_CHAR;
+    }
+
+    public static Region convertBucketLocationToRegion(GetBucketLocationResponse getBucketLocationResponse) {
+
+        String locationConstraint = getBucketLocationResponse.locationConstraintAsString();
+
+        // Buckets in us-east-1 report no location constraint, and the oldest eu-west-1 buckets report "EU".
+        if ((locationConstraint == null) || locationConstraint.isEmpty()) {
+            return Region.US_EAST_1;
+        } else if (Constants.LEGACY_EU_LOCATION_CONSTRAINT.equals(locationConstraint)) {
+            return Region.EU_WEST_1;
+        }
+        return Region.of(locationConstraint);
+    }
+
+    /**
+     * Resolves the region of a bucket with GetBucketLocation. Callers denied GetBucketLocation fall back to the region
+     * HeadBucket reports in a header, even when it answers with a redirect or access denied.
+     *
+     * @param s3Manager the manager sending the requests.
+     * @param bucketName the bucket name.
+     *
+     * @return the region, or null if neither request reveals it.
+     */
+    public static Region resolveBucketRegion(S3Manager s3Manager, String bucketName) {
+
+        try {
+            return convertBucketLocationToRegion(s3Manager.getBucketLocation(bucketName));
+        } catch (S3Exception exc) {
+            if (exc.statusCode() != Constants.HTTP_FORBIDDEN) {
+                throw exc;
+            }
+        }
+
+        String bucketRegion;
+        try {
+            bucketRegion = s3Manager.headBucket(bucketName).bucketRegion();
+        } catch (S3Exception exc) {
+            bucketRegion = ((exc.awsErrorDetails() == null) || (exc.awsErrorDetails().sdkHttpResponse() == null))
+                    ? null
+                    : exc.awsErrorDetails()
+                            .sdkHttpResponse()
+                            .firstMatchingHeader(Constants.BUCKET_REGION_HEADER)
+                            .orElse(null);
+        }
+        return ((bucketRegion == null) || bucketRegion.isEmpty()) ? null : Region.of(bucketRegion);
+    }
+
+    /**
+     * Compares keys in the order S3 lists them, which is the order of their UTF-8 bytes. It differs from
+     * {@link String#compareTo(String)} for characters outside the basic multilingual plane: their surrogate pairs
+     * sort before U+E000 to U+FFFF in UTF-16, but their code points, and so their UTF-8 bytes, sort after.
+     *
+     * @param firstKey the first key.
+     * @param secondKey the second key.
+     *
+     * @return a negative number, zero or a positive number as the first key sorts before, with or after the second.
+     */
+    public static int compareKeys(String firstKey, String secondKey) {
+
+        int length = Math.min(firstKey.length(), secondKey.length());
+        for (int index = 0; index < length; index++) {
+            char firstChar = firstKey.charAt(index);
+            char secondChar = secondKey.charAt(index);
+            if (firstChar != secondChar) {
+                return compareKeyChars(firstChar, secondChar);
+            }
+        }
+        return Integer.compare(firstKey.length(), secondKey.length());
+    }
+
+    /**
+     * Compares two chars of keys in the order of {@link #compareKeys(String, String)}, in which surrogates sort after
+     * every other char.
+     *
+     * @param firstChar the first char.
+     * @param secondChar the second char.
+     *
+     * @return a negative number, zero or a positive number as the first char sorts before, with or after the second.
+     */
+    public static int compareKeyChars(char firstChar, char secondChar) {
+
+        boolean firstSurrogate = Character.isSurrogate(firstChar);
+        if (firstSurrogate != Character.isSurrogate(secondChar)) {
+            return firstSurrogate ? 1 : -1;
+        }
+        return Character.compare(firstChar, secondChar);
+    }
+
     public static boolean isDirectory(String key) {
         return key.endsWith(Constants.SLASH_CHAR);
     }
@@ -0,0 +1,102 @@
+package s3.util;
+
+import s3.externalapi.S3Manager;
+
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public final class S3Listings {
+
+    private S3Listings() {}
+
+    /**
+     * Returns every object under the prefix as a lazy stream that requests the next listing page only when the
+     * current one has been consumed, so a full bucket scan never holds more than one page in memory.
+     *
+     * @param s3Manager the manager used to list the bucket.
+     * @param bucketName the bucket name.
+     * @param prefix the key prefix, or null to list the whole bucket.
+     *
+     * @return the stream of objects in lexicographic key order.
+     */
+    public static Stream<S3Object> streamObjects(S3Manager s3Manager, String bucketName, String prefix) {
+        return streamObjects(s3Manager, bucketName, prefix, null);
+    }
+
+    /**
+     * Returns the objects under the prefix whose keys sort after the received key, which lets an interrupted scan
+     * resume from the last key it processed.
+     *
+     * @param s3Manager the manager used to list the bucket.
+     * @param bucketName the bucket name.
+     * @param prefix the key prefix, or null to list the whole bucket.
+     * @param startAfter the key to start after, or null to start from the beginning.
+     *
+     * @return the stream of objects in lexicographic key order.
+     */
+    public static Stream<S3Object> streamObjects(
+            S3Manager s3Manager,
+            String bucketName,
+            String prefix,
+            String startAfter) {
+
+        Iterator<S3Object> iterator = new PaginatedObjectIterator(s3Manager, bucketName, prefix, startAfter);
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL),
+                false);
+    }
+
+    public static Stream<S3Object> streamObjects(S3Manager s3Manager, String bucketName) {
+        return streamObjects(s3Manager, bucketName, null);
+    }
+
+    private static final class PaginatedObjectIterator implements Iterator<S3Object> {
+
+        private final S3Manager s3Manager;
+        private final String bucketName;
+        private final String prefix;
+        private final String startAfter;
+
+        private Iterator<S3Object> currentPage;
+        private String continuationToken;
+        private boolean lastPage;
+
+        private PaginatedObjectIterator(S3Manager s3Manager, String bucketName, String prefix, String startAfter) {
+            this.s3Manager = s3Manager;
+            this.bucketName = bucketName;
+            this.prefix = prefix;
+            this.startAfter = startAfter;
+        }
+
+        @Override
+        public boolean hasNext() {
+
+            while (((currentPage == null) || !currentPage.hasNext()) && !lastPage) {
+                ListObjectsV2Response listObjectsV2Response = (startAfter == null)
+                        ? s3Manager.listObjectsV2(bucketName, prefix, continuationToken)
+                        : s3Manager.listObjectsV2(bucketName, prefix, startAfter, continuationToken);
+
+                currentPage = listObjectsV2Response.contents().iterator();
+                continuationToken = listObjectsV2Response.nextContinuationToken();
+                lastPage = !Boolean.TRUE.equals(listObjectsV2Response.isTruncated());
+            }
+            return (currentPage != null) && currentPage.hasNext();
+        }
+
+        @Override
+        public S3Object next() {
+
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return currentPage.next();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package s3.benchmark;
+
+import s3.externalapi.S3ClientConfiguration;
+import s3.externalapi.S3ManagerImpl;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures time-to-first-request of an S3 manager, the figure that dominates short-lived invocations.
+ * It lives with the tests so that it stays out of the production jar. Run it once per mode in a fresh JVM, since
+ * class loading is part of what is measured, on the test classpath:
+ * {@code java -cp target/classes:target/test-classes:<dependencies> s3.benchmark.StartupBenchmark <bucket>
+ * [default|fast|prewarm]}.
+ */
+public final class StartupBenchmark {
+
+    private StartupBenchmark() {}
+
+    public static void main(String[] args) throws Exception {
+
+        if (args.length < 1) {
+            System.err.println("Usage: StartupBenchmark <bucket> [default|fast|prewarm]");
+            System.exit(1);
+        }
+        String bucketName = args[0];
+        String mode = (args.length > 1) ? args[1] : "default";
+
+        long mainStartNanos = System.nanoTime();
+        S3ClientConfiguration s3ClientConfiguration = "default".equals(mode)
+                ? S3ClientConfiguration.builder().build()
+                : S3ClientConfiguration.forFastStartup();
+        S3ManagerImpl s3Manager = new S3ManagerImpl(s3ClientConfiguration);
+        long constructedNanos = System.nanoTime();
+
+        if ("prewarm".equals(mode)) {
+            // Stands for the application's own initialization running while the client warms up.
+            s3Manager.prewarm(bucketName).get();
+        }
+        long firstRequestStartNanos = System.nanoTime();
+        s3Manager.headBucket(bucketName);
+        long firstRequestEndNanos = System.nanoTime();
+
+        s3Manager.headBucket(bucketName);
+        long secondRequestEndNanos = System.nanoTime();
+
+        long jvmUptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        System.out.println("mode:                        " + mode);
+        System.out.println("manager construction (ms):   " + toMillis(constructedNanos - mainStartNanos));
+        System.out.println("first request (ms):          " + toMillis(firstRequestEndNanos - firstRequestStartNanos));
+        System.out.println("second request (ms):         " + toMillis(secondRequestEndNanos - firstRequestEndNanos));
+        System.out.println("main to first response (ms): " + toMillis(firstRequestEndNanos - mainStartNanos));
+        System.out.println("JVM uptime (ms):             " + jvmUptimeMillis);
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
@@ -0,0 +1,112 @@
+package s3.browse;
+
+import s3.externalapi.InMemoryS3Manager;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class DirectoryBrowserTest {
+
+    @Test
+    public void listPagesTest() {
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager(2);
+        for (String key : Arrays.asList("d/", "d/a", "d/b/x", "d/b/y", "d/c", "d/e/z", "d0")) {
+            s3Manager.put("bucket", key, 1L, InMemoryS3Manager.OLD);
+        }
+        DirectoryBrowser directoryBrowser = new DirectoryBrowser(s3Manager);
+
+        // Each page holds two keys or common prefixes, and the directory marker is dropped from the first one.
+        List<String> names = new ArrayList<>();
+        int pages = 0;
+        String continuationToken = null;
+        do {
+            DirectoryPage page = directoryBrowser.listPage("bucket", "d", continuationToken);
+            Assert.assertEquals("d/", page.getDirectoryPrefix());
+            names.addAll(getNames(page.getEntries()));
+            continuationToken = page.getNextContinuationToken();
+            Assert.assertEquals(continuationToken != null, page.hasNextPage());
+            pages++;
+        } while (continuationToken != null);
+
+        Assert.assertEquals(Arrays.asList("a", "b/", "c", "e/"), names);
+        Assert.assertEquals(3, pages);
+
+        try (Stream<DirectoryEntry> directoryEntries = directoryBrowser.listDirectory("bucket", "d/")) {
+            Assert.assertEquals(names, getNames(directoryEntries.collect(Collectors.toList())));
+        }
+        try (Stream<DirectoryEntry> directoryEntries =
+                     new DirectoryBrowser(s3Manager, true).listDirectory("bucket", "d/")) {
+            Assert.assertEquals(names, getNames(directoryEntries.collect(Collectors.toList())));
+        }
+    }
+
+    @Test(timeout = 5000L)
+    public void closePrefetchingStreamTest() throws InterruptedException {
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager(2);
+        for (int index = 0; index < 20; index++) {
+            s3Manager.put("bucket", String.format("d/%02d", index), 1L, InMemoryS3Manager.OLD);
+        }
+
+        List<String> names = new ArrayList<>();
+        try (Stream<DirectoryEntry> directoryEntries =
+                     new DirectoryBrowser(s3Manager, true).listDirectory("bucket", "d")) {
+            Iterator<DirectoryEntry> iterator = directoryEntries.iterator();
+            for (int index = 0; index < 3; index++) {
+                names.add(iterator.next().getName());
+            }
+        }
+        Assert.assertEquals(Arrays.asList("00", "01", "02"), names);
+
+        // The prefetching thread stops with the stream, one page ahead of the consumer at most.
+        int listRequests = s3Manager.getListRequests();
+        Thread.sleep(100L);
+        Assert.assertEquals(listRequests, s3Manager.getListRequests());
+        Assert.assertTrue(listRequests <= 4);
+    }
+
+    @Test
+    public void walkTest() {
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager(2);
+        for (String key : Arrays.asList("r/a/", "r/a/1", "r/a/b/2", "r/a/b/c/3", "r/e/5", "r/f", "s/6")) {
+            s3Manager.put("bucket", key, 1L, InMemoryS3Manager.OLD);
+        }
+        DirectoryBrowser directoryBrowser = new DirectoryBrowser(s3Manager);
+
+        // Two levels: the content of a/b/ is not listed, and the marker of a/ is not one of its children.
+        List<DirectoryEntry> entries = directoryBrowser.walk("bucket", "r", 2, 2);
+        Assert.assertEquals(Arrays.asList("a/", "a/1", "a/b/", "e/", "e/5", "f"), getNames(entries));
+        Assert.assertEquals(
+                Arrays.asList(1, 2, 2, 1, 2, 1),
+                entries.stream().map(DirectoryEntry::getDepth).collect(Collectors.toList()));
+        Assert.assertEquals("r/a/b/", entries.get(2).getKey());
+        Assert.assertTrue(entries.get(2).isDirectory());
+
+        entries = directoryBrowser.walk("bucket", "r/", 1, 1);
+        Assert.assertEquals(Arrays.asList("a/", "e/", "f"), getNames(entries));
+
+        entries = directoryBrowser.walk("bucket", "", 10, 4);
+        Assert.assertEquals(
+                Arrays.asList("r/", "r/a/", "r/a/1", "r/a/b/", "r/a/b/2", "r/a/b/c/", "r/a/b/c/3", "r/e/", "r/e/5",
+                              "r/f", "s/", "s/6"),
+                getNames(entries));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void walkDepthTest() {
+        new DirectoryBrowser(new InMemoryS3Manager()).walk("bucket", "", 0, 1);
+    }
+
+    private static List<String> getNames(List<DirectoryEntry> entries) {
+        return entries.stream().map(DirectoryEntry::getName).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,199 @@
+package s3.cache;
+
+import s3.exception.ObjectCacheException;
+import s3.externalapi.InMemoryS3Manager;
+import s3.util.Messages;
+
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class S3ObjectCacheTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void evictionTest() throws IOException {
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager();
+        s3Manager.put("bucket", "a", bytes("1111"), InMemoryS3Manager.OLD);
+        s3Manager.put("bucket", "b", bytes("2222"), InMemoryS3Manager.OLD);
+        s3Manager.put("bucket", "c", bytes("3333"), InMemoryS3Manager.OLD);
+        Path cacheDirectory = temporaryFolder.newFolder("cache").toPath();
+        S3ObjectCache s3ObjectCache = new S3ObjectCache(s3Manager, cacheDirectory, 10L);
+
+        Assert.assertEquals("1111", read(s3ObjectCache.getObject("bucket", "a")));
+        Assert.assertEquals("2222", read(s3ObjectCache.getObject("bucket", "b")));
+        // Reading a again makes b the least recently used entry, which c evicts.
+        s3ObjectCache.getObject("bucket", "a");
+        Assert.assertEquals("3333", read(s3ObjectCache.getObject("bucket", "c")));
+        Assert.assertEquals(8L, s3ObjectCache.getCurrentSizeInBytes());
+        Assert.assertEquals(2, listFiles(cacheDirectory).size());
+
+        // a and c are revalidated, b is downloaded again.
+        int getRequests = s3Manager.getGetRequests();
+        s3ObjectCache.getObject("bucket", "a");
+        s3ObjectCache.getObject("bucket", "c");
+        Assert.assertEquals(getRequests + 2, s3Manager.getGetRequests());
+        Assert.assertEquals("2222", read(s3ObjectCache.getObject("bucket", "b")));
+        Assert.assertEquals(8L, s3ObjectCache.getCurrentSizeInBytes());
+        Assert.assertEquals(2, listFiles(cacheDirectory).size());
+    }
+
+    @Test
+    public void oversizedObjectTest() throws IOException {
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager();
+        s3Manager.put("bucket", "a", bytes("1111"), InMemoryS3Manager.OLD);
+        s3Manager.put("bucket", "large", bytes("0123456789abcdef"), InMemoryS3Manager.OLD);
+        Path cacheDirectory = temporaryFolder.newFolder("cache").toPath();
+        S3ObjectCache s3ObjectCache = new S3ObjectCache(s3Manager, cacheDirectory, 10L);
+
+        s3ObjectCache.getObject("bucket", "a");
+        // The oversized object is returned without evicting anything, and without leaving its file behind.
+        Assert.assertEquals("0123456789abcdef", read(s3ObjectCache.getObject("bucket", "large")));
+        Assert.assertEquals(4L, s3ObjectCache.getCurrentSizeInBytes());
+        Assert.assertEquals(1, listFiles(cacheDirectory).size());
+        Assert.assertEquals("1111", read(s3ObjectCache.getObject("bucket", "a")));
+    }
+
+    @Test
+    public void revalidationTest() throws IOException {
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager();
+        s3Manager.put("bucket", "a", bytes("1111"), InMemoryS3Manager.OLD);
+        Path cacheDirectory = temporaryFolder.newFolder("cache").toPath();
+        S3ObjectCache s3ObjectCache = new S3ObjectCache(s3Manager, cacheDirectory, 10L);
+
+        s3ObjectCache.getObject("bucket", "a");
+        Path entryPath = listFiles(cacheDirectory).iterator().next();
+
+        // The cached ETag is sent with If-None-Match, and the 304 answer reuses the cached file.
+        Assert.assertEquals("1111", read(s3ObjectCache.getObject("bucket", "a")));
+        Assert.assertEquals(2, s3Manager.getGetRequests());
+        Assert.assertEquals(Collections.singleton(entryPath), listFiles(cacheDirectory));
+
+        // A changed object no longer matches the cached ETag and replaces the entry.
+        s3Manager.put("bucket", "a", bytes("22"), InMemoryS3Manager.OLD);
+        Assert.assertEquals("22", read(s3ObjectCache.getObject("bucket", "a")));
+        Assert.assertEquals(3, s3Manager.getGetRequests());
+        Assert.assertEquals(2L, s3ObjectCache.getCurrentSizeInBytes());
+        Assert.assertFalse(listFiles(cacheDirectory).contains(entryPath));
+
+        s3ObjectCache.invalidate("bucket", "a");
+        Assert.assertEquals(0L, s3ObjectCache.getCurrentSizeInBytes());
+        Assert.assertEquals(Collections.emptySet(), listFiles(cacheDirectory));
+    }
+
+    @Test
+    public void evictedDuringRevalidationTest() throws IOException {
+
+        AtomicReference<S3ObjectCache> s3ObjectCache = new AtomicReference<>();
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager() {
+
+            @Override
+            public GetObjectResponse getObject(String bucketName, String key, String eTag, Path destination) {
+
+                if (eTag != null) {
+                    s3ObjectCache.get().invalidate(bucketName, key);
+                }
+                return super.getObject(bucketName, key, eTag, destination);
+            }
+        };
+        s3Manager.put("bucket", "a", bytes("1111"), InMemoryS3Manager.OLD);
+        Path cacheDirectory = temporaryFolder.newFolder("cache").toPath();
+        s3ObjectCache.set(new S3ObjectCache(s3Manager, cacheDirectory, 10L));
+        s3ObjectCache.get().getObject("bucket", "a");
+
+        // The 304 answer finds the entry gone, and a single unconditional GET downloads the object again.
+        Assert.assertEquals("1111", read(s3ObjectCache.get().getObject("bucket", "a")));
+        Assert.assertEquals(3, s3Manager.getGetRequests());
+        Assert.assertEquals(4L, s3ObjectCache.get().getCurrentSizeInBytes());
+        Assert.assertEquals(1, listFiles(cacheDirectory).size());
+    }
+
+    @Test
+    public void unmappableObjectTest() throws IOException {
+
+        // A sparse file stands for an object too large to be mapped.
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager() {
+
+            @Override
+            public GetObjectResponse getObject(String bucketName, String key, String eTag, Path destination) {
+
+                try (RandomAccessFile file = new RandomAccessFile(destination.toFile(), "rw")) {
+                    file.setLength(Integer.MAX_VALUE + 1L);
+                } catch (IOException exc) {
+                    throw new UncheckedIOException(exc);
+                }
+                return GetObjectResponse.builder().eTag("\"huge\"").build();
+            }
+        };
+        Path cacheDirectory = temporaryFolder.newFolder("cache").toPath();
+        S3ObjectCache s3ObjectCache = new S3ObjectCache(s3Manager, cacheDirectory, Long.MAX_VALUE);
+
+        // The object is rejected without leaving its file in the cache directory.
+        try {
+            s3ObjectCache.getObject("bucket", "huge");
+            Assert.fail("Unmappable object returned.");
+        } catch (ObjectCacheException exc) {
+            Assert.assertEquals(Messages.OBJECT_CACHE_OBJECT_TOO_LARGE, exc.getMessage());
+        }
+        Assert.assertEquals(0L, s3ObjectCache.getCurrentSizeInBytes());
+        Assert.assertEquals(Collections.emptySet(), listFiles(cacheDirectory));
+    }
+
+    @Test
+    public void leftoverFilesTest() throws IOException {
+
+        Path cacheDirectory = temporaryFolder.newFolder("cache").toPath();
+        Path entryPath = cacheDirectory.resolve(UUID.randomUUID().toString());
+        Path partialPath = cacheDirectory.resolve(UUID.randomUUID() + ".part");
+        Path otherPath = cacheDirectory.resolve("README");
+        for (Path path : Arrays.asList(entryPath, partialPath, otherPath)) {
+            Files.write(path, bytes("1"));
+        }
+
+        // Only the files named like entries and partial downloads are deleted.
+        S3ObjectCache s3ObjectCache = new S3ObjectCache(new InMemoryS3Manager(), cacheDirectory, 10L);
+        Assert.assertEquals(Collections.singleton(otherPath), listFiles(cacheDirectory));
+        Assert.assertEquals(0L, s3ObjectCache.getFailedDeletions());
+    }
+
+    private static Set<Path> listFiles(Path cacheDirectory) throws IOException {
+
+        try (Stream<Path> paths = Files.list(cacheDirectory)) {
+            return paths.collect(Collectors.toSet());
+        }
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String read(ByteBuffer buffer) {
+
+        byte[] content = new byte[buffer.remaining()];
+        buffer.duplicate().get(content);
+        return new String(content, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,106 @@
+package s3.checkpoint;
+
+import s3.util.Constants;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class CheckpointJournalTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void replayTest() throws IOException {
+
+        Path path = temporaryFolder.getRoot().toPath().resolve("journal");
+        try (CheckpointJournal checkpointJournal = CheckpointJournal.open(path)) {
+            checkpointJournal.record(new Checkpoint("size:a:", "k1", 1L, 10L, false));
+            checkpointJournal.record(new Checkpoint("size:b:", null, 0L, 0L, false));
+            checkpointJournal.record(new Checkpoint("size:a:", "k2", 2L, 20L, false));
+            checkpointJournal.recordAndSync(new Checkpoint("size:b:", "k9", 9L, 90L, true));
+        }
+
+        try (CheckpointJournal checkpointJournal = CheckpointJournal.open(path)) {
+            Assert.assertEquals(2, checkpointJournal.getCheckpoints().size());
+            Checkpoint checkpoint = checkpointJournal.getCheckpoint("size:a:");
+            Assert.assertEquals("k2", checkpoint.getLastKey());
+            Assert.assertEquals(2L, checkpoint.getObjectCount());
+            Assert.assertEquals(20L, checkpoint.getSizeInBytes());
+            Assert.assertFalse(checkpoint.isCompleted());
+            Assert.assertTrue(checkpointJournal.getCheckpoint("size:b:").isCompleted());
+            Assert.assertNull(checkpointJournal.getCheckpoint("size:c:"));
+        }
+    }
+
+    @Test
+    public void tornRecordTest() throws IOException {
+
+        Path path = temporaryFolder.getRoot().toPath().resolve("journal");
+        try (CheckpointJournal checkpointJournal = CheckpointJournal.open(path)) {
+            checkpointJournal.recordAndSync(new Checkpoint("size:a:", "k1", 1L, 10L, false));
+        }
+
+        // A crash in the middle of a write leaves a record shorter than its declared length.
+        Files.write(path, new byte[] {0, 0, 0, 50, 1, 2, 3}, StandardOpenOption.APPEND);
+        try (CheckpointJournal checkpointJournal = CheckpointJournal.open(path)) {
+            Assert.assertEquals("k1", checkpointJournal.getCheckpoint("size:a:").getLastKey());
+            checkpointJournal.recordAndSync(new Checkpoint("size:a:", "k2", 2L, 20L, false));
+        }
+
+        // Reopening compacted the torn tail away, so the record written after it is replayed too.
+        try (CheckpointJournal checkpointJournal = CheckpointJournal.open(path)) {
+            Assert.assertEquals("k2", checkpointJournal.getCheckpoint("size:a:").getLastKey());
+        }
+    }
+
+    @Test
+    public void corruptRecordTest() throws IOException {
+
+        Path path = temporaryFolder.getRoot().toPath().resolve("journal");
+        try (CheckpointJournal checkpointJournal = CheckpointJournal.open(path)) {
+            checkpointJournal.recordAndSync(new Checkpoint("size:a:", "k1", 1L, 10L, false));
+            checkpointJournal.recordAndSync(new Checkpoint("size:a:", "k2", 2L, 20L, false));
+        }
+
+        // Flipping the last byte breaks the CRC of the last record, and replay stops before it.
+        byte[] journal = Files.readAllBytes(path);
+        journal[journal.length - 1] ^= 1;
+        Files.write(path, journal);
+        try (CheckpointJournal checkpointJournal = CheckpointJournal.open(path)) {
+            Assert.assertEquals("k1", checkpointJournal.getCheckpoint("size:a:").getLastKey());
+        }
+    }
+
+    @Test
+    public void compactionTest() throws IOException {
+
+        Path path = temporaryFolder.getRoot().toPath().resolve("journal");
+        try (CheckpointJournal checkpointJournal = CheckpointJournal.open(path, 0L)) {
+            for (int index = 0; index <= Constants.JOURNAL_COMPACTION_THRESHOLD; index++) {
+                checkpointJournal.record(new Checkpoint("size:a:", "k" + index, index, index, false));
+            }
+            long compactedSize = Files.size(path);
+
+            try (CheckpointJournal singleRecordJournal = CheckpointJournal.open(
+                    temporaryFolder.getRoot().toPath().resolve("single"))) {
+                singleRecordJournal.recordAndSync(new Checkpoint("size:a:", "k0", 0L, 0L, false));
+                // The journal holds the compacted record and the one appended after it, not thousands.
+                Assert.assertTrue(compactedSize < 3 * Files.size(singleRecordJournal.getPath()));
+            }
+        }
+
+        try (CheckpointJournal checkpointJournal = CheckpointJournal.open(path)) {
+            Assert.assertEquals(
+                    "k" + Constants.JOURNAL_COMPACTION_THRESHOLD,
+                    checkpointJournal.getCheckpoint("size:a:").getLastKey());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package s3.checkpoint;
+
+import s3.externalapi.InMemoryS3Manager;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+
+public class ResumableScannerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void deletePriorDateObjectsResumeTest() throws IOException {
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager(2);
+        for (int index = 0; index < 6; index++) {
+            s3Manager.put("bucket", "a" + index, 10L, InMemoryS3Manager.OLD.plusSeconds(index));
+        }
+        s3Manager.put("bucket", "b", 10L, InMemoryS3Manager.OLD.plusSeconds(20));
+        s3Manager.failDeletion("a3");
+
+        Path path = temporaryFolder.getRoot().toPath().resolve("journal");
+        try (CheckpointJournal checkpointJournal = CheckpointJournal.open(path)) {
+            new ResumableScanner(s3Manager, checkpointJournal, 2)
+                    .deletePriorDateObjects("bucket", null, InMemoryS3Manager.OLD.plusSeconds(10));
+            Assert.fail("Failed deletion not reported");
+        } catch (IllegalStateException exc) {
+            // Expected.
+        }
+        Assert.assertEquals(new HashSet<>(Arrays.asList("a3", "a4", "a5", "b")), s3Manager.getKeys("bucket"));
+
+        // The restart computes a later instant, but the deletion keeps the one it started with.
+        s3Manager.allowDeletion("a3");
+        try (CheckpointJournal checkpointJournal = CheckpointJournal.open(path)) {
+            Checkpoint checkpoint = new ResumableScanner(s3Manager, checkpointJournal, 2)
+                    .deletePriorDateObjects("bucket", null, InMemoryS3Manager.OLD.plusSeconds(30));
+            // The object deleted by the failed request is gone before the restart lists it, so it is not counted.
+            Assert.assertTrue(checkpoint.isCompleted());
+            Assert.assertEquals(5L, checkpoint.getObjectCount());
+            Assert.assertEquals(50L, checkpoint.getSizeInBytes());
+        }
+        Assert.assertEquals(new HashSet<>(Arrays.asList("b")), s3Manager.getKeys("bucket"));
+
+        // Once completed, a new deletion uses the received instant.
+        try (CheckpointJournal checkpointJournal = CheckpointJournal.open(path)) {
+            Checkpoint checkpoint = new ResumableScanner(s3Manager, checkpointJournal, 2)
+                    .deletePriorDateObjects("bucket", null, InMemoryS3Manager.OLD.plusSeconds(30));
+            Assert.assertEquals(1L, checkpoint.getObjectCount());
+        }
+        Assert.assertTrue(s3Manager.getKeys("bucket").isEmpty());
+    }
+}
@@ -0,0 +1,83 @@
+package s3.dedup;
+
+import s3.externalapi.InMemoryS3Manager;
+
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class DuplicateFinderTest {
+
+    @Test
+    public void findDuplicatesTest() {
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager(2);
+        put(s3Manager, "first", "a/1", 100L, "x");
+        put(s3Manager, "first", "a/2", 100L, "x");
+        put(s3Manager, "second", "b/1", 100L, "x");
+        put(s3Manager, "second", "b/2", 500L, "y");
+        put(s3Manager, "second", "b/3", 500L, "y");
+        put(s3Manager, "second", "b/4", 500L, "z");
+        put(s3Manager, "second", "b/5", 0L, "e");
+        put(s3Manager, "second", "b/6", 0L, "e");
+
+        DuplicateReport duplicateReport = new DuplicateFinder(s3Manager, 2, 1L).findDuplicates(
+                Arrays.asList(ObjectLocation.ofBucket("first"), ObjectLocation.ofBucket("second")), false);
+
+        // The empty objects are below the minimum size and are not even scanned.
+        Assert.assertEquals(6L, duplicateReport.getScannedObjects());
+        Assert.assertEquals(2L, duplicateReport.getDuplicateSetCount());
+        Assert.assertEquals(3L, duplicateReport.getDuplicateObjects());
+        Assert.assertEquals(2 * 100L + 500L, duplicateReport.getWastedBytes());
+
+        // The most wasteful set comes first.
+        DuplicateSet duplicateSet = duplicateReport.getDuplicateSets().get(0);
+        Assert.assertEquals(500L, duplicateSet.getSize());
+        Assert.assertEquals(
+                Arrays.asList("second/b/2", "second/b/3"),
+                duplicateSet.getObjectLocations().stream().map(this::toPath).sorted().collect(Collectors.toList()));
+        Assert.assertEquals(3, duplicateReport.getDuplicateSets().get(1).getObjectLocations().size());
+    }
+
+    @Test
+    public void overlappingSourcesTest() {
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager();
+        put(s3Manager, "bucket", "a/1", 100L, "x");
+        put(s3Manager, "bucket", "a/2", 200L, "y");
+
+        // Every object is listed twice, which makes it a candidate, but a single location is no duplicate.
+        List<DuplicateSet> duplicateSets = new ArrayList<>();
+        DuplicateReport duplicateReport = new DuplicateFinder(s3Manager).findDuplicates(
+                Arrays.asList(ObjectLocation.ofBucket("bucket"), new ObjectLocation("bucket", "a/")),
+                false,
+                duplicateSets::add);
+
+        Assert.assertTrue(duplicateSets.isEmpty());
+        Assert.assertEquals(4L, duplicateReport.getScannedObjects());
+        Assert.assertEquals(0L, duplicateReport.getDuplicateSetCount());
+        Assert.assertEquals(Collections.emptyList(), duplicateReport.getDuplicateSets());
+    }
+
+    private static void put(InMemoryS3Manager s3Manager, String bucketName, String key, long size, String eTag) {
+        s3Manager.put(
+                bucketName,
+                S3Object.builder()
+                        .key(key)
+                        .size(size)
+                        .eTag("\"" + eTag + "\"")
+                        .lastModified(InMemoryS3Manager.OLD)
+                        .build());
+    }
+
+    private String toPath(ObjectLocation objectLocation) {
+        return objectLocation.getBucketName() + "/" + objectLocation.getKey();
+    }
+}
@@ -0,0 +1,99 @@
+package s3.diff;
+
+import s3.externalapi.InMemoryS3Manager;
+
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class ListingDiffTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void diffTest() {
+
+        // Small pages make the merge cross many page boundaries on both sides.
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager(2);
+        for (String key : Arrays.asList("a", "b", "c", "d/e", "d/f", "é", "😀")) {
+            s3Manager.put("left", "src/" + key, 1L, InMemoryS3Manager.OLD);
+        }
+        for (String key : Arrays.asList("b", "c", "d/f", "d/g", "é", "😀", "z")) {
+            s3Manager.put("right", "copy/" + key, key.equals("c") ? 2L : 1L, InMemoryS3Manager.OLD);
+        }
+
+        try (Stream<DiffEntry> diffEntries = new ListingDiff(s3Manager, false).diff("left", "src/", "right", "copy/")) {
+            Assert.assertEquals(
+                    Arrays.asList("ONLY_LEFT a", "CHANGED c", "ONLY_LEFT d/e", "ONLY_RIGHT d/g", "ONLY_RIGHT z"),
+                    diffEntries
+                            .map(diffEntry -> diffEntry.getDiffType() + " " + diffEntry.getRelativeKey())
+                            .collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void compareLastModifiedTest() {
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager();
+        s3Manager.put("left", "a", 1L, InMemoryS3Manager.OLD);
+        s3Manager.put("right", "a", 1L, InMemoryS3Manager.OLD.plusSeconds(1));
+
+        try (Stream<DiffEntry> diffEntries = new ListingDiff(s3Manager, false).diff("left", null, "right", null)) {
+            Assert.assertEquals(0L, diffEntries.count());
+        }
+        try (Stream<DiffEntry> diffEntries = new ListingDiff(s3Manager, true).diff("left", null, "right", null)) {
+            List<DiffEntry> changedEntries = diffEntries.collect(Collectors.toList());
+            Assert.assertEquals(1, changedEntries.size());
+            Assert.assertTrue(changedEntries.get(0).isLastModifiedChanged());
+            Assert.assertFalse(changedEntries.get(0).isSizeChanged());
+        }
+    }
+
+    @Test
+    public void listingFileTest() throws IOException {
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager(2);
+        for (int index = 0; index < 5; index++) {
+            s3Manager.put("bucket", "p/" + index, index, InMemoryS3Manager.OLD);
+        }
+        Path path = temporaryFolder.getRoot().toPath().resolve("listing.tsv");
+        ListingFile listingFile = ListingFile.save(s3Manager, "bucket", "p/", path);
+
+        s3Manager.put("bucket", "p/1", 10L, InMemoryS3Manager.OLD);
+        s3Manager.put("bucket", "p/5", 5L, InMemoryS3Manager.OLD);
+
+        try (Stream<DiffEntry> diffEntries = new ListingDiff(s3Manager, false).diff(ListingFile.open(path))) {
+            List<DiffEntry> entries = diffEntries.collect(Collectors.toList());
+            Assert.assertEquals(2, entries.size());
+            Assert.assertEquals(DiffType.CHANGED, entries.get(0).getDiffType());
+            Assert.assertEquals("1", entries.get(0).getRelativeKey());
+            Assert.assertEquals(DiffType.ONLY_RIGHT, entries.get(1).getDiffType());
+        }
+        Assert.assertEquals("bucket", listingFile.getBucketName());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void unorderedListingTest() {
+
+        Stream<S3Object> leftObjects = Stream.of(object("b"), object("a"));
+        try (Stream<DiffEntry> diffEntries = new ListingDiff(new InMemoryS3Manager(), false)
+                .diff(leftObjects, null, Stream.empty(), null)) {
+            diffEntries.count();
+        }
+    }
+
+    private static S3Object object(String key) {
+        return S3Object.builder().key(key).size(1L).lastModified(InMemoryS3Manager.OLD).build();
+    }
+}
@@ -0,0 +1,79 @@
+package s3.events;
+
+import s3.externalapi.InMemoryS3Manager;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+public class EventIndexerTest {
+
+    @Test
+    public void pollFailureAndMalformedMessageTest() throws InterruptedException {
+
+        IllegalStateException pollFailure = new IllegalStateException("queue unavailable");
+        EventMessage malformedMessage = new EventMessage("1", "not json");
+        EventMessage eventMessage = new EventMessage("2", "{\"Records\":[{\"eventName\":\"ObjectCreated:Put\","
+                + "\"eventTime\":\"1996-04-18T09:00:00.000Z\",\"s3\":{\"bucket\":{\"name\":\"bucket\"},"
+                + "\"object\":{\"key\":\"a\",\"size\":10,\"sequencer\":\"0A\"}}}]}");
+        ScriptedMessageSource messageSource = new ScriptedMessageSource(pollFailure, malformedMessage, eventMessage);
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager();
+        s3Manager.put("bucket", "b", 20L, InMemoryS3Manager.OLD);
+        try (EventIndexer eventIndexer = new EventIndexer(
+                s3Manager, messageSource, Collections.singletonList("bucket"))) {
+            eventIndexer.start();
+            ObjectIndex objectIndex = eventIndexer.getObjectIndex("bucket");
+            long deadline = System.currentTimeMillis() + 10000L;
+            while ((objectIndex.getAppliedEvents() == 0) && (System.currentTimeMillis() < deadline)) {
+                Thread.sleep(10L);
+            }
+
+            Assert.assertEquals(1L, eventIndexer.getPollFailures());
+            Assert.assertSame(pollFailure, eventIndexer.getLastPollFailure());
+            Assert.assertEquals(2L, eventIndexer.getReceivedMessages());
+            Assert.assertEquals(1L, eventIndexer.getMalformedMessages());
+            Assert.assertSame(malformedMessage, eventIndexer.getLastMalformedMessage());
+            Assert.assertNotNull(objectIndex.getObject("a"));
+        }
+    }
+
+    /**
+     * Fails the first poll, then delivers the messages once, then waits out every later poll.
+     */
+    private static class ScriptedMessageSource implements EventMessageSource {
+
+        private final Deque<Object> responses = new ArrayDeque<>();
+
+        ScriptedMessageSource(RuntimeException failure, EventMessage... eventMessages) {
+
+            responses.add(failure);
+            responses.add(Arrays.asList(eventMessages));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public synchronized List<EventMessage> poll(int maxMessages, Duration timeout) throws InterruptedException {
+
+            Object response = responses.poll();
+            if (response instanceof RuntimeException) {
+                throw (RuntimeException) response;
+            }
+            if (response == null) {
+                wait(timeout.toMillis());
+                return Collections.emptyList();
+            }
+            return (List<EventMessage>) response;
+        }
+
+        @Override
+        public void acknowledge(List<EventMessage> eventMessages) {
+        }
+    }
+}
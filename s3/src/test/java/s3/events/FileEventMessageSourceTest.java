@@ -0,0 +1,46 @@
+package s3.events;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+public class FileEventMessageSourceTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void redeliveryTest() throws IOException, InterruptedException {
+
+        Path path = temporaryFolder.getRoot().toPath().resolve("messages");
+        Files.write(path, "{\"a\":1}\n{\"b\":2}\n\n{\"c\":3}\n{\"d\"".getBytes(StandardCharsets.UTF_8));
+
+        try (FileEventMessageSource eventMessageSource = new FileEventMessageSource(path)) {
+            List<EventMessage> firstPoll = eventMessageSource.poll(2, Duration.ZERO);
+            Assert.assertEquals(2, firstPoll.size());
+            Assert.assertEquals("{\"a\":1}", firstPoll.get(0).getBody());
+
+            // Messages that are not acknowledged are delivered again.
+            List<EventMessage> secondPoll = eventMessageSource.poll(2, Duration.ZERO);
+            Assert.assertEquals("{\"a\":1}", secondPoll.get(0).getBody());
+            Assert.assertEquals(0L, eventMessageSource.getAcknowledgedOffset());
+
+            eventMessageSource.acknowledge(secondPoll);
+            List<EventMessage> thirdPoll = eventMessageSource.poll(10, Duration.ZERO);
+            Assert.assertEquals(1, thirdPoll.size());
+            Assert.assertEquals("{\"c\":3}", thirdPoll.get(0).getBody());
+
+            eventMessageSource.acknowledge(thirdPoll);
+            Assert.assertEquals(Files.size(path) - 4, eventMessageSource.getAcknowledgedOffset());
+            Assert.assertTrue(eventMessageSource.poll(10, Duration.ZERO).isEmpty());
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package s3.events;
+
+import s3.externalapi.InMemoryS3Manager;
+
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+public class ObjectIndexTest {
+
+    @Test
+    public void listingOrderTest() {
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager();
+        s3Manager.put("bucket", "a/\uD83D\uDE00", 1L, InMemoryS3Manager.OLD);
+        s3Manager.put("bucket", "a/\uD83D\uDE00/b", 2L, InMemoryS3Manager.OLD);
+        s3Manager.put("bucket", "a/\uE000", 4L, InMemoryS3Manager.OLD);
+        s3Manager.put("bucket", "a/b", 8L, InMemoryS3Manager.OLD);
+        s3Manager.put("bucket", "b", 16L, InMemoryS3Manager.OLD);
+        ObjectIndex objectIndex = new ObjectIndex("bucket");
+        objectIndex.reconcile(s3Manager);
+
+        // Keys come in S3's UTF-8 order, in which a supplementary character sorts after U+E000 to U+FFFF.
+        Assert.assertEquals(
+                Arrays.asList("a/b", "a/\uE000", "a/\uD83D\uDE00", "a/\uD83D\uDE00/b"),
+                objectIndex.streamObjects("a/").map(S3Object::key).collect(Collectors.toList()));
+
+        // A prefix range ends with the last key starting with it, whatever its chars.
+        Assert.assertEquals(2L, objectIndex.getObjectCount("a/\uD83D\uDE00"));
+        Assert.assertEquals(3L, objectIndex.getStorageSizeInBytes("a/\uD83D"));
+        Assert.assertEquals(15L, objectIndex.getStorageSizeInBytes("a/"));
+        Assert.assertEquals(5, objectIndex.streamObjects(null).count());
+    }
+}
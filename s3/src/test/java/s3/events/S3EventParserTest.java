@@ -0,0 +1,49 @@
+package s3.events;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class S3EventParserTest {
+
+    @Test
+    public void parseTest() {
+
+        List<ObjectEvent> objectEvents = S3EventParser.parse(message("1996-04-18T09:00:00.000Z", "1024"));
+
+        Assert.assertEquals(1, objectEvents.size());
+        ObjectEvent objectEvent = objectEvents.get(0);
+        Assert.assertEquals("logs", objectEvent.getBucketName());
+        Assert.assertEquals("a b/c.txt", objectEvent.getKey());
+        Assert.assertEquals(ObjectEventType.CREATED, objectEvent.getObjectEventType());
+        Assert.assertEquals(1024L, objectEvent.getSize());
+        Assert.assertEquals(829818000000L, objectEvent.getEventTimeMillis());
+    }
+
+    @Test
+    public void malformedTest() {
+
+        assertMalformed("not json");
+        assertMalformed(message("18/04/1996", "1024"));
+        assertMalformed(message("1996-04-18T09:00:00.000Z", "1.5"));
+        assertMalformed(message("1996-04-18T09:00:00.000Z", "1e30"));
+    }
+
+    private static void assertMalformed(String body) {
+
+        try {
+            S3EventParser.parse(body);
+            Assert.fail("Malformed message parsed: " + body);
+        } catch (IllegalArgumentException exc) {
+            // Expected.
+        }
+    }
+
+    private static String message(String eventTime, String size) {
+
+        return "{\"Records\":[{\"eventName\":\"ObjectCreated:Put\",\"eventTime\":\"" + eventTime + "\","
+                + "\"s3\":{\"bucket\":{\"name\":\"logs\"},"
+                + "\"object\":{\"key\":\"a+b/c.txt\",\"size\":" + size + ",\"sequencer\":\"0A1B\"}}}]}";
+    }
+}
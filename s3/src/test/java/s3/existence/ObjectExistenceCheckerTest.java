@@ -0,0 +1,106 @@
+package s3.existence;
+
+import s3.externalapi.InMemoryS3Manager;
+import s3.util.S3CommonUtils;
+
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ObjectExistenceCheckerTest {
+
+    @Test
+    public void headObjectConfirmationTest() {
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager();
+        s3Manager.put("bucket", "a", 1L, InMemoryS3Manager.OLD);
+        s3Manager.put("bucket", "b", 2L, InMemoryS3Manager.OLD);
+        ObjectExistenceChecker existenceChecker = new ObjectExistenceChecker(s3Manager, "bucket", 2, 0.01);
+
+        // Before the first refresh every key is checked with HeadObject, and misses are not false positives.
+        Assert.assertFalse(existenceChecker.isLoaded());
+        Assert.assertFalse(existenceChecker.objectExists("missing"));
+        Assert.assertEquals(1L, existenceChecker.getHeadRequests());
+        Assert.assertEquals(0L, existenceChecker.getFalsePositives());
+
+        existenceChecker.refresh();
+        Assert.assertTrue(existenceChecker.isLoaded());
+        Assert.assertEquals(2L, existenceChecker.getFilteredKeys());
+        Assert.assertNotNull(existenceChecker.getLastRefreshTime());
+
+        // Keys the filter holds are confirmed with HeadObject, and keys it has never seen are answered locally.
+        Assert.assertTrue(existenceChecker.objectExists("a"));
+        Assert.assertEquals(2L, existenceChecker.getHeadRequests());
+        Assert.assertFalse(existenceChecker.objectExists("missing"));
+        Assert.assertEquals(2L, existenceChecker.getHeadRequests());
+        Assert.assertEquals(1L, existenceChecker.getLocalNegatives());
+
+        // A deleted key stays in the filter, so HeadObject answers for it and counts a false positive.
+        s3Manager.deleteObjects("bucket", S3CommonUtils.convertKeysToObjectIdentifiers(Arrays.asList("b")));
+        Assert.assertFalse(existenceChecker.objectExists("b"));
+        Assert.assertEquals(3L, existenceChecker.getHeadRequests());
+        Assert.assertEquals(1L, existenceChecker.getFalsePositives());
+
+        Assert.assertEquals(
+                Arrays.asList("a", "a"),
+                existenceChecker.filterExisting(Arrays.asList("a", "b", "missing", "a")));
+        Assert.assertEquals(2L, existenceChecker.getFalsePositives());
+    }
+
+    @Test
+    public void recordWriteDuringRefreshTest() throws Exception {
+
+        AtomicBoolean gated = new AtomicBoolean();
+        CountDownLatch listingStarted = new CountDownLatch(1);
+        CountDownLatch listingResumed = new CountDownLatch(1);
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager(1) {
+
+            @Override
+            public ListObjectsV2Response listObjectsV2(
+                    String bucketName,
+                    String prefix,
+                    String continuationToken) {
+
+                if (gated.get() && (continuationToken != null)) {
+                    listingStarted.countDown();
+                    await(listingResumed);
+                }
+                return super.listObjectsV2(bucketName, prefix, continuationToken);
+            }
+        };
+        s3Manager.put("bucket", "b", 1L, InMemoryS3Manager.OLD);
+        s3Manager.put("bucket", "c", 1L, InMemoryS3Manager.OLD);
+        ObjectExistenceChecker existenceChecker = new ObjectExistenceChecker(s3Manager, "bucket", 2, 0.01);
+        existenceChecker.refresh();
+
+        gated.set(true);
+        CompletableFuture<Void> refresh = CompletableFuture.runAsync(existenceChecker::refresh);
+
+        // The key is written behind the listing, which has already passed it, and recorded before the swap.
+        Assert.assertTrue(listingStarted.await(5L, TimeUnit.SECONDS));
+        s3Manager.put("bucket", "a", 1L, InMemoryS3Manager.OLD);
+        existenceChecker.recordWrite("a");
+        listingResumed.countDown();
+        refresh.get(5L, TimeUnit.SECONDS);
+
+        Assert.assertEquals(3L, existenceChecker.getFilteredKeys());
+        Assert.assertTrue(existenceChecker.objectExists("a"));
+        Assert.assertEquals(0L, existenceChecker.getLocalNegatives());
+    }
+
+    private static void await(CountDownLatch countDownLatch) {
+
+        try {
+            countDownLatch.await(5L, TimeUnit.SECONDS);
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package s3.existence;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ScalableBloomFilterTest {
+
+    @Test
+    public void growthTest() {
+
+        ScalableBloomFilter scalableBloomFilter = new ScalableBloomFilter(1000L, 0.01);
+        long initialSizeInBytes = scalableBloomFilter.getSizeInBytes();
+
+        // Twenty times the first stage's capacity takes five stages.
+        for (int index = 0; index < 20000; index++) {
+            scalableBloomFilter.add("key-" + index);
+        }
+        Assert.assertEquals(20000L, scalableBloomFilter.getKeyCount());
+        Assert.assertTrue(scalableBloomFilter.getSizeInBytes() > 20L * initialSizeInBytes);
+
+        for (int index = 0; index < 20000; index++) {
+            Assert.assertTrue(scalableBloomFilter.mightContain("key-" + index));
+        }
+
+        // The stages share the requested rate, so the filter as a whole still stays below it.
+        int falsePositives = 0;
+        int lookups = 100000;
+        for (int index = 0; index < lookups; index++) {
+            if (scalableBloomFilter.mightContain("missing-" + index)) {
+                falsePositives++;
+            }
+        }
+        Assert.assertTrue("False positives: " + falsePositives, falsePositives < lookups * 0.01);
+    }
+
+    @Test
+    public void concurrentAddTest() throws InterruptedException {
+
+        ScalableBloomFilter scalableBloomFilter = new ScalableBloomFilter(100L, 0.01);
+        Thread[] threads = new Thread[4];
+        for (int thread = 0; thread < threads.length; thread++) {
+            int offset = thread;
+            threads[thread] = new Thread(() -> {
+                for (int index = offset; index < 10000; index += threads.length) {
+                    scalableBloomFilter.add("key-" + index);
+                }
+            });
+            threads[thread].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assert.assertEquals(10000L, scalableBloomFilter.getKeyCount());
+        for (int index = 0; index < 10000; index++) {
+            Assert.assertTrue(scalableBloomFilter.mightContain("key-" + index));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidRateTest() {
+        new ScalableBloomFilter(1000L, 1.0);
+    }
+}
@@ -0,0 +1,212 @@
+package s3.externalapi;
+
+import software.amazon.awssdk.services.s3.model.Bucket;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListBucketsResponse;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+public class CoalescingS3ManagerTest {
+
+    private final ExecutorService executorService = Executors.newCachedThreadPool();
+
+    @After
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void concurrentCallsTest() throws Exception {
+
+        GatedS3Manager s3Manager = new GatedS3Manager();
+        CoalescingS3Manager coalescingS3Manager = new CoalescingS3Manager(s3Manager);
+        CountDownLatch gate = s3Manager.closeGate();
+
+        List<Future<HeadObjectResponse>> futures = new ArrayList<>();
+        for (int call = 0; call < 4; call++) {
+            futures.add(executorService.submit(() -> coalescingS3Manager.headObject("bucket", "a")));
+        }
+        awaitCount(coalescingS3Manager::getCoalescedRequests, 3L);
+        gate.countDown();
+
+        HeadObjectResponse headObjectResponse = futures.get(0).get();
+        for (Future<HeadObjectResponse> future : futures) {
+            Assert.assertSame(headObjectResponse, future.get());
+        }
+        Assert.assertEquals(1, s3Manager.headRequests.get());
+        Assert.assertEquals(1L, coalescingS3Manager.getIssuedRequests());
+    }
+
+    @Test
+    public void failureTest() throws Exception {
+
+        GatedS3Manager s3Manager = new GatedS3Manager();
+        CoalescingS3Manager coalescingS3Manager = new CoalescingS3Manager(s3Manager, Duration.ofHours(1L));
+        CountDownLatch gate = s3Manager.closeGate();
+        IllegalStateException failure = new IllegalStateException("throttled");
+        s3Manager.failure = failure;
+
+        List<Future<HeadObjectResponse>> futures = new ArrayList<>();
+        for (int call = 0; call < 3; call++) {
+            futures.add(executorService.submit(() -> coalescingS3Manager.headObject("bucket", "a")));
+        }
+        awaitCount(coalescingS3Manager::getCoalescedRequests, 2L);
+        gate.countDown();
+
+        for (Future<HeadObjectResponse> future : futures) {
+            try {
+                future.get();
+                Assert.fail("Failure not delivered to a waiter.");
+            } catch (ExecutionException exc) {
+                Assert.assertSame(failure, exc.getCause());
+            }
+        }
+        Assert.assertEquals(1, s3Manager.headRequests.get());
+
+        // The failure is not shared within the window, so the next call issues a new request.
+        s3Manager.failure = null;
+        Assert.assertEquals(Long.valueOf(10L), coalescingS3Manager.headObject("bucket", "a").contentLength());
+        Assert.assertEquals(2, s3Manager.headRequests.get());
+    }
+
+    @Test
+    public void resultWindowTest() throws InterruptedException {
+
+        GatedS3Manager s3Manager = new GatedS3Manager();
+        CoalescingS3Manager coalescingS3Manager = new CoalescingS3Manager(s3Manager);
+        coalescingS3Manager.headObject("bucket", "a");
+        coalescingS3Manager.headObject("bucket", "a");
+        Assert.assertEquals(2, s3Manager.headRequests.get());
+
+        s3Manager.headRequests.set(0);
+        coalescingS3Manager = new CoalescingS3Manager(s3Manager, Duration.ofMillis(200L));
+        HeadObjectResponse headObjectResponse = coalescingS3Manager.headObject("bucket", "a");
+        Assert.assertSame(headObjectResponse, coalescingS3Manager.headObject("bucket", "a"));
+        Assert.assertEquals(1, s3Manager.headRequests.get());
+        Assert.assertEquals(1L, coalescingS3Manager.getCoalescedRequests());
+
+        Thread.sleep(300L);
+        Assert.assertNotSame(headObjectResponse, coalescingS3Manager.headObject("bucket", "a"));
+        Assert.assertEquals(2, s3Manager.headRequests.get());
+    }
+
+    @Test
+    public void invalidateTest() throws Exception {
+
+        GatedS3Manager s3Manager = new GatedS3Manager();
+        CoalescingS3Manager coalescingS3Manager = new CoalescingS3Manager(s3Manager, Duration.ofHours(1L));
+
+        // A write drops the in-flight request of its bucket, so later calls do not wait for a stale result.
+        CountDownLatch gate = s3Manager.closeGate();
+        Future<HeadObjectResponse> inFlight =
+                executorService.submit(() -> coalescingS3Manager.headObject("bucket", "a"));
+        awaitCount(s3Manager.headRequests::get, 1L);
+        coalescingS3Manager.deleteObjects(
+                "bucket", Collections.singletonList(ObjectIdentifier.builder().key("b").build()));
+        Future<HeadObjectResponse> afterWrite =
+                executorService.submit(() -> coalescingS3Manager.headObject("bucket", "a"));
+        awaitCount(s3Manager.headRequests::get, 2L);
+        gate.countDown();
+        Assert.assertNotSame(inFlight.get(), afterWrite.get());
+        Assert.assertEquals(0L, coalescingS3Manager.getCoalescedRequests());
+
+        // A write drops the windowed results of its bucket only.
+        coalescingS3Manager.headObject("bucket", "a");
+        coalescingS3Manager.headObject("other", "c");
+        Assert.assertEquals(3, s3Manager.headRequests.get());
+        coalescingS3Manager.deleteObjects(
+                "bucket", Collections.singletonList(ObjectIdentifier.builder().key("b").build()));
+        coalescingS3Manager.headObject("bucket", "a");
+        coalescingS3Manager.headObject("other", "c");
+        Assert.assertEquals(4, s3Manager.headRequests.get());
+
+        // Deleting a bucket drops the shared bucket listing.
+        Assert.assertEquals(Arrays.asList("bucket", "other"), bucketNames(coalescingS3Manager.listBuckets()));
+        Assert.assertEquals(Arrays.asList("bucket", "other"), bucketNames(coalescingS3Manager.listBuckets()));
+        Assert.assertEquals(1, s3Manager.listBucketsRequests.get());
+        coalescingS3Manager.deleteBucket("other");
+        Assert.assertEquals(Collections.singletonList("bucket"), bucketNames(coalescingS3Manager.listBuckets()));
+        Assert.assertEquals(2, s3Manager.listBucketsRequests.get());
+    }
+
+    private static List<String> bucketNames(ListBucketsResponse listBucketsResponse) {
+        return listBucketsResponse.buckets().stream().map(Bucket::name).collect(Collectors.toList());
+    }
+
+    private static void awaitCount(LongSupplier count, long expectedCount) throws InterruptedException {
+
+        long deadline = System.currentTimeMillis() + 10000L;
+        while ((count.getAsLong() < expectedCount) && (System.currentTimeMillis() < deadline)) {
+            Thread.sleep(5L);
+        }
+        Assert.assertEquals(expectedCount, count.getAsLong());
+    }
+
+    /**
+     * Counts the head object and bucket listing requests, and holds head object requests while its gate is closed.
+     */
+    private static class GatedS3Manager extends InMemoryS3Manager {
+
+        private final AtomicInteger headRequests = new AtomicInteger();
+        private final AtomicInteger listBucketsRequests = new AtomicInteger();
+        private volatile CountDownLatch gate;
+        private volatile RuntimeException failure;
+
+        GatedS3Manager() {
+
+            put("bucket", "a", 10L, InMemoryS3Manager.OLD);
+            put("bucket", "b", 20L, InMemoryS3Manager.OLD);
+            put("other", "c", 30L, InMemoryS3Manager.OLD);
+        }
+
+        CountDownLatch closeGate() {
+
+            gate = new CountDownLatch(1);
+            return gate;
+        }
+
+        @Override
+        public HeadObjectResponse headObject(String bucketName, String key) {
+
+            headRequests.incrementAndGet();
+            CountDownLatch currentGate = gate;
+            if (currentGate != null) {
+                try {
+                    currentGate.await();
+                } catch (InterruptedException exc) {
+                    Thread.currentThread().interrupt();
+                    throw new CompletionException(exc);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return super.headObject(bucketName, key);
+        }
+
+        @Override
+        public ListBucketsResponse listBuckets() {
+
+            listBucketsRequests.incrementAndGet();
+            return super.listBuckets();
+        }
+    }
+}
@@ -0,0 +1,456 @@
+package s3.externalapi;
+
+import s3.util.Constants;
+import s3.util.S3CommonUtils;
+
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * S3Manager over in-memory buckets for tests. Listings return keys in S3 order, a page at a time, with the last key
+ * of the page as continuation token. The keys marked as failing are reported as errors by DeleteObjects, and the
+ * source keys marked as failing are rejected by copies. Multipart copies only track the size of their parts, and the
+ * completed object gets a multipart style ETag. Objects put with a content, or uploaded, can be downloaded and have
+ * the MD5 of their content as ETag; a download given the current ETag fails with 304 Not Modified. Missing keys
+ * fail with 404 Not Found.
+ */
+public class InMemoryS3Manager implements S3Manager {
+
+    /** Last modified date of the objects that tests only need to be old. */
+    public static final Instant OLD = Instant.parse("1996-04-18T09:00:00Z");
+
+    private final Map<String, NavigableMap<String, S3Object>> buckets = new ConcurrentHashMap<>();
+    private final Set<String> failingKeys = ConcurrentHashMap.newKeySet();
+    private final Set<String> failingCopySourceKeys = ConcurrentHashMap.newKeySet();
+    private final Map<String, NavigableMap<Integer, Long>> multipartUploads = new ConcurrentHashMap<>();
+    private final AtomicInteger uploadIds = new AtomicInteger();
+    private final Map<String, byte[]> contents = new ConcurrentHashMap<>();
+    private final AtomicInteger listRequests = new AtomicInteger();
+    private final AtomicInteger putRequests = new AtomicInteger();
+    private final AtomicInteger getRequests = new AtomicInteger();
+    private final int pageSize;
+
+    public InMemoryS3Manager(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public InMemoryS3Manager() {
+        this(1000);
+    }
+
+    public void put(String bucketName, String key, long size, Instant lastModified) {
+        put(bucketName, S3Object.builder()
+                .key(key)
+                .size(size)
+                .lastModified(lastModified)
+                .eTag("\"" + size + "\"")
+                .build());
+    }
+
+    public synchronized void put(String bucketName, String key, byte[] content, Instant lastModified) {
+
+        put(bucketName, S3Object.builder()
+                .key(key)
+                .size((long) content.length)
+                .lastModified(lastModified)
+                .eTag("\"" + md5Hex(content) + "\"")
+                .build());
+        contents.put(getContentKey(bucketName, key), content.clone());
+    }
+
+    public synchronized void put(String bucketName, S3Object s3Object) {
+
+        getBucket(bucketName).put(s3Object.key(), s3Object);
+        contents.remove(getContentKey(bucketName, s3Object.key()));
+    }
+
+    public synchronized Set<String> getKeys(String bucketName) {
+        return new HashSet<>(getBucket(bucketName).keySet());
+    }
+
+    public void failDeletion(String key) {
+        failingKeys.add(key);
+    }
+
+    public void allowDeletion(String key) {
+        failingKeys.remove(key);
+    }
+
+    public void failCopy(String sourceKey) {
+        failingCopySourceKeys.add(sourceKey);
+    }
+
+    public int getOpenMultipartUploads() {
+        return multipartUploads.size();
+    }
+
+    public int getListRequests() {
+        return listRequests.get();
+    }
+
+    public int getPutRequests() {
+        return putRequests.get();
+    }
+
+    public int getGetRequests() {
+        return getRequests.get();
+    }
+
+    @Override
+    public synchronized ListObjectsV2Response listObjectsV2(
+            String bucketName,
+            String prefix,
+            String continuationToken) {
+
+        return listObjectsV2(bucketName, prefix, null, continuationToken);
+    }
+
+    @Override
+    public synchronized ListObjectsV2Response listObjectsV2(
+            String bucketName,
+            String prefix,
+            String startAfter,
+            String continuationToken) {
+
+        return list(bucketName, prefix, startAfter, null, continuationToken);
+    }
+
+    @Override
+    public synchronized ListObjectsV2Response listObjectsV2WithDelimiter(
+            String bucketName,
+            String prefix,
+            String delimiter,
+            String continuationToken) {
+
+        return list(bucketName, prefix, null, delimiter, continuationToken);
+    }
+
+    @Override
+    public synchronized DeleteObjectsResponse deleteObjects(String bucketName, List<ObjectIdentifier> s3Objects) {
+
+        if (s3Objects.size() > Constants.MAX_DELETE_OBJECTS_PER_REQUEST) {
+            throw S3Exception.builder().statusCode(400).message("MalformedXML").build();
+        }
+        List<DeletedObject> deletedObjects = new ArrayList<>();
+        List<S3Error> errors = new ArrayList<>();
+        for (ObjectIdentifier objectIdentifier : s3Objects) {
+            if (failingKeys.contains(objectIdentifier.key())) {
+                errors.add(S3Error.builder().key(objectIdentifier.key()).code("AccessDenied").build());
+            } else {
+                getBucket(bucketName).remove(objectIdentifier.key());
+                contents.remove(getContentKey(bucketName, objectIdentifier.key()));
+                deletedObjects.add(DeletedObject.builder().key(objectIdentifier.key()).build());
+            }
+        }
+        return DeleteObjectsResponse.builder().deleted(deletedObjects).errors(errors).build();
+    }
+
+    @Override
+    public synchronized HeadObjectResponse headObject(String bucketName, String key) {
+
+        S3Object s3Object = getBucket(bucketName).get(key);
+        if (s3Object == null) {
+            throw NoSuchKeyException.builder().statusCode(Constants.HTTP_NOT_FOUND).message(key).build();
+        }
+        return HeadObjectResponse.builder()
+                .contentLength(s3Object.size())
+                .eTag(s3Object.eTag())
+                .lastModified(s3Object.lastModified())
+                .build();
+    }
+
+    @Override
+    public synchronized CopyObjectResponse copyObject(
+            String sourceBucketName,
+            String sourceKey,
+            String destinationBucketName,
+            String destinationKey) {
+
+        S3Object s3Object = getCopySource(sourceBucketName, sourceKey);
+        put(destinationBucketName, s3Object.toBuilder().key(destinationKey).lastModified(Instant.now()).build());
+        byte[] content = contents.get(getContentKey(sourceBucketName, sourceKey));
+        if (content != null) {
+            contents.put(getContentKey(destinationBucketName, destinationKey), content);
+        }
+        return CopyObjectResponse.builder()
+                .copyObjectResult(CopyObjectResult.builder().eTag(s3Object.eTag()).build())
+                .build();
+    }
+
+    @Override
+    public PutObjectResponse putObject(String bucketName, String key, Path source) {
+
+        putRequests.incrementAndGet();
+        byte[] content;
+        try {
+            content = Files.readAllBytes(source);
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+        put(bucketName, key, content, Instant.now());
+        return PutObjectResponse.builder().eTag("\"" + md5Hex(content) + "\"").build();
+    }
+
+    @Override
+    public synchronized AbortMultipartUploadResponse abortMultipartUpload(
+            String bucketName,
+            String key,
+            String uploadId) {
+
+        getMultipartUpload(uploadId);
+        multipartUploads.remove(uploadId);
+        return AbortMultipartUploadResponse.builder().build();
+    }
+
+    @Override
+    public synchronized CompleteMultipartUploadResponse completeMultipartUpload(
+            String bucketName,
+            String key,
+            String uploadId,
+            List<CompletedPart> completedParts) {
+
+        NavigableMap<Integer, Long> partSizes = getMultipartUpload(uploadId);
+        long size = 0L;
+        for (CompletedPart completedPart : completedParts) {
+            Long partSize = partSizes.get(completedPart.partNumber());
+            if (partSize == null) {
+                throw S3Exception.builder().statusCode(400).message("InvalidPart").build();
+            }
+            size += partSize;
+        }
+        multipartUploads.remove(uploadId);
+        put(bucketName, S3Object.builder()
+                .key(key)
+                .size(size)
+                .lastModified(Instant.now())
+                .eTag("\"" + size + "-" + completedParts.size() + "\"")
+                .build());
+        return CompleteMultipartUploadResponse.builder().build();
+    }
+
+    @Override
+    public CreateMultipartUploadResponse createMultipartUpload(String bucketName, String key) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CreateMultipartUploadResponse createMultipartUpload(
+            String bucketName,
+            String key,
+            HeadObjectResponse sourceObject) {
+
+        String uploadId = "upload-" + uploadIds.incrementAndGet();
+        multipartUploads.put(uploadId, new TreeMap<>());
+        return CreateMultipartUploadResponse.builder().uploadId(uploadId).build();
+    }
+
+    @Override
+    public synchronized DeleteBucketResponse deleteBucket(String bucketName) {
+
+        buckets.remove(bucketName);
+        contents.keySet().removeIf(contentKey -> contentKey.startsWith(getContentKey(bucketName, "")));
+        return DeleteBucketResponse.builder().build();
+    }
+
+    @Override
+    public GetBucketLocationResponse getBucketLocation(String bucketName) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public GetObjectResponse getObject(String bucketName, String key, String eTag, Path destination) {
+
+        getRequests.incrementAndGet();
+        S3Object s3Object;
+        byte[] content;
+        synchronized (this) {
+            s3Object = getBucket(bucketName).get(key);
+            if (s3Object == null) {
+                throw NoSuchKeyException.builder().statusCode(Constants.HTTP_NOT_FOUND).message(key).build();
+            }
+            content = contents.get(getContentKey(bucketName, key));
+        }
+        if (s3Object.eTag().equals(eTag)) {
+            throw S3Exception.builder().statusCode(Constants.HTTP_NOT_MODIFIED).message("Not Modified").build();
+        }
+        if (content == null) {
+            throw new UnsupportedOperationException("No content: " + key);
+        }
+
+        try {
+            Files.write(destination, content, StandardOpenOption.CREATE_NEW);
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+        return GetObjectResponse.builder()
+                .eTag(s3Object.eTag())
+                .contentLength(s3Object.size())
+                .lastModified(s3Object.lastModified())
+                .build();
+    }
+
+    @Override
+    public HeadBucketResponse headBucket(String bucketName) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ListBucketsResponse listBuckets() {
+
+        List<Bucket> bucketList = new ArrayList<>();
+        for (String bucketName : new TreeMap<>(buckets).keySet()) {
+            bucketList.add(Bucket.builder().name(bucketName).build());
+        }
+        return ListBucketsResponse.builder().buckets(bucketList).build();
+    }
+
+    @Override
+    public ListObjectsResponse listObjects(String bucketName) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ListObjectsResponse listObjects(String bucketName, String prefix) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public RestoreObjectResponse restoreObject(String bucketName, String key) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public UploadPartCopyResponse uploadPartCopy(
+            String sourceBucketName,
+            String sourceKey,
+            String destinationBucketName,
+            String destinationKey,
+            String uploadId,
+            int partNumber,
+            long firstByte,
+            long lastByte,
+            String sourceETag) {
+
+        S3Object s3Object = getCopySource(sourceBucketName, sourceKey);
+        if (!s3Object.eTag().equals(sourceETag)) {
+            throw S3Exception.builder().statusCode(412).message("PreconditionFailed").build();
+        }
+        getMultipartUpload(uploadId).put(partNumber, lastByte - firstByte + 1);
+        return UploadPartCopyResponse.builder()
+                .copyPartResult(CopyPartResult.builder().eTag("\"part-" + partNumber + "\"").build())
+                .build();
+    }
+
+    private S3Object getCopySource(String sourceBucketName, String sourceKey) {
+
+        if (failingCopySourceKeys.contains(sourceKey)) {
+            throw S3Exception.builder().statusCode(403).message("AccessDenied").build();
+        }
+        S3Object s3Object = getBucket(sourceBucketName).get(sourceKey);
+        if (s3Object == null) {
+            throw NoSuchKeyException.builder().statusCode(Constants.HTTP_NOT_FOUND).message(sourceKey).build();
+        }
+        return s3Object;
+    }
+
+    private NavigableMap<Integer, Long> getMultipartUpload(String uploadId) {
+
+        NavigableMap<Integer, Long> partSizes = multipartUploads.get(uploadId);
+        if (partSizes == null) {
+            throw NoSuchUploadException.builder().message(uploadId).build();
+        }
+        return partSizes;
+    }
+
+    private static String getContentKey(String bucketName, String key) {
+        return bucketName + Constants.SLASH_CHAR + key;
+    }
+
+    private static String md5Hex(byte[] content) {
+
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException exc) {
+            throw new IllegalStateException(exc);
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for (byte digestByte : messageDigest.digest(content)) {
+            hex.append(String.format("%02x", digestByte));
+        }
+        return hex.toString();
+    }
+
+    private NavigableMap<String, S3Object> getBucket(String bucketName) {
+        return buckets.computeIfAbsent(bucketName, name -> new TreeMap<>(S3CommonUtils::compareKeys));
+    }
+
+    private ListObjectsV2Response list(
+            String bucketName,
+            String prefix,
+            String startAfter,
+            String delimiter,
+            String continuationToken) {
+
+        listRequests.incrementAndGet();
+        NavigableMap<String, S3Object> bucket = getBucket(bucketName);
+        String normalizedPrefix = (prefix == null) ? "" : prefix;
+        String cursor = (continuationToken != null) ? continuationToken : startAfter;
+
+        List<S3Object> contents = new ArrayList<>();
+        List<CommonPrefix> commonPrefixes = new ArrayList<>();
+        boolean truncated = false;
+        while (true) {
+            String key = ((cursor == null) || (S3CommonUtils.compareKeys(cursor, normalizedPrefix) < 0))
+                    ? bucket.ceilingKey(normalizedPrefix)
+                    : bucket.higherKey(cursor);
+            if ((key == null) || !key.startsWith(normalizedPrefix)) {
+                break;
+            }
+            if (contents.size() + commonPrefixes.size() == pageSize) {
+                truncated = true;
+                break;
+            }
+
+            int delimiterIndex = (delimiter == null) ? -1 : key.indexOf(delimiter, normalizedPrefix.length());
+            if (delimiterIndex < 0) {
+                contents.add(bucket.get(key));
+                cursor = key;
+                continue;
+            }
+
+            // A common prefix is returned once, so the next page starts after its last key.
+            String commonPrefix = key.substring(0, delimiterIndex + delimiter.length());
+            commonPrefixes.add(CommonPrefix.builder().prefix(commonPrefix).build());
+            cursor = key;
+            String nextKey;
+            while (((nextKey = bucket.higherKey(cursor)) != null) && nextKey.startsWith(commonPrefix)) {
+                cursor = nextKey;
+            }
+        }
+        return ListObjectsV2Response.builder()
+                .contents(contents)
+                .commonPrefixes(commonPrefixes)
+                .isTruncated(truncated)
+                .nextContinuationToken(truncated ? cursor : null)
+                .build();
+    }
+}
@@ -0,0 +1,173 @@
+package s3.externalapi;
+
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.http.SdkHttpResponse;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.model.GetBucketLocationResponse;
+import software.amazon.awssdk.services.s3.model.HeadBucketResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RegionRoutingS3ManagerTest {
+
+    private final Map<Region, InMemoryS3Manager> regionalS3Managers = new HashMap<>();
+
+    @Test
+    public void bucketLocationTest() {
+
+        LocatingS3Manager defaultS3Manager = new LocatingS3Manager();
+        defaultS3Manager.locationConstraint = "eu-west-3";
+        RegionRoutingS3Manager s3Manager = newRegionRoutingS3Manager(null, defaultS3Manager);
+
+        Assert.assertEquals(Long.valueOf(3L), s3Manager.headObject("bucket", "a").contentLength());
+        Assert.assertEquals(Long.valueOf(3L), s3Manager.headObject("bucket", "a").contentLength());
+        Assert.assertEquals(Region.EU_WEST_3, s3Manager.getBucketRegion("bucket"));
+        Assert.assertEquals(1, defaultS3Manager.locationRequests.get());
+        Assert.assertEquals(1, regionalS3Managers.size());
+
+        // An evicted region is resolved again.
+        defaultS3Manager.locationConstraint = "";
+        s3Manager.evictBucketRegion("bucket");
+        Assert.assertEquals(Region.US_EAST_1, s3Manager.getBucketRegion("bucket"));
+        Assert.assertEquals(2, defaultS3Manager.locationRequests.get());
+    }
+
+    @Test
+    public void headBucketRegionTest() {
+
+        LocatingS3Manager defaultS3Manager = new LocatingS3Manager();
+        defaultS3Manager.locationFailure = failure(403, null);
+        defaultS3Manager.headBucketFailure = failure(403, "ap-south-1");
+        RegionRoutingS3Manager s3Manager = newRegionRoutingS3Manager(Region.US_WEST_2, defaultS3Manager);
+        Assert.assertEquals(Region.AP_SOUTH_1, s3Manager.getBucketRegion("bucket"));
+
+        defaultS3Manager.headBucketFailure = null;
+        defaultS3Manager.headBucketRegion = "eu-west-3";
+        s3Manager.evictBucketRegion("bucket");
+        Assert.assertEquals(Long.valueOf(3L), s3Manager.headObject("bucket", "a").contentLength());
+        Assert.assertEquals(Collections.singleton(Region.EU_WEST_3), regionalS3Managers.keySet());
+    }
+
+    @Test
+    public void configuredRegionTest() {
+
+        LocatingS3Manager defaultS3Manager = new LocatingS3Manager();
+        defaultS3Manager.locationFailure = failure(403, null);
+        defaultS3Manager.headBucketFailure = failure(403, null);
+        RegionRoutingS3Manager s3Manager = newRegionRoutingS3Manager(Region.EU_WEST_3, defaultS3Manager);
+
+        Assert.assertEquals(Region.EU_WEST_3, s3Manager.getBucketRegion("bucket"));
+        Assert.assertEquals(Long.valueOf(3L), s3Manager.headObject("bucket", "a").contentLength());
+        Assert.assertEquals(Collections.singleton(Region.EU_WEST_3), regionalS3Managers.keySet());
+    }
+
+    @Test
+    public void defaultManagerFallbackTest() {
+
+        LocatingS3Manager defaultS3Manager = new LocatingS3Manager();
+        defaultS3Manager.put("bucket", "a", 1L, InMemoryS3Manager.OLD);
+        defaultS3Manager.locationFailure = failure(403, null);
+        defaultS3Manager.headBucketFailure = failure(403, null);
+        RegionRoutingS3Manager s3Manager = newRegionRoutingS3Manager(null, defaultS3Manager);
+
+        // Without any region, the bucket is served by the default manager, and the outcome is kept.
+        Assert.assertNull(s3Manager.getBucketRegion("bucket"));
+        Assert.assertEquals(Long.valueOf(1L), s3Manager.headObject("bucket", "a").contentLength());
+        Assert.assertEquals(1, defaultS3Manager.locationRequests.get());
+        Assert.assertTrue(regionalS3Managers.isEmpty());
+        try {
+            s3Manager.getBucketLocation("bucket");
+            Assert.fail("Bucket location of an unresolved bucket reported.");
+        } catch (S3Exception exc) {
+            Assert.assertEquals(403, exc.statusCode());
+        }
+    }
+
+    @Test
+    public void locationFailureTest() {
+
+        LocatingS3Manager defaultS3Manager = new LocatingS3Manager();
+        defaultS3Manager.locationFailure = failure(500, null);
+        RegionRoutingS3Manager s3Manager = newRegionRoutingS3Manager(Region.EU_WEST_3, defaultS3Manager);
+
+        // Failures other than access denied are not mistaken for an unknown region, and are not cached.
+        for (int attempt = 1; attempt <= 2; attempt++) {
+            try {
+                s3Manager.headObject("bucket", "a");
+                Assert.fail("Bucket location failure ignored.");
+            } catch (S3Exception exc) {
+                Assert.assertEquals(500, exc.statusCode());
+            }
+            Assert.assertEquals(attempt, defaultS3Manager.locationRequests.get());
+        }
+        defaultS3Manager.locationFailure = null;
+        defaultS3Manager.locationConstraint = "eu-west-3";
+        Assert.assertEquals(Long.valueOf(3L), s3Manager.headObject("bucket", "a").contentLength());
+    }
+
+    /**
+     * Builds a routing manager whose regional managers hold the object "a" of the bucket with 3 bytes, so that
+     * responses tell a regional manager from the default one.
+     */
+    private RegionRoutingS3Manager newRegionRoutingS3Manager(Region region, S3Manager defaultS3Manager) {
+
+        return new RegionRoutingS3Manager(
+                S3ClientConfiguration.builder().region(region).build(),
+                defaultS3Manager,
+                bucketRegion -> regionalS3Managers.computeIfAbsent(bucketRegion, key -> {
+                    InMemoryS3Manager regionalS3Manager = new InMemoryS3Manager();
+                    regionalS3Manager.put("bucket", "a", 3L, InMemoryS3Manager.OLD);
+                    return regionalS3Manager;
+                }));
+    }
+
+    private static S3Exception failure(int statusCode, String bucketRegion) {
+
+        SdkHttpResponse.Builder sdkHttpResponse = SdkHttpResponse.builder().statusCode(statusCode);
+        if (bucketRegion != null) {
+            sdkHttpResponse.putHeader("x-amz-bucket-region", bucketRegion);
+        }
+        return (S3Exception) S3Exception.builder()
+                .statusCode(statusCode)
+                .awsErrorDetails(AwsErrorDetails.builder().sdkHttpResponse(sdkHttpResponse.build()).build())
+                .build();
+    }
+
+    /**
+     * Answers GetBucketLocation and HeadBucket as configured, counting the location requests.
+     */
+    private static class LocatingS3Manager extends InMemoryS3Manager {
+
+        private final AtomicInteger locationRequests = new AtomicInteger();
+        private volatile String locationConstraint;
+        private volatile S3Exception locationFailure;
+        private volatile String headBucketRegion;
+        private volatile S3Exception headBucketFailure;
+
+        @Override
+        public GetBucketLocationResponse getBucketLocation(String bucketName) {
+
+            locationRequests.incrementAndGet();
+            if (locationFailure != null) {
+                throw locationFailure;
+            }
+            return GetBucketLocationResponse.builder().locationConstraint(locationConstraint).build();
+        }
+
+        @Override
+        public HeadBucketResponse headBucket(String bucketName) {
+
+            if (headBucketFailure != null) {
+                throw headBucketFailure;
+            }
+            return HeadBucketResponse.builder().bucketRegion(headBucketRegion).build();
+        }
+    }
+}
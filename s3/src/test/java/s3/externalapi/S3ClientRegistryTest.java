@@ -0,0 +1,136 @@
+package s3.externalapi;
+
+import software.amazon.awssdk.auth.credentials.AnonymousCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class S3ClientRegistryTest {
+
+    private static final AwsCredentialsProvider CREDENTIALS_PROVIDER = AnonymousCredentialsProvider.create();
+
+    @Test
+    public void sharedClientTest() {
+
+        try (S3ClientRegistry s3ClientRegistry = new S3ClientRegistry()) {
+            S3Client s3Client = s3ClientRegistry.getClient(configuration().build());
+
+            // Equal configurations share a client, any difference gets its own.
+            Assert.assertSame(s3Client, s3ClientRegistry.getClient(configuration().build()));
+            Assert.assertNotSame(s3Client, s3ClientRegistry.getClient(configuration().maxConnections(7).build()));
+            Assert.assertNotSame(s3Client, s3ClientRegistry.getClient(configuration()
+                    .credentialsProvider(AnonymousCredentialsProvider.create())
+                    .build()));
+            Assert.assertNotSame(s3Client, s3ClientRegistry.getClient(configuration()
+                    .httpEngine(HttpEngine.URL_CONNECTION)
+                    .build()));
+            Assert.assertEquals(4, s3ClientRegistry.size());
+
+            // Managers built from equal configurations use the registered client.
+            S3ManagerImpl s3Manager = new S3ManagerImpl(configuration().build(), s3ClientRegistry);
+            S3ManagerImpl otherS3Manager = new S3ManagerImpl(configuration().build(), s3ClientRegistry);
+            Assert.assertSame(s3Client, s3Manager.getS3Client());
+            Assert.assertSame(s3Client, otherS3Manager.getS3Client());
+            Assert.assertEquals(4, s3ClientRegistry.size());
+        }
+    }
+
+    @Test
+    public void sharedAsyncClientTest() {
+
+        try (S3ClientRegistry s3ClientRegistry = new S3ClientRegistry()) {
+            S3AsyncClient s3AsyncClient = s3ClientRegistry.getAsyncClient(configuration().build());
+
+            // Asynchronous clients are shared like blocking ones, and registered apart from them.
+            Assert.assertSame(s3AsyncClient, s3ClientRegistry.getAsyncClient(configuration().build()));
+            Assert.assertNotSame(
+                    s3AsyncClient,
+                    s3ClientRegistry.getAsyncClient(configuration().maxConnections(7).build()));
+            Assert.assertEquals(2, s3ClientRegistry.size());
+            s3ClientRegistry.getClient(configuration().build());
+            Assert.assertEquals(3, s3ClientRegistry.size());
+
+            // Managers built from equal configurations use the registered client.
+            S3AsyncManagerImpl s3AsyncManager = new S3AsyncManagerImpl(configuration().build(), s3ClientRegistry);
+            Assert.assertSame(s3AsyncClient, s3AsyncManager.getS3AsyncClient());
+            Assert.assertEquals(3, s3ClientRegistry.size());
+
+            s3ClientRegistry.close();
+            Assert.assertEquals(0, s3ClientRegistry.size());
+            Assert.assertNotSame(s3AsyncClient, s3ClientRegistry.getAsyncClient(configuration().build()));
+        }
+    }
+
+    @Test
+    public void releaseTest() {
+
+        try (S3ClientRegistry s3ClientRegistry = new S3ClientRegistry()) {
+            S3ManagerImpl s3Manager = new S3ManagerImpl(configuration().build(), s3ClientRegistry);
+            S3ManagerImpl otherS3Manager = new S3ManagerImpl(configuration().build(), s3ClientRegistry);
+            S3AsyncManagerImpl s3AsyncManager = new S3AsyncManagerImpl(configuration().build(), s3ClientRegistry);
+            S3Client s3Client = s3Manager.getS3Client();
+            otherS3Manager.getS3Client();
+            s3AsyncManager.getS3AsyncClient();
+            Assert.assertEquals(2, s3ClientRegistry.size());
+
+            // The client stays registered while a manager still uses it, and closing twice releases once.
+            s3Manager.close();
+            s3Manager.close();
+            Assert.assertEquals(2, s3ClientRegistry.size());
+            Assert.assertSame(s3Client, s3ClientRegistry.getClient(configuration().build()));
+            s3ClientRegistry.releaseClient(configuration().build());
+
+            // The last release closes the client, and a manager used again takes a new one.
+            otherS3Manager.close();
+            s3AsyncManager.close();
+            Assert.assertEquals(0, s3ClientRegistry.size());
+            Assert.assertNotSame(s3Client, otherS3Manager.getS3Client());
+            Assert.assertEquals(1, s3ClientRegistry.size());
+            otherS3Manager.close();
+            Assert.assertEquals(0, s3ClientRegistry.size());
+
+            // A client given to the manager belongs to the caller and is not released.
+            S3Client registeredS3Client = s3ClientRegistry.getClient(configuration().build());
+            new S3ManagerImpl(registeredS3Client).close();
+            Assert.assertEquals(1, s3ClientRegistry.size());
+        }
+    }
+
+    @Test
+    public void closeTest() {
+
+        S3ClientRegistry s3ClientRegistry = new S3ClientRegistry();
+        S3Client s3Client = s3ClientRegistry.getClient(configuration().build());
+        s3ClientRegistry.close();
+        Assert.assertEquals(0, s3ClientRegistry.size());
+
+        // The closed client is forgotten, and a new one is built on the next request.
+        S3Client newS3Client = s3ClientRegistry.getClient(configuration().build());
+        Assert.assertNotSame(s3Client, newS3Client);
+        Assert.assertEquals(1, s3ClientRegistry.size());
+        s3ClientRegistry.close();
+        s3ClientRegistry.close();
+        Assert.assertEquals(0, s3ClientRegistry.size());
+    }
+
+    @Test
+    public void requireEngineTest() {
+
+        S3ClientRegistry.requireEngine("software.amazon.awssdk.http.apache.ApacheHttpClient", "apache-client");
+        try {
+            S3ClientRegistry.requireEngine("software.amazon.awssdk.http.missing.MissingHttpClient", "missing-client");
+            Assert.fail("Missing HTTP engine accepted.");
+        } catch (IllegalStateException exc) {
+            Assert.assertTrue(exc.getMessage().contains("software.amazon.awssdk:missing-client"));
+            Assert.assertTrue(exc.getCause() instanceof ClassNotFoundException);
+        }
+    }
+
+    private static S3ClientConfiguration.Builder configuration() {
+        return S3ClientConfiguration.builder().region(Region.US_EAST_1).credentialsProvider(CREDENTIALS_PROVIDER);
+    }
+}
@@ -0,0 +1,74 @@
+package s3.externalapi;
+
+import s3.util.Constants;
+
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.HeadBucketRequest;
+import software.amazon.awssdk.services.s3.model.HeadBucketResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class S3ManagerImplTest {
+
+    @Test
+    public void lazyClientTest() throws Exception {
+
+        RecordingS3Client s3Client = new RecordingS3Client();
+        AtomicInteger clientRequests = new AtomicInteger();
+        S3ClientConfiguration s3ClientConfiguration = S3ClientConfiguration.builder().build();
+        S3ClientRegistry s3ClientRegistry = new S3ClientRegistry() {
+
+            @Override
+            public S3Client getClient(S3ClientConfiguration requestedS3ClientConfiguration) {
+
+                Assert.assertSame(s3ClientConfiguration, requestedS3ClientConfiguration);
+                clientRequests.incrementAndGet();
+                return s3Client;
+            }
+        };
+
+        // Constructing the manager builds nothing.
+        S3ManagerImpl s3Manager = new S3ManagerImpl(s3ClientConfiguration, s3ClientRegistry);
+        Assert.assertEquals(0, clientRequests.get());
+
+        // Prewarming takes the client from the registry and sends HeadBucket, whose failure is ignored.
+        s3Manager.prewarm("bucket").get(1, TimeUnit.MINUTES);
+        Assert.assertEquals(1, clientRequests.get());
+        Assert.assertEquals(Collections.singletonList("bucket"), s3Client.headBucketNames);
+
+        // The client is only looked up once.
+        s3Manager.prewarm("other").get(1, TimeUnit.MINUTES);
+        Assert.assertSame(s3Client, s3Manager.getS3Client());
+        Assert.assertEquals(1, clientRequests.get());
+        Assert.assertEquals(Arrays.asList("bucket", "other"), s3Client.headBucketNames);
+    }
+
+    private static class RecordingS3Client implements S3Client {
+
+        private final List<String> headBucketNames = new CopyOnWriteArrayList<>();
+
+        @Override
+        public HeadBucketResponse headBucket(HeadBucketRequest headBucketRequest) {
+
+            headBucketNames.add(headBucketRequest.bucket());
+            throw S3Exception.builder().statusCode(Constants.HTTP_FORBIDDEN).message("Forbidden").build();
+        }
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {}
+    }
+}
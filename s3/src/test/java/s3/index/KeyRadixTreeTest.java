@@ -0,0 +1,113 @@
+package s3.index;
+
+import s3.externalapi.InMemoryS3Manager;
+
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class KeyRadixTreeTest {
+
+    @Test
+    public void summarizeTest() {
+
+        KeyRadixTree keyRadixTree = load("logs/2024/a", "logs/2024/b", "logs/2025/a", "logs.txt", "data/x");
+
+        Assert.assertEquals(5L, keyRadixTree.getObjectCount());
+        Assert.assertEquals(3L, keyRadixTree.summarize("logs/").getObjectCount());
+        Assert.assertEquals(4L, keyRadixTree.summarize("logs").getObjectCount());
+        Assert.assertEquals(2L, keyRadixTree.summarize("logs/2024/").getObjectCount());
+        Assert.assertEquals(3L, keyRadixTree.summarize("logs/202").getObjectCount());
+        Assert.assertEquals(0L, keyRadixTree.summarize("logs/2026").getObjectCount());
+        Assert.assertEquals(
+                keyRadixTree.summarize("logs/2024/").getTotalSizeInBytes(),
+                keyRadixTree.get("logs/2024/a").size() + keyRadixTree.get("logs/2024/b").size());
+
+        Assert.assertTrue(keyRadixTree.isDirectory("logs"));
+        Assert.assertTrue(keyRadixTree.isDirectory("logs/2024/"));
+        Assert.assertFalse(keyRadixTree.isDirectory("logs.txt"));
+        Assert.assertNull(keyRadixTree.get("logs/2024"));
+    }
+
+    @Test
+    public void listDirectoryTest() {
+
+        KeyRadixTree keyRadixTree = load("logs/2024/a", "logs/2024/b", "logs/2025/a", "logs/readme", "logs.txt");
+
+        List<PrefixSummary> entries = keyRadixTree.listDirectory("logs");
+        Assert.assertEquals(
+                Arrays.asList("logs/2024/", "logs/2025/", "logs/readme"),
+                entries.stream().map(PrefixSummary::getPrefix).collect(Collectors.toList()));
+        Assert.assertTrue(entries.get(0).isCommonPrefix());
+        Assert.assertEquals(2L, entries.get(0).getObjectCount());
+        Assert.assertFalse(entries.get(2).isCommonPrefix());
+
+        Assert.assertEquals(2, keyRadixTree.listDirectory("").size());
+        Assert.assertTrue(keyRadixTree.listDirectory("missing/").isEmpty());
+    }
+
+    @Test
+    public void listingOrderTest() {
+
+        // Keys come in S3's UTF-8 order, in which a supplementary character sorts after U+E000 to U+FFFF.
+        List<String> keys = Arrays.asList("a/b", "a/\uE000", "a/\uFFFD/c", "a/\uD83D\uDE00", "a/\uD83D\uDE01/c");
+        KeyRadixTree keyRadixTree = load("a/\uD83D\uDE01/c", "a/\uE000", "a/\uD83D\uDE00", "a/\uFFFD/c", "a/b");
+
+        Assert.assertEquals(keys, keyRadixTree.list("a/").stream().map(S3Object::key).collect(Collectors.toList()));
+        Assert.assertEquals(
+                Arrays.asList("a/b", "a/\uE000", "a/\uFFFD/", "a/\uD83D\uDE00", "a/\uD83D\uDE01/"),
+                keyRadixTree.listDirectory("a").stream().map(PrefixSummary::getPrefix).collect(Collectors.toList()));
+        Assert.assertEquals(1L, keyRadixTree.summarize("a/\uD83D\uDE01").getObjectCount());
+    }
+
+    @Test
+    public void updateTest() {
+
+        KeyRadixTree keyRadixTree = load("a/b", "a/c");
+        List<S3Object> before = keyRadixTree.list("a/");
+
+        keyRadixTree.put(S3Object.builder().key("a/b").size(100L).lastModified(InMemoryS3Manager.OLD).build());
+        keyRadixTree.put(S3Object.builder().key("a/bc").size(1L).lastModified(InMemoryS3Manager.OLD).build());
+        Assert.assertEquals(3L, keyRadixTree.getObjectCount());
+        Assert.assertEquals(100L, keyRadixTree.get("a/b").size().longValue());
+
+        Assert.assertTrue(keyRadixTree.remove("a/b"));
+        Assert.assertFalse(keyRadixTree.remove("a/b"));
+        Assert.assertFalse(keyRadixTree.remove("a/"));
+        Assert.assertEquals(
+                Arrays.asList("a/bc", "a/c"),
+                keyRadixTree.list("a/").stream().map(S3Object::key).collect(Collectors.toList()));
+        Assert.assertEquals(2L, keyRadixTree.getObjectCount());
+
+        // Earlier results are snapshots that later updates leave untouched.
+        Assert.assertEquals(2, before.size());
+    }
+
+    @Test
+    public void planDeletionTest() {
+
+        KeyRadixTree keyRadixTree = new KeyRadixTree();
+        for (int index = 0; index < 2500; index++) {
+            keyRadixTree.put(S3Object.builder().key("p/" + index).size(1L).lastModified(InMemoryS3Manager.OLD).build());
+        }
+
+        List<List<String>> batches = keyRadixTree.planDeletion("p/");
+        Assert.assertEquals(3, batches.size());
+        Assert.assertEquals(1000, batches.get(0).size());
+        Assert.assertEquals(500, batches.get(2).size());
+    }
+
+    private static KeyRadixTree load(String... keys) {
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager(2);
+        for (int index = 0; index < keys.length; index++) {
+            s3Manager.put("bucket", keys[index], index + 1L, InMemoryS3Manager.OLD.plusSeconds(index));
+        }
+        return KeyRadixTree.load(s3Manager, "bucket", null);
+    }
+}
@@ -0,0 +1,106 @@
+package s3.partition;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class DatePartitionLayoutTest {
+
+    private static final DatePartitionLayout LAYOUT = new DatePartitionLayout("events/{yyyy}/{MM}/{dd}/{HH}/");
+
+    @Test
+    public void yearRolloverTest() {
+
+        Assert.assertEquals(
+                Arrays.asList(
+                        "events/2024/12/31/22/",
+                        "events/2024/12/31/23/",
+                        "events/2025/01/01/00/",
+                        "events/2025/01/01/01/"),
+                LAYOUT.getPrefixes(instant("2024-12-31T22:00:00Z"), instant("2025-01-01T02:00:00Z")));
+
+        Assert.assertEquals(
+                Arrays.asList("events/2023/12/31/", "events/2024/", "events/2025/01/01/00/"),
+                LAYOUT.getPrefixes(instant("2023-12-31T00:00:00Z"), instant("2025-01-01T01:00:00Z")));
+    }
+
+    @Test
+    public void monthRolloverTest() {
+
+        Assert.assertEquals(
+                Arrays.asList("events/2024/11/30/", "events/2024/12/", "events/2025/01/"),
+                LAYOUT.getPrefixes(instant("2024-11-30T00:00:00Z"), instant("2025-02-01T00:00:00Z")));
+
+        // February of a leap year ends on the 29th.
+        Assert.assertEquals(
+                Arrays.asList("events/2024/02/28/", "events/2024/02/29/", "events/2024/03/01/00/"),
+                LAYOUT.getPrefixes(instant("2024-02-28T00:00:00Z"), instant("2024-03-01T01:00:00Z")));
+        Assert.assertEquals(
+                Collections.singletonList("events/2024/02/"),
+                LAYOUT.getPrefixes(instant("2024-02-01T00:00:00Z"), instant("2024-03-01T00:00:00Z")));
+    }
+
+    @Test
+    public void rangeEndsTest() {
+
+        // The start is inclusive and the end exclusive.
+        Assert.assertEquals(
+                Arrays.asList("events/2024/05/06/10/", "events/2024/05/06/11/"),
+                LAYOUT.getPrefixes(instant("2024-05-06T10:00:00Z"), instant("2024-05-06T12:00:00Z")));
+
+        // Partial partitions at either end are widened to whole ones.
+        Assert.assertEquals(
+                Arrays.asList("events/2024/05/06/10/", "events/2024/05/06/11/", "events/2024/05/06/12/"),
+                LAYOUT.getPrefixes(instant("2024-05-06T10:59:59.999Z"), instant("2024-05-06T12:00:00.001Z")));
+
+        Assert.assertEquals(
+                Collections.emptyList(),
+                LAYOUT.getPrefixes(instant("2024-05-06T10:00:00Z"), instant("2024-05-06T10:00:00Z")));
+        Assert.assertEquals(
+                Collections.emptyList(),
+                LAYOUT.getPrefixes(instant("2024-05-06T11:00:00Z"), instant("2024-05-06T10:00:00Z")));
+    }
+
+    @Test
+    public void fieldWidthTest() {
+
+        // Zero-padded fields need no separator, a variable-width one is cut right after its separator.
+        Assert.assertEquals(
+                Arrays.asList("logs/202412", "logs/2025"),
+                new DatePartitionLayout("logs/{yyyy}{MM}").getPrefixes(
+                        instant("2024-12-01T00:00:00Z"), instant("2026-01-01T00:00:00Z")));
+        Assert.assertEquals(
+                Arrays.asList("logs/2024/1/31/", "logs/2024/2/"),
+                new DatePartitionLayout("logs/{yyyy}/{M}/{d}/").getPrefixes(
+                        instant("2024-01-31T00:00:00Z"), instant("2024-03-01T00:00:00Z")));
+
+        // Without a separator the prefix of January would also match October to December.
+        for (String template : Arrays.asList("logs/{yyyy}/{M}{dd}/", "logs/{yyyy}/{MM}/{d}", "logs/{y}{MM}/")) {
+            try {
+                new DatePartitionLayout(template);
+                Assert.fail("Ambiguous template accepted: " + template);
+            } catch (IllegalArgumentException exc) {
+                Assert.assertTrue(exc.getMessage().contains(template));
+            }
+        }
+    }
+
+    @Test
+    public void timeZoneTest() {
+
+        // Days start at midnight in the layout's time zone, 23:00 UTC in winter Paris.
+        DatePartitionLayout layout =
+                new DatePartitionLayout("events/{yyyy}/{MM}/{dd}/{HH}/", ZoneId.of("Europe/Paris"));
+        Assert.assertEquals(
+                Arrays.asList("events/2024/01/01/", "events/2024/01/02/00/"),
+                layout.getPrefixes(instant("2023-12-31T23:00:00Z"), instant("2024-01-01T23:59:00Z")));
+    }
+
+    private static Instant instant(String text) {
+        return Instant.parse(text);
+    }
+}
@@ -0,0 +1,78 @@
+package s3.query;
+
+import s3.exception.InvalidQueryException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LikePatternTest {
+
+    @Test
+    public void matchesTest() {
+
+        LikePattern likePattern = new LikePattern("tenant/_/%.parquet");
+
+        Assert.assertTrue(likePattern.matches("tenant/x/2024/part-0.parquet"));
+        Assert.assertTrue(likePattern.matches("tenant/x/.parquet"));
+        Assert.assertFalse(likePattern.matches("tenant/xy/part-0.parquet"));
+        Assert.assertFalse(likePattern.matches("tenant/x/part-0.parquet.tmp"));
+        Assert.assertFalse(likePattern.matches("tenant/x/part-0.csv"));
+
+        Assert.assertTrue(new LikePattern("").matches(""));
+        Assert.assertFalse(new LikePattern("").matches("a"));
+        Assert.assertTrue(new LikePattern("%").matches(""));
+        Assert.assertTrue(new LikePattern("a%%").matches("a"));
+        Assert.assertFalse(new LikePattern("a_").matches("a"));
+    }
+
+    @Test
+    public void backtrackingTest() {
+
+        // The first 'b' after the '%' leads nowhere, so the '%' has to absorb it and retry.
+        Assert.assertTrue(new LikePattern("a%bc").matches("abbbc"));
+        Assert.assertTrue(new LikePattern("%ab%ab%").matches("aaabaab"));
+        Assert.assertTrue(new LikePattern("%a_c").matches("abcabc"));
+        Assert.assertFalse(new LikePattern("%a_c").matches("abcab"));
+        Assert.assertTrue(new LikePattern("logs/%/%.gz").matches("logs/2024/01/app.log.gz"));
+        Assert.assertFalse(new LikePattern("logs/%/%.gz").matches("logs/app.log.gz"));
+
+        // Only the last '%' is retried, which stays linear on inputs that defeat naive backtracking.
+        StringBuilder text = new StringBuilder();
+        for (int index = 0; index < 20000; index++) {
+            text.append('a');
+        }
+        Assert.assertFalse(new LikePattern("%a%a%a%a%b").matches(text.toString()));
+    }
+
+    @Test
+    public void escapeTest() {
+
+        LikePattern likePattern = new LikePattern("logs/a!_b!%!!/%", '!');
+        Assert.assertTrue(likePattern.matches("logs/a_b%!/x"));
+        Assert.assertFalse(likePattern.matches("logs/axb%!/x"));
+        Assert.assertFalse(likePattern.matches("logs/a_bx!/x"));
+        Assert.assertEquals("logs/a_b%!/", likePattern.getLiteralPrefix());
+        Assert.assertTrue(likePattern.isPrefixOnly());
+
+        // Without an escape character, the same characters are wildcards.
+        Assert.assertTrue(new LikePattern("a\\_c").matches("a\\bc"));
+        Assert.assertTrue(new LikePattern("a\\_c", '\\').matches("a_c"));
+        Assert.assertFalse(new LikePattern("a\\_c", '\\').matches("abc"));
+    }
+
+    @Test(expected = InvalidQueryException.class)
+    public void danglingEscapeTest() {
+        new LikePattern("a!", '!');
+    }
+
+    @Test
+    public void literalPrefixTest() {
+
+        Assert.assertEquals("tenant/", new LikePattern("tenant/_/%").getLiteralPrefix());
+        Assert.assertFalse(new LikePattern("tenant/_/%").isPrefixOnly());
+        Assert.assertTrue(new LikePattern("tenant/x/%%").isPrefixOnly());
+        Assert.assertFalse(new LikePattern("tenant/x/").isPrefixOnly());
+        Assert.assertFalse(new LikePattern("tenant/%.gz").isPrefixOnly());
+        Assert.assertEquals("", new LikePattern("%.gz").getLiteralPrefix());
+    }
+}
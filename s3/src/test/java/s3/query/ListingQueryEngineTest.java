@@ -0,0 +1,125 @@
+package s3.query;
+
+import s3.externalapi.InMemoryS3Manager;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ListingQueryEngineTest {
+
+    @Test
+    public void aggregateTest() {
+
+        ListingQueryEngine listingQueryEngine = new ListingQueryEngine(newS3Manager());
+
+        QueryResult queryResult = listingQueryEngine.execute(
+                "SELECT count(*), sum(size), min(size), max(size), min(lastModified), max(lastModified), avg(size) "
+                        + "FROM bucket WHERE key LIKE 'logs/%'");
+        Assert.assertEquals(1, queryResult.size());
+        Assert.assertEquals(4L, queryResult.getValue(0, "count(*)"));
+        Assert.assertEquals(100L, queryResult.getValue(0, "sum(size)"));
+        Assert.assertEquals(10L, queryResult.getValue(0, "min(size)"));
+        Assert.assertEquals(40L, queryResult.getValue(0, "max(size)"));
+        Assert.assertEquals(InMemoryS3Manager.OLD, queryResult.getValue(0, "min(lastModified)"));
+        Assert.assertEquals(InMemoryS3Manager.OLD.plusSeconds(40), queryResult.getValue(0, "max(lastModified)"));
+        Assert.assertEquals(25.0, queryResult.getValue(0, "avg(size)"));
+        Assert.assertEquals(4L, queryResult.getMatchedObjects());
+
+        // Nothing matches: the count is zero and the extremes are undefined.
+        queryResult = listingQueryEngine.execute("SELECT count(*), sum(size), min(size) FROM bucket WHERE size > 1000");
+        Assert.assertEquals(Arrays.asList(0L, 0L, null), queryResult.getRows().get(0));
+    }
+
+    @Test
+    public void groupByPrefixTest() {
+
+        ListingQueryEngine listingQueryEngine = new ListingQueryEngine(newS3Manager());
+
+        QueryResult queryResult =
+                listingQueryEngine.execute("SELECT count(*), sum(size) FROM bucket GROUP BY prefix(2)");
+        Assert.assertEquals(Arrays.asList("prefix", "count(*)", "sum(size)"), queryResult.getColumnNames());
+        Assert.assertEquals(
+                Arrays.asList(
+                        Arrays.asList("data/", 3L, 210L),
+                        Arrays.asList("logs/2024/", 2L, 30L),
+                        Arrays.asList("logs/2025/", 2L, 70L)),
+                queryResult.getRows());
+
+        // The limit applies to the groups, and every matched object is still counted.
+        queryResult = listingQueryEngine.execute("SELECT count(*) FROM bucket GROUP BY prefix(1) LIMIT 1");
+        Assert.assertEquals(Collections.singletonList(Arrays.asList("data/", 3L)), queryResult.getRows());
+        Assert.assertEquals(7L, queryResult.getMatchedObjects());
+    }
+
+    @Test
+    public void limitTest() {
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager(2);
+        for (int index = 0; index < 20; index++) {
+            s3Manager.put("bucket", String.format("k%02d", index), index, InMemoryS3Manager.OLD);
+        }
+
+        // Three keys take two pages of two, and the other eight pages are never requested.
+        QueryResult queryResult = new ListingQueryEngine(s3Manager).execute("SELECT key FROM bucket LIMIT 3");
+        Assert.assertEquals(Arrays.asList("k00", "k01", "k02"), getKeys(queryResult));
+        Assert.assertEquals(2, s3Manager.getListRequests());
+        Assert.assertEquals(3L, queryResult.getScannedObjects());
+    }
+
+    @Test
+    public void rangePushdownTest() {
+
+        ListingQueryEngine listingQueryEngine = new ListingQueryEngine(newS3Manager());
+
+        // The common prefix of the bounds is listed instead of the bucket.
+        QueryResult queryResult = listingQueryEngine.execute(
+                "SELECT key FROM bucket WHERE key BETWEEN 'logs/2025/a' AND 'logs/2025/c.zz'");
+        Assert.assertEquals(Collections.singletonList("logs/2025/c.log"), getKeys(queryResult));
+        Assert.assertEquals(2L, queryResult.getScannedObjects());
+
+        queryResult = listingQueryEngine.execute(
+                "SELECT key, size FROM bucket WHERE size >= 20 AND size < 50 AND key LIKE 'logs/%'");
+        Assert.assertEquals(Arrays.asList("logs/2024/b.gz", "logs/2025/c.log", "logs/2025/d.gz"), getKeys(queryResult));
+        Assert.assertEquals(4L, queryResult.getScannedObjects());
+
+        // Contradictory ranges list nothing.
+        queryResult = listingQueryEngine.execute("SELECT key FROM bucket WHERE size > 30 AND size < 20");
+        Assert.assertEquals(0, queryResult.size());
+        Assert.assertEquals(0L, queryResult.getScannedObjects());
+    }
+
+    @Test
+    public void escapeTest() {
+
+        QueryResult queryResult = new ListingQueryEngine(newS3Manager())
+                .execute("SELECT key FROM bucket WHERE key LIKE 'data/y!_%' ESCAPE '!'");
+        Assert.assertEquals(Collections.singletonList("data/y_1"), getKeys(queryResult));
+    }
+
+    private static InMemoryS3Manager newS3Manager() {
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager(2);
+        s3Manager.put("bucket", "logs/2024/a.gz", 10L, InMemoryS3Manager.OLD);
+        s3Manager.put("bucket", "logs/2024/b.gz", 20L, InMemoryS3Manager.OLD.plusSeconds(10));
+        s3Manager.put("bucket", "logs/2025/c.log", 30L, InMemoryS3Manager.OLD.plusSeconds(20));
+        s3Manager.put("bucket", "logs/2025/d.gz", 40L, InMemoryS3Manager.OLD.plusSeconds(40));
+        s3Manager.put("bucket", "data/x", 50L, InMemoryS3Manager.OLD);
+        s3Manager.put("bucket", "data/y_1", 70L, InMemoryS3Manager.OLD);
+        s3Manager.put("bucket", "data/yz1", 90L, InMemoryS3Manager.OLD);
+        return s3Manager;
+    }
+
+    private static List<String> getKeys(QueryResult queryResult) {
+
+        List<String> keys = new ArrayList<>();
+        for (int row = 0; row < queryResult.size(); row++) {
+            keys.add((String) queryResult.getValue(row, "key"));
+        }
+        return keys;
+    }
+}
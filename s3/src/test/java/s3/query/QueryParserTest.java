@@ -0,0 +1,114 @@
+package s3.query;
+
+import s3.exception.InvalidQueryException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class QueryParserTest {
+
+    @Test
+    public void parseTest() {
+
+        ListingQuery listingQuery = ListingQuery.parse(
+                "select count(*), SUM(size) from my-bucket.logs where key like 'tenant/x/%.parquet' "
+                        + "and age > 'P90D' and storageClass not in ('GLACIER', 'DEEP_ARCHIVE') "
+                        + "and size between 10 and '1 MiB' group by prefix(2) limit 5");
+
+        Assert.assertEquals("my-bucket.logs", listingQuery.getBucketName());
+        Assert.assertTrue(listingQuery.isAggregate());
+        Assert.assertEquals("count(*)", listingQuery.getSelectItems().get(0).getColumnName());
+        Assert.assertEquals("sum(size)", listingQuery.getSelectItems().get(1).getColumnName());
+        Assert.assertEquals(2, listingQuery.getGroupByPrefixDepth());
+        Assert.assertEquals(5L, listingQuery.getLimit());
+
+        Assert.assertEquals(4, listingQuery.getConditions().size());
+        ListingQuery.Condition likeCondition = listingQuery.getConditions().get(0);
+        Assert.assertEquals(QueryField.KEY, likeCondition.getQueryField());
+        Assert.assertEquals(QueryOperator.LIKE, likeCondition.getQueryOperator());
+        Assert.assertEquals(Collections.singletonList("tenant/x/%.parquet"), likeCondition.getValues());
+        Assert.assertEquals(QueryField.AGE, listingQuery.getConditions().get(1).getQueryField());
+        Assert.assertEquals(QueryOperator.NOT_IN, listingQuery.getConditions().get(2).getQueryOperator());
+        Assert.assertEquals(Arrays.asList(10L, "1 MiB"), listingQuery.getConditions().get(3).getValues());
+    }
+
+    @Test
+    public void parseSelectAllTest() {
+
+        ListingQuery listingQuery = ListingQuery.parse("SELECT * FROM bucket");
+
+        Assert.assertFalse(listingQuery.isAggregate());
+        Assert.assertEquals(4, listingQuery.getSelectItems().size());
+        Assert.assertTrue(listingQuery.getConditions().isEmpty());
+        Assert.assertEquals(0, listingQuery.getGroupByPrefixDepth());
+        Assert.assertEquals(-1L, listingQuery.getLimit());
+    }
+
+    @Test
+    public void parseQuotedStringTest() {
+
+        ListingQuery listingQuery = ListingQuery.parse("SELECT key FROM 'bucket' WHERE key = 'it''s' AND size <> 0");
+
+        Assert.assertEquals("bucket", listingQuery.getBucketName());
+        Assert.assertEquals(Collections.singletonList("it's"), listingQuery.getConditions().get(0).getValues());
+        Assert.assertEquals("key = 'it''s'", listingQuery.getConditions().get(0).toString());
+        Assert.assertEquals(QueryOperator.NOT_EQUAL, listingQuery.getConditions().get(1).getQueryOperator());
+    }
+
+    @Test
+    public void parseEscapeTest() {
+
+        ListingQuery.Condition condition = ListingQuery.parse(
+                "SELECT key FROM bucket WHERE key NOT LIKE 'a!_%' ESCAPE '!'").getConditions().get(0);
+
+        Assert.assertEquals(QueryOperator.NOT_LIKE, condition.getQueryOperator());
+        Assert.assertEquals(Arrays.asList("a!_%", "!"), condition.getValues());
+        Assert.assertEquals("key NOT LIKE 'a!_%' ESCAPE '!'", condition.toString());
+
+        assertError(
+                "SELECT key FROM bucket WHERE key LIKE 'a' ESCAPE '!!'",
+                "Expected a quoted single ESCAPE character at position 49");
+    }
+
+    @Test
+    public void parseBucketNameStartingWithDigitTest() {
+
+        Assert.assertEquals("123-logs", ListingQuery.parse("SELECT key FROM 123-logs LIMIT 1").getBucketName());
+        Assert.assertEquals("2024.archive", ListingQuery.parse("SELECT key FROM 2024.archive").getBucketName());
+    }
+
+    @Test
+    public void errorPositionTest() {
+
+        assertError("SELECT key FROM bucket WHERE size >> 3", "Expected a quoted string or a number at position 35");
+        assertError("SELECT key FROM bucket WHERE name = 'x'", "Expected one of the fields");
+        assertError("SELECT key FROM bucket WHERE name = 'x'", "at position 29, found 'name'");
+        assertError("SELECT key FROM", "Expected a bucket name at position 15, found end of query");
+        assertError("SELECT key FROM bucket WHERE key = 'x", "Unclosed string at position 35");
+        assertError("SELECT key FROM bucket LIMIT 0", "Expected a positive number at position 29");
+        assertError("SELECT key FROM bucket extra", "Unexpected 'extra' at position 23");
+        assertError("SELECT key FROM bucket WHERE key NOT = 'x'", "Expected LIKE or IN after NOT at position 37");
+        assertError("SELECT sum(key) FROM bucket", "SUM cannot be applied to key at position 7");
+        assertError("SELECT age FROM bucket", "The age field can only be used in conditions at position 7");
+    }
+
+    @Test
+    public void mixedSelectionTest() {
+
+        assertError("SELECT key, count(*) FROM bucket", "Aggregates and plain fields cannot be selected together");
+        assertError("SELECT key FROM bucket GROUP BY prefix(1)", "GROUP BY requires aggregate selections");
+    }
+
+    private static void assertError(String query, String expectedMessage) {
+
+        try {
+            ListingQuery.parse(query);
+            Assert.fail("Expected an InvalidQueryException for " + query);
+        } catch (InvalidQueryException exc) {
+            Assert.assertTrue(exc.getMessage(), exc.getMessage().contains(expectedMessage));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package s3.query;
+
+import s3.exception.InvalidQueryException;
+
+import software.amazon.awssdk.services.s3.model.ObjectStorageClass;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+public class QueryPlanTest {
+
+    private static final Instant NOW = Instant.parse("2024-04-18T09:00:00Z");
+
+    @Test
+    public void prefixPushdownTest() {
+
+        Assert.assertEquals("tenant/x/", plan("key LIKE 'tenant/x/%'").getListingPrefix());
+        Assert.assertEquals("logs/2024-0", plan("key BETWEEN 'logs/2024-01' AND 'logs/2024-03'").getListingPrefix());
+        Assert.assertEquals("a/", plan("key IN ('a/1', 'a/2')").getListingPrefix());
+        Assert.assertEquals("a/b", plan("key = 'a/b'").getListingPrefix());
+        Assert.assertNull(plan("key NOT LIKE 'tenant/%'").getListingPrefix());
+        Assert.assertNull(plan("key > 'm'").getListingPrefix());
+
+        // The longer of two nested prefixes is pushed down, whatever the order of the conditions.
+        Assert.assertEquals("a/b/", plan("key LIKE 'a/%' AND key LIKE 'a/b/%'").getListingPrefix());
+        Assert.assertEquals("a/b/", plan("key LIKE 'a/b/%' AND key LIKE 'a/%'").getListingPrefix());
+    }
+
+    @Test
+    public void prefixOnlyPatternNeedsNoResidualTest() {
+
+        QueryPlan queryPlan = plan("key LIKE 'tenant/x/%'");
+
+        Assert.assertEquals(0, queryPlan.getResidualPredicateCount());
+        Assert.assertTrue(queryPlan.matches(object("tenant/x/a", 1L)));
+
+        // The pattern keeps its longer prefix over the common prefix of the IN values, and only IN is left to check.
+        QueryPlan inPlan = plan("key LIKE 'tenant/x/%' AND key IN ('tenant/x/a', 'tenant/y/b')");
+        Assert.assertEquals("tenant/x/", inPlan.getListingPrefix());
+        Assert.assertEquals(1, inPlan.getResidualPredicateCount());
+        Assert.assertFalse(inPlan.matches(object("tenant/x/b", 1L)));
+    }
+
+    @Test
+    public void contradictionTest() {
+
+        Assert.assertTrue(plan("key LIKE 'a/%' AND key LIKE 'b/%'").isEmpty());
+        Assert.assertTrue(plan("size > 10 AND size < 5").isEmpty());
+        Assert.assertTrue(plan("size > " + Long.MAX_VALUE).isEmpty());
+        Assert.assertTrue(plan("storageClass = 'GLACIER' AND storageClass = 'STANDARD'").isEmpty());
+        Assert.assertTrue(plan("storageClass IN ('GLACIER') AND storageClass != 'GLACIER'").isEmpty());
+        Assert.assertTrue(plan("lastModified > '2024-01-02' AND lastModified < '2024-01-01'").isEmpty());
+        Assert.assertTrue(plan("age < 'P1D' AND age > 'P2D'").isEmpty());
+
+        Assert.assertFalse(plan("size BETWEEN 5 AND 10 AND size >= 10").isEmpty());
+        Assert.assertFalse(plan("key LIKE 'a/%' AND key LIKE 'a/b%'").isEmpty());
+        Assert.assertTrue(plan("size > 10 AND size < 5").toString().startsWith("No listing"));
+    }
+
+    @Test
+    public void keyRangeOrderTest() {
+
+        // Keys compare in UTF-8 byte order, as S3 lists them: a supplementary character sorts after U+FF5E.
+        String emojiKey = "a/\uD83D\uDE00";
+        Assert.assertTrue(plan("key > 'a/\uFF5E'").matches(object(emojiKey, 1L)));
+        Assert.assertFalse(plan("key <= 'a/\uFF5E'").matches(object(emojiKey, 1L)));
+        Assert.assertTrue(plan("key BETWEEN 'a/\uFF5E' AND 'a/\uD83D\uDE01'").matches(object(emojiKey, 1L)));
+    }
+
+    @Test
+    public void matchesTest() {
+
+        QueryPlan queryPlan = plan(
+                "size BETWEEN '1 KiB' AND 4096 AND age > 'P30D' AND storageClass != 'GLACIER' AND key LIKE '%.gz'");
+
+        S3Object oldObject = object("logs/a.gz", 2048L, NOW.minus(Duration.ofDays(31)), ObjectStorageClass.STANDARD);
+        Assert.assertTrue(queryPlan.matches(oldObject));
+        Assert.assertFalse(queryPlan.matches(
+                object("logs/a.gz", 2048L, NOW.minus(Duration.ofDays(29)), ObjectStorageClass.STANDARD)));
+        Assert.assertFalse(queryPlan.matches(
+                object("logs/a.gz", 512L, NOW.minus(Duration.ofDays(31)), ObjectStorageClass.STANDARD)));
+        Assert.assertFalse(queryPlan.matches(
+                object("logs/a.gz", 2048L, NOW.minus(Duration.ofDays(31)), ObjectStorageClass.GLACIER)));
+        Assert.assertFalse(queryPlan.matches(
+                object("logs/a.txt", 2048L, NOW.minus(Duration.ofDays(31)), ObjectStorageClass.STANDARD)));
+
+        // Objects listed without a storage class are STANDARD.
+        Assert.assertTrue(plan("storageClass = 'standard'").matches(object("a", 1L)));
+        Assert.assertTrue(plan("size IN (1, 3)").matches(object("a", 3L)));
+        Assert.assertFalse(plan("size IN (1, 3)").matches(object("a", 2L)));
+    }
+
+    @Test(expected = InvalidQueryException.class)
+    public void invalidLiteralTest() {
+        plan("lastModified > 'yesterday'");
+    }
+
+    @Test(expected = InvalidQueryException.class)
+    public void unknownStorageClassTest() {
+        plan("storageClass = 'COLD'");
+    }
+
+    private static QueryPlan plan(String conditions) {
+        return QueryPlan.of(ListingQuery.parse("SELECT key FROM bucket WHERE " + conditions), NOW);
+    }
+
+    private static S3Object object(String key, long size) {
+        return S3Object.builder().key(key).size(size).lastModified(NOW).build();
+    }
+
+    private static S3Object object(String key, long size, Instant lastModified, ObjectStorageClass storageClass) {
+        return S3Object.builder().key(key).size(size).lastModified(lastModified).storageClass(storageClass).build();
+    }
+}
@@ -0,0 +1,55 @@
+package s3.report;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Instant;
+
+public class AgeBandTest {
+
+    private static final Instant NOW = Instant.parse("1996-07-18T09:00:00Z");
+
+    @Test
+    public void bandStartsTest() {
+
+        long[] bandStarts = AgeBand.getBandStarts(NOW);
+
+        Assert.assertEquals(AgeBand.values().length - 1, bandStarts.length);
+        Assert.assertEquals(Instant.parse("1996-07-17T09:00:00Z").toEpochMilli(), bandStarts[0]);
+        Assert.assertEquals(Instant.parse("1996-07-11T09:00:00Z").toEpochMilli(), bandStarts[1]);
+        Assert.assertEquals(Instant.parse("1996-06-18T09:00:00Z").toEpochMilli(), bandStarts[2]);
+        Assert.assertEquals(Instant.parse("1995-07-18T09:00:00Z").toEpochMilli(), bandStarts[5]);
+        for (int index = 1; index < bandStarts.length; index++) {
+            Assert.assertTrue(bandStarts[index] < bandStarts[index - 1]);
+        }
+    }
+
+    @Test
+    public void bandIndexTest() {
+
+        long[] bandStarts = AgeBand.getBandStarts(NOW);
+
+        // Every band includes its start, and the millisecond before it belongs to the next, older band.
+        for (int index = 0; index < bandStarts.length; index++) {
+            Assert.assertEquals(index, AgeBand.getBandIndex(bandStarts[index], bandStarts));
+            Assert.assertEquals(index + 1, AgeBand.getBandIndex(bandStarts[index] - 1, bandStarts));
+        }
+        Assert.assertEquals(AgeBand.PAST_DAY.ordinal(), AgeBand.getBandIndex(NOW.toEpochMilli(), bandStarts));
+        Assert.assertEquals(AgeBand.PAST_DAY.ordinal(), AgeBand.getBandIndex(NOW.toEpochMilli() + 1, bandStarts));
+        Assert.assertEquals(AgeBand.OLDER.ordinal(), AgeBand.getBandIndex(Long.MIN_VALUE, bandStarts));
+    }
+
+    @Test
+    public void ageHistogramTest() {
+
+        long[] objectCounts = {1L, 0L, 2L, 0L, 0L, 0L, 3L};
+        long[] sizesInBytes = {10L, 0L, 20L, 0L, 0L, 0L, 30L};
+        AgeHistogram ageHistogram = new AgeHistogram("bucket", null, objectCounts, sizesInBytes);
+
+        Assert.assertEquals(2L, ageHistogram.getObjectCount(AgeBand.PAST_MONTH));
+        Assert.assertEquals(30L, ageHistogram.getSizeInBytes(AgeBand.OLDER));
+        Assert.assertEquals(6L, ageHistogram.getTotalObjectCount());
+        Assert.assertEquals(60L, ageHistogram.getTotalSizeInBytes());
+        Assert.assertTrue(ageHistogram.toString().startsWith("bucket/: 6 objects, 60 bytes"));
+    }
+}
@@ -0,0 +1,91 @@
+package s3.retention;
+
+import s3.externalapi.InMemoryS3Manager;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+public class RetentionEngineTest {
+
+    @Test
+    public void keepLastTest() {
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager(3);
+        for (int index = 0; index < 10; index++) {
+            String key = "d/f" + index + ((index % 2 == 0) ? ".log" : ".gz");
+            s3Manager.put("bucket", key, 100L, InMemoryS3Manager.OLD.plusSeconds(index));
+        }
+        for (int index = 0; index < 4; index++) {
+            s3Manager.put("bucket", "e/g" + index + ".gz", 1L, InMemoryS3Manager.OLD.plusSeconds(index));
+        }
+        s3Manager.put("bucket", "e/recent.gz", 1L, Instant.now());
+        s3Manager.put("bucket", "e/other.txt", 1L, InMemoryS3Manager.OLD);
+        s3Manager.failDeletion("d/f0.log");
+
+        // Both rules match in d/, where the larger count applies to all ten objects ranked together.
+        List<RetentionRule> retentionRules = Arrays.asList(
+                RetentionRule.builder()
+                        .bucketName("bucket")
+                        .keyPattern(".*\\.log")
+                        .maximumAge(1, ChronoUnit.DAYS)
+                        .keepLast(5)
+                        .build(),
+                RetentionRule.builder()
+                        .bucketName("bucket")
+                        .keyPattern(".*\\.gz")
+                        .maximumAge(1, ChronoUnit.DAYS)
+                        .keepLast(2)
+                        .build());
+
+        List<RetentionSummary> retentionSummaries = new RetentionEngine(s3Manager).apply(retentionRules, false);
+
+        Assert.assertEquals(1, retentionSummaries.size());
+        RetentionSummary retentionSummary = retentionSummaries.get(0);
+        Assert.assertEquals(16L, retentionSummary.getScannedObjects());
+        Assert.assertEquals(15L, retentionSummary.getMatchedObjects());
+        Assert.assertEquals(7L, retentionSummary.getDeletedObjects());
+        Assert.assertEquals(4 * 100L + 3 * 1L, retentionSummary.getDeletedBytes());
+        Assert.assertEquals(Collections.singletonList("d/f0.log"), retentionSummary.getFailedKeys());
+
+        // The recent object counts towards keeping the last two in e/ but is never expired itself.
+        Assert.assertEquals(
+                new HashSet<>(Arrays.asList(
+                        "d/f0.log", "d/f5.gz", "d/f6.log", "d/f7.gz", "d/f8.log", "d/f9.gz",
+                        "e/g3.gz", "e/recent.gz", "e/other.txt")),
+                s3Manager.getKeys("bucket"));
+    }
+
+    @Test
+    public void maximumAgeTest() {
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager();
+        s3Manager.put("bucket", "logs/old", 10L, InMemoryS3Manager.OLD);
+        s3Manager.put("bucket", "logs/new", 10L, Instant.now());
+        s3Manager.put("bucket", "data/old", 10L, InMemoryS3Manager.OLD);
+
+        List<RetentionRule> retentionRules = Collections.singletonList(
+                RetentionRule.builder().bucketName("bucket").prefix("logs/").maximumAge(30, ChronoUnit.DAYS).build());
+
+        RetentionSummary dryRunSummary = new RetentionEngine(s3Manager).apply(retentionRules, true).get(0);
+        Assert.assertTrue(dryRunSummary.isDryRun());
+        Assert.assertEquals(1L, dryRunSummary.getDeletedObjects());
+        Assert.assertEquals(3, s3Manager.getKeys("bucket").size());
+
+        RetentionSummary retentionSummary = new RetentionEngine(s3Manager).apply(retentionRules, false).get(0);
+        Assert.assertEquals(2L, retentionSummary.getScannedObjects());
+        Assert.assertEquals(1L, retentionSummary.getDeletedObjects());
+        Assert.assertEquals(new HashSet<>(Arrays.asList("logs/new", "data/old")), s3Manager.getKeys("bucket"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingMaximumAgeTest() {
+        RetentionRule.builder().bucketName("bucket").keepLast(3).build();
+    }
+}
@@ -0,0 +1,96 @@
+package s3.scheduler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+public class CronTriggerTest {
+
+    private static final ZoneId MADRID = ZoneId.of("Europe/Madrid");
+
+    @Test
+    public void getNextExecutionTimeTest() {
+
+        // 18th April 1996 09:07:30 UTC, a Thursday
+        Instant after = Instant.parse("1996-04-18T09:07:30Z");
+
+        Assert.assertEquals(
+                Instant.parse("1996-04-18T09:08:00Z"),
+                new CronTrigger("* * * * *", ZoneOffset.UTC).getNextExecutionTime(after));
+        Assert.assertEquals(
+                Instant.parse("1996-04-18T09:15:00Z"),
+                new CronTrigger("*/15 * * * *", ZoneOffset.UTC).getNextExecutionTime(after));
+        Assert.assertEquals(
+                Instant.parse("1996-04-18T09:30:00Z"),
+                new CronTrigger("10-50/20 * * * *", ZoneOffset.UTC).getNextExecutionTime(after.plusSeconds(180)));
+        Assert.assertEquals(
+                Instant.parse("1996-04-19T02:00:00Z"),
+                new CronTrigger("0 2 * * *", ZoneOffset.UTC).getNextExecutionTime(after));
+        Assert.assertEquals(
+                Instant.parse("1996-05-01T00:00:00Z"),
+                new CronTrigger("0 0 1 * *", ZoneOffset.UTC).getNextExecutionTime(after));
+        Assert.assertEquals(
+                Instant.parse("1997-01-01T00:00:00Z"),
+                new CronTrigger("0 0 1 1 *", ZoneOffset.UTC).getNextExecutionTime(after));
+    }
+
+    @Test
+    public void daysOfWeekTest() {
+
+        // 18th April 1996 is a Thursday, so the next Sunday is the 21st and the next weekday the 19th.
+        Instant after = Instant.parse("1996-04-18T12:00:00Z");
+
+        Assert.assertEquals(
+                Instant.parse("1996-04-21T00:00:00Z"),
+                new CronTrigger("0 0 * * 0", ZoneOffset.UTC).getNextExecutionTime(after));
+        Assert.assertEquals(
+                Instant.parse("1996-04-21T00:00:00Z"),
+                new CronTrigger("0 0 * * 7", ZoneOffset.UTC).getNextExecutionTime(after));
+        Assert.assertEquals(
+                Instant.parse("1996-04-19T00:00:00Z"),
+                new CronTrigger("0 0 * * 1-5", ZoneOffset.UTC).getNextExecutionTime(after));
+
+        // With both day fields restricted either one matching is enough: the 20th comes before Monday the 22nd.
+        Assert.assertEquals(
+                Instant.parse("1996-04-20T00:00:00Z"),
+                new CronTrigger("0 0 20 * 1", ZoneOffset.UTC).getNextExecutionTime(after));
+    }
+
+    @Test
+    public void zoneTest() {
+
+        // 02:30 does not exist in Madrid on 31st March 1996, when clocks jumped from 02:00 to 03:00.
+        Instant after = ZonedDateTime.of(1996, 3, 30, 12, 0, 0, 0, MADRID).toInstant();
+
+        Assert.assertEquals(
+                ZonedDateTime.of(1996, 3, 31, 9, 0, 0, 0, MADRID).toInstant(),
+                new CronTrigger("0 9 * * *", MADRID).getNextExecutionTime(after.plusSeconds(12 * 3600)));
+        Assert.assertEquals(
+                ZonedDateTime.of(1996, 4, 1, 2, 30, 0, 0, MADRID).toInstant(),
+                new CronTrigger("30 2 * * *", MADRID).getNextExecutionTime(after));
+    }
+
+    @Test
+    public void neverFiresTest() {
+        Assert.assertNull(new CronTrigger("0 0 30 2 *", ZoneOffset.UTC).getNextExecutionTime(Instant.EPOCH));
+    }
+
+    @Test
+    public void invalidExpressionTest() {
+
+        String[] expressions = {"* * * *", "60 * * * *", "* 24 * * *", "* * 0 * *", "* * * 13 *", "* * * * 8",
+                "a * * * *", "5-2 * * * *", "*/0 * * * *"};
+        for (String expression : expressions) {
+            try {
+                new CronTrigger(expression, ZoneOffset.UTC);
+                Assert.fail("Expected an IllegalArgumentException for " + expression);
+            } catch (IllegalArgumentException exc) {
+                Assert.assertTrue(exc.getMessage(), exc.getMessage().endsWith(expression));
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package s3.scheduler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ScheduledJobHandleTest {
+
+    @Test
+    public void executeTest() {
+
+        IllegalStateException failure = new IllegalStateException("retention failed");
+        AtomicInteger executions = new AtomicInteger();
+        ScheduledJobHandle scheduledJobHandle = new ScheduledJobHandle(ScheduledJob.builder()
+                .name("retention")
+                .cron("0 3 * * *")
+                .task(() -> {
+                    if (executions.incrementAndGet() == 2) {
+                        throw failure;
+                    }
+                })
+                .build());
+
+        scheduledJobHandle.execute();
+        Assert.assertNull(scheduledJobHandle.getLastFailure());
+        scheduledJobHandle.execute();
+        scheduledJobHandle.execute();
+        Assert.assertEquals(2L, scheduledJobHandle.getCompletedExecutions());
+        Assert.assertEquals(1L, scheduledJobHandle.getFailedExecutions());
+        Assert.assertSame(failure, scheduledJobHandle.getLastFailure());
+
+        // Executions rejected by the worker pool are skipped.
+        scheduledJobHandle.skip();
+        Assert.assertEquals(1L, scheduledJobHandle.getSkippedExecutions());
+        Assert.assertEquals(3, executions.get());
+    }
+}
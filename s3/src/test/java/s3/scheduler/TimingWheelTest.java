@@ -0,0 +1,72 @@
+package s3.scheduler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TimingWheelTest {
+
+    @Test
+    public void scheduleTest() throws InterruptedException {
+
+        // With 8 buckets of 5 ms, the 120 ms timeout goes round the wheel several times before it fires.
+        TimingWheel timingWheel = new TimingWheel(5L, 8, Runnable::run);
+        List<String> fired = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(3);
+        try {
+            long start = System.nanoTime();
+            timingWheel.schedule(() -> record(fired, "late", latch), 120L);
+            timingWheel.schedule(() -> record(fired, "early", latch), 10L);
+            timingWheel.schedule(() -> record(fired, "now", latch), -5L);
+            TimingWheel.Timeout cancelledTimeout = timingWheel.schedule(() -> fired.add("cancelled"), 60L);
+            cancelledTimeout.cancel();
+
+            Assert.assertTrue(latch.await(5L, TimeUnit.SECONDS));
+            Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 115L);
+            Assert.assertEquals("now", fired.get(0));
+            Assert.assertEquals("early", fired.get(1));
+            Assert.assertEquals("late", fired.get(2));
+
+            Thread.sleep(50L);
+            Assert.assertEquals(3, fired.size());
+        } finally {
+            timingWheel.stop();
+        }
+    }
+
+    @Test
+    public void rejectedTaskTest() throws InterruptedException {
+
+        AtomicInteger executions = new AtomicInteger();
+        TimingWheel timingWheel = new TimingWheel(1L, 4, task -> {
+            if (executions.getAndIncrement() == 0) {
+                throw new RejectedExecutionException();
+            }
+            task.run();
+        });
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger rejections = new AtomicInteger();
+        try {
+            timingWheel.schedule(() -> Assert.fail("Rejected tasks must not run"), 1L, rejections::incrementAndGet);
+            timingWheel.schedule(latch::countDown, 20L, rejections::incrementAndGet);
+
+            // The ticker survives the rejected task and keeps firing.
+            Assert.assertTrue(latch.await(5L, TimeUnit.SECONDS));
+            Assert.assertEquals(2, executions.get());
+            Assert.assertEquals(1, rejections.get());
+        } finally {
+            timingWheel.stop();
+        }
+    }
+
+    private static void record(List<String> fired, String name, CountDownLatch latch) {
+        fired.add(name);
+        latch.countDown();
+    }
+}
@@ -0,0 +1,230 @@
+package s3.service;
+
+import s3.browse.DirectoryEntry;
+import s3.events.EventIndexer;
+import s3.events.FileEventMessageSource;
+import s3.exception.InvalidDirectoryPathException;
+import s3.existence.ObjectExistenceChecker;
+import s3.externalapi.InMemoryS3Manager;
+import s3.index.PrefixSummary;
+import s3.report.AgeBand;
+import s3.report.AgeHistogram;
+import s3.transfer.SyncDirection;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.GetBucketLocationResponse;
+import software.amazon.awssdk.services.s3.model.HeadBucketResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class S3ServiceTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void existenceFilterRecordsWritesTest() throws IOException {
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager();
+        s3Manager.put("source", "a/1", 10L, InMemoryS3Manager.OLD);
+        s3Manager.put("source", "a/2", 20L, InMemoryS3Manager.OLD);
+        s3Manager.put("destination", "c/0", 30L, InMemoryS3Manager.OLD);
+
+        S3Service s3Service = new S3Service(s3Manager);
+        ObjectExistenceChecker existenceChecker = s3Service.enableExistenceFilter("destination");
+        Assert.assertSame(existenceChecker, s3Service.enableExistenceFilter("destination"));
+        Assert.assertFalse(s3Service.objectExists("destination", "b/1"));
+
+        s3Service.copyPrefix("source", "a/", "destination", "b/");
+        Path localDirectory = temporaryFolder.newFolder("local").toPath();
+        Files.write(localDirectory.resolve("3"), "3".getBytes(StandardCharsets.UTF_8));
+        s3Service.sync(localDirectory, "destination", "d/", SyncDirection.UPLOAD);
+
+        // The filter was loaded before the writes, so only the recorded keys can be found.
+        long localNegatives = existenceChecker.getLocalNegatives();
+        Assert.assertEquals(
+                Arrays.asList("b/1", "b/2", "c/0", "d/3"),
+                s3Service.filterExisting("destination", Arrays.asList("b/1", "b/2", "b/3", "c/0", "d/3")));
+        Assert.assertEquals(localNegatives + 1, existenceChecker.getLocalNegatives());
+    }
+
+    @Test
+    public void ageHistogramsTest() {
+
+        // One object on every band start and one a millisecond before it, so each boundary is crossed both ways.
+        Instant now = Instant.parse("1996-07-18T09:00:00Z");
+        long[] bandStarts = AgeBand.getBandStarts(now);
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager();
+        for (int index = 0; index < bandStarts.length; index++) {
+            s3Manager.put("bucket", "a/start-" + index, 1L, Instant.ofEpochMilli(bandStarts[index]));
+            s3Manager.put("bucket", "a/before-" + index, 10L, Instant.ofEpochMilli(bandStarts[index] - 1));
+        }
+        s3Manager.put("bucket", "b/now", 100L, now);
+
+        List<AgeHistogram> ageHistograms =
+                new S3Service(s3Manager).getAgeHistograms("bucket", Arrays.asList("a/", "b/", "c/"), now);
+
+        Assert.assertEquals(
+                Arrays.asList("a/", "b/", "c/"),
+                ageHistograms.stream().map(AgeHistogram::getPrefix).collect(Collectors.toList()));
+        AgeHistogram ageHistogram = ageHistograms.get(0);
+        Assert.assertEquals(1L, ageHistogram.getObjectCount(AgeBand.PAST_DAY));
+        Assert.assertEquals(1L, ageHistogram.getSizeInBytes(AgeBand.PAST_DAY));
+        for (AgeBand ageBand : Arrays.asList(AgeBand.values()).subList(1, AgeBand.OLDER.ordinal())) {
+            Assert.assertEquals(2L, ageHistogram.getObjectCount(ageBand));
+            Assert.assertEquals(11L, ageHistogram.getSizeInBytes(ageBand));
+        }
+        Assert.assertEquals(1L, ageHistogram.getObjectCount(AgeBand.OLDER));
+        Assert.assertEquals(10L, ageHistogram.getSizeInBytes(AgeBand.OLDER));
+
+        Assert.assertEquals(1L, ageHistograms.get(1).getObjectCount(AgeBand.PAST_DAY));
+        Assert.assertEquals(0L, ageHistograms.get(2).getTotalObjectCount());
+    }
+
+    @Test
+    public void deleteIndexedObjectsInBatchesTest() throws IOException {
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager();
+        for (int index = 0; index < 2500; index++) {
+            s3Manager.put("bucket", "a/" + index, 10L, InMemoryS3Manager.OLD);
+        }
+        s3Manager.put("bucket", "b/0", 10L, InMemoryS3Manager.OLD.plusSeconds(60));
+        S3Service s3Service = new S3Service(s3Manager);
+
+        Path eventFile = temporaryFolder.newFile("events").toPath();
+        try (EventIndexer eventIndexer = new EventIndexer(
+                s3Manager, new FileEventMessageSource(eventFile), Collections.singletonList("bucket"))) {
+            eventIndexer.reconcile("bucket");
+            s3Service.useEventIndex(eventIndexer);
+
+            // The index lists every old key at once, and S3 rejects more than 1000 keys per request.
+            DeleteObjectsResponse deleteObjectsResponse =
+                    s3Service.deletePriorDateObjects("bucket", InMemoryS3Manager.OLD.plusSeconds(1));
+            Assert.assertEquals(2500, deleteObjectsResponse.deleted().size());
+            Assert.assertTrue(deleteObjectsResponse.errors().isEmpty());
+            Assert.assertEquals(Collections.singleton("b/0"), s3Manager.getKeys("bucket"));
+        }
+    }
+
+    @Test
+    public void summarizeDirectoryTest() throws InvalidDirectoryPathException {
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager();
+        s3Manager.put("bucket", "a/1", 10L, InMemoryS3Manager.OLD);
+        s3Manager.put("bucket", "a/b/2", 20L, InMemoryS3Manager.OLD);
+        s3Manager.put("bucket", "a/b/3", 30L, InMemoryS3Manager.OLD.plusSeconds(1));
+        s3Manager.put("source", "4", 40L, InMemoryS3Manager.OLD);
+        S3Service s3Service = new S3Service(s3Manager);
+
+        try (Stream<DirectoryEntry> directoryEntries = s3Service.listDirectory("bucket", "a")) {
+            Assert.assertEquals(
+                    Arrays.asList("1", "b/"),
+                    directoryEntries.map(DirectoryEntry::getName).collect(Collectors.toList()));
+        }
+
+        // Without an index, the subdirectory is only listed by its common prefix.
+        List<PrefixSummary> prefixSummaries = s3Service.summarizeDirectory("bucket", "a");
+        Assert.assertEquals(2, prefixSummaries.size());
+        Assert.assertEquals("a/1", prefixSummaries.get(0).getPrefix());
+        Assert.assertEquals(10L, prefixSummaries.get(0).getTotalSizeInBytes());
+        Assert.assertEquals("a/b/", prefixSummaries.get(1).getPrefix());
+        Assert.assertTrue(prefixSummaries.get(1).isCommonPrefix());
+        Assert.assertFalse(prefixSummaries.get(1).isSummarized());
+
+        s3Service.indexKeys("bucket");
+        Assert.assertEquals(50L, s3Service.summarizeDirectory("bucket", "a").get(1).getTotalSizeInBytes());
+        Assert.assertEquals(50L, (long) s3Service.getDirectoryStorageSizeInBytes("bucket", "a/b/"));
+
+        // Deleted keys are removed from the index.
+        s3Service.deleteObjects("bucket", Collections.singletonList("a/b/3"));
+        Assert.assertEquals(20L, (long) s3Service.getDirectoryStorageSizeInBytes("bucket", "a/b/"));
+        Assert.assertEquals(1L, s3Service.summarizeDirectory("bucket", "a").get(1).getObjectCount());
+
+        // Written keys drop the index, which is then listed again.
+        s3Service.copyPrefix("source", "", "bucket", "a/b/");
+        Assert.assertFalse(s3Service.summarizeDirectory("bucket", "a").get(1).isSummarized());
+        Assert.assertTrue(s3Service.isDirectory("bucket", "a/b"));
+    }
+
+    @Test
+    public void bucketRegionWithoutLocationPermissionTest() {
+
+        // GetBucketLocation is denied; HeadBucket reports the region of "a" only.
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager() {
+
+            @Override
+            public GetBucketLocationResponse getBucketLocation(String bucketName) {
+                throw S3Exception.builder().statusCode(403).message("AccessDenied").build();
+            }
+
+            @Override
+            public HeadBucketResponse headBucket(String bucketName) {
+
+                if (!bucketName.equals("a")) {
+                    throw S3Exception.builder().statusCode(403).message("AccessDenied").build();
+                }
+                return HeadBucketResponse.builder().bucketRegion("eu-west-3").build();
+            }
+        };
+        s3Manager.put("a", "1", 10L, InMemoryS3Manager.OLD);
+        s3Manager.put("b", "2", 20L, InMemoryS3Manager.OLD);
+        S3Service s3Service = new S3Service(s3Manager);
+
+        Map<Region, List<String>> bucketNamesByRegion = s3Service.groupBucketsByRegion(Arrays.asList("a", "b"));
+        Assert.assertEquals(Collections.singletonList("a"), bucketNamesByRegion.get(Region.EU_WEST_3));
+        Assert.assertEquals(Collections.singletonList("b"), bucketNamesByRegion.get(null));
+
+        Map<String, Long> storageSizes = s3Service.getBucketsStorageSizeInBytes();
+        Assert.assertEquals(Long.valueOf(10L), storageSizes.get("a"));
+        Assert.assertEquals(Long.valueOf(20L), storageSizes.get("b"));
+    }
+
+    @Test
+    public void summarizeDirectoryMarkerTest() {
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager();
+        s3Manager.put("bucket", "a/", 0L, InMemoryS3Manager.OLD);
+        s3Manager.put("bucket", "a/1", 10L, InMemoryS3Manager.OLD);
+        s3Manager.put("bucket", "a/b/", 0L, InMemoryS3Manager.OLD);
+        s3Manager.put("bucket", "a/b/2", 20L, InMemoryS3Manager.OLD);
+        S3Service s3Service = new S3Service(s3Manager);
+
+        // The marker object of the directory is skipped by both the delimiter listing and the index.
+        List<PrefixSummary> listedSummaries = s3Service.summarizeDirectory("bucket", "a/");
+        s3Service.indexKeys("bucket");
+        List<PrefixSummary> indexedSummaries = s3Service.summarizeDirectory("bucket", "a/");
+
+        Assert.assertEquals(Arrays.asList("a/1", "a/b/"), getPrefixes(listedSummaries));
+        Assert.assertEquals(getPrefixes(listedSummaries), getPrefixes(indexedSummaries));
+        for (int index = 0; index < listedSummaries.size(); index++) {
+            PrefixSummary listedSummary = listedSummaries.get(index);
+            PrefixSummary indexedSummary = indexedSummaries.get(index);
+            Assert.assertEquals(listedSummary.isCommonPrefix(), indexedSummary.isCommonPrefix());
+            if (!listedSummary.isCommonPrefix()) {
+                Assert.assertEquals(listedSummary.getObjectCount(), indexedSummary.getObjectCount());
+                Assert.assertEquals(listedSummary.getTotalSizeInBytes(), indexedSummary.getTotalSizeInBytes());
+            }
+        }
+        Assert.assertEquals(2L, indexedSummaries.get(1).getObjectCount());
+    }
+
+    private static List<String> getPrefixes(List<PrefixSummary> prefixSummaries) {
+        return prefixSummaries.stream().map(PrefixSummary::getPrefix).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,152 @@
+package s3.snapshot;
+
+import s3.externalapi.InMemoryS3Manager;
+
+import software.amazon.awssdk.services.s3.model.ObjectStorageClass;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+public class BucketSnapshotTest {
+
+    @Test
+    public void keyChunkCrossingTest() {
+
+        // 999-byte keys, so that the 16 MiB chunk boundary falls inside the two bytes of an "é" of key 16794.
+        StringBuilder suffix = new StringBuilder();
+        for (int index = 0; index < 497; index++) {
+            suffix.append('é');
+        }
+        List<S3Object> s3Objects = new ArrayList<>();
+        for (int row = 0; row < 17000; row++) {
+            s3Objects.add(s3Object(String.format("%05d", row) + suffix, row, ObjectStorageClass.STANDARD));
+        }
+
+        BucketSnapshot bucketSnapshot = BucketSnapshot.of("bucket", null, s3Objects.iterator());
+        Assert.assertEquals(17000, bucketSnapshot.size());
+        Assert.assertTrue(bucketSnapshot.isSortedByKey());
+        for (int row = 0; row < s3Objects.size(); row++) {
+            Assert.assertEquals(s3Objects.get(row).key(), bucketSnapshot.getKey(row));
+        }
+
+        // The prefix search compares the bytes of keys on both sides of the boundary.
+        for (String keyPrefix : Arrays.asList("16794", "16794" + suffix, "16795é")) {
+            SnapshotSelection snapshotSelection = bucketSnapshot.query().keyPrefix(keyPrefix).select();
+            Assert.assertEquals(
+                    Collections.singletonList(s3Objects.get(Integer.parseInt(keyPrefix.substring(0, 5))).key()),
+                    snapshotSelection.getKeys());
+        }
+    }
+
+    @Test
+    public void unalignedRowCountTest() {
+
+        for (int rowCount : new int[] {1, 63, 65, 130, SnapshotQuery.ROWS_PER_CHUNK + 3}) {
+            List<S3Object> s3Objects = new ArrayList<>();
+            for (int row = 0; row < rowCount; row++) {
+                ObjectStorageClass storageClass = (row % 3 == 0) ? ObjectStorageClass.GLACIER : null;
+                s3Objects.add(s3Object(String.format("k%06d", row), row, storageClass));
+            }
+            BucketSnapshot bucketSnapshot = BucketSnapshot.of("bucket", null, s3Objects.iterator());
+
+            for (boolean parallel : new boolean[] {false, true}) {
+                // The last, partial word of rows must neither lose matches nor select rows past the end.
+                SnapshotSelection snapshotSelection = bucketSnapshot.query()
+                        .sizeBetween(rowCount / 2, Long.MAX_VALUE)
+                        .modifiedBefore(InMemoryS3Manager.OLD.plusSeconds(rowCount))
+                        .storageClasses(ObjectStorageClass.GLACIER)
+                        .parallel(parallel)
+                        .select();
+
+                List<Integer> expectedRows = new ArrayList<>();
+                long expectedSize = 0L;
+                for (int row = rowCount / 2; row < rowCount; row++) {
+                    if (row % 3 == 0) {
+                        expectedRows.add(row);
+                        expectedSize += row;
+                    }
+                }
+                Assert.assertEquals(expectedRows, toList(snapshotSelection.getRows()));
+                Assert.assertEquals(expectedRows.size(), snapshotSelection.count());
+                Assert.assertEquals(expectedSize, snapshotSelection.sumSizes());
+
+                Assert.assertEquals(rowCount, bucketSnapshot.query().parallel(parallel).count());
+                Assert.assertEquals(
+                        Math.min(rowCount, 10),
+                        bucketSnapshot.query().keyPrefix("k00000").parallel(parallel).count());
+            }
+        }
+    }
+
+    @Test
+    public void selectionTest() {
+
+        List<S3Object> s3Objects = Arrays.asList(
+                s3Object("b/2", 20L, ObjectStorageClass.GLACIER),
+                s3Object("a/1", 10L, null),
+                s3Object("b/3", 30L, ObjectStorageClass.STANDARD_IA),
+                s3Object("a/4", 40L, ObjectStorageClass.GLACIER),
+                s3Object("c/5", 50L, ObjectStorageClass.STANDARD));
+        BucketSnapshot bucketSnapshot = BucketSnapshot.of("bucket", "", s3Objects.iterator());
+        Assert.assertFalse(bucketSnapshot.isSortedByKey());
+        Assert.assertEquals(ObjectStorageClass.STANDARD, bucketSnapshot.getStorageClass(1));
+
+        // Out of key order, the key prefix is scanned instead of searched.
+        SnapshotSelection snapshotSelection = bucketSnapshot.query()
+                .keyPrefix("b/")
+                .select();
+        Assert.assertEquals(Arrays.asList("b/2", "b/3"), snapshotSelection.getKeys());
+        Assert.assertTrue(snapshotSelection.isSelected(0));
+        Assert.assertFalse(snapshotSelection.isSelected(1));
+
+        snapshotSelection = bucketSnapshot.query()
+                .modifiedSince(InMemoryS3Manager.OLD.plusSeconds(20))
+                .select();
+        Assert.assertEquals(Arrays.asList("b/2", "b/3", "a/4", "c/5"), snapshotSelection.getKeys());
+
+        Map<ObjectStorageClass, Long> expectedCounts = new EnumMap<>(ObjectStorageClass.class);
+        expectedCounts.put(ObjectStorageClass.STANDARD, 1L);
+        expectedCounts.put(ObjectStorageClass.STANDARD_IA, 1L);
+        expectedCounts.put(ObjectStorageClass.GLACIER, 2L);
+        Assert.assertEquals(expectedCounts, snapshotSelection.countByStorageClass());
+
+        Map<ObjectStorageClass, Long> expectedSizes = new EnumMap<>(ObjectStorageClass.class);
+        expectedSizes.put(ObjectStorageClass.STANDARD, 50L);
+        expectedSizes.put(ObjectStorageClass.STANDARD_IA, 30L);
+        expectedSizes.put(ObjectStorageClass.GLACIER, 60L);
+        Assert.assertEquals(expectedSizes, snapshotSelection.sumSizesByStorageClass());
+        Assert.assertEquals(140L, snapshotSelection.sumSizes());
+
+        snapshotSelection = bucketSnapshot.query().keyPrefix("d/").select();
+        Assert.assertEquals(0L, snapshotSelection.count());
+        Assert.assertEquals(0, snapshotSelection.getRows().length);
+        Assert.assertEquals(Collections.emptyMap(), snapshotSelection.countByStorageClass());
+    }
+
+    private static S3Object s3Object(String key, long size, ObjectStorageClass storageClass) {
+
+        return S3Object.builder()
+                .key(key)
+                .size(size)
+                .lastModified(InMemoryS3Manager.OLD.plusSeconds(size))
+                .storageClass(storageClass)
+                .build();
+    }
+
+    private static List<Integer> toList(int[] rows) {
+
+        List<Integer> list = new ArrayList<>();
+        for (int row : rows) {
+            list.add(row);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,44 @@
+package s3.transfer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class BandwidthLimiterTest {
+
+    private final AtomicLong nanoClock = new AtomicLong();
+
+    @Test
+    public void reserveTest() {
+
+        BandwidthLimiter bandwidthLimiter = new BandwidthLimiter(1000L, 2000L, nanoClock::get);
+
+        // The bucket starts full.
+        Assert.assertEquals(0L, bandwidthLimiter.reserve(1500L));
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(500L), bandwidthLimiter.reserve(1000L));
+
+        // The reserved tokens make later callers queue up behind the waiting one.
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(1500L), bandwidthLimiter.reserve(1000L));
+
+        // Refilling is capped by the burst capacity.
+        nanoClock.addAndGet(TimeUnit.SECONDS.toNanos(60L));
+        Assert.assertEquals(0L, bandwidthLimiter.reserve(2000L));
+    }
+
+    @Test
+    public void debtTest() {
+
+        BandwidthLimiter bandwidthLimiter = new BandwidthLimiter(1000L, 2000L, nanoClock::get);
+
+        // A request larger than the bucket goes through once the bucket is full, and leaves it in debt.
+        Assert.assertEquals(0L, bandwidthLimiter.reserve(5000L));
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(3100L), bandwidthLimiter.reserve(100L));
+
+        // The debt is paid back at the configured rate before the next request goes through.
+        nanoClock.addAndGet(TimeUnit.MILLISECONDS.toNanos(3100L));
+        Assert.assertEquals(0L, bandwidthLimiter.reserve(0L));
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(2000L), bandwidthLimiter.reserve(2000L));
+    }
+}
@@ -0,0 +1,201 @@
+package s3.transfer;
+
+import s3.exception.TransferException;
+import s3.externalapi.S3AsyncManager;
+
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+
+public class BulkUploaderTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void uploadDirectoryTest() throws IOException {
+
+        Path localDirectory = temporaryFolder.newFolder("local").toPath();
+        write(localDirectory.resolve("a"), "1");
+        write(localDirectory.resolve("b/c"), "22");
+        write(localDirectory.resolve("b/d/e"), "4444");
+        write(localDirectory.resolve("f"), "55555");
+
+        RecordingS3AsyncManager s3AsyncManager = new RecordingS3AsyncManager();
+        s3AsyncManager.failingKey = "prefix/f";
+        UploadResult uploadResult = new BulkUploader(s3AsyncManager, 2, 2).uploadDirectory(
+                localDirectory, "bucket", "prefix");
+
+        // Files up to the buffer size are read into pooled buffers, larger ones are streamed from disk.
+        Map<String, String> expectedUploads = new TreeMap<>();
+        expectedUploads.put("prefix/a", "1");
+        expectedUploads.put("prefix/b/c", "22");
+        expectedUploads.put("prefix/b/d/e", "4444");
+        Assert.assertEquals(expectedUploads, s3AsyncManager.uploads);
+        Assert.assertEquals(new TreeSet<>(Arrays.asList("prefix/b/d/e", "prefix/f")), s3AsyncManager.streamedKeys);
+        Assert.assertEquals(3L, uploadResult.getUploadedFiles());
+        Assert.assertEquals(7L, uploadResult.getUploadedBytes());
+        Assert.assertEquals(Collections.singletonList(localDirectory.resolve("f")), uploadResult.getFailedFiles());
+    }
+
+    @Test
+    public void bufferPoolTest() throws IOException {
+
+        Path localDirectory = temporaryFolder.newFolder("local").toPath();
+        write(localDirectory.resolve("a"), "1");
+        write(localDirectory.resolve("b"), "22");
+        write(localDirectory.resolve("c"), "333");
+
+        // Buffers are allocated on demand, at most one per file here, and reused by the next upload.
+        BulkUploader bulkUploader = new BulkUploader(new RecordingS3AsyncManager(), 64, 16);
+        Assert.assertEquals(0, bulkUploader.getAllocatedBuffers());
+        bulkUploader.uploadDirectory(localDirectory, "bucket", "");
+        int allocatedBuffers = bulkUploader.getAllocatedBuffers();
+        Assert.assertTrue((allocatedBuffers >= 1) && (allocatedBuffers <= 3));
+        Assert.assertEquals(3L, bulkUploader.uploadDirectory(localDirectory, "bucket", "").getUploadedFiles());
+        Assert.assertTrue(bulkUploader.getAllocatedBuffers() <= 3);
+    }
+
+    @Test
+    public void resizedFileTest() throws Exception {
+
+        Path path = temporaryFolder.newFile("a").toPath();
+        Files.write(path, "22".getBytes(StandardCharsets.UTF_8));
+
+        Assert.assertEquals(2, BulkUploader.readFully(path, ByteBuffer.allocate(2)).get().remaining());
+
+        // A file shorter or longer than the size recorded by the walk fails instead of being uploaded partially.
+        for (int recordedSize : new int[] {4, 1}) {
+            ByteBuffer buffer = ByteBuffer.allocate(recordedSize);
+            try {
+                BulkUploader.readFully(path, buffer).get();
+                Assert.fail("Resized file read: " + recordedSize);
+            } catch (ExecutionException exc) {
+                Assert.assertTrue(exc.getCause() instanceof IOException);
+            }
+        }
+    }
+
+    @Test
+    public void symbolicLinkTest() throws IOException {
+
+        Path localDirectory = temporaryFolder.newFolder("local").toPath();
+        write(localDirectory.resolve("a/b"), "1");
+        Files.createSymbolicLink(localDirectory.resolve("a/loop"), localDirectory);
+        Files.createSymbolicLink(localDirectory.resolve("c"), localDirectory.resolve("a/b"));
+
+        RecordingS3AsyncManager s3AsyncManager = new RecordingS3AsyncManager();
+        UploadResult uploadResult = new BulkUploader(s3AsyncManager, 2, 16).uploadDirectory(
+                localDirectory, "bucket", "");
+
+        Assert.assertEquals(Collections.singletonMap("a/b", "1"), s3AsyncManager.uploads);
+        Assert.assertEquals(1L, uploadResult.getUploadedFiles());
+    }
+
+    @Test
+    public void abortTest() throws IOException, InterruptedException {
+
+        // With one upload in flight, the queue holds 4 files and the walkers block on the other ones.
+        Path localDirectory = temporaryFolder.newFolder("local").toPath();
+        for (int index = 0; index < 50; index++) {
+            write(localDirectory.resolve("d" + (index % 5) + "/" + index), "12");
+        }
+        Set<Thread> previousThreads = Thread.getAllStackTraces().keySet();
+
+        RecordingS3AsyncManager s3AsyncManager = new RecordingS3AsyncManager();
+        s3AsyncManager.rejectStreams = true;
+        try {
+            new BulkUploader(s3AsyncManager, 1, 1).uploadDirectory(localDirectory, "bucket", "");
+            Assert.fail("Rejected upload ignored.");
+        } catch (TransferException exc) {
+            // Expected.
+        }
+
+        // The walkers give up once the upload is aborted instead of waiting for room forever.
+        long deadline = System.currentTimeMillis() + 10000L;
+        Set<Thread> walkerThreads = newWalkerThreads(previousThreads);
+        while (!walkerThreads.isEmpty() && (System.currentTimeMillis() < deadline)) {
+            Thread.sleep(10L);
+            walkerThreads = newWalkerThreads(previousThreads);
+        }
+        Assert.assertEquals(Collections.emptySet(), walkerThreads);
+    }
+
+    private static Set<Thread> newWalkerThreads(Set<Thread> previousThreads) {
+
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> !previousThreads.contains(thread))
+                .filter(thread -> thread.getName().startsWith("ForkJoinPool-"))
+                .filter(Thread::isAlive)
+                .collect(Collectors.toSet());
+    }
+
+    private static void write(Path path, String content) throws IOException {
+
+        Files.createDirectories(path.getParent());
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Records the content of every upload, fails the upload of one key, and can reject streamed uploads outright.
+     */
+    private static class RecordingS3AsyncManager implements S3AsyncManager {
+
+        private final Map<String, String> uploads = Collections.synchronizedMap(new TreeMap<>());
+        private final Set<String> streamedKeys = Collections.synchronizedSet(new TreeSet<>());
+        private volatile String failingKey;
+        private volatile boolean rejectStreams;
+
+        @Override
+        public CompletableFuture<PutObjectResponse> putObject(String bucketName, String key, ByteBuffer content) {
+
+            byte[] bytes = new byte[content.remaining()];
+            content.get(bytes);
+            return complete(key, new String(bytes, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public CompletableFuture<PutObjectResponse> putObject(String bucketName, String key, Path source) {
+
+            if (rejectStreams) {
+                throw new TransferException("Rejected upload: " + key);
+            }
+            streamedKeys.add(key);
+            try {
+                return complete(key, new String(Files.readAllBytes(source), StandardCharsets.UTF_8));
+            } catch (IOException exc) {
+                throw new TransferException("Unreadable upload: " + key);
+            }
+        }
+
+        private CompletableFuture<PutObjectResponse> complete(String key, String content) {
+
+            CompletableFuture<PutObjectResponse> future = new CompletableFuture<>();
+            if (key.equals(failingKey)) {
+                future.completeExceptionally(new TransferException("Failed upload: " + key));
+            } else {
+                uploads.put(key, content);
+                future.complete(PutObjectResponse.builder().build());
+            }
+            return future;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package s3.transfer;
+
+import s3.externalapi.InMemoryS3Manager;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class DirectorySynchronizerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void uploadTest() throws IOException {
+
+        Path localDirectory = temporaryFolder.newFolder("local").toPath();
+        write(localDirectory.resolve("a"), "1");
+        write(localDirectory.resolve("b/c"), "22");
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager();
+        DirectorySynchronizer directorySynchronizer = new DirectorySynchronizer(s3Manager, 2);
+        SyncResult syncResult =
+                directorySynchronizer.synchronize(localDirectory, "bucket", "sync", SyncDirection.UPLOAD, false);
+
+        Assert.assertEquals(new HashSet<>(Arrays.asList("sync/a", "sync/b/c")), s3Manager.getKeys("bucket"));
+        Assert.assertEquals(2L, syncResult.getTransferredFiles());
+        Assert.assertEquals(3L, syncResult.getTransferredBytes());
+        Assert.assertEquals(0L, syncResult.getUnchangedFiles());
+
+        // A sync with no changes lists the prefix once and transfers nothing.
+        int listRequests = s3Manager.getListRequests();
+        syncResult = directorySynchronizer.synchronize(localDirectory, "bucket", "sync", SyncDirection.UPLOAD, false);
+        Assert.assertEquals(0L, syncResult.getTransferredFiles());
+        Assert.assertEquals(2L, syncResult.getUnchangedFiles());
+        Assert.assertEquals(2, s3Manager.getPutRequests());
+        Assert.assertEquals(listRequests + 1, s3Manager.getListRequests());
+
+        // Only the changed file is uploaded again.
+        write(localDirectory.resolve("b/c"), "333");
+        syncResult = directorySynchronizer.synchronize(localDirectory, "bucket", "sync", SyncDirection.UPLOAD, false);
+        Assert.assertEquals(1L, syncResult.getTransferredFiles());
+        Assert.assertEquals(3L, syncResult.getTransferredBytes());
+        Assert.assertEquals(1L, syncResult.getUnchangedFiles());
+    }
+
+    @Test
+    public void downloadTest() throws IOException {
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager();
+        s3Manager.put("bucket", "sync/a", bytes("1"), InMemoryS3Manager.OLD);
+        s3Manager.put("bucket", "sync/b/c", bytes("22"), InMemoryS3Manager.OLD);
+        s3Manager.put("bucket", "sync/d/", bytes(""), InMemoryS3Manager.OLD);
+
+        Path localDirectory = temporaryFolder.newFolder("local").toPath();
+        DirectorySynchronizer directorySynchronizer = new DirectorySynchronizer(s3Manager, 2);
+        SyncResult syncResult =
+                directorySynchronizer.synchronize(localDirectory, "bucket", "sync/", SyncDirection.DOWNLOAD, false);
+
+        Assert.assertEquals(Arrays.asList("a", "b/c"), listFiles(localDirectory));
+        Assert.assertEquals("22", read(localDirectory.resolve("b/c")));
+        Assert.assertEquals(2L, syncResult.getTransferredFiles());
+        Assert.assertEquals(3L, syncResult.getTransferredBytes());
+
+        syncResult =
+                directorySynchronizer.synchronize(localDirectory, "bucket", "sync/", SyncDirection.DOWNLOAD, false);
+        Assert.assertEquals(0L, syncResult.getTransferredFiles());
+        Assert.assertEquals(2L, syncResult.getUnchangedFiles());
+        Assert.assertEquals(2, s3Manager.getGetRequests());
+    }
+
+    @Test
+    public void manifestTest() throws IOException {
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager();
+        s3Manager.put("bucket", "sync/a", bytes("1"), InMemoryS3Manager.OLD);
+
+        Path localDirectory = temporaryFolder.newFolder("local").toPath();
+        Path localPath = localDirectory.resolve("a");
+        new DirectorySynchronizer(s3Manager, 2)
+                .synchronize(localDirectory, "bucket", "sync", SyncDirection.DOWNLOAD, false);
+
+        // A file with the recorded size and modification time is trusted to hold the recorded ETag, without hashing.
+        FileTime lastModifiedTime = Files.getLastModifiedTime(localPath);
+        write(localPath, "2");
+        Files.setLastModifiedTime(localPath, lastModifiedTime);
+        SyncResult syncResult = new DirectorySynchronizer(s3Manager, 2)
+                .synchronize(localDirectory, "bucket", "sync", SyncDirection.DOWNLOAD, false);
+        Assert.assertEquals(1L, syncResult.getUnchangedFiles());
+        Assert.assertEquals(1, s3Manager.getGetRequests());
+
+        // Without the manifest the file is hashed, found to differ and downloaded again.
+        Files.delete(localDirectory.resolve(DirectorySynchronizer.MANIFEST_FILE_NAME));
+        syncResult = new DirectorySynchronizer(s3Manager, 2)
+                .synchronize(localDirectory, "bucket", "sync", SyncDirection.DOWNLOAD, false);
+        Assert.assertEquals(1L, syncResult.getTransferredFiles());
+        Assert.assertEquals("1", read(localPath));
+        Assert.assertEquals(2, s3Manager.getGetRequests());
+    }
+
+    @Test
+    public void deleteExtrasTest() throws IOException {
+
+        Path localDirectory = temporaryFolder.newFolder("local").toPath();
+        write(localDirectory.resolve("a"), "1");
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager();
+        s3Manager.put("bucket", "sync/a", bytes("1"), InMemoryS3Manager.OLD);
+        s3Manager.put("bucket", "sync/extra", bytes("22"), InMemoryS3Manager.OLD);
+        s3Manager.put("bucket", "other", bytes("333"), InMemoryS3Manager.OLD);
+        DirectorySynchronizer directorySynchronizer = new DirectorySynchronizer(s3Manager, 2);
+
+        SyncResult syncResult =
+                directorySynchronizer.synchronize(localDirectory, "bucket", "sync", SyncDirection.UPLOAD, false);
+        Assert.assertEquals(0L, syncResult.getDeletedFiles());
+        Assert.assertEquals(3, s3Manager.getKeys("bucket").size());
+
+        syncResult = directorySynchronizer.synchronize(localDirectory, "bucket", "sync", SyncDirection.UPLOAD, true);
+        Assert.assertEquals(1L, syncResult.getDeletedFiles());
+        Assert.assertEquals(new HashSet<>(Arrays.asList("sync/a", "other")), s3Manager.getKeys("bucket"));
+
+        write(localDirectory.resolve("b/extra"), "4444");
+        syncResult = directorySynchronizer.synchronize(localDirectory, "bucket", "sync", SyncDirection.DOWNLOAD, false);
+        Assert.assertEquals(0L, syncResult.getDeletedFiles());
+        Assert.assertEquals(Arrays.asList("a", "b/extra"), listFiles(localDirectory));
+
+        syncResult = directorySynchronizer.synchronize(localDirectory, "bucket", "sync", SyncDirection.DOWNLOAD, true);
+        Assert.assertEquals(1L, syncResult.getDeletedFiles());
+        Assert.assertEquals(Collections.singletonList("a"), listFiles(localDirectory));
+        Assert.assertTrue(Files.exists(localDirectory.resolve(DirectorySynchronizer.MANIFEST_FILE_NAME)));
+    }
+
+    @Test
+    public void failedDeletionTest() throws IOException {
+
+        Path localDirectory = temporaryFolder.newFolder("local").toPath();
+        write(localDirectory.resolve("a"), "1");
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager();
+        s3Manager.put("bucket", "sync/extra1", bytes("22"), InMemoryS3Manager.OLD);
+        s3Manager.put("bucket", "sync/extra2", bytes("333"), InMemoryS3Manager.OLD);
+        s3Manager.failDeletion("sync/extra2");
+        DirectorySynchronizer directorySynchronizer = new DirectorySynchronizer(s3Manager, 2);
+
+        // A key refused by DeleteObjects is neither counted as deleted nor lost.
+        SyncResult syncResult =
+                directorySynchronizer.synchronize(localDirectory, "bucket", "sync", SyncDirection.UPLOAD, true);
+        Assert.assertEquals(1L, syncResult.getDeletedFiles());
+        Assert.assertEquals(Collections.singletonList("sync/extra2"), syncResult.getFailedDeletionKeys());
+        Assert.assertEquals(new HashSet<>(Arrays.asList("sync/a", "sync/extra2")), s3Manager.getKeys("bucket"));
+
+        // The next sync deletes it again.
+        s3Manager.allowDeletion("sync/extra2");
+        syncResult = directorySynchronizer.synchronize(localDirectory, "bucket", "sync", SyncDirection.UPLOAD, true);
+        Assert.assertEquals(1L, syncResult.getDeletedFiles());
+        Assert.assertEquals(Collections.emptyList(), syncResult.getFailedDeletionKeys());
+        Assert.assertEquals(Collections.singleton("sync/a"), s3Manager.getKeys("bucket"));
+    }
+
+    @Test
+    public void partFileTest() throws IOException {
+
+        Path localDirectory = temporaryFolder.newFolder("local").toPath();
+        write(localDirectory.resolve("a.part"), "1");
+        write(localDirectory.resolve("b/.s3sync-c.part"), "22");
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager();
+        s3Manager.put("bucket", "sync/a.part", bytes("0"), InMemoryS3Manager.OLD);
+        s3Manager.put("bucket", "sync/extra", bytes("333"), InMemoryS3Manager.OLD);
+        DirectorySynchronizer directorySynchronizer = new DirectorySynchronizer(s3Manager, 2);
+
+        // Files that merely look like partial downloads are uploaded, and their remote copies kept.
+        SyncResult syncResult =
+                directorySynchronizer.synchronize(localDirectory, "bucket", "sync", SyncDirection.UPLOAD, true);
+        Assert.assertEquals(2L, syncResult.getTransferredFiles());
+        Assert.assertEquals(1L, syncResult.getDeletedFiles());
+        Assert.assertEquals(
+                new HashSet<>(Arrays.asList("sync/a.part", "sync/b/.s3sync-c.part")),
+                s3Manager.getKeys("bucket"));
+
+        // And downloaded back, without being reported as skipped or deleted as extras.
+        Path otherDirectory = temporaryFolder.newFolder("other").toPath();
+        write(otherDirectory.resolve("extra.part"), "4444");
+        syncResult = directorySynchronizer.synchronize(otherDirectory, "bucket", "sync", SyncDirection.DOWNLOAD, true);
+        Assert.assertEquals(2L, syncResult.getTransferredFiles());
+        Assert.assertEquals(1L, syncResult.getDeletedFiles());
+        Assert.assertEquals(Collections.emptyList(), syncResult.getSkippedKeys());
+        Assert.assertEquals(Arrays.asList("a.part", "b/.s3sync-c.part"), listFiles(otherDirectory));
+        Assert.assertEquals("1", read(otherDirectory.resolve("a.part")));
+    }
+
+    @Test
+    public void pathTraversalTest() throws IOException {
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager();
+        s3Manager.put("bucket", "sync/../x", bytes("1"), InMemoryS3Manager.OLD);
+        s3Manager.put("bucket", "sync//etc/x", bytes("22"), InMemoryS3Manager.OLD);
+        s3Manager.put(
+                "bucket",
+                "sync/" + DirectorySynchronizer.MANIFEST_FILE_NAME,
+                bytes("333"),
+                InMemoryS3Manager.OLD);
+        s3Manager.put("bucket", "sync/y", bytes("4444"), InMemoryS3Manager.OLD);
+
+        Path localDirectory = temporaryFolder.newFolder("local").toPath();
+        SyncResult syncResult = new DirectorySynchronizer(s3Manager, 2)
+                .synchronize(localDirectory, "bucket", "sync", SyncDirection.DOWNLOAD, false);
+
+        Assert.assertEquals(Collections.singletonList("y"), listFiles(localDirectory));
+        Assert.assertFalse(Files.exists(localDirectory.resolveSibling("x")));
+        Assert.assertEquals(1L, syncResult.getTransferredFiles());
+        Assert.assertEquals(
+                new HashSet<>(Arrays.asList(
+                        "sync/../x", "sync//etc/x", "sync/" + DirectorySynchronizer.MANIFEST_FILE_NAME)),
+                new HashSet<>(syncResult.getSkippedKeys()));
+    }
+
+    private static List<String> listFiles(Path localDirectory) throws IOException {
+
+        try (Stream<Path> paths = Files.walk(localDirectory)) {
+            return paths.filter(Files::isRegularFile)
+                    .map(path -> localDirectory.relativize(path).toString().replace('\\', '/'))
+                    .filter(relativePath -> !relativePath.startsWith(DirectorySynchronizer.MANIFEST_FILE_NAME))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String read(Path path) throws IOException {
+        return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    }
+
+    private static void write(Path path, String content) throws IOException {
+
+        Files.createDirectories(path.getParent());
+        Files.write(path, bytes(content));
+    }
+}
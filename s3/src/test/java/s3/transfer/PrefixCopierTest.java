@@ -0,0 +1,177 @@
+package s3.transfer;
+
+import s3.externalapi.InMemoryS3Manager;
+import s3.util.Constants;
+
+import software.amazon.awssdk.services.s3.model.CopyObjectResponse;
+import software.amazon.awssdk.services.s3.model.CopyObjectResult;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+public class PrefixCopierTest {
+
+    @Test
+    public void copyPrefixTest() {
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager(2);
+        s3Manager.put("source", "data/a", 1L, InMemoryS3Manager.OLD);
+        s3Manager.put("source", "data/b/c", 2L, InMemoryS3Manager.OLD);
+        s3Manager.put("source", "data/d", 3L, InMemoryS3Manager.OLD);
+        s3Manager.put("source", "other/e", 4L, InMemoryS3Manager.OLD);
+
+        Set<String> writtenKeys = Collections.synchronizedSet(new TreeSet<>());
+        PrefixCopier prefixCopier =
+                new PrefixCopier(s3Manager, 2, (bucketName, key) -> writtenKeys.add(bucketName + ":" + key));
+        CopyResult copyResult = prefixCopier.copyPrefix("source", "data/", "target", "backup/", false);
+
+        Set<String> expectedKeys = new HashSet<>(Arrays.asList("backup/a", "backup/b/c", "backup/d"));
+        Assert.assertEquals(expectedKeys, s3Manager.getKeys("target"));
+        Assert.assertEquals(
+                new TreeSet<>(Arrays.asList("target:backup/a", "target:backup/b/c", "target:backup/d")), writtenKeys);
+        Assert.assertEquals(4, s3Manager.getKeys("source").size());
+        Assert.assertEquals(3L, copyResult.getCopiedObjects());
+        Assert.assertEquals(6L, copyResult.getCopiedBytes());
+        Assert.assertEquals(0L, copyResult.getDeletedObjects());
+        Assert.assertEquals(Collections.emptyList(), copyResult.getFailedKeys());
+    }
+
+    @Test
+    public void movePrefixTest() {
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager(2);
+        s3Manager.put("source", "data/a", 1L, InMemoryS3Manager.OLD);
+        s3Manager.put("source", "data/b", 2L, InMemoryS3Manager.OLD);
+        s3Manager.put("source", "data/c", 3L, InMemoryS3Manager.OLD);
+        s3Manager.put("source", "data/d", 4L, InMemoryS3Manager.OLD);
+        s3Manager.failCopy("data/b");
+        s3Manager.failDeletion("data/c");
+
+        CopyResult copyResult = new PrefixCopier(s3Manager, 2).copyPrefix("source", "data/", "target", "", true);
+
+        // A source object is only deleted once its copy succeeded, and stays if its deletion failed.
+        Assert.assertEquals(new HashSet<>(Arrays.asList("a", "c", "d")), s3Manager.getKeys("target"));
+        Assert.assertEquals(new HashSet<>(Arrays.asList("data/b", "data/c")), s3Manager.getKeys("source"));
+        Assert.assertEquals(3L, copyResult.getCopiedObjects());
+        Assert.assertEquals(2L, copyResult.getDeletedObjects());
+        Assert.assertEquals(Arrays.asList("data/b", "data/c"), sorted(copyResult.getFailedKeys()));
+    }
+
+    @Test
+    public void unverifiedCopyTest() {
+
+        TruncatingS3Manager s3Manager = new TruncatingS3Manager();
+        s3Manager.put("source", "data/a", 10L, InMemoryS3Manager.OLD);
+
+        CopyResult copyResult = new PrefixCopier(s3Manager, 1).copyPrefix("source", "data/", "target", "data/", true);
+
+        // The copy answered with another ETag and a smaller size, so the source is kept.
+        Assert.assertEquals(Collections.singleton("data/a"), s3Manager.getKeys("source"));
+        Assert.assertEquals(0L, copyResult.getCopiedObjects());
+        Assert.assertEquals(0L, copyResult.getDeletedObjects());
+        Assert.assertEquals(Collections.singletonList("data/a"), copyResult.getFailedKeys());
+    }
+
+    @Test
+    public void multipartCopyTest() {
+
+        // Above the single copy limit the object is copied in 512 MiB parts: 12 for 6 GiB.
+        long size = Constants.MAX_SINGLE_COPY_SIZE_IN_BYTES + 1024L * 1024 * 1024;
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager();
+        s3Manager.put("source", "data/large", size, InMemoryS3Manager.OLD);
+        s3Manager.put("source", "data/small", Constants.MAX_SINGLE_COPY_SIZE_IN_BYTES, InMemoryS3Manager.OLD);
+
+        CopyResult copyResult = new PrefixCopier(s3Manager, 2).copyPrefix("source", "data/", "target", "data/", true);
+
+        Assert.assertEquals("\"" + size + "-12\"", s3Manager.headObject("target", "data/large").eTag());
+        Assert.assertEquals(size, s3Manager.headObject("target", "data/large").contentLength().longValue());
+        Assert.assertEquals("\"" + Constants.MAX_SINGLE_COPY_SIZE_IN_BYTES + "\"",
+                            s3Manager.headObject("target", "data/small").eTag());
+        Assert.assertEquals(Collections.emptyList(), copyResult.getFailedKeys());
+        Assert.assertEquals(Collections.emptySet(), s3Manager.getKeys("source"));
+        Assert.assertEquals(2L, copyResult.getCopiedObjects());
+        Assert.assertEquals(2L, copyResult.getDeletedObjects());
+        Assert.assertEquals(0, s3Manager.getOpenMultipartUploads());
+    }
+
+    @Test
+    public void failedMultipartCopyTest() {
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager();
+        s3Manager.put("source", "data/large", Constants.MAX_SINGLE_COPY_SIZE_IN_BYTES + 1L, InMemoryS3Manager.OLD);
+        s3Manager.failCopy("data/large");
+
+        CopyResult copyResult = new PrefixCopier(s3Manager, 1).copyPrefix("source", "data/", "target", "data/", true);
+
+        // The failed part aborts the upload and the source is kept.
+        Assert.assertEquals(0, s3Manager.getOpenMultipartUploads());
+        Assert.assertEquals(Collections.emptySet(), s3Manager.getKeys("target"));
+        Assert.assertEquals(Collections.singleton("data/large"), s3Manager.getKeys("source"));
+        Assert.assertEquals(Collections.singletonList("data/large"), copyResult.getFailedKeys());
+    }
+
+    @Test
+    public void nestedDestinationTest() {
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager();
+        s3Manager.put("bucket", "data/a", 1L, InMemoryS3Manager.OLD);
+        PrefixCopier prefixCopier = new PrefixCopier(s3Manager, 1);
+
+        for (String[] prefixes : new String[][] {{"data/", "data/copy/"}, {"data/", "data/"}, {null, "copy/"}}) {
+            try {
+                prefixCopier.copyPrefix("bucket", prefixes[0], "bucket", prefixes[1], false);
+                Assert.fail("Destination inside source accepted: " + Arrays.toString(prefixes));
+            } catch (IllegalArgumentException exc) {
+                // Expected.
+            }
+        }
+        Assert.assertEquals(Collections.singleton("data/a"), s3Manager.getKeys("bucket"));
+
+        // A sibling prefix or another bucket is fine.
+        Assert.assertEquals(1L, prefixCopier.copyPrefix("bucket", "data/", "bucket", "data-copy/", false)
+                .getCopiedObjects());
+        Assert.assertEquals(1L, prefixCopier.copyPrefix("bucket", "data/", "other", "data/copy/", false)
+                .getCopiedObjects());
+    }
+
+    private static List<String> sorted(List<String> keys) {
+
+        List<String> sortedKeys = new ArrayList<>(keys);
+        Collections.sort(sortedKeys);
+        return sortedKeys;
+    }
+
+    /**
+     * Answers every copy with another ETag and writes a truncated object, as an interrupted copy would.
+     */
+    private static class TruncatingS3Manager extends InMemoryS3Manager {
+
+        @Override
+        public synchronized CopyObjectResponse copyObject(
+                String sourceBucketName,
+                String sourceKey,
+                String destinationBucketName,
+                String destinationKey) {
+
+            S3Object s3Object = S3Object.builder()
+                    .key(destinationKey)
+                    .size(1L)
+                    .eTag("\"1\"")
+                    .lastModified(InMemoryS3Manager.OLD)
+                    .build();
+            put(destinationBucketName, s3Object);
+            return CopyObjectResponse.builder()
+                    .copyObjectResult(CopyObjectResult.builder().eTag(s3Object.eTag()).build())
+                    .build();
+        }
+    }
+}
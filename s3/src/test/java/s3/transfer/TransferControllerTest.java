@@ -0,0 +1,67 @@
+package s3.transfer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TransferControllerTest {
+
+    private static final long WINDOW_IN_MILLIS = 1000L;
+
+    private final AtomicLong nanoClock = new AtomicLong();
+
+    @Test
+    public void hillClimbingTest() throws InterruptedException {
+
+        TransferController transferController =
+                new TransferController(1, 3, WINDOW_IN_MILLIS, null, nanoClock::get);
+        Assert.assertEquals(1, transferController.getConcurrency());
+
+        // Climbs while throughput improves, and stops at the maximum.
+        Assert.assertEquals(2, sampleWindow(transferController, 100L * 1024 * 1024));
+        Assert.assertEquals(3, sampleWindow(transferController, 200L * 1024 * 1024));
+        Assert.assertEquals(3, sampleWindow(transferController, 300L * 1024 * 1024));
+
+        // Reverses when throughput degrades, and keeps going down while it improves again.
+        Assert.assertEquals(2, sampleWindow(transferController, 100L * 1024 * 1024));
+        Assert.assertEquals(1, sampleWindow(transferController, 150L * 1024 * 1024));
+
+        // Holds on a plateau, then reverses upwards on the next degradation.
+        Assert.assertEquals(1, sampleWindow(transferController, 152L * 1024 * 1024));
+        Assert.assertEquals(2, sampleWindow(transferController, 50L * 1024 * 1024));
+    }
+
+    @Test
+    public void partSizeTest() throws InterruptedException {
+
+        TransferController transferController =
+                new TransferController(1, 1, WINDOW_IN_MILLIS, null, nanoClock::get);
+        Assert.assertEquals(5L * 1024 * 1024, transferController.getPartSizeInBytes());
+
+        // A part takes about 2 seconds at the per-transfer throughput, within the 5 MiB to 512 MiB range.
+        sampleWindow(transferController, 40L * 1024 * 1024);
+        Assert.assertEquals(80L * 1024 * 1024, transferController.getPartSizeInBytes());
+        sampleWindow(transferController, 1024L * 1024 * 1024);
+        Assert.assertEquals(512L * 1024 * 1024, transferController.getPartSizeInBytes());
+    }
+
+    @Test
+    public void defaultRangeTest() {
+
+        Assert.assertEquals(128, TransferController.withDefaultRange(256).getConcurrency());
+        Assert.assertEquals(1, TransferController.withDefaultRange(1).getConcurrency());
+    }
+
+    /**
+     * Runs one transfer that moves the given bytes over a whole sampling window, and returns the new concurrency.
+     */
+    private int sampleWindow(TransferController transferController, long bytes) throws InterruptedException {
+
+        transferController.acquire(bytes);
+        nanoClock.addAndGet(TimeUnit.MILLISECONDS.toNanos(WINDOW_IN_MILLIS));
+        transferController.release(bytes);
+        return transferController.getConcurrency();
+    }
+}
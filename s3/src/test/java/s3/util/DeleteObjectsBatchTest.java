@@ -0,0 +1,39 @@
+package s3.util;
+
+import s3.externalapi.InMemoryS3Manager;
+
+import software.amazon.awssdk.services.s3.model.S3Error;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+public class DeleteObjectsBatchTest {
+
+    @Test
+    public void flushTest() {
+
+        InMemoryS3Manager s3Manager = new InMemoryS3Manager();
+        DeleteObjectsBatch deleteObjectsBatch = new DeleteObjectsBatch(s3Manager, "bucket");
+        for (int index = 0; index < 1500; index++) {
+            s3Manager.put("bucket", "a/" + index, 10L, InMemoryS3Manager.OLD);
+        }
+        s3Manager.failDeletion("a/1200");
+
+        for (int index = 0; index < 1500; index++) {
+            deleteObjectsBatch.add("a/" + index, 10L);
+        }
+        Assert.assertEquals(1000L, deleteObjectsBatch.getDeletedObjects());
+        deleteObjectsBatch.flush();
+
+        Assert.assertEquals(1499L, deleteObjectsBatch.getDeletedObjects());
+        Assert.assertEquals(14990L, deleteObjectsBatch.getDeletedBytes());
+        Assert.assertEquals(Collections.singletonList("a/1200"), deleteObjectsBatch.getFailedKeys());
+        List<S3Error> errors = deleteObjectsBatch.getErrors();
+        Assert.assertEquals(1, errors.size());
+        Assert.assertEquals("AccessDenied", errors.get(0).code());
+        Assert.assertEquals(Collections.singleton("a/1200"), s3Manager.getKeys("bucket"));
+    }
+}
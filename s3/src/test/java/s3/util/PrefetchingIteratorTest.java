@@ -0,0 +1,67 @@
+package s3.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+public class PrefetchingIteratorTest {
+
+    @Test(timeout = 5000L)
+    public void closeTest() {
+
+        PrefetchingIterator<Integer> prefetchingIterator =
+                new PrefetchingIterator<>(IntStream.range(0, 1000).iterator(), 10, 1, "prefetching-test");
+        for (int index = 0; index < 15; index++) {
+            Assert.assertEquals(index, prefetchingIterator.next().intValue());
+        }
+
+        prefetchingIterator.close();
+        Assert.assertFalse(prefetchingIterator.hasNext());
+        Assert.assertFalse(prefetchingIterator.hasNext());
+        try {
+            prefetchingIterator.next();
+            Assert.fail();
+        } catch (NoSuchElementException exc) {
+            // Expected.
+        }
+    }
+
+    @Test(timeout = 5000L)
+    public void closeWhileWaitingTest() throws Exception {
+
+        // The source never produces anything, so the consumer waits until the iterator is closed.
+        CountDownLatch sourceGate = new CountDownLatch(1);
+        Iterator<Integer> source = new Iterator<Integer>() {
+
+            @Override
+            public boolean hasNext() {
+
+                try {
+                    sourceGate.await();
+                } catch (InterruptedException exc) {
+                    Thread.currentThread().interrupt();
+                }
+                return false;
+            }
+
+            @Override
+            public Integer next() {
+                throw new NoSuchElementException();
+            }
+        };
+
+        PrefetchingIterator<Integer> prefetchingIterator = new PrefetchingIterator<>(source, "prefetching-test");
+        CompletableFuture<Boolean> hasNext = CompletableFuture.supplyAsync(prefetchingIterator::hasNext);
+        Thread.sleep(100L);
+        Assert.assertFalse(hasNext.isDone());
+
+        prefetchingIterator.close();
+        Assert.assertFalse(hasNext.get(1L, TimeUnit.SECONDS));
+    }
+}